@@ -0,0 +1,72 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.bench;
+
+import com.sqlforge.model.AdvisorResponse;
+import com.sqlforge.service.AdvisorService;
+import com.sqlforge.service.DatabaseService;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link AdvisorService#advise} on a typical dashboard query and on ~40 KB generated SQL,
+ * against a sandbox seeded with 5000 employees.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AdvisorBenchmark {
+
+    @Param({"short", "long"})
+    public String size;
+
+    private DatabaseService db;
+    private long seq;
+    private AdvisorService advisor;
+    private String sql;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, SQLException {
+        db = SandboxFixture.create(5_000, Map.of());
+        advisor = new AdvisorService(db, SandboxFixture.environment(Map.of()));
+        if ("short".equals(size)) {
+            sql = "SELECT * FROM employees e JOIN projects p ON p.owner_id = e.id WHERE e.dept = 'Sales' ORDER BY e.salary";
+        } else {
+            StringBuilder sb = new StringBuilder("SELECT e.id, COUNT(*) FROM employees e JOIN projects p ON p.owner_id = e.id WHERE 1 = 1");
+            for (int i = 0; sb.length() < 40_000; i++) {
+                sb.append(" AND (e.name <> 'Team ").append(i).append("' OR e.salary > ").append(i).append(')');
+            }
+            sql = sb.append(" GROUP BY e.id ORDER BY 2 DESC").toString();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        db.shutdown();
+    }
+
+    /**
+     * Repeat statement: served from the advice cache.
+     */
+    @Benchmark
+    public AdvisorResponse advise() {
+        return advisor.advise(sql);
+    }
+
+    /**
+     * New statement text each call: EXPLAIN round trip plus plan analysis.
+     */
+    @Benchmark
+    public AdvisorResponse adviseUncached() {
+        return advisor.advise(sql + " /* " + (seq++) + " */");
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.bench;
+
+import com.sqlforge.service.AdvisorService;
+import com.sqlforge.service.DatabaseService;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@link AdvisorService#matchRules} with 10, 100 and 500 text rules, on a
+ * typical dashboard query and on ~40 KB generated SQL. The built-in rules are joined by
+ * generated ones on column comparisons, joins and function calls, a few of which fire.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AdvisorRulesBenchmark {
+
+    @Param({"10", "100", "500"})
+    public int rules;
+
+    @Param({"short", "long"})
+    public String size;
+
+    private DatabaseService db;
+    private AdvisorService advisor;
+    private Path rulesFile;
+    private String sql;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, SQLException {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; lines.size() < rules - 8; i++) { // 8 built-in rules
+            switch (i % 3) {
+                case 0:
+                    lines.add("col-" + i + " 1: WHERE|AND|OR c" + i + " =|<>|> {number} => Column c" + i + " is filtered.");
+                    break;
+                case 1:
+                    lines.add("join-" + i + " 1: JOIN t" + i + " ON => Table t" + i + " is joined.");
+                    break;
+                default:
+                    lines.add("fn-" + i + " 1: f" + i + " ( {name} => Function f" + i + " is called.");
+            }
+        }
+        rulesFile = Files.createTempFile("advisor-rules", ".txt");
+        Files.write(rulesFile, lines, StandardCharsets.UTF_8);
+        db = SandboxFixture.create(100, Map.of());
+        advisor = new AdvisorService(db, SandboxFixture.environment(Map.of(
+                "sqlforge.advisor.rules-file", rulesFile.toString())));
+        if ("short".equals(size)) {
+            sql = "SELECT * FROM employees e JOIN t1 ON t1.id = e.id WHERE e.dept = 'Sales' AND c0 > 5 ORDER BY 2";
+        } else {
+            StringBuilder sb = new StringBuilder("SELECT e.id, COUNT(*) FROM employees e JOIN projects p ON p.owner_id = e.id WHERE 1 = 1");
+            for (int i = 0; sb.length() < 40_000; i++) {
+                sb.append(" AND (e.name <> 'Team ").append(i).append("' OR UPPER(e.dept) = 'X' OR c").append(i % 600).append(" > ").append(i).append(')');
+            }
+            sql = sb.append(" GROUP BY e.id ORDER BY 2 DESC").toString();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        advisor.shutdown();
+        db.shutdown();
+        Files.deleteIfExists(rulesFile);
+    }
+
+    @Benchmark
+    public List<String> matchRules() {
+        return advisor.matchRules(sql);
+    }
+}
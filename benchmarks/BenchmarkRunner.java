@@ -0,0 +1,60 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.bench;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.NoBenchmarksException;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.util.regex.Pattern;
+
+/**
+ * Runs the SQLForge benchmark suite and writes one JMH JSON result file per run
+ * into the output directory, so results from two releases can be diffed.
+ * <pre>
+ * java -cp sqlforge-bench.jar com.sqlforge.bench.BenchmarkRunner [outputDir] [includeRegex]
+ * </pre>
+ * The history benchmark is repeated at 1, 4, 16 and 64 threads.
+ */
+public final class BenchmarkRunner {
+    private static final int[] HISTORY_THREADS = {1, 4, 16, 64};
+
+    private BenchmarkRunner() {}
+
+    public static void main(String[] args) throws RunnerException {
+        File outDir = new File(args.length > 0 ? args[0] : "bench-results");
+        String include = args.length > 1 ? args[1] : ".*";
+        if (!outDir.isDirectory() && !outDir.mkdirs()) {
+            throw new IllegalStateException("Cannot create " + outDir);
+        }
+
+        try {
+            run(new OptionsBuilder()
+                    .include(include)
+                    .exclude(HistoryBenchmark.class.getSimpleName()), new File(outDir, "single-threaded.json"));
+        } catch (NoBenchmarksException ignored) {
+            // the include pattern only selected the history benchmark
+        }
+
+        if (Pattern.compile(include).matcher(HistoryBenchmark.class.getName()).find()) {
+            for (int threads : HISTORY_THREADS) {
+                run(new OptionsBuilder()
+                        .include(HistoryBenchmark.class.getSimpleName())
+                        .threads(threads), new File(outDir, "history-" + threads + "t.json"));
+            }
+        }
+    }
+
+    private static void run(ChainedOptionsBuilder options, File result) throws RunnerException {
+        new Runner(options
+                .resultFormat(ResultFormatType.JSON)
+                .result(result.getPath())
+                .build()).run();
+    }
+}
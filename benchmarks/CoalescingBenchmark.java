@@ -0,0 +1,57 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.bench;
+
+import com.sqlforge.model.QueryRequest;
+import com.sqlforge.model.QueryResponse;
+import com.sqlforge.service.DatabaseService;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A refresh storm: 16 threads sending the same aggregate to {@link DatabaseService#execute}
+ * at once, with in-flight coalescing on and off. With it on, most calls share a running
+ * execution, so throughput grows with the threads instead of H2 running every copy.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(16)
+@Fork(1)
+public class CoalescingBenchmark {
+
+    @Param({"true", "false"})
+    public boolean coalesce;
+
+    @Param({"10000", "100000"})
+    public int seedRows;
+
+    private DatabaseService db;
+    private QueryRequest request;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        db = SandboxFixture.create(seedRows, Map.<String, Object>of(
+                "sqlforge.query.coalesce", coalesce,
+                "sqlforge.pool.max-size", 16,
+                "sqlforge.pool.max-waiters", 64));
+        request = new QueryRequest().setSql("SELECT dept, COUNT(*), AVG(salary) FROM employees GROUP BY dept");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        db.shutdown();
+    }
+
+    @Benchmark
+    public QueryResponse execute() {
+        return db.execute(request);
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.bench;
+
+import com.sqlforge.service.DatabaseService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sandbox statement validation ({@link DatabaseService#checkAllowed}) on short and
+ * very long SQL. {@code repeat=true} re-validates one statement (verdict cache hit);
+ * {@code repeat=false} changes a literal each call so every check is a miss.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FirewallBenchmark {
+
+    @Param({"short", "long"})
+    public String size;
+
+    @Param({"true", "false"})
+    public boolean repeat;
+
+    private DatabaseService db;
+    private String prefix;
+    private String suffix;
+    private String sql;
+    private long counter;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        db = SandboxFixture.create(10, Map.of());
+        if ("short".equals(size)) {
+            prefix = "SELECT id, name FROM employees e WHERE e.id <> ";
+            suffix = " AND dept = 'Sales' ORDER BY salary DESC LIMIT 10";
+        } else {
+            // ~40 KB, the size BI tools generate
+            prefix = "SELECT e.id, e.name, p.name FROM employees e JOIN projects p ON p.owner_id = e.id WHERE e.id <> ";
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; sb.length() < 40_000; i++) {
+                sb.append("\n  AND (e.name <> 'Team ").append(i).append("' OR e.salary > ").append(i).append(") -- filter ").append(i);
+            }
+            suffix = sb.toString();
+        }
+        sql = prefix + 0 + suffix;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        db.shutdown();
+    }
+
+    @Benchmark
+    public void validate() {
+        if (repeat) {
+            db.checkAllowed(sql);
+        } else {
+            db.checkAllowed(prefix + (++counter) + suffix);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.bench;
+
+import com.sqlforge.service.DatabaseService;
+import com.sqlforge.service.QueryService;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Contended {@link QueryService#recordHistory} / {@link QueryService#getHistory}.
+ * Thread count comes from the runner ({@link BenchmarkRunner} repeats this class at 1-64 threads);
+ * {@code users} controls how many threads share one user's history; {@code store=log}
+ * persists to a temporary directory, {@code store=memory} uses the ring buffers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HistoryBenchmark {
+
+    @Param({"1", "1000"})
+    public int users;
+
+    @Param({"memory", "log"})
+    public String store;
+
+    private DatabaseService db;
+    private QueryService queryService;
+    private Path dir;
+    private final AtomicInteger threadIds = new AtomicInteger();
+
+    @State(Scope.Thread)
+    public static class Caller {
+        String userId;
+        int n;
+
+        @Setup(Level.Trial)
+        public void setUp(HistoryBenchmark bench) {
+            userId = "user-" + (bench.threadIds.getAndIncrement() % bench.users);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, SQLException {
+        dir = Files.createTempDirectory("sqlforge-history-bench");
+        db = SandboxFixture.create(10, Map.of());
+        queryService = new QueryService(SandboxFixture.environment(Map.of(
+                "sqlforge.history.persist", "log".equals(store),
+                "sqlforge.history.dir", dir.toString())), db);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        queryService.shutdown();
+        db.shutdown();
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void prefill() {
+        for (int u = 0; u < users; u++) {
+            for (int i = 0; i < 100; i++) {
+                queryService.recordHistory("user-" + u, "SELECT * FROM employees WHERE id = " + i);
+            }
+        }
+    }
+
+    @Benchmark
+    public void record(Caller caller) {
+        queryService.recordHistory(caller.userId, "SELECT * FROM employees WHERE id = " + (caller.n++ & 1023));
+    }
+
+    /**
+     * Three appends per snapshot read, the ratio /api/run vs /api/history sees.
+     */
+    @Benchmark
+    public List<String> recordAndRead(Caller caller) {
+        if ((caller.n & 3) != 3) {
+            record(caller);
+            return null;
+        }
+        caller.n++;
+        return queryService.getHistory(caller.userId);
+    }
+}
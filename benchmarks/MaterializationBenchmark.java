@@ -0,0 +1,66 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sqlforge.model.QueryRequest;
+import com.sqlforge.model.QueryResponse;
+import com.sqlforge.service.DatabaseService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end {@link DatabaseService#execute} (pool, prepare, execute, row
+ * materialization) at 10 / 1k / 5k rows, with and without JSON serialization.
+ * Run with {@code -prof gc} to compare allocation per operation between formats.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MaterializationBenchmark {
+
+    @Param({"10", "1000", "5000"})
+    public int rows;
+
+    @Param({"rows", "columnar"})
+    public String format;
+
+    // size of the seeded employees table
+    @Param({"10000"})
+    public int seedRows;
+
+    private DatabaseService db;
+    private QueryRequest request;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        db = SandboxFixture.create(seedRows, Map.of());
+        request = new QueryRequest()
+                .setSql("SELECT id, name, dept, salary FROM employees ORDER BY id")
+                .setMaxRows(rows)
+                .setFormat(format);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        db.shutdown();
+    }
+
+    @Benchmark
+    public QueryResponse execute() {
+        return db.execute(request);
+    }
+
+    @Benchmark
+    public byte[] executeAndSerialize() throws Exception {
+        return mapper.writeValueAsBytes(db.execute(request));
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.bench;
+
+import com.sqlforge.model.MaterializedViewRequest;
+import com.sqlforge.model.QueryRequest;
+import com.sqlforge.model.QueryResponse;
+import com.sqlforge.service.DatabaseService;
+import com.sqlforge.service.MaterializedViewService;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link DatabaseService#execute} on aggregates over the employees table, answered
+ * from the table itself ({@code rewrite=false}) or from a per-department summary view:
+ * the view's own statement, a roll-up to one row, and a filtered roll-up.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MaterializedViewBenchmark {
+
+    @Param({
+            "SELECT dept, COUNT(*), SUM(salary) FROM employees GROUP BY dept",
+            "SELECT COUNT(*) FROM employees",
+            "SELECT SUM(salary) FROM employees WHERE dept IN ('Sales', 'Support')"
+    })
+    public String sql;
+
+    @Param({"true", "false"})
+    public boolean rewrite;
+
+    @Param({"10000", "100000"})
+    public int seedRows;
+
+    private DatabaseService db;
+    private MaterializedViewService views;
+    private QueryRequest request;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        db = SandboxFixture.create(seedRows, Map.of());
+        views = new MaterializedViewService(db, SandboxFixture.environment(Map.<String, Object>of(
+                "sqlforge.views.token", "bench",
+                "sqlforge.views.rewrite", rewrite)));
+        views.register(new MaterializedViewRequest().setName("employees_by_dept")
+                .setSql("SELECT dept, COUNT(*), SUM(salary) FROM employees GROUP BY dept"));
+        request = new QueryRequest().setSql(sql);
+        QueryResponse first = db.execute(request);
+        if (rewrite != (first.getMaterializedView() != null)) {
+            throw new IllegalStateException("Unexpected rewrite for " + sql + ": " + first.getMaterializedView());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        views.drop("employees_by_dept");
+        views.shutdown();
+        db.shutdown();
+    }
+
+    @Benchmark
+    public QueryResponse execute() {
+        return db.execute(request);
+    }
+}
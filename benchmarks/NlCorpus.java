@@ -0,0 +1,64 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.bench;
+
+/**
+ * NL-to-SQL inputs for {@link NlToSqlBenchmark}: every built-in rule in a few
+ * phrasings, inputs that only the fallback answers, and a few long ones, against
+ * the {@code employees}/{@code projects} tables of {@link SandboxFixture}
+ * (departments Sales, Engineering and Support).
+ */
+final class NlCorpus {
+
+    static final String[] INPUTS = {
+            // top / bottom
+            "show me the top 10 salary earners",
+            "top salaries",
+            "highest salary in engineering",
+            "who has the biggest salary in sales",
+            "lowest 5 salaries",
+            "smallest salary in support",
+            // aggregates
+            "average salary",
+            "average salary by dept",
+            "mean salary per dept for engineering",
+            "total salary",
+            "sum of salary by dept",
+            // counts
+            "count employees",
+            "how many employees are in sales",
+            "number of projects",
+            "count employees by dept",
+            "count projects per owner id",
+            // joins
+            "projects owned by employee 3",
+            "list the projects owned by Employee 42",
+            // filters
+            "list employees in engineering",
+            "list all employees in engineering",
+            "sales employees",
+            "sales and support employees",
+            "show employees in marketing",
+            "find employees in human resources",
+            // plain listings
+            "list employees",
+            "show me every project",
+            "employee",
+            // fallback
+            "what is the weather like today",
+            "hello",
+            "SELECT * FROM employees",
+            "how do I write a join?",
+            // long inputs
+            "could you please show me, for the quarterly review that is coming up next week, the top 25 salary "
+                    + "figures of the people working in engineering so that we can compare them",
+            "I would like to know the average salary by dept, but only for the people working in sales or support, "
+                    + "ideally as a single table that I can paste into a slide for the board meeting on friday",
+            "this sentence mentions nothing the schema knows about and goes on for a while to measure how the "
+                    + "engine behaves when it has to scan a long input without finding any phrase worth keeping"
+    };
+
+    private NlCorpus() {}
+}
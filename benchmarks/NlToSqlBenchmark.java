@@ -0,0 +1,78 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.bench;
+
+import com.sqlforge.service.DatabaseService;
+import com.sqlforge.service.QueryService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link QueryService#nlToSql} over inputs hitting single rules and the fallback,
+ * over the whole {@link NlCorpus}, and the cost of rebuilding the engine from a
+ * fresh schema index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NlToSqlBenchmark {
+
+    @Param({
+            "show me the top 10 salary earners",
+            "list all employees in engineering",
+            "count employees",
+            "projects owned by employee 3",
+            "what is the weather like today"
+    })
+    public String text;
+
+    private DatabaseService db;
+    private QueryService queryService;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, SQLException {
+        db = SandboxFixture.create(1_000, Map.of());
+        queryService = new QueryService(SandboxFixture.environment(Map.of("sqlforge.history.persist", false)), db);
+        queryService.reloadNlIndex(); // the seeded departments, without waiting for the background refresh
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        queryService.shutdown();
+        db.shutdown();
+    }
+
+    @Benchmark
+    public String translate() {
+        return queryService.nlToSql(text);
+    }
+
+    /**
+     * Every corpus input once; divide by {@code NlCorpus.INPUTS.length} for the per-input cost.
+     */
+    @Benchmark
+    public void corpus(Blackhole bh) {
+        for (String input : NlCorpus.INPUTS) {
+            bh.consume(queryService.nlToSql(input));
+        }
+    }
+
+    /**
+     * Reading the schema index (tables, columns, distinct department names) and compiling the engine.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void reloadIndex() {
+        queryService.reloadNlIndex();
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sqlforge.model.QueryRequest;
+import com.sqlforge.service.DatabaseService;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Eight threads running wide 5000-row {@link DatabaseService#execute} calls and writing
+ * the JSON, with rows kept as maps or in off-heap segments. Run with {@code -prof gc}
+ * to compare allocation rate and GC count/time between the two.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(value = 1, jvmArgs = {"-Xmx512m"})
+public class OffHeapRowsBenchmark {
+
+    @Param({"true", "false"})
+    public boolean offHeap;
+
+    @Param({"1000", "5000"})
+    public int rows;
+
+    @Param({"10000"})
+    public int seedRows;
+
+    private DatabaseService db;
+    private QueryRequest request;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        db = SandboxFixture.create(seedRows, Map.<String, Object>of(
+                "sqlforge.offheap.enabled", offHeap,
+                "sqlforge.query.coalesce", false));
+        request = new QueryRequest()
+                .setSql("SELECT id, name, dept, salary, name || ' (' || dept || ')' AS label, "
+                        + "salary * 1.05 AS raised, MOD(id, 7) = 0 AS flagged FROM employees ORDER BY id")
+                .setMaxRows(rows);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        db.shutdown();
+    }
+
+    @Benchmark
+    public void executeAndWrite() throws IOException {
+        // writing is what hands off-heap rows back to the pool, as in the controller
+        mapper.writeValue(OutputStream.nullOutputStream(), db.execute(request));
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.bench;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.sqlforge.controller.ApiController;
+import com.sqlforge.model.AdvisorResponse;
+import com.sqlforge.model.BatchRequest;
+import com.sqlforge.model.BatchResponse;
+import com.sqlforge.model.QueryRequest;
+import com.sqlforge.model.QueryResponse;
+import com.sqlforge.service.AdvisorService;
+import com.sqlforge.service.DatabaseService;
+import com.sqlforge.service.QueryExecutor;
+import com.sqlforge.service.QueryService;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.http.ResponseEntity;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Where {@link WorkloadReplay} sends captured requests. Bodies are converted once by
+ * {@link #prepare} while the capture is loaded, so the replay measures only the calls.
+ */
+interface ReplayTarget extends AutoCloseable {
+
+    /**
+     * @throws IllegalArgumentException if the target cannot serve the endpoint
+     */
+    Object prepare(String endpoint, JsonNode body) throws IOException;
+
+    /**
+     * @return true for a 2xx answer whose body does not report {@code "ok": false}
+     */
+    boolean send(String endpoint, Object prepared) throws Exception;
+
+    @Override
+    void close();
+
+    /**
+     * Calls {@link ApiController} directly, wired as Spring would wire it, over a private
+     * in-memory database seeded like the benchmarks'. No HTTP on the way; response bodies
+     * are serialized to JSON and discarded.
+     */
+    final class InProcess implements ReplayTarget {
+        private final ObjectMapper mapper;
+        private final ObjectWriter bodies;
+        private final DatabaseService db;
+        private final QueryService queryService;
+        private final AdvisorService advisorService;
+        private final QueryExecutor executor;
+        private final ApiController controller;
+
+        InProcess(int seedRows, Map<String, Object> overrides, ObjectMapper mapper) throws IOException, SQLException {
+            this.mapper = mapper;
+            this.bodies = mapper.writer().without(SerializationFeature.INDENT_OUTPUT);
+            StandardEnvironment env = SandboxFixture.environment(overrides);
+            this.db = SandboxFixture.create(seedRows, overrides);
+            this.queryService = new QueryService(env, db);
+            this.advisorService = new AdvisorService(db, env);
+            this.executor = new QueryExecutor(env);
+            this.controller = new ApiController(db, queryService, advisorService, executor, mapper);
+            queryService.reloadNlIndex();
+        }
+
+        @Override
+        public Object prepare(String endpoint, JsonNode body) throws IOException {
+            switch (endpoint) {
+                case "run":
+                case "explain":
+                case "advice":
+                case "nl-to-sql":
+                    return mapper.treeToValue(body, QueryRequest.class);
+                case "run/batch":
+                    return mapper.treeToValue(body, BatchRequest.class);
+                default:
+                    throw new IllegalArgumentException("Endpoint /api/" + endpoint + " cannot be replayed in process");
+            }
+        }
+
+        @Override
+        public boolean send(String endpoint, Object prepared) throws IOException {
+            ResponseEntity<?> resp;
+            switch (endpoint) {
+                case "run":
+                    resp = controller.runQuery((QueryRequest) prepared);
+                    break;
+                case "explain":
+                    resp = controller.explain((QueryRequest) prepared);
+                    break;
+                case "advice":
+                    resp = controller.advice((QueryRequest) prepared);
+                    break;
+                case "nl-to-sql":
+                    resp = controller.nlToSql((QueryRequest) prepared);
+                    break;
+                default:
+                    resp = controller.runBatch((BatchRequest) prepared);
+            }
+            boolean ok = resp.getStatusCode().is2xxSuccessful() && ok(resp.getBody());
+            // written the way Spring writes it, which also hands off-heap rows back to their pool
+            bodies.writeValue(OutputStream.nullOutputStream(), resp.getBody());
+            return ok;
+        }
+
+        private static boolean ok(Object body) {
+            if (body instanceof QueryResponse) {
+                return ((QueryResponse) body).isOk();
+            }
+            if (body instanceof AdvisorResponse) {
+                return ((AdvisorResponse) body).isOk();
+            }
+            return ((BatchResponse) body).isOk();
+        }
+
+        @Override
+        public void close() {
+            executor.shutdown();
+            advisorService.shutdown();
+            queryService.shutdown();
+            db.shutdown();
+        }
+    }
+
+    /**
+     * POSTs each body as JSON to {@code <baseUrl>/api/<endpoint>} of a running server.
+     */
+    final class Http implements ReplayTarget {
+        private final ObjectMapper mapper;
+        private final ExecutorService pool; // the client's own I/O threads
+        private final HttpClient client;
+        private final String baseUrl;
+        private final Duration timeout;
+
+        Http(String baseUrl, Duration timeout, int concurrency, ObjectMapper mapper) {
+            this.mapper = mapper;
+            this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+            this.timeout = timeout;
+            this.pool = Executors.newFixedThreadPool(Math.max(2, concurrency / 4));
+            this.client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(timeout)
+                    .executor(pool)
+                    .build();
+        }
+
+        @Override
+        public Object prepare(String endpoint, JsonNode body) throws IOException {
+            return mapper.writeValueAsBytes(body);
+        }
+
+        @Override
+        public boolean send(String endpoint, Object prepared) throws IOException, InterruptedException {
+            HttpRequest req = HttpRequest.newBuilder(URI.create(baseUrl + "/api/" + endpoint))
+                    .timeout(timeout)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray((byte[]) prepared))
+                    .build();
+            HttpResponse<String> resp = client.send(req, HttpResponse.BodyHandlers.ofString());
+            return resp.statusCode() / 100 == 2 && !resp.body().contains("\"ok\":false");
+        }
+
+        @Override
+        public void close() {
+            pool.shutdownNow();
+        }
+    }
+}
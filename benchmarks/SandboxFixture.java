@@ -0,0 +1,58 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.bench;
+
+import com.sqlforge.service.DatabaseService;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Builds a {@link DatabaseService} on a private in-memory H2 database and seeds
+ * {@code employees}/{@code projects} with the requested number of rows.
+ */
+final class SandboxFixture {
+    private static final AtomicInteger SEQ = new AtomicInteger();
+
+    private SandboxFixture() {}
+
+    static DatabaseService create(int employees, Map<String, Object> overrides) throws SQLException {
+        String url = "jdbc:h2:mem:bench" + SEQ.incrementAndGet() + ";DB_CLOSE_DELAY=-1";
+        Map<String, Object> props = new HashMap<>();
+        props.put("sqlforge.db.url", url);
+        props.putAll(overrides);
+        DatabaseService db = new DatabaseService(environment(props));
+        db.whenReady().toCompletableFuture().join(); // the schema is created in the background
+        seed(url, employees);
+        return db;
+    }
+
+    static StandardEnvironment environment(Map<String, Object> props) {
+        StandardEnvironment env = new StandardEnvironment();
+        env.getPropertySources().addFirst(new MapPropertySource("bench", props));
+        return env;
+    }
+
+    private static void seed(String url, int employees) throws SQLException {
+        try (Connection c = DriverManager.getConnection(url, "sa", "");
+             Statement st = c.createStatement()) {
+            st.execute("DELETE FROM employees");
+            st.execute("DELETE FROM projects");
+            st.execute("INSERT INTO employees SELECT X, 'Employee ' || X, "
+                    + "CASEWHEN(MOD(X, 3) = 0, 'Sales', CASEWHEN(MOD(X, 3) = 1, 'Engineering', 'Support')), "
+                    + "60000 + MOD(X * 37, 50000) FROM SYSTEM_RANGE(1, " + employees + ")");
+            st.execute("INSERT INTO projects SELECT X, 'Project ' || X, MOD(X, " + employees + ") + 1 "
+                    + "FROM SYSTEM_RANGE(1, " + Math.max(1, employees / 4) + ")");
+            st.execute("ANALYZE");
+        }
+    }
+}
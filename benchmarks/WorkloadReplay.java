@@ -0,0 +1,438 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.bench;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+
+/**
+ * Replays a JSONL capture of API requests and reports throughput, latency percentiles,
+ * error rate and allocation rate per endpoint.
+ * <pre>
+ * java -cp &lt;bench classpath&gt; com.sqlforge.bench.WorkloadReplay capture.jsonl [--option=value ...]
+ * </pre>
+ * Each line is {@code {"endpoint": "run", "at": 1500, "request": {...}}}, where endpoint is
+ * the path under {@code /api} (run, run/batch, explain, advice, nl-to-sql), {@code at} the
+ * capture time in milliseconds (optional) and request the JSON body; a bare
+ * {@code QueryRequest} line stands for {@code run}. Blank lines and lines starting with
+ * '#' are skipped. Options:
+ * <ul>
+ *   <li>{@code --target=in-process} (default) calls {@code ApiController} over a seeded
+ *       in-memory database; {@code --target=http://localhost:8080} posts to a running server;</li>
+ *   <li>{@code --concurrency=8}: closed loop, each worker sends its next request when the
+ *       previous one answers; in open loop, the workers that serve the arrivals;</li>
+ *   <li>{@code --rate=200}: open loop, that many arrivals per second whatever the responses;</li>
+ *   <li>{@code --time-scale=2}: open loop on the captured {@code at} times, twice as fast;</li>
+ *   <li>{@code --loops=1}: passes over the capture; {@code --warmup=1}: sequential passes first;</li>
+ *   <li>{@code --seed-rows=5000}, {@code --timeout-ms=30000}, {@code --out=report.json};</li>
+ *   <li>{@code --sqlforge.<property>=value}: configuration of the in-process server, e.g.
+ *       {@code --sqlforge.offheap.enabled=true}.</li>
+ * </ul>
+ * In open loop a request's latency runs from its scheduled arrival, so time spent waiting
+ * for a free worker counts and an overloaded server shows up in the percentiles instead of
+ * slowing the arrivals down. Allocation per request is measured across all JVM threads
+ * during the sequential warmup, where requests do not overlap; in-process that includes
+ * the server, over HTTP only the client. Garbage collections during the measured run are
+ * counted with their total and longest pause; in-process they are the server's as well.
+ */
+public final class WorkloadReplay {
+
+    private static final class Entry {
+        final String endpoint;
+        final long atNanos;
+        final Object prepared;
+
+        Entry(String endpoint, long atNanos, Object prepared) {
+            this.endpoint = endpoint;
+            this.atNanos = atNanos;
+            this.prepared = prepared;
+        }
+    }
+
+    /**
+     * Latencies and outcomes of one endpoint; synchronized, since workers share it.
+     */
+    private static final class Recorder {
+        private long[] latencies = new long[256];
+        private int count;
+        private int errors;
+        private long warmupRequests;
+        private long warmupBytes;
+
+        synchronized void record(long nanos, boolean ok) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = nanos;
+            if (!ok) {
+                errors++;
+            }
+        }
+
+        synchronized void warmup(long bytes) {
+            warmupRequests++;
+            warmupBytes += bytes;
+        }
+
+        synchronized EndpointReport report(String endpoint, double seconds) {
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            EndpointReport r = new EndpointReport();
+            r.endpoint = endpoint;
+            r.requests = count;
+            r.errors = errors;
+            r.errorRate = count == 0 ? 0 : (double) errors / count;
+            r.throughput = round(count / seconds);
+            r.meanMillis = count == 0 ? 0 : round(Arrays.stream(sorted).average().orElse(0) / 1e6);
+            r.p50Millis = percentile(sorted, 0.50);
+            r.p90Millis = percentile(sorted, 0.90);
+            r.p99Millis = percentile(sorted, 0.99);
+            r.p999Millis = percentile(sorted, 0.999);
+            r.maxMillis = count == 0 ? 0 : round(sorted[count - 1] / 1e6);
+            if (warmupRequests > 0) {
+                r.allocatedBytesPerRequest = warmupBytes / warmupRequests;
+                r.allocationMBPerSecond = round(r.allocatedBytesPerRequest * r.throughput / (1024 * 1024));
+            }
+            return r;
+        }
+    }
+
+    /** One endpoint's line in the report; serialized as JSON. */
+    public static final class EndpointReport {
+        public String endpoint;
+        public long requests;
+        public long errors;
+        public double errorRate;
+        public double throughput; // requests per second
+        public double meanMillis;
+        public double p50Millis;
+        public double p90Millis;
+        public double p99Millis;
+        public double p999Millis;
+        public double maxMillis;
+        public Long allocatedBytesPerRequest; // from the warmup; null without one
+        public Double allocationMBPerSecond;  // bytes per request at the measured throughput
+    }
+
+    /** The whole run; serialized as JSON. */
+    public static final class Report {
+        public String target;
+        public String arrivals; // closed, rate or capture
+        public int concurrency;
+        public double seconds;
+        public long requests;
+        public long errors;
+        public double errorRate;
+        public double throughput;
+        public double allocationMBPerSecond; // every JVM thread over the measured run
+        public long gcPauses;                // stop-the-world collections over the measured run
+        public double gcPauseMillis;
+        public double maxGcPauseMillis;
+        public List<EndpointReport> endpoints = new ArrayList<>();
+    }
+
+    /**
+     * Collections reported by the JVM while open. Collectors named as concurrent
+     * (G1's and ZGC's cycles) run beside the application and are left out.
+     */
+    private static final class GcWatch implements NotificationListener, AutoCloseable {
+        private final List<NotificationEmitter> emitters = new ArrayList<>();
+        private long pauses;
+        private long totalMillis;
+        private long maxMillis;
+
+        GcWatch() {
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                String name = gc.getName();
+                if (gc instanceof NotificationEmitter && !name.contains("Concurrent") && !name.contains("Cycles")) {
+                    ((NotificationEmitter) gc).addNotificationListener(this, null, null);
+                    emitters.add((NotificationEmitter) gc);
+                }
+            }
+        }
+
+        @Override
+        public synchronized void handleNotification(Notification n, Object handback) {
+            if (GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(n.getType())) {
+                long millis = GarbageCollectionNotificationInfo.from((CompositeData) n.getUserData()).getGcInfo().getDuration();
+                pauses++;
+                totalMillis += millis;
+                maxMillis = Math.max(maxMillis, millis);
+            }
+        }
+
+        synchronized void report(Report report) {
+            report.gcPauses = pauses;
+            report.gcPauseMillis = totalMillis;
+            report.maxGcPauseMillis = maxMillis;
+        }
+
+        @Override
+        public void close() {
+            for (NotificationEmitter e : emitters) {
+                try {
+                    e.removeNotificationListener(this);
+                } catch (ListenerNotFoundException ignored) {
+                    // already gone
+                }
+            }
+        }
+    }
+
+    private WorkloadReplay() {}
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.err.println("usage: WorkloadReplay capture.jsonl [--target=in-process|http://host:port] [--concurrency=8]"
+                    + " [--rate=N | --time-scale=X] [--loops=1] [--warmup=1] [--seed-rows=5000] [--timeout-ms=30000]"
+                    + " [--out=report.json] [--sqlforge.<property>=value ...]");
+            System.exit(2);
+        }
+        Map<String, String> opts = new HashMap<>();
+        for (int i = 1; i < args.length; i++) {
+            String a = args[i];
+            int eq = a.indexOf('=');
+            if (!a.startsWith("--") || eq < 0) {
+                throw new IllegalArgumentException("Expected --option=value, got " + a);
+            }
+            opts.put(a.substring(2, eq), a.substring(eq + 1));
+        }
+        Map<String, Object> overrides = new HashMap<>();
+        overrides.put("sqlforge.history.persist", false);
+        for (Map.Entry<String, String> o : opts.entrySet()) {
+            if (o.getKey().startsWith("sqlforge.")) {
+                overrides.put(o.getKey(), o.getValue());
+            }
+        }
+        String targetName = opts.getOrDefault("target", "in-process");
+        int concurrency = Integer.parseInt(opts.getOrDefault("concurrency", "8"));
+        double rate = Double.parseDouble(opts.getOrDefault("rate", "0"));
+        double timeScale = Double.parseDouble(opts.getOrDefault("time-scale", "0"));
+        int loops = Integer.parseInt(opts.getOrDefault("loops", "1"));
+        int warmup = Integer.parseInt(opts.getOrDefault("warmup", "1"));
+        if (concurrency < 1 || loops < 1 || warmup < 0 || rate < 0 || timeScale < 0 || (rate > 0 && timeScale > 0)) {
+            throw new IllegalArgumentException("Bad options: " + opts);
+        }
+
+        ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        try (ReplayTarget target = targetName.equals("in-process")
+                ? new ReplayTarget.InProcess(Integer.parseInt(opts.getOrDefault("seed-rows", "5000")),
+                        overrides, mapper)
+                : new ReplayTarget.Http(targetName,
+                        Duration.ofMillis(Long.parseLong(opts.getOrDefault("timeout-ms", "30000"))), concurrency, mapper)) {
+            List<Entry> capture = load(args[0], target, mapper);
+            if (capture.isEmpty()) {
+                throw new IllegalArgumentException("No requests in " + args[0]);
+            }
+            Map<String, Recorder> recorders = new LinkedHashMap<>();
+            for (Entry e : capture) {
+                recorders.computeIfAbsent(e.endpoint, k -> new Recorder());
+            }
+
+            for (int pass = 0; pass < warmup; pass++) {
+                for (Entry e : capture) {
+                    long before = allocatedBytes();
+                    send(target, e);
+                    recorders.get(e.endpoint).warmup(Math.max(0, allocatedBytes() - before));
+                }
+            }
+
+            Report report = new Report();
+            report.target = targetName;
+            report.concurrency = concurrency;
+            report.arrivals = rate > 0 ? "rate" : timeScale > 0 ? "capture" : "closed";
+            // workers outlive the run, so their allocations are still counted at the end
+            ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+            long allocBefore = allocatedBytes();
+            long start = System.nanoTime();
+            try (GcWatch gc = new GcWatch()) {
+                if (rate > 0 || timeScale > 0) {
+                    openLoop(target, capture, loops, workers, rate, timeScale, recorders);
+                } else {
+                    closedLoop(target, capture, loops, concurrency, workers, recorders);
+                }
+                gc.report(report);
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            long allocated = allocatedBytes() - allocBefore;
+            workers.shutdown();
+
+            report.seconds = round(seconds);
+            for (Map.Entry<String, Recorder> r : recorders.entrySet()) {
+                EndpointReport er = r.getValue().report(r.getKey(), seconds);
+                report.endpoints.add(er);
+                report.requests += er.requests;
+                report.errors += er.errors;
+            }
+            report.errorRate = report.requests == 0 ? 0 : (double) report.errors / report.requests;
+            report.throughput = round(report.requests / seconds);
+            report.allocationMBPerSecond = round(allocated / seconds / (1024 * 1024));
+
+            String json = mapper.writeValueAsString(report);
+            System.out.println(json);
+            if (opts.containsKey("out")) {
+                Files.write(new File(opts.get("out")).toPath(), json.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    private static List<Entry> load(String path, ReplayTarget target, ObjectMapper mapper) throws IOException {
+        List<Entry> out = new ArrayList<>();
+        long firstAt = -1;
+        try (BufferedReader in = Files.newBufferedReader(Paths.get(path), StandardCharsets.UTF_8)) {
+            int lineNo = 0;
+            for (String line = in.readLine(); line != null; line = in.readLine()) {
+                lineNo++;
+                String trimmed = line.trim();
+                if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                    continue;
+                }
+                try {
+                    JsonNode node = mapper.readTree(trimmed);
+                    String endpoint = node.has("endpoint") ? node.get("endpoint").asText() : "run";
+                    JsonNode body = node.has("endpoint") ? node.get("request") : node;
+                    if (body == null || !body.isObject()) {
+                        throw new IllegalArgumentException("missing request body");
+                    }
+                    if (endpoint.startsWith("/")) {
+                        endpoint = endpoint.substring(1);
+                    }
+                    if (endpoint.startsWith("api/")) {
+                        endpoint = endpoint.substring(4);
+                    }
+                    long at = node.has("at") ? node.get("at").asLong() : 0;
+                    if (firstAt < 0) {
+                        firstAt = at;
+                    }
+                    out.add(new Entry(endpoint, TimeUnit.MILLISECONDS.toNanos(at - firstAt),
+                            target.prepare(endpoint, body)));
+                } catch (IOException | IllegalArgumentException ex) {
+                    throw new IllegalArgumentException(path + ":" + lineNo + ": " + ex.getMessage(), ex);
+                }
+            }
+        }
+        return out;
+    }
+
+    /**
+     * {@code concurrency} workers, each sending its next request as soon as the last one answers.
+     */
+    private static void closedLoop(ReplayTarget target, List<Entry> capture, int loops, int concurrency,
+                                   ExecutorService workers, Map<String, Recorder> recorders) throws InterruptedException {
+        AtomicInteger next = new AtomicInteger();
+        int total = capture.size() * loops;
+        CountDownLatch done = new CountDownLatch(concurrency);
+        for (int w = 0; w < concurrency; w++) {
+            workers.execute(() -> {
+                for (int i = next.getAndIncrement(); i < total; i = next.getAndIncrement()) {
+                    Entry e = capture.get(i % capture.size());
+                    long start = System.nanoTime();
+                    boolean ok = send(target, e);
+                    recorders.get(e.endpoint).record(System.nanoTime() - start, ok);
+                }
+                done.countDown();
+            });
+        }
+        done.await();
+    }
+
+    /**
+     * Arrivals on a fixed schedule (every 1/rate seconds, or the captured times divided by
+     * the time scale), handed to the workers however fast they answer.
+     */
+    private static void openLoop(ReplayTarget target, List<Entry> capture, int loops, ExecutorService workers,
+                                 double rate, double timeScale, Map<String, Recorder> recorders)
+            throws InterruptedException {
+        long span = capture.stream().mapToLong(e -> e.atNanos).max().orElse(0);
+        // one loop of the capture takes its span plus the mean gap, so passes do not overlap
+        long period = span + (capture.size() > 1 ? span / (capture.size() - 1) : TimeUnit.SECONDS.toNanos(1));
+        long base = System.nanoTime();
+        int total = capture.size() * loops;
+        CountDownLatch done = new CountDownLatch(total);
+        for (int i = 0; i < total; i++) {
+            Entry e = capture.get(i % capture.size());
+            long offset = rate > 0
+                    ? (long) (i * 1e9 / rate)
+                    : (long) (((long) (i / capture.size()) * period + e.atNanos) / timeScale);
+            long due = base + offset;
+            for (long wait = due - System.nanoTime(); wait > 0; wait = due - System.nanoTime()) {
+                LockSupport.parkNanos(wait);
+            }
+            workers.execute(() -> {
+                boolean ok = send(target, e);
+                recorders.get(e.endpoint).record(System.nanoTime() - due, ok);
+                done.countDown();
+            });
+        }
+        done.await();
+    }
+
+    private static boolean send(ReplayTarget target, Entry e) {
+        try {
+            return target.send(e.endpoint, e.prepared);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception ex) {
+            return false; // refused, reset or timed out: an error like any non-2xx answer
+        }
+    }
+
+    /**
+     * Bytes allocated so far by every live thread, or 0 where the JVM cannot tell.
+     */
+    private static long allocatedBytes() {
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) {
+            return 0;
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long sum = 0;
+        for (long bytes : threads.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+            sum += Math.max(0, bytes);
+        }
+        return sum;
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(p * sorted.length) - 1;
+        return round(sorted[Math.max(0, Math.min(sorted.length - 1, rank))] / 1e6);
+    }
+
+    private static double round(double v) {
+        return Math.round(v * 1000) / 1000.0;
+    }
+}
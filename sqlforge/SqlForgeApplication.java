@@ -6,18 +6,27 @@ package com.sqlforge;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+
+import java.util.Arrays;
 
 /**
  * SQLForge main entrypoint.
  * Produces embedded web server, serves SPA and REST API.
+ * <p>
+ * With {@code -Dsqlforge.startup.profile=true} (or the same as a {@code --} argument)
+ * Spring records every startup step, and {@link StartupMonitor} logs the slowest.
  */
 @SpringBootApplication
 public class SqlForgeApplication {
+    private static final String PROFILE_PROPERTY = "sqlforge.startup.profile";
+    private static final int PROFILE_CAPACITY = 10_000; // startup steps kept
+
     public static void main(String[] args) {
-        SpringApplication.run(SqlForgeApplication.class, args);
+        SpringApplication app = new SpringApplication(SqlForgeApplication.class);
+        if (Boolean.getBoolean(PROFILE_PROPERTY) || Arrays.asList(args).contains("--" + PROFILE_PROPERTY + "=true")) {
+            app.setApplicationStartup(new BufferingApplicationStartup(PROFILE_CAPACITY));
+        }
+        app.run(args);
     }
 }
-/*
- * Copyright © 2025 Devin B. Royal.
- * All Rights Reserved.
- */
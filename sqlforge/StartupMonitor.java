@@ -0,0 +1,85 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge;
+
+import com.sqlforge.service.DatabaseService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Holds Spring's readiness state at REFUSING_TRAFFIC until {@link DatabaseService} has
+ * finished its background initialization, and logs how long booting took: JVM start to
+ * application ready, to database ready, and with {@code sqlforge.startup.profile} the
+ * slowest startup steps.
+ */
+@Component
+public class StartupMonitor {
+    private static final Logger log = LoggerFactory.getLogger(StartupMonitor.class);
+    private static final int SLOWEST_STEPS = 15;
+
+    private final DatabaseService db;
+    private final ApplicationContext context;
+
+    public StartupMonitor(DatabaseService db, ApplicationContext context) {
+        this.db = db;
+        this.context = context;
+    }
+
+    /**
+     * Spring Boot announces ACCEPTING_TRAFFIC once the context is ready; the database may
+     * still be initializing then, so that is taken back until it is done.
+     */
+    @EventListener
+    public void onReadiness(AvailabilityChangeEvent<ReadinessState> event) {
+        if (event.getState() != ReadinessState.ACCEPTING_TRAFFIC || db.isReady()) {
+            return;
+        }
+        AvailabilityChangeEvent.publish(context, ReadinessState.REFUSING_TRAFFIC);
+        db.whenReady().thenRun(() -> AvailabilityChangeEvent.publish(context, ReadinessState.ACCEPTING_TRAFFIC));
+    }
+
+    @EventListener
+    public void onApplicationReady(ApplicationReadyEvent event) {
+        log.info("Application ready {} ms after JVM start ({} ms in Spring)",
+                ManagementFactory.getRuntimeMXBean().getUptime(), event.getTimeTaken().toMillis());
+        db.whenReady().thenRun(() -> log.info("Database ready {} ms after JVM start (initialization took {} ms)",
+                ManagementFactory.getRuntimeMXBean().getUptime(), db.readyMillis()));
+        if (event.getApplicationContext().getApplicationStartup() instanceof BufferingApplicationStartup) {
+            logSlowestSteps((BufferingApplicationStartup) event.getApplicationContext().getApplicationStartup());
+        }
+    }
+
+    private static void logSlowestSteps(BufferingApplicationStartup startup) {
+        List<StartupTimeline.TimelineEvent> slowest = startup.getBufferedTimeline().getEvents().stream()
+                .sorted(Comparator.comparing(StartupTimeline.TimelineEvent::getDuration).reversed())
+                .limit(SLOWEST_STEPS)
+                .collect(Collectors.toList());
+        StringBuilder sb = new StringBuilder("Slowest startup steps:");
+        for (StartupTimeline.TimelineEvent e : slowest) {
+            List<String> tags = new ArrayList<>();
+            for (StartupStep.Tag t : e.getStartupStep().getTags()) {
+                tags.add(t.getKey() + "=" + t.getValue());
+            }
+            sb.append("\n  ").append(e.getDuration().toMillis()).append(" ms  ")
+                    .append(e.getStartupStep().getName()).append(tags.isEmpty() ? "" : " " + tags);
+        }
+        log.info(sb.toString());
+    }
+}
@@ -4,20 +4,42 @@
  */
 package com.sqlforge.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.sqlforge.model.AdvisorResponse;
+import com.sqlforge.model.AdvisorRuleStats;
+import com.sqlforge.model.BatchRequest;
+import com.sqlforge.model.BatchResponse;
+import com.sqlforge.model.CacheStats;
+import com.sqlforge.model.CoalescingStats;
+import com.sqlforge.model.ExecutorStats;
+import com.sqlforge.model.HistoryStats;
+import com.sqlforge.model.OffHeapStats;
+import com.sqlforge.model.PoolStats;
+import com.sqlforge.model.QueryMetrics;
 import com.sqlforge.model.QueryRequest;
 import com.sqlforge.model.QueryResponse;
+import com.sqlforge.model.SandboxStats;
 import com.sqlforge.service.AdvisorService;
 import com.sqlforge.service.DatabaseService;
+import com.sqlforge.service.PoolExhaustedException;
+import com.sqlforge.service.QueryBatch;
+import com.sqlforge.service.QueryExecutor;
+import com.sqlforge.service.QueryRejectedException;
 import com.sqlforge.service.QueryService;
+import com.sqlforge.service.QueryTask;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 
 /**
  * API endpoints for SQLForge SPA.
@@ -30,40 +52,198 @@ public class ApiController {
     private final DatabaseService dbService;
     private final QueryService queryService;
     private final AdvisorService advisorService;
+    private final QueryExecutor queryExecutor;
+    private final ObjectMapper objectMapper;
 
     public ApiController(DatabaseService dbService,
                          QueryService queryService,
-                         AdvisorService advisorService) {
+                         AdvisorService advisorService,
+                         QueryExecutor queryExecutor,
+                         ObjectMapper objectMapper) {
         this.dbService = dbService;
         this.queryService = queryService;
         this.advisorService = advisorService;
+        this.queryExecutor = queryExecutor;
+        this.objectMapper = objectMapper;
     }
 
     @PostMapping("/run")
     public ResponseEntity<QueryResponse> runQuery(@Valid @RequestBody QueryRequest req) {
         try {
             log.info("Run request received (userId={}, mode={})", req.getUserId(), req.getMode());
-            QueryResponse resp = dbService.executeSafe(req.getSql(), req.getMode());
+            QueryResponse resp = queryExecutor.execute(req.getUserId(), ctx -> dbService.execute(req, ctx));
             queryService.recordHistory(req.getUserId(), req.getSql());
             return ResponseEntity.ok(resp);
         } catch (IllegalArgumentException iae) {
             log.warn("Bad request: {}", iae.getMessage());
             return ResponseEntity.badRequest().body(QueryResponse.error(iae.getMessage()));
+        } catch (PoolExhaustedException pee) {
+            log.warn("Run rejected: {}", pee.getMessage());
+            return busy().body(QueryResponse.error(pee.getMessage()));
+        } catch (QueryRejectedException qre) {
+            log.warn("Run rejected: {}", qre.getMessage());
+            return rejected(qre).body(QueryResponse.error(qre.getMessage()));
         } catch (Exception ex) {
+            if (isCancelled(ex)) {
+                log.warn("Run cancelled: {}", ex.getMessage());
+                return cancelled().body(QueryResponse.error(ex.getMessage()));
+            }
             log.error("Error running query", ex);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(QueryResponse.error("Internal server error: " + ex.getMessage()));
         }
     }
 
+    /**
+     * Runs several statements in one request. All are validated before any runs;
+     * "sequential" mode runs them in order on one connection, "parallel" deals them
+     * over the user's execution slots. History gets one combined write.
+     */
+    @PostMapping("/run/batch")
+    public ResponseEntity<BatchResponse> runBatch(@Valid @RequestBody BatchRequest req) {
+        try {
+            long start = System.nanoTime();
+            String mode = req.getMode() == null ? BatchRequest.MODE_SEQUENTIAL : req.getMode().toLowerCase(Locale.ROOT);
+            log.info("Batch request received (userId={}, mode={}, statements={})",
+                    req.getUserId(), mode, req.getQueries().size());
+            QueryBatch batch = dbService.prepareBatch(req.getUserId(), req.getQueries());
+            if (BatchRequest.MODE_PARALLEL.equals(mode)) {
+                List<QueryBatch> parts = batch.split(queryExecutor.perUserMaxConcurrent());
+                List<QueryTask<List<QueryResponse>>> tasks = new ArrayList<>(parts.size());
+                for (QueryBatch part : parts) {
+                    tasks.add(ctx -> dbService.execute(part, ctx));
+                }
+                // the first part is the largest
+                queryExecutor.executeAll(req.getUserId(), queryExecutor.budgetFor(parts.get(0).size()), tasks);
+            } else if (BatchRequest.MODE_SEQUENTIAL.equals(mode)) {
+                queryExecutor.execute(req.getUserId(), queryExecutor.budgetFor(batch.size()),
+                        ctx -> dbService.execute(batch, ctx));
+            } else {
+                throw new IllegalArgumentException("Unknown batch mode: " + req.getMode());
+            }
+            queryService.recordHistory(req.getUserId(), batch.statements());
+            BatchResponse resp = BatchResponse.ok(mode, batch.responses());
+            resp.setElapsedMillis((System.nanoTime() - start) / 1e6);
+            return ResponseEntity.ok(resp);
+        } catch (IllegalArgumentException iae) {
+            log.warn("Bad batch request: {}", iae.getMessage());
+            return ResponseEntity.badRequest().body(BatchResponse.error(iae.getMessage()));
+        } catch (PoolExhaustedException pee) {
+            log.warn("Batch rejected: {}", pee.getMessage());
+            return busy().body(BatchResponse.error(pee.getMessage()));
+        } catch (QueryRejectedException qre) {
+            log.warn("Batch rejected: {}", qre.getMessage());
+            return rejected(qre).body(BatchResponse.error(qre.getMessage()));
+        } catch (Exception ex) {
+            if (isCancelled(ex)) {
+                log.warn("Batch cancelled: {}", ex.getMessage());
+                return cancelled().body(BatchResponse.error(ex.getMessage()));
+            }
+            log.error("Error running batch", ex);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(BatchResponse.error("Internal server error: " + ex.getMessage()));
+        }
+    }
+
+    /**
+     * Streams rows as NDJSON (Accept: application/x-ndjson, or POST /api/run?mode=stream).
+     */
+    @PostMapping(value = "/run", produces = NdjsonRowSink.MEDIA_TYPE)
+    public ResponseEntity<StreamingResponseBody> runQueryStream(@Valid @RequestBody QueryRequest req) {
+        try {
+            log.info("Stream request received (userId={})", req.getUserId());
+            dbService.checkAllowed(req.getSql());
+        } catch (IllegalArgumentException iae) {
+            log.warn("Bad request: {}", iae.getMessage());
+            QueryResponse error = QueryResponse.error(iae.getMessage());
+            return ResponseEntity.badRequest()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(out -> objectMapper.writeValue(out, error));
+        }
+        queryService.recordHistory(req.getUserId(), req.getSql());
+        StreamingResponseBody body = out -> {
+            try (NdjsonRowSink sink = new NdjsonRowSink(objectMapper, out)) {
+                try {
+                    queryExecutor.executeStream(req.getUserId(),
+                            ctx -> dbService.stream(req.getUserId(), req.getSql(), req.getMaxRows(), sink, ctx));
+                } catch (SQLException | RuntimeException ex) {
+                    log.warn("Streaming query failed: {}", ex.getMessage());
+                    sink.error(ex.getMessage());
+                }
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NdjsonRowSink.MEDIA_TYPE))
+                .body(body);
+    }
+
+    @PostMapping(value = "/run", params = "mode=stream")
+    public ResponseEntity<StreamingResponseBody> runQueryStreamParam(@Valid @RequestBody QueryRequest req) {
+        return runQueryStream(req);
+    }
+
+    /**
+     * Streams the whole result as a file download (CSV or the binary columnar format),
+     * optionally gzip-compressed. Memory stays flat whatever the row count; a client
+     * that disconnects cancels the query.
+     */
+    @PostMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(@Valid @RequestBody QueryRequest req,
+                                                        @RequestParam(name = "format", defaultValue = ExportSink.FORMAT_CSV) String format,
+                                                        @RequestParam(name = "compress", defaultValue = ExportSink.COMPRESS_NONE) String compress) {
+        String fmt;
+        boolean gzip;
+        try {
+            log.info("Export request received (userId={}, format={}, compress={})", req.getUserId(), format, compress);
+            fmt = ExportSink.format(format);
+            gzip = ExportSink.compression(compress);
+            dbService.checkAllowed(req.getSql());
+        } catch (IllegalArgumentException iae) {
+            log.warn("Bad request: {}", iae.getMessage());
+            QueryResponse error = QueryResponse.error(iae.getMessage());
+            return ResponseEntity.badRequest()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(out -> objectMapper.writeValue(out, error));
+        }
+        queryService.recordHistory(req.getUserId(), req.getSql());
+        Long maxRows = req.getMaxRows() == null ? null : req.getMaxRows().longValue();
+        StreamingResponseBody body = out -> {
+            try (ExportSink sink = ExportSink.create(fmt, out, gzip)) {
+                try {
+                    long rows = queryExecutor.executeStream(req.getUserId(),
+                            ctx -> dbService.export(req.getUserId(), req.getSql(), maxRows, sink, ctx));
+                    log.info("Export finished ({} rows, {} bytes before compression)", rows, sink.bytesWritten());
+                } catch (SQLException | RuntimeException ex) {
+                    log.warn("Export failed: {}", ex.getMessage());
+                    sink.error(ex.getMessage());
+                }
+            }
+        };
+        ResponseEntity.BodyBuilder ok = ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(ExportSink.contentType(fmt)))
+                .header("Content-Disposition", "attachment; filename=\"export." + ExportSink.fileExtension(fmt) + "\"");
+        if (gzip) {
+            ok.header("Content-Encoding", "gzip");
+        }
+        return ok.body(body);
+    }
+
     @PostMapping("/explain")
     public ResponseEntity<QueryResponse> explain(@Valid @RequestBody QueryRequest req) {
         try {
-            QueryResponse resp = dbService.explain(req.getSql());
+            QueryResponse resp = queryExecutor.execute(req.getUserId(), ctx -> dbService.explain(req.getSql(), ctx));
             return ResponseEntity.ok(resp);
         } catch (IllegalArgumentException iae) {
             return ResponseEntity.badRequest().body(QueryResponse.error(iae.getMessage()));
+        } catch (PoolExhaustedException pee) {
+            return busy().body(QueryResponse.error(pee.getMessage()));
+        } catch (QueryRejectedException qre) {
+            return rejected(qre).body(QueryResponse.error(qre.getMessage()));
         } catch (Exception ex) {
+            if (isCancelled(ex)) {
+                log.warn("Explain cancelled: {}", ex.getMessage());
+                return cancelled().body(QueryResponse.error(ex.getMessage()));
+            }
             log.error("Explain failed", ex);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(QueryResponse.error("Internal server error: " + ex.getMessage()));
@@ -73,9 +253,19 @@ public class ApiController {
     @PostMapping("/advice")
     public ResponseEntity<AdvisorResponse> advice(@Valid @RequestBody QueryRequest req) {
         try {
-            AdvisorResponse resp = advisorService.advise(req.getSql());
+            AdvisorResponse resp = queryExecutor.execute(req.getUserId(), ctx -> advisorService.advise(req.getSql(), ctx));
             return ResponseEntity.ok(resp);
+        } catch (IllegalArgumentException iae) {
+            return ResponseEntity.badRequest().body(AdvisorResponse.error(iae.getMessage()));
+        } catch (PoolExhaustedException pee) {
+            return busy().body(AdvisorResponse.error(pee.getMessage()));
+        } catch (QueryRejectedException qre) {
+            return rejected(qre).body(AdvisorResponse.error(qre.getMessage()));
         } catch (Exception ex) {
+            if (isCancelled(ex)) {
+                log.warn("Advice cancelled: {}", ex.getMessage());
+                return cancelled().body(AdvisorResponse.error(ex.getMessage()));
+            }
             log.error("Advice failed", ex);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(AdvisorResponse.error("Internal server error: " + ex.getMessage()));
@@ -95,8 +285,102 @@ public class ApiController {
     }
 
     @GetMapping("/history")
-    public ResponseEntity<List<String>> history(@RequestParam(name = "userId", required = false) String userId) {
-        return ResponseEntity.ok(queryService.getHistory(userId));
+    public ResponseEntity<List<String>> history(@RequestParam(name = "userId", required = false) String userId,
+                                                @RequestParam(name = "offset", defaultValue = "0") int offset,
+                                                @RequestParam(name = "limit", defaultValue = "" + QueryService.DEFAULT_HISTORY_PAGE) int limit) {
+        return ResponseEntity.ok(queryService.getHistory(userId, offset, limit));
+    }
+
+    /**
+     * 200 once the database has finished initializing, 503 before; for load balancer checks.
+     */
+    @GetMapping("/ready")
+    public ResponseEntity<Void> ready() {
+        return dbService.isReady() ? ResponseEntity.ok().build() : busy().build();
+    }
+
+    @GetMapping("/metrics/history")
+    public ResponseEntity<HistoryStats> historyStats() {
+        return ResponseEntity.ok(queryService.historyStats());
+    }
+
+    @GetMapping("/metrics/pool")
+    public ResponseEntity<PoolStats> poolStats() {
+        return ResponseEntity.ok(dbService.poolStats());
+    }
+
+    @GetMapping("/metrics/sandboxes")
+    public ResponseEntity<SandboxStats> sandboxStats() {
+        return ResponseEntity.ok(dbService.sandboxStats());
+    }
+
+    @GetMapping("/metrics/statement-cache")
+    public ResponseEntity<List<CacheStats>> statementCacheStats() {
+        return ResponseEntity.ok(dbService.statementCacheStats());
+    }
+
+    @GetMapping("/metrics/result-cache")
+    public ResponseEntity<CacheStats> resultCacheStats() {
+        return ResponseEntity.ok(dbService.resultCacheStats());
+    }
+
+    @GetMapping("/metrics/offheap")
+    public ResponseEntity<OffHeapStats> offHeapStats() {
+        return ResponseEntity.ok(dbService.offHeapStats());
+    }
+
+    @GetMapping("/metrics/coalescing")
+    public ResponseEntity<CoalescingStats> coalescingStats() {
+        return ResponseEntity.ok(dbService.coalescingStats());
+    }
+
+    /**
+     * Per-statement latency percentiles (sort=p99|count|total) and the slow-query log.
+     */
+    @GetMapping("/metrics/queries")
+    public ResponseEntity<QueryMetrics> queryMetrics(@RequestParam(name = "sort", defaultValue = "p99") String sort,
+                                                     @RequestParam(name = "limit", defaultValue = "20") int limit) {
+        try {
+            return ResponseEntity.ok(dbService.queryMetrics(sort, limit));
+        } catch (IllegalArgumentException iae) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/metrics/advisor-rules")
+    public ResponseEntity<List<AdvisorRuleStats>> advisorRuleStats() {
+        return ResponseEntity.ok(advisorService.ruleStats());
+    }
+
+    @GetMapping("/metrics/executor")
+    public ResponseEntity<ExecutorStats> executorStats() {
+        return ResponseEntity.ok(queryExecutor.stats());
+    }
+
+    static ResponseEntity.BodyBuilder rejected(QueryRejectedException ex) {
+        return ex.isUserLimit()
+                ? ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).header("Retry-After", "1")
+                : busy();
+    }
+
+    /**
+     * True for a statement cancelled by its time budget (the executor's or H2's own), SQLState 57014.
+     */
+    static boolean isCancelled(Throwable ex) {
+        return ex instanceof SQLException && "57014".equals(((SQLException) ex).getSQLState());
+    }
+
+    /**
+     * 504 for a cancelled statement, or 503 when it was this request's thread that was
+     * interrupted (the executor restores the flag), typically on shutdown.
+     */
+    static ResponseEntity.BodyBuilder cancelled() {
+        return Thread.currentThread().isInterrupted() ? busy() : ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT);
+    }
+
+    static ResponseEntity.BodyBuilder busy() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header("Retry-After", "1");
     }
 }
 /*
@@ -0,0 +1,114 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.controller;
+
+import com.sqlforge.model.AdvisorResponse;
+import com.sqlforge.model.QueryRequest;
+import com.sqlforge.model.QueryResponse;
+import com.sqlforge.service.AdvisorService;
+import com.sqlforge.service.DatabaseService;
+import com.sqlforge.service.PoolExhaustedException;
+import com.sqlforge.service.QueryExecutor;
+import com.sqlforge.service.QueryRejectedException;
+import com.sqlforge.service.QueryService;
+import jakarta.validation.Valid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * Non-blocking twins of the {@link ApiController} endpoints. Each handler hands the
+ * work to a bounded executor (queries and planning to {@link QueryExecutor}, plan
+ * analysis and NL-to-SQL to their own small pools) and returns a future, so the
+ * servlet thread is free while the request waits. Status codes match the blocking
+ * endpoints, plus 504 when the work overruns its time budget.
+ */
+@RestController
+@RequestMapping("/api/async")
+public class AsyncApiController {
+    private static final Logger log = LoggerFactory.getLogger(AsyncApiController.class);
+
+    private final DatabaseService dbService;
+    private final QueryService queryService;
+    private final AdvisorService advisorService;
+    private final QueryExecutor queryExecutor;
+
+    public AsyncApiController(DatabaseService dbService,
+                              QueryService queryService,
+                              AdvisorService advisorService,
+                              QueryExecutor queryExecutor) {
+        this.dbService = dbService;
+        this.queryService = queryService;
+        this.advisorService = advisorService;
+        this.queryExecutor = queryExecutor;
+    }
+
+    @PostMapping("/run")
+    public CompletableFuture<ResponseEntity<QueryResponse>> runQuery(@Valid @RequestBody QueryRequest req) {
+        log.info("Async run request received (userId={}, mode={})", req.getUserId(), req.getMode());
+        return queryExecutor.executeAsync(req.getUserId(), ctx -> dbService.execute(req, ctx))
+                .thenApply(resp -> {
+                    queryService.recordHistory(req.getUserId(), req.getSql());
+                    return ResponseEntity.ok(resp);
+                })
+                .exceptionally(ex -> failure(ex, "Run", QueryResponse::error));
+    }
+
+    @PostMapping("/explain")
+    public CompletableFuture<ResponseEntity<QueryResponse>> explain(@Valid @RequestBody QueryRequest req) {
+        return queryExecutor.executeAsync(req.getUserId(), ctx -> dbService.explain(req.getSql(), ctx))
+                .thenApply(ResponseEntity::ok)
+                .exceptionally(ex -> failure(ex, "Explain", QueryResponse::error));
+    }
+
+    @PostMapping("/advice")
+    public CompletableFuture<ResponseEntity<AdvisorResponse>> advice(@Valid @RequestBody QueryRequest req) {
+        return advisorService.adviseAsync(req.getUserId(), req.getSql(), queryExecutor)
+                .thenApply(ResponseEntity::ok)
+                .exceptionally(ex -> failure(ex, "Advice", AdvisorResponse::error));
+    }
+
+    @PostMapping("/nl-to-sql")
+    public CompletableFuture<ResponseEntity<QueryResponse>> nlToSql(@Valid @RequestBody QueryRequest req) {
+        return queryService.nlToSqlAsync(req.getSql()) // treat req.sql as NL text
+                .thenApply(sql -> ResponseEntity.ok(QueryResponse.ok().withSql(sql)))
+                .exceptionally(ex -> failure(ex, "Conversion", QueryResponse::error));
+    }
+
+    private static <T> ResponseEntity<T> failure(Throwable ex, String what, Function<String, T> error) {
+        Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+        if (cause instanceof IllegalArgumentException) {
+            log.warn("Bad request: {}", cause.getMessage());
+            return ResponseEntity.badRequest().body(error.apply(cause.getMessage()));
+        }
+        if (cause instanceof PoolExhaustedException) {
+            log.warn("{} rejected: {}", what, cause.getMessage());
+            return ApiController.busy().body(error.apply(cause.getMessage()));
+        }
+        if (cause instanceof QueryRejectedException) {
+            log.warn("{} rejected: {}", what, cause.getMessage());
+            return ApiController.rejected((QueryRejectedException) cause).body(error.apply(cause.getMessage()));
+        }
+        if (ApiController.isCancelled(cause)) {
+            log.warn("{} cancelled: {}", what, cause.getMessage());
+            return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(error.apply(cause.getMessage()));
+        }
+        if (cause instanceof TimeoutException) {
+            log.warn("{} timed out", what);
+            return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT)
+                    .body(error.apply(what + " did not finish within its time budget"));
+        }
+        log.error("{} failed", what, cause);
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(error.apply("Internal server error: " + cause.getMessage()));
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.controller;
+
+import com.sqlforge.service.Utf8;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Compact binary columnar export ("SQLFCOL1"), in the spirit of Parquet row groups
+ * but simple enough to read with a few lines of code. All numbers are little-endian.
+ * <pre>
+ * header  "SQLFCOL1", u16 column count, then per column: u8 type, varint name length, UTF-8 name
+ * group   i32 row count (1..4096), then per column:
+ *           null bitmap, (rows + 7) / 8 bytes, bit i set = row i is NULL
+ *           the non-NULL values in row order:
+ *             0 STRING    varint byte length + UTF-8 (also DECIMAL, exact text)
+ *             1 INT32     4 bytes
+ *             2 INT64     8 bytes
+ *             3 FLOAT64   8 bytes IEEE 754
+ *             4 BOOL      1 byte
+ *             5 DATE      i32 days since 1970-01-01
+ *             6 TIMESTAMP i64 microseconds since 1970-01-01T00:00, no time zone
+ *             7 BINARY    varint length + bytes
+ * end     i32 0, i64 total rows, u8 truncated
+ * error   i32 -1, varint length + UTF-8 message (instead of end)
+ * </pre>
+ * Rows are held for one group at a time, so memory is bounded by the group size.
+ */
+final class ColumnarExportSink extends ExportSink {
+    static final String MEDIA_TYPE = "application/vnd.sqlforge.columnar";
+    static final int GROUP_ROWS = 4096;
+
+    private static final byte[] MAGIC = "SQLFCOL1".getBytes(StandardCharsets.US_ASCII);
+    private static final int STRING = 0, INT32 = 1, INT64 = 2, FLOAT64 = 3, BOOL = 4, DATE = 5, TIMESTAMP = 6, BINARY = 7;
+
+    private int[] types;
+    private Object[][] group;
+    private int rows;
+
+    ColumnarExportSink(OutputStream target, boolean compress) throws IOException {
+        super(target, compress);
+    }
+
+    @Override
+    public void start(String[] columns) throws IOException {
+        start(columns, new int[columns.length]);
+    }
+
+    @Override
+    public void start(String[] columns, int[] sqlTypes) throws IOException {
+        if (columns.length > 0xFFFF) {
+            throw new IOException("Too many columns for a columnar export: " + columns.length);
+        }
+        types = new int[columns.length];
+        out.write(MAGIC, 0, MAGIC.length);
+        out.writeShort(columns.length);
+        for (int i = 0; i < columns.length; i++) {
+            types[i] = typeOf(sqlTypes[i]);
+            out.writeByte(types[i]);
+            string(columns[i]);
+        }
+        group = new Object[GROUP_ROWS][columns.length];
+        out.flush();
+    }
+
+    @Override
+    public void row(Object[] values) throws IOException {
+        System.arraycopy(values, 0, group[rows], 0, values.length);
+        if (++rows == GROUP_ROWS) {
+            writeGroup();
+        }
+    }
+
+    @Override
+    public void end(long rowCount, boolean truncated) throws IOException {
+        writeGroup();
+        out.writeInt(0);
+        out.writeLong(rowCount);
+        out.writeByte(truncated ? 1 : 0);
+        out.flush();
+    }
+
+    @Override
+    void error(String message) throws IOException {
+        rows = 0; // a partial group is dropped
+        out.writeInt(-1);
+        string(message == null ? "error" : message);
+        out.flush();
+    }
+
+    private void writeGroup() throws IOException {
+        if (rows == 0) {
+            return;
+        }
+        out.writeInt(rows);
+        for (int c = 0; c < types.length; c++) {
+            for (int base = 0; base < rows; base += 8) {
+                int bits = 0;
+                for (int r = base; r < Math.min(base + 8, rows); r++) {
+                    if (group[r][c] == null) {
+                        bits |= 1 << (r - base);
+                    }
+                }
+                out.writeByte(bits);
+            }
+            for (int r = 0; r < rows; r++) {
+                Object v = group[r][c];
+                if (v != null) {
+                    value(types[c], v);
+                    group[r][c] = null;
+                }
+            }
+        }
+        rows = 0;
+        out.flush();
+    }
+
+    private void value(int type, Object v) throws IOException {
+        switch (type) {
+            case INT32 -> out.writeInt(((Number) v).intValue());
+            case INT64 -> out.writeLong(((Number) v).longValue());
+            case FLOAT64 -> out.writeLong(Double.doubleToRawLongBits(((Number) v).doubleValue()));
+            case BOOL -> out.writeByte(Boolean.TRUE.equals(v) ? 1 : 0);
+            case DATE -> out.writeInt((int) localDate(v).toEpochDay());
+            case TIMESTAMP -> {
+                LocalDateTime t = localDateTime(v);
+                out.writeLong(t.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + t.getNano() / 1000);
+            }
+            case BINARY -> {
+                byte[] b = (byte[]) v;
+                out.writeVarint(b.length);
+                out.write(b, 0, b.length);
+            }
+            default -> string(v instanceof BigDecimal ? ((BigDecimal) v).toPlainString() : v.toString());
+        }
+    }
+
+    private void string(String s) throws IOException {
+        out.writeVarint(Utf8.length(s));
+        out.writeUtf8(s);
+    }
+
+    private static int typeOf(int sqlType) {
+        switch (sqlType) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+                return INT32;
+            case Types.BIGINT:
+                return INT64;
+            case Types.REAL:
+            case Types.FLOAT:
+            case Types.DOUBLE:
+                return FLOAT64;
+            case Types.BOOLEAN:
+            case Types.BIT:
+                return BOOL;
+            case Types.DATE:
+                return DATE;
+            case Types.TIMESTAMP:
+                return TIMESTAMP;
+            case Types.BINARY:
+            case Types.VARBINARY:
+            case Types.LONGVARBINARY:
+                return BINARY;
+            default:
+                return STRING;
+        }
+    }
+
+    private static LocalDate localDate(Object v) {
+        if (v instanceof java.sql.Date) {
+            return ((java.sql.Date) v).toLocalDate();
+        }
+        return v instanceof LocalDate ? (LocalDate) v : LocalDate.parse(v.toString());
+    }
+
+    private static LocalDateTime localDateTime(Object v) {
+        if (v instanceof java.sql.Timestamp) {
+            return ((java.sql.Timestamp) v).toLocalDateTime();
+        }
+        return v instanceof LocalDateTime ? (LocalDateTime) v : LocalDateTime.parse(v.toString().replace(' ', 'T'));
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.controller;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.HexFormat;
+
+/**
+ * RFC 4180 CSV: a header line, then one line per row with CRLF line ends. Fields
+ * holding a comma, quote or line break are quoted; NULL is an empty field.
+ * CSV has no way to say "failed", so an error after the first row aborts the
+ * response (without the gzip trailer, when compressed) and the client sees a
+ * truncated transfer.
+ */
+final class CsvExportSink extends ExportSink {
+    static final String MEDIA_TYPE = "text/csv";
+    private static final int FLUSH_EVERY = 4096;
+
+    private long pending;
+
+    CsvExportSink(OutputStream target, boolean compress) throws IOException {
+        super(target, compress);
+    }
+
+    @Override
+    public void start(String[] columns) throws IOException {
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) {
+                out.writeByte(',');
+            }
+            field(columns[i]);
+        }
+        out.writeByte('\r');
+        out.writeByte('\n');
+        out.flush(); // first byte goes out before the first row is fetched
+    }
+
+    @Override
+    public void row(Object[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                out.writeByte(',');
+            }
+            Object v = values[i];
+            if (v == null) {
+                continue;
+            }
+            if (v instanceof String) {
+                field((String) v);
+            } else if (v instanceof BigDecimal) {
+                out.writeUtf8(((BigDecimal) v).toPlainString());
+            } else if (v instanceof Number || v instanceof Boolean) {
+                out.writeUtf8(v.toString());
+            } else if (v instanceof Timestamp) {
+                out.writeUtf8(((Timestamp) v).toLocalDateTime().toString());
+            } else if (v instanceof byte[]) {
+                out.writeUtf8(HexFormat.of().formatHex((byte[]) v));
+            } else {
+                field(v.toString());
+            }
+        }
+        out.writeByte('\r');
+        out.writeByte('\n');
+        if (++pending >= FLUSH_EVERY) {
+            out.flush();
+            pending = 0;
+        }
+    }
+
+    @Override
+    public void end(long rowCount, boolean truncated) throws IOException {
+        out.flush();
+    }
+
+    @Override
+    void error(String message) throws IOException {
+        abort();
+        throw new IOException("Export aborted: " + message);
+    }
+
+    private void field(String s) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < s.length() && !quote; i++) {
+            char c = s.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            out.writeUtf8(s);
+            return;
+        }
+        out.writeByte('"');
+        int from = 0;
+        for (int q = s.indexOf('"'); q >= 0; q = s.indexOf('"', from)) {
+            out.writeUtf8(s, from, q + 1);
+            out.writeByte('"');
+            from = q + 1;
+        }
+        out.writeUtf8(s, from, s.length());
+        out.writeByte('"');
+    }
+}
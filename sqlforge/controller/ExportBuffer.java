@@ -0,0 +1,129 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.controller;
+
+import com.sqlforge.service.Utf8;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Fixed-size output buffer for exports. Values are encoded straight into one
+ * reusable byte array that is handed to the output stream whenever it fills,
+ * so an export holds the same few kilobytes however many rows it writes, and a
+ * slow client blocks the writer (and with it the lazy result set) instead of
+ * letting data pile up. Multi-byte numbers are little-endian.
+ */
+final class ExportBuffer {
+    static final int SIZE = 64 * 1024;
+
+    private final OutputStream out;
+    private final byte[] buf = new byte[SIZE];
+    private final ByteBuffer view = ByteBuffer.wrap(buf); // for the UTF-8 encoder; pos is the position
+    private int pos;
+    private long written;
+
+    ExportBuffer(OutputStream out) {
+        this.out = out;
+    }
+
+    void writeByte(int b) throws IOException {
+        if (pos == buf.length) {
+            drain();
+        }
+        buf[pos++] = (byte) b;
+    }
+
+    void writeShort(int v) throws IOException {
+        ensure(2);
+        buf[pos++] = (byte) v;
+        buf[pos++] = (byte) (v >>> 8);
+    }
+
+    void writeInt(int v) throws IOException {
+        ensure(4);
+        for (int i = 0; i < 32; i += 8) {
+            buf[pos++] = (byte) (v >>> i);
+        }
+    }
+
+    void writeLong(long v) throws IOException {
+        ensure(8);
+        for (int i = 0; i < 64; i += 8) {
+            buf[pos++] = (byte) (v >>> i);
+        }
+    }
+
+    /**
+     * Unsigned LEB128, as used for string lengths.
+     */
+    void writeVarint(long v) throws IOException {
+        ensure(10);
+        while ((v & ~0x7FL) != 0) {
+            buf[pos++] = (byte) ((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        buf[pos++] = (byte) v;
+    }
+
+    void write(byte[] bytes, int off, int len) throws IOException {
+        while (len > 0) {
+            if (pos == buf.length) {
+                drain();
+            }
+            int n = Math.min(len, buf.length - pos);
+            System.arraycopy(bytes, off, buf, pos, n);
+            pos += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    /**
+     * Writes the characters as UTF-8 ({@link Utf8}) without an intermediate byte array.
+     */
+    void writeUtf8(CharSequence s) throws IOException {
+        writeUtf8(s, 0, s.length());
+    }
+
+    void writeUtf8(CharSequence s, int from, int to) throws IOException {
+        while (true) {
+            view.position(pos);
+            from = Utf8.encode(s, from, to, view);
+            pos = view.position();
+            if (from == to) {
+                return;
+            }
+            drain();
+        }
+    }
+
+    /**
+     * Sends everything buffered so far to the client.
+     */
+    void flush() throws IOException {
+        drain();
+        out.flush();
+    }
+
+    long bytesWritten() {
+        return written + pos;
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (buf.length - pos < bytes) {
+            drain();
+        }
+    }
+
+    private void drain() throws IOException {
+        if (pos > 0) {
+            out.write(buf, 0, pos);
+            written += pos;
+            pos = 0;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.controller;
+
+import com.sqlforge.service.RowSink;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Base of the {@code /api/export} writers: owns the fixed output buffer and the
+ * optional gzip stream around the response body.
+ */
+abstract class ExportSink implements RowSink, AutoCloseable {
+    static final String FORMAT_CSV = "csv";
+    static final String FORMAT_COLUMNAR = "columnar";
+    static final String COMPRESS_NONE = "none";
+    static final String COMPRESS_GZIP = "gzip";
+
+    private final OutputStream target;
+    private final GZIPOutputStream gzip; // null when uncompressed
+    final ExportBuffer out;
+    private boolean aborted;
+
+    ExportSink(OutputStream target, boolean compress) throws IOException {
+        this.target = target;
+        this.gzip = compress ? new GZIPOutputStream(target, ExportBuffer.SIZE) : null;
+        this.out = new ExportBuffer(compress ? gzip : target);
+    }
+
+    /**
+     * @throws IllegalArgumentException for an unknown format
+     */
+    static String format(String format) {
+        String f = format == null ? FORMAT_CSV : format.toLowerCase(Locale.ROOT);
+        if (!FORMAT_CSV.equals(f) && !FORMAT_COLUMNAR.equals(f)) {
+            throw new IllegalArgumentException("Unknown export format: " + format + " (expected csv or columnar)");
+        }
+        return f;
+    }
+
+    /**
+     * @return true for gzip
+     * @throws IllegalArgumentException for an unknown compression
+     */
+    static boolean compression(String compress) {
+        String c = compress == null ? COMPRESS_NONE : compress.toLowerCase(Locale.ROOT);
+        if (!COMPRESS_NONE.equals(c) && !COMPRESS_GZIP.equals(c)) {
+            throw new IllegalArgumentException("Unknown compression: " + compress + " (expected none or gzip)");
+        }
+        return COMPRESS_GZIP.equals(c);
+    }
+
+    static ExportSink create(String format, OutputStream target, boolean compress) throws IOException {
+        return FORMAT_COLUMNAR.equals(format)
+                ? new ColumnarExportSink(target, compress)
+                : new CsvExportSink(target, compress);
+    }
+
+    static String contentType(String format) {
+        return FORMAT_COLUMNAR.equals(format) ? ColumnarExportSink.MEDIA_TYPE : CsvExportSink.MEDIA_TYPE;
+    }
+
+    static String fileExtension(String format) {
+        return FORMAT_COLUMNAR.equals(format) ? "sfc" : "csv";
+    }
+
+    /**
+     * Reports a failure after the first byte has gone out.
+     */
+    abstract void error(String message) throws IOException;
+
+    /**
+     * For formats that cannot carry an error: {@link #close} then sends nothing more, not
+     * even the gzip trailer, so the client sees a broken transfer instead of a complete-looking file.
+     */
+    void abort() {
+        aborted = true;
+    }
+
+    long bytesWritten() {
+        return out.bytesWritten();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (aborted) {
+            return;
+        }
+        out.flush();
+        if (gzip != null) {
+            gzip.finish();
+        }
+        target.flush();
+    }
+}
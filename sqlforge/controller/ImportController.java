@@ -0,0 +1,137 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.controller;
+
+import com.sqlforge.model.ImportJob;
+import com.sqlforge.model.ImportRequest;
+import com.sqlforge.service.ImportService;
+import com.sqlforge.service.QueryRejectedException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * Admin-only bulk loads. Kept apart from {@link ApiController}: nothing here passes
+ * through the query firewall, so every call must present {@code X-Admin-Token}.
+ */
+@RestController
+@RequestMapping("/api/import")
+public class ImportController {
+    private static final Logger log = LoggerFactory.getLogger(ImportController.class);
+
+    static final String TOKEN_HEADER = "X-Admin-Token";
+
+    private final ImportService importService;
+
+    public ImportController(ImportService importService) {
+        this.importService = importService;
+    }
+
+    /**
+     * Streams the request body (CSV or NDJSON) into one table and answers when the load
+     * has finished: 200 with the job if it succeeded, 422 with the job (rows committed,
+     * error) if it stopped part way. Send it as text/csv, application/x-ndjson or similar:
+     * a form-encoded body would be consumed by the servlet container as parameters.
+     */
+    @PostMapping(consumes = "!" + MediaType.APPLICATION_FORM_URLENCODED_VALUE)
+    public ResponseEntity<ImportJob> importBody(@RequestHeader(name = TOKEN_HEADER, required = false) String token,
+                                                @RequestParam("table") String table,
+                                                @RequestParam(name = "format", defaultValue = ImportRequest.FORMAT_CSV) String format,
+                                                @RequestParam(name = "schema", required = false) String schema,
+                                                @RequestParam(name = "create", defaultValue = "true") boolean create,
+                                                @RequestParam(name = "truncate", defaultValue = "false") boolean truncate,
+                                                @RequestParam(name = "delimiter", defaultValue = ",") String delimiter,
+                                                @RequestParam(name = "header", defaultValue = "true") boolean header,
+                                                InputStream body) {
+        ResponseEntity<ImportJob> denied = checkToken(token);
+        if (denied != null) {
+            return denied;
+        }
+        ImportRequest req = new ImportRequest().setTable(table).setFormat(format).setSchema(schema)
+                .setCreate(create).setTruncate(truncate).setDelimiter(delimiter).setHeader(header);
+        try {
+            log.info("Import request received (table={}, format={})", table, format);
+            ImportJob job = importService.importStream(req, body);
+            return ImportJob.STATE_DONE.equals(job.getState())
+                    ? ResponseEntity.ok(job)
+                    : ResponseEntity.unprocessableEntity().body(job);
+        } catch (IllegalArgumentException iae) {
+            log.warn("Bad import request: {}", iae.getMessage());
+            return ResponseEntity.badRequest().body(failed(iae.getMessage()));
+        } catch (QueryRejectedException qre) {
+            log.warn("Import rejected: {}", qre.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header("Retry-After", "5")
+                    .body(failed(qre.getMessage()));
+        }
+    }
+
+    /**
+     * Starts background loads of files under {@code sqlforge.import.dir}, one table
+     * each, and answers 202 with the queued jobs.
+     */
+    @PostMapping("/files")
+    public ResponseEntity<List<ImportJob>> importFiles(@RequestHeader(name = TOKEN_HEADER, required = false) String token,
+                                                       @RequestBody List<ImportRequest> requests) {
+        ResponseEntity<ImportJob> denied = checkToken(token);
+        if (denied != null) {
+            return ResponseEntity.status(denied.getStatusCode()).body(List.of(denied.getBody()));
+        }
+        try {
+            log.info("File import request received ({} files)", requests.size());
+            return ResponseEntity.accepted().body(importService.importFiles(requests));
+        } catch (IllegalArgumentException iae) {
+            log.warn("Bad import request: {}", iae.getMessage());
+            return ResponseEntity.badRequest().body(List.of(failed(iae.getMessage())));
+        }
+    }
+
+    @GetMapping("/jobs")
+    public ResponseEntity<List<ImportJob>> jobs(@RequestHeader(name = TOKEN_HEADER, required = false) String token) {
+        ResponseEntity<ImportJob> denied = checkToken(token);
+        if (denied != null) {
+            return ResponseEntity.status(denied.getStatusCode()).body(List.of(denied.getBody()));
+        }
+        return ResponseEntity.ok(importService.jobs());
+    }
+
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<ImportJob> job(@RequestHeader(name = TOKEN_HEADER, required = false) String token,
+                                         @PathVariable("id") long id) {
+        ResponseEntity<ImportJob> denied = checkToken(token);
+        if (denied != null) {
+            return denied;
+        }
+        ImportJob job = importService.job(id);
+        return job == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(job);
+    }
+
+    /**
+     * @return the error response, or null if the token is accepted
+     */
+    private ResponseEntity<ImportJob> checkToken(String token) {
+        if (!importService.isEnabled()) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(failed("Imports are disabled; set sqlforge.import.token to enable them"));
+        }
+        if (!importService.isAuthorized(token)) {
+            log.warn("Import request with a missing or wrong {}", TOKEN_HEADER);
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(failed("Missing or invalid " + TOKEN_HEADER));
+        }
+        return null;
+    }
+
+    private static ImportJob failed(String message) {
+        ImportJob job = new ImportJob();
+        job.setState(ImportJob.STATE_FAILED);
+        job.setMessage(message);
+        return job;
+    }
+}
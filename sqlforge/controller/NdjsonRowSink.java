@@ -0,0 +1,89 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sqlforge.service.RowSink;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes a streamed result as newline-delimited JSON:
+ * <pre>
+ * {"columns":["ID","NAME"]}
+ * [1,"Employee 1"]
+ * ...
+ * {"rowCount":2,"truncated":false}
+ * </pre>
+ * A failure after the first byte is reported as a final {@code {"error":"..."}} frame.
+ */
+final class NdjsonRowSink implements RowSink, AutoCloseable {
+    static final String MEDIA_TYPE = "application/x-ndjson";
+    private static final int FLUSH_EVERY = 256;
+
+    private final JsonGenerator gen;
+    private long pending;
+
+    NdjsonRowSink(ObjectMapper mapper, OutputStream out) throws IOException {
+        this.gen = mapper.getFactory().createGenerator(out);
+        this.gen.setRootValueSeparator(null);
+    }
+
+    @Override
+    public void start(String[] columns) throws IOException {
+        gen.writeStartObject();
+        gen.writeArrayFieldStart("columns");
+        for (String c : columns) {
+            gen.writeString(c);
+        }
+        gen.writeEndArray();
+        gen.writeEndObject();
+        newline();
+        gen.flush(); // first byte goes out before the first row is fetched
+    }
+
+    @Override
+    public void row(Object[] values) throws IOException {
+        gen.writeStartArray();
+        for (Object v : values) {
+            gen.writeObject(v);
+        }
+        gen.writeEndArray();
+        newline();
+        if (++pending >= FLUSH_EVERY) {
+            gen.flush();
+            pending = 0;
+        }
+    }
+
+    @Override
+    public void end(long rowCount, boolean truncated) throws IOException {
+        gen.writeStartObject();
+        gen.writeNumberField("rowCount", rowCount);
+        gen.writeBooleanField("truncated", truncated);
+        gen.writeEndObject();
+        newline();
+        gen.flush();
+    }
+
+    void error(String message) throws IOException {
+        gen.writeStartObject();
+        gen.writeStringField("error", message);
+        gen.writeEndObject();
+        newline();
+        gen.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        gen.close();
+    }
+
+    private void newline() throws IOException {
+        gen.writeRaw('\n');
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.controller;
+
+import com.sqlforge.model.MaterializedViewInfo;
+import com.sqlforge.model.MaterializedViewRequest;
+import com.sqlforge.service.MaterializedViewService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Admin-only management of materialized views. Creating a view runs its definition
+ * with SQLForge's own privileges (CREATE TABLE AS, INSERT), so like imports every call
+ * must present {@code X-Admin-Token}. Reading the views needs no endpoint here: they are
+ * ordinary tables in {@code SQLFORGE_MV}, and {@code /api/run} uses them on its own.
+ */
+@RestController
+@RequestMapping("/api/views")
+public class ViewController {
+    private static final Logger log = LoggerFactory.getLogger(ViewController.class);
+
+    private final MaterializedViewService viewService;
+
+    public ViewController(MaterializedViewService viewService) {
+        this.viewService = viewService;
+    }
+
+    @GetMapping
+    public ResponseEntity<List<MaterializedViewInfo>> list(
+            @RequestHeader(name = ImportController.TOKEN_HEADER, required = false) String token) {
+        ResponseEntity<MaterializedViewInfo> denied = checkToken(token);
+        if (denied != null) {
+            return ResponseEntity.status(denied.getStatusCode()).body(List.of(denied.getBody()));
+        }
+        return ResponseEntity.ok(viewService.list());
+    }
+
+    /**
+     * Registers a view and fills it once: 201 with the view, 400 if the definition is
+     * not allowed or H2 rejects it.
+     */
+    @PostMapping
+    public ResponseEntity<MaterializedViewInfo> register(
+            @RequestHeader(name = ImportController.TOKEN_HEADER, required = false) String token,
+            @RequestBody MaterializedViewRequest req) {
+        ResponseEntity<MaterializedViewInfo> denied = checkToken(token);
+        if (denied != null) {
+            return denied;
+        }
+        try {
+            log.info("View registration received (name={})", req.getName());
+            return ResponseEntity.status(HttpStatus.CREATED).body(viewService.register(req));
+        } catch (IllegalArgumentException | SQLException ex) {
+            log.warn("Bad view registration: {}", ex.getMessage());
+            return ResponseEntity.badRequest().body(failed(ex.getMessage()));
+        }
+    }
+
+    @PostMapping("/{name}/refresh")
+    public ResponseEntity<MaterializedViewInfo> refresh(
+            @RequestHeader(name = ImportController.TOKEN_HEADER, required = false) String token,
+            @PathVariable("name") String name) {
+        ResponseEntity<MaterializedViewInfo> denied = checkToken(token);
+        if (denied != null) {
+            return denied;
+        }
+        try {
+            MaterializedViewInfo info = viewService.refresh(name);
+            return info == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(info);
+        } catch (IllegalArgumentException iae) {
+            return ResponseEntity.badRequest().body(failed(iae.getMessage()));
+        }
+    }
+
+    @DeleteMapping("/{name}")
+    public ResponseEntity<MaterializedViewInfo> drop(
+            @RequestHeader(name = ImportController.TOKEN_HEADER, required = false) String token,
+            @PathVariable("name") String name) {
+        ResponseEntity<MaterializedViewInfo> denied = checkToken(token);
+        if (denied != null) {
+            return denied;
+        }
+        try {
+            return viewService.drop(name) ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
+        } catch (IllegalArgumentException iae) {
+            return ResponseEntity.badRequest().body(failed(iae.getMessage()));
+        } catch (SQLException ex) {
+            log.error("Dropping view {} failed", name, ex);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(failed(ex.getMessage()));
+        }
+    }
+
+    /**
+     * @return the error response, or null if the token is accepted
+     */
+    private ResponseEntity<MaterializedViewInfo> checkToken(String token) {
+        if (!viewService.isEnabled()) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(failed("Materialized views are disabled; set sqlforge.views.token to enable them"));
+        }
+        if (!viewService.isAuthorized(token)) {
+            log.warn("View request with a missing or wrong {}", ImportController.TOKEN_HEADER);
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(failed("Missing or invalid " + ImportController.TOKEN_HEADER));
+        }
+        return null;
+    }
+
+    private static MaterializedViewInfo failed(String message) {
+        MaterializedViewInfo info = new MaterializedViewInfo();
+        info.setState(MaterializedViewInfo.STATE_FAILED);
+        info.setMessage(message);
+        return info;
+    }
+}
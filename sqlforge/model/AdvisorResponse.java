@@ -4,6 +4,8 @@
  */
 package com.sqlforge.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import java.util.ArrayList;
 import java.util.List;
 
@@ -11,7 +13,12 @@ public class AdvisorResponse {
     private boolean ok = true;
     private String message;
     private List<String> tips = new ArrayList<>();
+    private List<String> rules = new ArrayList<>(); // names of the text rules that fired
     private int score;
+    private double estimatedCost; // rough rows touched, from the plan and table statistics
+    private List<String> suggestedIndexes = new ArrayList<>();
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String plan; // H2 EXPLAIN output the advice is based on
     private String originalSql;
     private String timestamp;
 
@@ -48,6 +55,14 @@ public class AdvisorResponse {
         this.tips = tips;
     }
 
+    public List<String> getRules() {
+        return rules;
+    }
+
+    public void setRules(List<String> rules) {
+        this.rules = rules;
+    }
+
     public int getScore() {
         return score;
     }
@@ -56,6 +71,30 @@ public class AdvisorResponse {
         this.score = score;
     }
 
+    public double getEstimatedCost() {
+        return estimatedCost;
+    }
+
+    public void setEstimatedCost(double estimatedCost) {
+        this.estimatedCost = estimatedCost;
+    }
+
+    public List<String> getSuggestedIndexes() {
+        return suggestedIndexes;
+    }
+
+    public void setSuggestedIndexes(List<String> suggestedIndexes) {
+        this.suggestedIndexes = suggestedIndexes;
+    }
+
+    public String getPlan() {
+        return plan;
+    }
+
+    public void setPlan(String plan) {
+        this.plan = plan;
+    }
+
     public String getOriginalSql() {
         return originalSql;
     }
@@ -0,0 +1,59 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.model;
+
+/**
+ * One advisor text rule and how many analyzed statements it fired on since startup.
+ * Advice served from the cache is not counted again.
+ */
+public class AdvisorRuleStats {
+    private String name;
+    private int weight; // taken off the advice score when the rule fires
+    private String pattern;
+    private String tip;
+    private long hits;
+
+    // getters / setters
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+
+    public void setWeight(int weight) {
+        this.weight = weight;
+    }
+
+    public String getPattern() {
+        return pattern;
+    }
+
+    public void setPattern(String pattern) {
+        this.pattern = pattern;
+    }
+
+    public String getTip() {
+        return tip;
+    }
+
+    public void setTip(String tip) {
+        this.tip = tip;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public void setHits(long hits) {
+        this.hits = hits;
+    }
+}
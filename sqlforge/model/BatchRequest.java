@@ -0,0 +1,57 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.model;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+
+import java.util.List;
+
+/**
+ * Several statements submitted together to {@code /api/run/batch}.
+ * The batch's userId applies to every statement; per-statement userIds are ignored.
+ */
+public class BatchRequest {
+    public static final String MODE_SEQUENTIAL = "sequential";
+    public static final String MODE_PARALLEL = "parallel";
+
+    private String userId;
+
+    // "sequential" (one connection, in order) or "parallel" (spread over the user's execution slots)
+    private String mode = MODE_SEQUENTIAL;
+
+    @NotEmpty(message = "At least one statement must be provided")
+    @Valid
+    private List<QueryRequest> queries;
+
+    public BatchRequest() {}
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public BatchRequest setUserId(String userId) {
+        this.userId = userId;
+        return this;
+    }
+
+    public String getMode() {
+        return mode;
+    }
+
+    public BatchRequest setMode(String mode) {
+        this.mode = mode;
+        return this;
+    }
+
+    public List<QueryRequest> getQueries() {
+        return queries;
+    }
+
+    public BatchRequest setQueries(List<QueryRequest> queries) {
+        this.queries = queries;
+        return this;
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Result of a batch: one {@link QueryResponse} per statement, in request order.
+ * {@code ok} is false only when the batch as a whole failed; individual
+ * statements report their own errors in {@code results}.
+ */
+public class BatchResponse {
+    private boolean ok;
+    private String message;
+    private String mode;
+    private List<QueryResponse> results = new ArrayList<>();
+    private int failed;
+    private double elapsedMillis;
+
+    public static BatchResponse ok(String mode, List<QueryResponse> results) {
+        BatchResponse r = new BatchResponse();
+        r.ok = true;
+        r.message = "OK";
+        r.mode = mode;
+        r.results = results;
+        for (QueryResponse q : results) {
+            if (!q.isOk()) {
+                r.failed++;
+            }
+        }
+        return r;
+    }
+
+    public static BatchResponse error(String msg) {
+        BatchResponse r = new BatchResponse();
+        r.ok = false;
+        r.message = msg;
+        return r;
+    }
+
+    // getters / setters
+
+    public boolean isOk() {
+        return ok;
+    }
+
+    public void setOk(boolean ok) {
+        this.ok = ok;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public String getMode() {
+        return mode;
+    }
+
+    public void setMode(String mode) {
+        this.mode = mode;
+    }
+
+    public List<QueryResponse> getResults() {
+        return results;
+    }
+
+    public void setResults(List<QueryResponse> results) {
+        this.results = results;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public void setFailed(int failed) {
+        this.failed = failed;
+    }
+
+    public double getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public void setElapsedMillis(double elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.model;
+
+/**
+ * Counters for in-flight query coalescing: executions that ran against H2 (leaders)
+ * versus requests that shared a running execution's response (followers).
+ */
+public class CoalescingStats {
+    private boolean enabled;
+    private int inFlight;
+    private long leaders;
+    private long followers;
+    private long stale;
+    private long retried;
+
+    public double getFollowerRatio() {
+        long total = leaders + followers;
+        return total == 0 ? 0.0 : (double) followers / total;
+    }
+
+    // getters / setters
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getInFlight() {
+        return inFlight;
+    }
+
+    public void setInFlight(int inFlight) {
+        this.inFlight = inFlight;
+    }
+
+    public long getLeaders() {
+        return leaders;
+    }
+
+    public void setLeaders(long leaders) {
+        this.leaders = leaders;
+    }
+
+    public long getFollowers() {
+        return followers;
+    }
+
+    public void setFollowers(long followers) {
+        this.followers = followers;
+    }
+
+    public long getStale() {
+        return stale;
+    }
+
+    public void setStale(long stale) {
+        this.stale = stale;
+    }
+
+    public long getRetried() {
+        return retried;
+    }
+
+    public void setRetried(long retried) {
+        this.retried = retried;
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * One column of a {@link ColumnarResult}. Exactly one value layout is populated,
+ * depending on {@code type}:
+ * <ul>
+ *   <li>{@code int}, {@code boolean} (0/1) → {@code ints}</li>
+ *   <li>{@code long} → {@code longs}</li>
+ *   <li>{@code double} → {@code doubles} (DECIMAL/NUMERIC are widened to double)</li>
+ *   <li>{@code string} → {@code dictionary} + {@code codes}, or {@code strings} when
+ *       most values are distinct</li>
+ *   <li>{@code object} → {@code values}</li>
+ * </ul>
+ * {@code nulls} is a bitmap (bit {@code i % 8} of byte {@code i / 8} set means row
+ * {@code i} is NULL), serialized as base64 and omitted when the column has no NULLs.
+ * Null slots in primitive arrays hold 0.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ColumnData {
+    private String name;
+    private String type;
+    private String sqlType;
+    private byte[] nulls;
+    private int[] ints;
+    private long[] longs;
+    private double[] doubles;
+    private String[] dictionary;
+    private int[] codes;
+    private String[] strings;
+    private Object[] values;
+
+    // getters / setters
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public String getSqlType() {
+        return sqlType;
+    }
+
+    public void setSqlType(String sqlType) {
+        this.sqlType = sqlType;
+    }
+
+    public byte[] getNulls() {
+        return nulls;
+    }
+
+    public void setNulls(byte[] nulls) {
+        this.nulls = nulls;
+    }
+
+    public int[] getInts() {
+        return ints;
+    }
+
+    public void setInts(int[] ints) {
+        this.ints = ints;
+    }
+
+    public long[] getLongs() {
+        return longs;
+    }
+
+    public void setLongs(long[] longs) {
+        this.longs = longs;
+    }
+
+    public double[] getDoubles() {
+        return doubles;
+    }
+
+    public void setDoubles(double[] doubles) {
+        this.doubles = doubles;
+    }
+
+    public String[] getDictionary() {
+        return dictionary;
+    }
+
+    public void setDictionary(String[] dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    public int[] getCodes() {
+        return codes;
+    }
+
+    public void setCodes(int[] codes) {
+        this.codes = codes;
+    }
+
+    public String[] getStrings() {
+        return strings;
+    }
+
+    public void setStrings(String[] strings) {
+        this.strings = strings;
+    }
+
+    public Object[] getValues() {
+        return values;
+    }
+
+    public void setValues(Object[] values) {
+        this.values = values;
+    }
+}
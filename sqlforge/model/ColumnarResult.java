@@ -0,0 +1,35 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Column-oriented query result ({@code "format": "columnar"}): column metadata
+ * once, then one typed array per column instead of one map per row.
+ */
+public class ColumnarResult {
+    private int rowCount;
+    private List<ColumnData> columns = new ArrayList<>();
+
+    // getters / setters
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public void setRowCount(int rowCount) {
+        this.rowCount = rowCount;
+    }
+
+    public List<ColumnData> getColumns() {
+        return columns;
+    }
+
+    public void setColumns(List<ColumnData> columns) {
+        this.columns = columns;
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.model;
+
+/**
+ * Point-in-time snapshot of the query executor: admission limits, queue depth
+ * and how long queries spent waiting versus executing.
+ */
+public class ExecutorStats {
+    private boolean virtualThreads;
+    private int maxConcurrent;
+    private int perUserMaxConcurrent;
+    private int maxConcurrentStreams;
+    private int running;
+    private int streaming;
+    private int queued;
+    private long completed;
+    private long rejected;
+    private long timedOut;
+    private double avgWaitMillis;
+    private double avgExecMillis;
+    private double maxWaitMillis;
+
+    // getters / setters
+
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    public void setVirtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    public void setMaxConcurrent(int maxConcurrent) {
+        this.maxConcurrent = maxConcurrent;
+    }
+
+    public int getPerUserMaxConcurrent() {
+        return perUserMaxConcurrent;
+    }
+
+    public void setPerUserMaxConcurrent(int perUserMaxConcurrent) {
+        this.perUserMaxConcurrent = perUserMaxConcurrent;
+    }
+
+    public int getMaxConcurrentStreams() {
+        return maxConcurrentStreams;
+    }
+
+    public void setMaxConcurrentStreams(int maxConcurrentStreams) {
+        this.maxConcurrentStreams = maxConcurrentStreams;
+    }
+
+    public int getRunning() {
+        return running;
+    }
+
+    public void setRunning(int running) {
+        this.running = running;
+    }
+
+    public int getStreaming() {
+        return streaming;
+    }
+
+    public void setStreaming(int streaming) {
+        this.streaming = streaming;
+    }
+
+    public int getQueued() {
+        return queued;
+    }
+
+    public void setQueued(int queued) {
+        this.queued = queued;
+    }
+
+    public long getCompleted() {
+        return completed;
+    }
+
+    public void setCompleted(long completed) {
+        this.completed = completed;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public void setRejected(long rejected) {
+        this.rejected = rejected;
+    }
+
+    public long getTimedOut() {
+        return timedOut;
+    }
+
+    public void setTimedOut(long timedOut) {
+        this.timedOut = timedOut;
+    }
+
+    public double getAvgWaitMillis() {
+        return avgWaitMillis;
+    }
+
+    public void setAvgWaitMillis(double avgWaitMillis) {
+        this.avgWaitMillis = avgWaitMillis;
+    }
+
+    public double getAvgExecMillis() {
+        return avgExecMillis;
+    }
+
+    public void setAvgExecMillis(double avgExecMillis) {
+        this.avgExecMillis = avgExecMillis;
+    }
+
+    public double getMaxWaitMillis() {
+        return maxWaitMillis;
+    }
+
+    public void setMaxWaitMillis(double maxWaitMillis) {
+        this.maxWaitMillis = maxWaitMillis;
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.model;
+
+/**
+ * On-disk side of {@link HistoryStats} when history is persisted: segment files,
+ * writer batching (group commit) and what startup recovery found.
+ */
+public class HistoryLogStats {
+    private String directory;
+    private int segments;
+    private long logBytes;
+    private long retentionBytes;
+    private int pendingWrites;
+    private long batches;
+    private long writtenRecords;
+    private double avgBatchSize;
+    private long droppedWrites;
+    private long compactions;
+    private long deletedSegments;
+    private long recoveredRecords;
+    private long truncatedBytes;
+    private boolean fsync;
+
+    // getters / setters
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    public int getSegments() {
+        return segments;
+    }
+
+    public void setSegments(int segments) {
+        this.segments = segments;
+    }
+
+    public long getLogBytes() {
+        return logBytes;
+    }
+
+    public void setLogBytes(long logBytes) {
+        this.logBytes = logBytes;
+    }
+
+    public long getRetentionBytes() {
+        return retentionBytes;
+    }
+
+    public void setRetentionBytes(long retentionBytes) {
+        this.retentionBytes = retentionBytes;
+    }
+
+    public int getPendingWrites() {
+        return pendingWrites;
+    }
+
+    public void setPendingWrites(int pendingWrites) {
+        this.pendingWrites = pendingWrites;
+    }
+
+    public long getBatches() {
+        return batches;
+    }
+
+    public void setBatches(long batches) {
+        this.batches = batches;
+    }
+
+    public long getWrittenRecords() {
+        return writtenRecords;
+    }
+
+    public void setWrittenRecords(long writtenRecords) {
+        this.writtenRecords = writtenRecords;
+    }
+
+    public double getAvgBatchSize() {
+        return avgBatchSize;
+    }
+
+    public void setAvgBatchSize(double avgBatchSize) {
+        this.avgBatchSize = avgBatchSize;
+    }
+
+    public long getDroppedWrites() {
+        return droppedWrites;
+    }
+
+    public void setDroppedWrites(long droppedWrites) {
+        this.droppedWrites = droppedWrites;
+    }
+
+    public long getCompactions() {
+        return compactions;
+    }
+
+    public void setCompactions(long compactions) {
+        this.compactions = compactions;
+    }
+
+    public long getDeletedSegments() {
+        return deletedSegments;
+    }
+
+    public void setDeletedSegments(long deletedSegments) {
+        this.deletedSegments = deletedSegments;
+    }
+
+    public long getRecoveredRecords() {
+        return recoveredRecords;
+    }
+
+    public void setRecoveredRecords(long recoveredRecords) {
+        this.recoveredRecords = recoveredRecords;
+    }
+
+    public long getTruncatedBytes() {
+        return truncatedBytes;
+    }
+
+    public void setTruncatedBytes(long truncatedBytes) {
+        this.truncatedBytes = truncatedBytes;
+    }
+
+    public boolean isFsync() {
+        return fsync;
+    }
+
+    public void setFsync(boolean fsync) {
+        this.fsync = fsync;
+    }
+}
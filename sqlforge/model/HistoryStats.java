@@ -0,0 +1,90 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Point-in-time snapshot of the query history store.
+ * {@code bytes} is an estimate of the retained heap; {@code maxBytes} caps it for the
+ * in-memory store and is 0 when history is persisted, in which case {@code log} is set.
+ */
+public class HistoryStats {
+    private int users;
+    private long entries;
+    private int perUserLimit;
+    private long bytes;
+    private long maxBytes;
+    private long idleEvictions;
+    private long memoryEvictions;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private HistoryLogStats log;
+
+    // getters / setters
+
+    public int getUsers() {
+        return users;
+    }
+
+    public void setUsers(int users) {
+        this.users = users;
+    }
+
+    public long getEntries() {
+        return entries;
+    }
+
+    public void setEntries(long entries) {
+        this.entries = entries;
+    }
+
+    public int getPerUserLimit() {
+        return perUserLimit;
+    }
+
+    public void setPerUserLimit(int perUserLimit) {
+        this.perUserLimit = perUserLimit;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public void setBytes(long bytes) {
+        this.bytes = bytes;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public long getIdleEvictions() {
+        return idleEvictions;
+    }
+
+    public void setIdleEvictions(long idleEvictions) {
+        this.idleEvictions = idleEvictions;
+    }
+
+    public long getMemoryEvictions() {
+        return memoryEvictions;
+    }
+
+    public void setMemoryEvictions(long memoryEvictions) {
+        this.memoryEvictions = memoryEvictions;
+    }
+
+    public HistoryLogStats getLog() {
+        return log;
+    }
+
+    public void setLog(HistoryLogStats log) {
+        this.log = log;
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.model;
+
+/**
+ * One table load for {@code /api/import}. For a streamed body the fields come from
+ * query parameters; for {@code /api/import/files} each element names a file under
+ * the import directory.
+ */
+public class ImportRequest {
+    public static final String FORMAT_CSV = "csv";
+    public static final String FORMAT_NDJSON = "ndjson";
+
+    private String table;
+
+    // "csv" or "ndjson"
+    private String format = FORMAT_CSV;
+
+    // file imports only: path relative to sqlforge.import.dir
+    private String path;
+
+    // optional "name TYPE, ..." for a new table; inferred from the first rows when absent
+    private String schema;
+
+    // create the table if it does not exist
+    private boolean create = true;
+
+    // empty the table before loading
+    private boolean truncate;
+
+    // CSV only
+    private String delimiter = ",";
+    private boolean header = true;
+
+    public ImportRequest() {}
+
+    public String getTable() {
+        return table;
+    }
+
+    public ImportRequest setTable(String table) {
+        this.table = table;
+        return this;
+    }
+
+    public String getFormat() {
+        return format;
+    }
+
+    public ImportRequest setFormat(String format) {
+        this.format = format;
+        return this;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public ImportRequest setPath(String path) {
+        this.path = path;
+        return this;
+    }
+
+    public String getSchema() {
+        return schema;
+    }
+
+    public ImportRequest setSchema(String schema) {
+        this.schema = schema;
+        return this;
+    }
+
+    public boolean isCreate() {
+        return create;
+    }
+
+    public ImportRequest setCreate(boolean create) {
+        this.create = create;
+        return this;
+    }
+
+    public boolean isTruncate() {
+        return truncate;
+    }
+
+    public ImportRequest setTruncate(boolean truncate) {
+        this.truncate = truncate;
+        return this;
+    }
+
+    public String getDelimiter() {
+        return delimiter;
+    }
+
+    public ImportRequest setDelimiter(String delimiter) {
+        this.delimiter = delimiter;
+        return this;
+    }
+
+    public boolean isHeader() {
+        return header;
+    }
+
+    public ImportRequest setHeader(boolean header) {
+        this.header = header;
+        return this;
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.model;
+
+/**
+ * A registered materialized view and how current its stored rows are.
+ */
+public class MaterializedViewInfo {
+    public static final String STATE_PENDING = "pending";
+    public static final String STATE_FRESH = "fresh";
+    public static final String STATE_STALE = "stale";
+    public static final String STATE_FAILED = "failed";
+
+    private String name;
+    private String table; // where the rows are stored
+    private String sql;
+    private String refresh;
+    private long intervalMs;
+    private long maxStaleMs;
+    private boolean summary; // also answers coarser aggregates, not just its own statement
+    private String state; // pending (never refreshed), fresh, stale or failed
+    private long rows;
+    private long refreshes;
+    private long hits; // statements answered from the view
+    private String refreshedAt;
+    private double refreshMillis; // duration of the last refresh
+    private String message; // error of the last refresh, if it failed
+
+    // getters / setters
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public void setTable(String table) {
+        this.table = table;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public void setSql(String sql) {
+        this.sql = sql;
+    }
+
+    public String getRefresh() {
+        return refresh;
+    }
+
+    public void setRefresh(String refresh) {
+        this.refresh = refresh;
+    }
+
+    public long getIntervalMs() {
+        return intervalMs;
+    }
+
+    public void setIntervalMs(long intervalMs) {
+        this.intervalMs = intervalMs;
+    }
+
+    public long getMaxStaleMs() {
+        return maxStaleMs;
+    }
+
+    public void setMaxStaleMs(long maxStaleMs) {
+        this.maxStaleMs = maxStaleMs;
+    }
+
+    public boolean isSummary() {
+        return summary;
+    }
+
+    public void setSummary(boolean summary) {
+        this.summary = summary;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public void setState(String state) {
+        this.state = state;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public void setRows(long rows) {
+        this.rows = rows;
+    }
+
+    public long getRefreshes() {
+        return refreshes;
+    }
+
+    public void setRefreshes(long refreshes) {
+        this.refreshes = refreshes;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public void setHits(long hits) {
+        this.hits = hits;
+    }
+
+    public String getRefreshedAt() {
+        return refreshedAt;
+    }
+
+    public void setRefreshedAt(String refreshedAt) {
+        this.refreshedAt = refreshedAt;
+    }
+
+    public double getRefreshMillis() {
+        return refreshMillis;
+    }
+
+    public void setRefreshMillis(double refreshMillis) {
+        this.refreshMillis = refreshMillis;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+}
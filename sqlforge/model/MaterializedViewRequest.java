@@ -0,0 +1,76 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.model;
+
+/**
+ * A materialized view to register with {@code POST /api/views}: a SELECT whose result
+ * SQLForge keeps in a table of its own and reads instead of re-running matching statements.
+ */
+public class MaterializedViewRequest {
+    public static final String REFRESH_ON_CHANGE = "on-change";
+    public static final String REFRESH_INTERVAL = "interval";
+    public static final String REFRESH_MANUAL = "manual";
+
+    // plain identifier; the rows go to SQLFORGE_MV.<name>
+    private String name;
+
+    private String sql;
+
+    // "on-change" (shortly after a server-side write to a source table), "interval" or "manual"
+    private String refresh = REFRESH_ON_CHANGE;
+
+    // "interval" only: time between refreshes
+    private Long intervalMs;
+
+    // how old the rows may be once a source table has changed and still answer statements; 0 = never
+    private Long maxStaleMs;
+
+    public MaterializedViewRequest() {}
+
+    public String getName() {
+        return name;
+    }
+
+    public MaterializedViewRequest setName(String name) {
+        this.name = name;
+        return this;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public MaterializedViewRequest setSql(String sql) {
+        this.sql = sql;
+        return this;
+    }
+
+    public String getRefresh() {
+        return refresh;
+    }
+
+    public MaterializedViewRequest setRefresh(String refresh) {
+        this.refresh = refresh;
+        return this;
+    }
+
+    public Long getIntervalMs() {
+        return intervalMs;
+    }
+
+    public MaterializedViewRequest setIntervalMs(Long intervalMs) {
+        this.intervalMs = intervalMs;
+        return this;
+    }
+
+    public Long getMaxStaleMs() {
+        return maxStaleMs;
+    }
+
+    public MaterializedViewRequest setMaxStaleMs(Long maxStaleMs) {
+        this.maxStaleMs = maxStaleMs;
+        return this;
+    }
+}
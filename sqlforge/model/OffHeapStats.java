@@ -0,0 +1,95 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.model;
+
+/**
+ * Point-in-time state of the off-heap result buffer: the budget, how much of it results
+ * hold, and how often results moved off the heap, were refused or were cut short.
+ */
+public class OffHeapStats {
+    private boolean enabled;
+    private int segmentBytes;
+    private long maxBytes;
+    private long usedBytes;
+    private long allocatedBytes;
+    private long spills;
+    private long rejected;
+    private long truncated;
+    private long reclaimed;
+
+    // getters / setters
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getSegmentBytes() {
+        return segmentBytes;
+    }
+
+    public void setSegmentBytes(int segmentBytes) {
+        this.segmentBytes = segmentBytes;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public long getUsedBytes() {
+        return usedBytes;
+    }
+
+    public void setUsedBytes(long usedBytes) {
+        this.usedBytes = usedBytes;
+    }
+
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    public void setAllocatedBytes(long allocatedBytes) {
+        this.allocatedBytes = allocatedBytes;
+    }
+
+    public long getSpills() {
+        return spills;
+    }
+
+    public void setSpills(long spills) {
+        this.spills = spills;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public void setRejected(long rejected) {
+        this.rejected = rejected;
+    }
+
+    public long getTruncated() {
+        return truncated;
+    }
+
+    public void setTruncated(long truncated) {
+        this.truncated = truncated;
+    }
+
+    public long getReclaimed() {
+        return reclaimed;
+    }
+
+    public void setReclaimed(long reclaimed) {
+        this.reclaimed = reclaimed;
+    }
+}
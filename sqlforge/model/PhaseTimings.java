@@ -0,0 +1,68 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.model;
+
+/**
+ * Where one statement spent its time, in milliseconds. Returned in
+ * {@link QueryResponse} when the request sets {@code "timings": true}.
+ */
+public class PhaseTimings {
+    private double validateMillis; // firewall and normalization
+    private double acquireMillis; // waiting for a pooled connection
+    private double prepareMillis; // statement cache lookup or prepare
+    private double executeMillis; // until H2 returns the first result
+    private double materializeMillis; // reading rows into the response
+    private double totalMillis;
+
+    // getters / setters
+
+    public double getValidateMillis() {
+        return validateMillis;
+    }
+
+    public void setValidateMillis(double validateMillis) {
+        this.validateMillis = validateMillis;
+    }
+
+    public double getAcquireMillis() {
+        return acquireMillis;
+    }
+
+    public void setAcquireMillis(double acquireMillis) {
+        this.acquireMillis = acquireMillis;
+    }
+
+    public double getPrepareMillis() {
+        return prepareMillis;
+    }
+
+    public void setPrepareMillis(double prepareMillis) {
+        this.prepareMillis = prepareMillis;
+    }
+
+    public double getExecuteMillis() {
+        return executeMillis;
+    }
+
+    public void setExecuteMillis(double executeMillis) {
+        this.executeMillis = executeMillis;
+    }
+
+    public double getMaterializeMillis() {
+        return materializeMillis;
+    }
+
+    public void setMaterializeMillis(double materializeMillis) {
+        this.materializeMillis = materializeMillis;
+    }
+
+    public double getTotalMillis() {
+        return totalMillis;
+    }
+
+    public void setTotalMillis(double totalMillis) {
+        this.totalMillis = totalMillis;
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.model;
+
+/**
+ * Point-in-time snapshot of the sandbox connection pool.
+ */
+public class PoolStats {
+    private int minSize;
+    private int maxSize;
+    private int total;
+    private int active;
+    private int idle;
+    private int waiters;
+    private long acquired;
+    private long rejected;
+    private long created;
+    private long destroyed;
+    private long validationFailures;
+    private double avgAcquireMicros;
+    private long maxAcquireMicros;
+
+    // getters / setters
+
+    public int getMinSize() {
+        return minSize;
+    }
+
+    public void setMinSize(int minSize) {
+        this.minSize = minSize;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public void setTotal(int total) {
+        this.total = total;
+    }
+
+    public int getActive() {
+        return active;
+    }
+
+    public void setActive(int active) {
+        this.active = active;
+    }
+
+    public int getIdle() {
+        return idle;
+    }
+
+    public void setIdle(int idle) {
+        this.idle = idle;
+    }
+
+    public int getWaiters() {
+        return waiters;
+    }
+
+    public void setWaiters(int waiters) {
+        this.waiters = waiters;
+    }
+
+    public long getAcquired() {
+        return acquired;
+    }
+
+    public void setAcquired(long acquired) {
+        this.acquired = acquired;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public void setRejected(long rejected) {
+        this.rejected = rejected;
+    }
+
+    public long getCreated() {
+        return created;
+    }
+
+    public void setCreated(long created) {
+        this.created = created;
+    }
+
+    public long getDestroyed() {
+        return destroyed;
+    }
+
+    public void setDestroyed(long destroyed) {
+        this.destroyed = destroyed;
+    }
+
+    public long getValidationFailures() {
+        return validationFailures;
+    }
+
+    public void setValidationFailures(long validationFailures) {
+        this.validationFailures = validationFailures;
+    }
+
+    public double getAvgAcquireMicros() {
+        return avgAcquireMicros;
+    }
+
+    public void setAvgAcquireMicros(double avgAcquireMicros) {
+        this.avgAcquireMicros = avgAcquireMicros;
+    }
+
+    public long getMaxAcquireMicros() {
+        return maxAcquireMicros;
+    }
+
+    public void setMaxAcquireMicros(long maxAcquireMicros) {
+        this.maxAcquireMicros = maxAcquireMicros;
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Snapshot of query telemetry: per-fingerprint latency statistics and the
+ * slowest statements seen since startup.
+ */
+public class QueryMetrics {
+    private boolean enabled;
+    private int trackedStatements; // distinct fingerprints with their own statistics
+    private int maxStatements;
+    private long overflowCount; // executions of fingerprints beyond the limit, pooled under one entry
+    private double slowThresholdMillis;
+    private List<StatementStats> statements = new ArrayList<>(); // sorted as requested
+    private List<SlowQuery> slowQueries = new ArrayList<>(); // slowest first
+
+    // getters / setters
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getTrackedStatements() {
+        return trackedStatements;
+    }
+
+    public void setTrackedStatements(int trackedStatements) {
+        this.trackedStatements = trackedStatements;
+    }
+
+    public int getMaxStatements() {
+        return maxStatements;
+    }
+
+    public void setMaxStatements(int maxStatements) {
+        this.maxStatements = maxStatements;
+    }
+
+    public long getOverflowCount() {
+        return overflowCount;
+    }
+
+    public void setOverflowCount(long overflowCount) {
+        this.overflowCount = overflowCount;
+    }
+
+    public double getSlowThresholdMillis() {
+        return slowThresholdMillis;
+    }
+
+    public void setSlowThresholdMillis(double slowThresholdMillis) {
+        this.slowThresholdMillis = slowThresholdMillis;
+    }
+
+    public List<StatementStats> getStatements() {
+        return statements;
+    }
+
+    public void setStatements(List<StatementStats> statements) {
+        this.statements = statements;
+    }
+
+    public List<SlowQuery> getSlowQueries() {
+        return slowQueries;
+    }
+
+    public void setSlowQueries(List<SlowQuery> slowQueries) {
+        this.slowQueries = slowQueries;
+    }
+}
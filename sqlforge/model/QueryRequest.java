@@ -10,6 +10,9 @@ import jakarta.validation.constraints.NotBlank;
  * Request wrapper for queries.
  */
 public class QueryRequest {
+    public static final String FORMAT_ROWS = "rows";
+    public static final String FORMAT_COLUMNAR = "columnar";
+
     private String userId;
 
     @NotBlank(message = "SQL or text must be provided")
@@ -18,6 +21,18 @@ public class QueryRequest {
     // mode: "read" (execute), "explain"
     private String mode = "read";
 
+    // optional row limit, capped by the server-side maximum
+    private Integer maxRows;
+
+    // result shape: "rows" (one map per row) or "columnar" (typed arrays per column)
+    private String format = FORMAT_ROWS;
+
+    // when true, the response carries a per-phase breakdown of where the time went
+    private boolean timings;
+
+    // opaque cursor from a previous response's "cursor", to fetch the page after it
+    private String cursor;
+
     public QueryRequest() {}
 
     public String getUserId() {
@@ -46,4 +61,40 @@ public class QueryRequest {
         this.mode = mode;
         return this;
     }
+
+    public Integer getMaxRows() {
+        return maxRows;
+    }
+
+    public QueryRequest setMaxRows(Integer maxRows) {
+        this.maxRows = maxRows;
+        return this;
+    }
+
+    public String getFormat() {
+        return format;
+    }
+
+    public QueryRequest setFormat(String format) {
+        this.format = format;
+        return this;
+    }
+
+    public boolean isTimings() {
+        return timings;
+    }
+
+    public QueryRequest setTimings(boolean timings) {
+        this.timings = timings;
+        return this;
+    }
+
+    public String getCursor() {
+        return cursor;
+    }
+
+    public QueryRequest setCursor(String cursor) {
+        this.cursor = cursor;
+        return this;
+    }
 }
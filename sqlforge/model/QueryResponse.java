@@ -4,6 +4,8 @@
  */
 package com.sqlforge.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -18,6 +20,19 @@ public class QueryResponse {
     private List<Map<String, Object>> rows = new ArrayList<>();
     private int rowCount;
     private String sql; // for NL->SQL conversions
+    private boolean cached; // served from the result cache
+    private boolean coalesced; // shared with an identical request that was already running
+    private boolean hasMore; // rows were left out; pass the cursor to get them
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String cursor; // next page, when hasMore and the statement can be paged
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String materializedView; // answered from this view instead of the tables the statement names
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private ColumnarResult columnar; // set instead of rows when format=columnar
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Double elapsedMillis; // per statement in batch responses
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private PhaseTimings timings; // only when the request asked for timings
 
     public static QueryResponse ok() {
         QueryResponse r = new QueryResponse();
@@ -33,6 +48,25 @@ public class QueryResponse {
         return r;
     }
 
+    /**
+     * Copy of the result another request produced: rows and columns are shared, the
+     * per-request flags (cached, coalesced, elapsedMillis, timings) are left unset.
+     */
+    public static QueryResponse copyOf(QueryResponse src) {
+        QueryResponse r = new QueryResponse();
+        r.ok = src.ok;
+        r.message = src.message;
+        r.timestamp = src.timestamp;
+        r.rows = src.rows;
+        r.columnar = src.columnar;
+        r.rowCount = src.rowCount;
+        r.sql = src.sql;
+        r.hasMore = src.hasMore;
+        r.cursor = src.cursor;
+        r.materializedView = src.materializedView;
+        return r;
+    }
+
     public QueryResponse withSql(String sql) {
         this.sql = sql;
         return this;
@@ -87,4 +121,68 @@ public class QueryResponse {
     public void setSql(String sql) {
         this.sql = sql;
     }
+
+    public ColumnarResult getColumnar() {
+        return columnar;
+    }
+
+    public void setColumnar(ColumnarResult columnar) {
+        this.columnar = columnar;
+    }
+
+    public boolean isCached() {
+        return cached;
+    }
+
+    public void setCached(boolean cached) {
+        this.cached = cached;
+    }
+
+    public boolean isCoalesced() {
+        return coalesced;
+    }
+
+    public void setCoalesced(boolean coalesced) {
+        this.coalesced = coalesced;
+    }
+
+    public boolean isHasMore() {
+        return hasMore;
+    }
+
+    public void setHasMore(boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+
+    public String getCursor() {
+        return cursor;
+    }
+
+    public void setCursor(String cursor) {
+        this.cursor = cursor;
+    }
+
+    public String getMaterializedView() {
+        return materializedView;
+    }
+
+    public void setMaterializedView(String materializedView) {
+        this.materializedView = materializedView;
+    }
+
+    public Double getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public void setElapsedMillis(Double elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public PhaseTimings getTimings() {
+        return timings;
+    }
+
+    public void setTimings(PhaseTimings timings) {
+        this.timings = timings;
+    }
 }
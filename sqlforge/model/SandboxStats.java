@@ -0,0 +1,115 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Snapshot of the per-user sandbox databases and their memory budget.
+ */
+public class SandboxStats {
+    private boolean enabled;
+    private int live;
+    private int maxSandboxes;
+    private long usedBytes; // estimated heap held by live sandboxes
+    private long maxBytes;
+    private long templateBytes; // estimate for a new sandbox; 0 until the template was first loaded
+    private long created;
+    private long evictedIdle;
+    private long evictedForBudget;
+    private long rejected; // requests refused because every sandbox was busy
+    private List<SandboxInfo> sandboxes = new ArrayList<>(); // least recently used first
+
+    // getters / setters
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getLive() {
+        return live;
+    }
+
+    public void setLive(int live) {
+        this.live = live;
+    }
+
+    public int getMaxSandboxes() {
+        return maxSandboxes;
+    }
+
+    public void setMaxSandboxes(int maxSandboxes) {
+        this.maxSandboxes = maxSandboxes;
+    }
+
+    public long getUsedBytes() {
+        return usedBytes;
+    }
+
+    public void setUsedBytes(long usedBytes) {
+        this.usedBytes = usedBytes;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public long getTemplateBytes() {
+        return templateBytes;
+    }
+
+    public void setTemplateBytes(long templateBytes) {
+        this.templateBytes = templateBytes;
+    }
+
+    public long getCreated() {
+        return created;
+    }
+
+    public void setCreated(long created) {
+        this.created = created;
+    }
+
+    public long getEvictedIdle() {
+        return evictedIdle;
+    }
+
+    public void setEvictedIdle(long evictedIdle) {
+        this.evictedIdle = evictedIdle;
+    }
+
+    public long getEvictedForBudget() {
+        return evictedForBudget;
+    }
+
+    public void setEvictedForBudget(long evictedForBudget) {
+        this.evictedForBudget = evictedForBudget;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public void setRejected(long rejected) {
+        this.rejected = rejected;
+    }
+
+    public List<SandboxInfo> getSandboxes() {
+        return sandboxes;
+    }
+
+    public void setSandboxes(List<SandboxInfo> sandboxes) {
+        this.sandboxes = sandboxes;
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * One entry of the slow-query log, with the plan H2 chose for its fingerprint.
+ */
+public class SlowQuery {
+    private String fingerprint;
+    private String sql; // as submitted, truncated
+    private String timestamp;
+    private long rows;
+    private boolean ok;
+    private PhaseTimings timings;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String plan; // captured in the background; null until available
+
+    // getters / setters
+
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    public void setFingerprint(String fingerprint) {
+        this.fingerprint = fingerprint;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public void setSql(String sql) {
+        this.sql = sql;
+    }
+
+    public String getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(String timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public void setRows(long rows) {
+        this.rows = rows;
+    }
+
+    public boolean isOk() {
+        return ok;
+    }
+
+    public void setOk(boolean ok) {
+        this.ok = ok;
+    }
+
+    public PhaseTimings getTimings() {
+        return timings;
+    }
+
+    public void setTimings(PhaseTimings timings) {
+        this.timings = timings;
+    }
+
+    public String getPlan() {
+        return plan;
+    }
+
+    public void setPlan(String plan) {
+        this.plan = plan;
+    }
+}
@@ -0,0 +1,416 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Text rules of the advisor, compiled into one Aho-Corasick automaton over SQL tokens.
+ * <p>
+ * A rule reads {@code name [weight]: pattern => tip}. The pattern is a run of
+ * consecutive tokens separated by spaces; each element is a keyword or identifier
+ * ({@code SELECT}, case-insensitive), an operator or symbol ({@code *}, {@code (},
+ * {@code <>}), alternatives of those separated by '|' ({@code =|<>|!=}), or a class:
+ * <ul>
+ *   <li>{@code {name}}: a quoted identifier or any word, including words other rules name literally;</li>
+ *   <li>{@code {string}}: any string literal;</li>
+ *   <li>{@code {wildcard}}: a string literal starting with {@code %} or {@code _};</li>
+ *   <li>{@code {number}}: a numeric literal.</li>
+ * </ul>
+ * Comments and the insides of literals are never matched. A rule fires at most once per
+ * statement and takes its weight (default 5) off the advice score.
+ * <p>
+ * Every pattern, with its alternatives expanded, is a path in one token trie; failure
+ * links turn the trie into an automaton that reads the statement once and reports
+ * every rule ending at each token, so the cost is one lexer pass whatever the rule
+ * count. Words are looked up without copying them out of the statement.
+ */
+final class AdvisorRules {
+
+    static final List<String> DEFAULT_RULES = List.of(
+            "select-star: SELECT * => Avoid SELECT *. Specify columns to reduce I/O and network transfer.",
+            "null-comparison 10: WHERE|AND|OR|ON {name} =|<>|!= NULL => Comparing with = NULL or <> NULL is never "
+                    + "true; use IS NULL or IS NOT NULL.",
+            "leading-wildcard: LIKE|ILIKE {wildcard} => A LIKE pattern that starts with a wildcard cannot seek an index; "
+                    + "every row is read and tested.",
+            "not-in-subquery: NOT IN ( SELECT => NOT IN (SELECT ...) returns no rows once the subquery yields a NULL; "
+                    + "NOT EXISTS is safer and often plans better.",
+            "union-distinct 3: UNION SELECT|( => UNION removes duplicates with an extra sort; use UNION ALL when "
+                    + "duplicates cannot occur or do not matter.",
+            "function-on-column 3: WHERE|AND|OR UPPER|LOWER|TRIM|CAST|SUBSTRING|COALESCE ( {name} => A function around "
+                    + "a filtered column keeps H2 from seeking its index; compare the bare column or index the expression.",
+            "order-by-position 2: ORDER BY {number} => ORDER BY a column position breaks silently when the select list "
+                    + "changes; name the column.",
+            "offset-paging 3: OFFSET {number} => OFFSET reads and discards every skipped row; page with the cursor "
+                    + "/api/run returns instead.");
+
+    private static final int NAME = 0, STRING = 1, WILDCARD = 2, NUMBER = 3, OTHER = 4;
+    private static final String[] CLASSES = {"name", "string", "wildcard", "number"};
+    private static final int DEFAULT_WEIGHT = 5;
+    private static final int MAX_PATHS = 1024; // expanded alternatives per rule
+
+    static final class Rule {
+        final String name;
+        final int weight;
+        final String pattern;
+        final String tip;
+        // per element, its alternatives: upper-case words and operators, or "{class}"
+        final String[][] elements;
+
+        private Rule(String name, int weight, String pattern, String tip, String[][] elements) {
+            this.name = name;
+            this.weight = weight;
+            this.pattern = pattern;
+            this.tip = tip;
+            this.elements = elements;
+        }
+    }
+
+    private final Rule[] rules;
+    private final AtomicLongArray hits; // statements each rule fired on
+
+    // Literal words and operators of all rules: open addressing, case-insensitive, value = symbol
+    private final String[] literals;
+    private final int[] literalSymbols;
+
+    // The automaton: per state the symbols it goes on (sorted) and their targets
+    private final int[] rootNext;
+    private final int[][] keys;
+    private final int[][] targets;
+    private final int[] fail;
+    private final int[][] output; // rules ending here, including via failure links
+
+    AdvisorRules(List<Rule> rules) {
+        this.rules = rules.toArray(new Rule[0]);
+        this.hits = new AtomicLongArray(this.rules.length);
+
+        Map<String, Integer> symbols = new HashMap<>();
+        for (Rule rule : this.rules) {
+            for (String[] alternatives : rule.elements) {
+                for (String a : alternatives) {
+                    if (!a.startsWith("{")) {
+                        symbols.putIfAbsent(a, OTHER + 1 + symbols.size());
+                    }
+                }
+            }
+        }
+        // A word some rule spells out is lexed as that literal's symbol, so {name} has to take those too
+        int[] names = symbols.entrySet().stream()
+                .filter(e -> isWord(e.getKey()))
+                .mapToInt(Map.Entry::getValue)
+                .sorted()
+                .toArray();
+        int[] nameSymbols = new int[names.length + 1];
+        nameSymbols[0] = NAME;
+        System.arraycopy(names, 0, nameSymbols, 1, names.length);
+
+        int slots = Integer.highestOneBit(Math.max(8, symbols.size() * 2)) * 2;
+        this.literals = new String[slots];
+        this.literalSymbols = new int[slots];
+        symbols.forEach((literal, symbol) -> {
+            int i = hash(literal, 0, literal.length()) & (slots - 1);
+            while (literals[i] != null) {
+                i = (i + 1) & (slots - 1);
+            }
+            literals[i] = literal;
+            literalSymbols[i] = symbol;
+        });
+
+        // Trie of every expanded pattern
+        List<Map<Integer, Integer>> trie = new ArrayList<>();
+        List<List<Integer>> ends = new ArrayList<>();
+        trie.add(new HashMap<>());
+        ends.add(new ArrayList<>());
+        for (int r = 0; r < this.rules.length; r++) {
+            int[] from = {0};
+            for (String[] alternatives : this.rules[r].elements) {
+                List<Integer> next = new ArrayList<>();
+                for (int state : from) {
+                    for (String a : alternatives) {
+                        for (int symbol : symbols(a, symbols, nameSymbols)) {
+                            Integer child = trie.get(state).get(symbol);
+                            if (child == null) {
+                                child = trie.size();
+                                trie.get(state).put(symbol, child);
+                                trie.add(new HashMap<>());
+                                ends.add(new ArrayList<>());
+                            }
+                            if (!next.contains(child)) {
+                                next.add(child);
+                            }
+                        }
+                    }
+                }
+                from = next.stream().mapToInt(Integer::intValue).toArray();
+            }
+            for (int state : from) {
+                ends.get(state).add(r);
+            }
+        }
+
+        int n = trie.size();
+        this.keys = new int[n][];
+        this.targets = new int[n][];
+        this.fail = new int[n];
+        this.output = new int[n][];
+        for (int s = 0; s < n; s++) {
+            int[] k = trie.get(s).keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+            int[] t = new int[k.length];
+            for (int i = 0; i < k.length; i++) {
+                t[i] = trie.get(s).get(k[i]);
+            }
+            keys[s] = k;
+            targets[s] = t;
+        }
+        this.rootNext = new int[OTHER + 1 + symbols.size()];
+        for (int i = 0; i < keys[0].length; i++) {
+            rootNext[keys[0][i]] = targets[0][i];
+        }
+
+        // Breadth-first, so a state's failure target is final before its children need it
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        output[0] = new int[0];
+        for (int child : targets[0]) {
+            fail[child] = 0;
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int s = queue.poll();
+            output[s] = merge(ends.get(s), output[fail[s]]);
+            for (int i = 0; i < keys[s].length; i++) {
+                int child = targets[s][i];
+                fail[child] = step(fail[s], keys[s][i]);
+                queue.add(child);
+            }
+        }
+    }
+
+    /**
+     * Parses rules, one per line; blank lines and lines starting with '#' are skipped.
+     * @throws IllegalArgumentException naming the first malformed rule
+     */
+    static List<Rule> parseRules(List<String> lines) {
+        List<Rule> out = new ArrayList<>();
+        for (String raw : lines) {
+            String line = raw.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            try {
+                out.add(parseRule(line));
+            } catch (IllegalArgumentException ex) {
+                throw new IllegalArgumentException("Invalid advisor rule '" + line + "': " + ex.getMessage());
+            }
+        }
+        return out;
+    }
+
+    private static Rule parseRule(String line) {
+        int colon = line.indexOf(':');
+        int arrow = line.indexOf("=>", colon + 1);
+        if (colon <= 0 || arrow < 0) {
+            throw new IllegalArgumentException("expected 'name [weight]: pattern => tip'");
+        }
+        String[] head = line.substring(0, colon).trim().split("\\s+");
+        if (head.length > 2) {
+            throw new IllegalArgumentException("expected 'name [weight]' before ':'");
+        }
+        int weight = DEFAULT_WEIGHT;
+        if (head.length == 2) {
+            try {
+                weight = Integer.parseInt(head[1]);
+            } catch (NumberFormatException ex) {
+                throw new IllegalArgumentException("weight must be a whole number");
+            }
+            if (weight < 0 || weight > 100) {
+                throw new IllegalArgumentException("weight must be between 0 and 100");
+            }
+        }
+        String pattern = line.substring(colon + 1, arrow).trim();
+        String tip = line.substring(arrow + 2).trim();
+        if (pattern.isEmpty() || tip.isEmpty()) {
+            throw new IllegalArgumentException("empty pattern or tip");
+        }
+        String[] parts = pattern.split("\\s+");
+        String[][] elements = new String[parts.length][];
+        long paths = 1;
+        for (int i = 0; i < parts.length; i++) {
+            elements[i] = parts[i].startsWith("{") ? new String[]{classElement(parts[i])} : literals(parts[i]);
+            paths *= elements[i].length;
+            if (paths > MAX_PATHS) {
+                throw new IllegalArgumentException("more than " + MAX_PATHS + " combinations of alternatives");
+            }
+        }
+        return new Rule(head[0], weight, pattern, tip, elements);
+    }
+
+    private static String classElement(String el) {
+        if (!el.endsWith("}") || !Arrays.asList(CLASSES).contains(el.substring(1, el.length() - 1))) {
+            throw new IllegalArgumentException("unknown class " + el);
+        }
+        return el;
+    }
+
+    /**
+     * Alternatives of a literal element, each one word, operator or symbol token.
+     */
+    private static String[] literals(String el) {
+        String[] alternatives = el.split("\\|");
+        for (int i = 0; i < alternatives.length; i++) {
+            String a = alternatives[i];
+            SqlLexer lx = new SqlLexer(a);
+            int type = lx.next();
+            if (a.isEmpty() || lx.end() != a.length()
+                    || (type != SqlLexer.WORD && type != SqlLexer.OPERATOR && type != SqlLexer.SYMBOL)) {
+                throw new IllegalArgumentException("bad literal " + el);
+            }
+            alternatives[i] = upper(a, 0, a.length());
+        }
+        return alternatives;
+    }
+
+    private static int[] symbols(String alternative, Map<String, Integer> literals, int[] nameSymbols) {
+        switch (alternative) {
+            case "{name}":
+                return nameSymbols;
+            case "{string}":
+                return new int[]{STRING, WILDCARD};
+            case "{wildcard}":
+                return new int[]{WILDCARD};
+            case "{number}":
+                return new int[]{NUMBER};
+            default:
+                return new int[]{literals.get(alternative)};
+        }
+    }
+
+    private static boolean isWord(String literal) {
+        char c = literal.charAt(0);
+        return Character.isLetter(c) || c == '_';
+    }
+
+    /**
+     * Rules that match the statement, in declared order; each one's hit count goes up.
+     */
+    int[] match(CharSequence sql) {
+        boolean[] fired = null;
+        int count = 0;
+        SqlLexer lx = new SqlLexer(sql);
+        int state = 0;
+        for (int type = lx.next(); type != SqlLexer.EOF && type != SqlLexer.UNTERMINATED; type = lx.next()) {
+            int symbol = symbol(sql, type, lx.start(), lx.end());
+            state = step(state, symbol);
+            for (int r : output[state]) {
+                if (fired == null) {
+                    fired = new boolean[rules.length];
+                }
+                if (!fired[r]) {
+                    fired[r] = true;
+                    count++;
+                }
+            }
+        }
+        int[] out = new int[count];
+        for (int r = 0, i = 0; i < count; r++) {
+            if (fired[r]) {
+                out[i++] = r;
+                hits.incrementAndGet(r);
+            }
+        }
+        return out;
+    }
+
+    Rule rule(int index) {
+        return rules[index];
+    }
+
+    int size() {
+        return rules.length;
+    }
+
+    long hits(int index) {
+        return hits.get(index);
+    }
+
+    private int symbol(CharSequence sql, int type, int start, int end) {
+        switch (type) {
+            case SqlLexer.QUOTED:
+                return NAME;
+            case SqlLexer.STRING:
+                char c = end - start > 1 ? sql.charAt(start + 1) : 0;
+                return sql.charAt(start) == '\'' && (c == '%' || c == '_') ? WILDCARD : STRING;
+            case SqlLexer.NUMBER:
+                return NUMBER;
+            default:
+                int symbol = literal(sql, start, end);
+                return symbol >= 0 ? symbol : type == SqlLexer.WORD ? NAME : OTHER;
+        }
+    }
+
+    private int literal(CharSequence sql, int start, int end) {
+        int mask = literals.length - 1;
+        for (int i = hash(sql, start, end) & mask; literals[i] != null; i = (i + 1) & mask) {
+            if (equalsUpper(literals[i], sql, start, end)) {
+                return literalSymbols[i];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Target of {@code state} on {@code symbol} after following failure links.
+     */
+    private int step(int state, int symbol) {
+        for (; state != 0; state = fail[state]) {
+            int i = Arrays.binarySearch(keys[state], symbol);
+            if (i >= 0) {
+                return targets[state][i];
+            }
+        }
+        return rootNext[symbol];
+    }
+
+    private static int[] merge(List<Integer> own, int[] inherited) {
+        int[] out = Arrays.copyOf(inherited, inherited.length + own.size());
+        for (int i = 0; i < own.size(); i++) {
+            out[inherited.length + i] = own.get(i);
+        }
+        return out;
+    }
+
+    private static int hash(CharSequence s, int start, int end) {
+        int h = 0;
+        for (int i = start; i < end; i++) {
+            h = 31 * h + Character.toUpperCase(s.charAt(i));
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private static boolean equalsUpper(String upper, CharSequence s, int start, int end) {
+        if (upper.length() != end - start) {
+            return false;
+        }
+        for (int i = 0; i < upper.length(); i++) {
+            if (upper.charAt(i) != Character.toUpperCase(s.charAt(start + i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String upper(CharSequence s, int start, int end) {
+        StringBuilder sb = new StringBuilder(end - start);
+        for (int i = start; i < end; i++) {
+            sb.append(Character.toUpperCase(s.charAt(i)));
+        }
+        return sb.toString();
+    }
+}
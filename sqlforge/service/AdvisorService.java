@@ -5,60 +5,452 @@
 package com.sqlforge.service;
 
 import com.sqlforge.model.AdvisorResponse;
+import com.sqlforge.model.AdvisorRuleStats;
+import com.sqlforge.model.QueryRequest;
+import com.sqlforge.model.QueryResponse;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 /**
- * Simple rule-based advisor that analyzes SQL text and suggests improvements.
- * For production replace with deeper static analysis and cost models.
+ * Cost-based advisor. It asks H2 for the plan of the statement ({@code EXPLAIN}
+ * through {@link DatabaseService}) and reads it against cached table statistics
+ * ({@link SchemaStats}) to find:
+ * <ul>
+ *   <li>full scans of large tables,</li>
+ *   <li>WHERE/JOIN columns of scanned tables with no index that starts with them,</li>
+ *   <li>ORDER BY clauses that force a sort because no index delivers the order.</li>
+ * </ul>
+ * The estimated cost is a rough count of rows touched: a scan reads every row, an
+ * index lookup about log2(rows) plus its matches, each joined table is probed once
+ * per row coming from the tables before it, and a sort adds n·log2(n).
+ * Text rules ({@link AdvisorRules}) add tips the plan cannot show, each taking its
+ * weight off the score, in one pass over the statement however many there are.
+ * Advice is cached per statement until the statistics snapshot changes.
  */
 @Service
 public class AdvisorService {
     private static final Logger log = LoggerFactory.getLogger(AdvisorService.class);
 
+    // Assumed share of rows kept by a constant filter on a scanned table / matched by a non-unique index seek
+    private static final double FILTER_SELECTIVITY = 0.25;
+    private static final double INDEX_SELECTIVITY = 0.05;
+    private static final int LONG_SQL_CHARS = 1000;
+    private static final int LONG_SQL_WEIGHT = 5;
+
+    private final DatabaseService db;
+    private final long largeTableRows;
+    private final AdvisorRules rules;
+    private final LruCache<String, Advice> cache;
+    private final BoundedExecutor analysis; // plan analysis for adviseAsync
+
+    private static final class Advice {
+        final AdvisorResponse response;
+        final SchemaStats stats;
+
+        Advice(AdvisorResponse response, SchemaStats stats) {
+            this.response = response;
+            this.stats = stats;
+        }
+    }
+
+    /**
+     * Outcome of the database step of {@link #adviseAsync}: cached advice, or a plan to analyze.
+     */
+    private static final class Planned {
+        final SchemaStats stats;
+        final AdvisorResponse cached;
+        final QueryResponse explained;
+
+        Planned(SchemaStats stats, AdvisorResponse cached, QueryResponse explained) {
+            this.stats = stats;
+            this.cached = cached;
+            this.explained = explained;
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if {@code sqlforge.advisor.rules-file} holds a malformed rule
+     */
+    public AdvisorService(DatabaseService db, Environment env) throws IOException {
+        // Rules from the file come first, so their tips are listed before the built-in ones
+        List<String> ruleLines = new ArrayList<>();
+        String rulesFile = env.getProperty("sqlforge.advisor.rules-file", "");
+        if (!rulesFile.isBlank()) {
+            ruleLines.addAll(Files.readAllLines(Paths.get(rulesFile), StandardCharsets.UTF_8));
+        }
+        if (env.getProperty("sqlforge.advisor.default-rules", Boolean.class, true)) {
+            ruleLines.addAll(AdvisorRules.DEFAULT_RULES);
+        }
+        this.db = db;
+        this.rules = new AdvisorRules(AdvisorRules.parseRules(ruleLines));
+        this.largeTableRows = env.getProperty("sqlforge.advisor.large-table-rows", Long.class, 1000L);
+        this.cache = new LruCache<>("advice", env.getProperty("sqlforge.advisor.cache-size", Integer.class, 256));
+        this.analysis = new BoundedExecutor("advisor",
+                env.getProperty("sqlforge.advisor.threads", Integer.class, 2),
+                env.getProperty("sqlforge.advisor.queue-capacity", Integer.class, 256),
+                env.getProperty("sqlforge.advisor.timeout-ms", Long.class, 2_000L));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        analysis.close();
+    }
+
+    /**
+     * Every text rule with the number of analyzed statements it fired on, in declared order.
+     */
+    public List<AdvisorRuleStats> ruleStats() {
+        List<AdvisorRuleStats> out = new ArrayList<>(rules.size());
+        for (int i = 0; i < rules.size(); i++) {
+            AdvisorRules.Rule rule = rules.rule(i);
+            AdvisorRuleStats s = new AdvisorRuleStats();
+            s.setName(rule.name);
+            s.setWeight(rule.weight);
+            s.setPattern(rule.pattern);
+            s.setTip(rule.tip);
+            s.setHits(rules.hits(i));
+            out.add(s);
+        }
+        return out;
+    }
+
+    /**
+     * Names of the text rules the statement trips, without planning it or caching anything.
+     */
+    public List<String> matchRules(String sql) {
+        int[] matched = rules.match(sql);
+        List<String> names = new ArrayList<>(matched.length);
+        for (int r : matched) {
+            names.add(rules.rule(r).name);
+        }
+        return names;
+    }
+
     public AdvisorResponse advise(String sql) {
+        return advise(sql, QueryContext.detached());
+    }
+
+    /**
+     * @throws IllegalArgumentException if the statement is not allowed in the sandbox
+     */
+    public AdvisorResponse advise(String sql, QueryContext ctx) {
         if (sql == null || sql.trim().isEmpty()) {
             return AdvisorResponse.error("SQL empty");
         }
-        String s = sql.toLowerCase(Locale.ROOT);
+        SchemaStats stats = db.schemaStats();
+        Advice cached = cache.get(sql, a -> a.stats == stats);
+        if (cached != null) {
+            return cached.response;
+        }
+        return adviceFor(sql, plan(sql, ctx), stats);
+    }
+
+    /**
+     * Non-blocking {@link #advise(String, QueryContext)}: loading statistics and planning run
+     * as one task on the query executor, the analysis on the advisor's own bounded pool.
+     * The future fails with {@link QueryRejectedException} when either is full and with a
+     * {@code TimeoutException} when either overruns its budget.
+     */
+    public CompletableFuture<AdvisorResponse> adviseAsync(String userId, String sql, QueryExecutor executor) {
+        if (sql == null || sql.trim().isEmpty()) {
+            return CompletableFuture.completedFuture(AdvisorResponse.error("SQL empty"));
+        }
+        return executor.executeAsync(userId, ctx -> {
+            SchemaStats stats = db.schemaStats();
+            Advice cached = cache.get(sql, a -> a.stats == stats);
+            return cached != null ? new Planned(stats, cached.response, null) : new Planned(stats, null, plan(sql, ctx));
+        }).thenCompose(p -> p.cached != null
+                ? CompletableFuture.completedFuture(p.cached)
+                : analysis.supply(() -> adviceFor(sql, p.explained, p.stats)));
+    }
+
+    private QueryResponse plan(String sql, QueryContext ctx) {
+        return startsWithExplain(sql)
+                ? db.execute(new QueryRequest().setSql(sql), ctx)
+                : db.explain(sql, ctx);
+    }
+
+    /**
+     * Advice for the EXPLAIN result, cached against the statistics it was based on.
+     */
+    private AdvisorResponse adviceFor(String sql, QueryResponse explained, SchemaStats stats) {
+        if (!explained.isOk()) {
+            return AdvisorResponse.error("Cannot plan statement: " + explained.getMessage());
+        }
+        try {
+            String planText = explained.getRows().isEmpty() ? ""
+                    : String.valueOf(explained.getRows().get(0).values().iterator().next());
+            AdvisorResponse resp = analyze(sql, planText, stats);
+            cache.put(sql, new Advice(resp, stats));
+            return resp;
+        } catch (Exception ex) {
+            log.error("Advice analysis failed", ex);
+            return AdvisorResponse.error("Advice analysis failed: " + ex.getMessage());
+        }
+    }
+
+    private AdvisorResponse analyze(String sql, String planText, SchemaStats stats) {
+        QueryPlan plan = QueryPlan.parse(planText);
+        List<String> tips = new ArrayList<>();
+        Set<String> indexes = new LinkedHashSet<>();
+
+        // Cost along the main join chain; subquery tables are counted once each
+        double cost = 0;
+        double rows = 1;
+        for (int i = 0; i < plan.tables.size(); i++) {
+            QueryPlan.TableAccess ta = plan.tables.get(i);
+            SchemaStats.Table t = stats == null ? null : stats.table(ta.schema, ta.table);
+            long tableRows = t == null ? 1 : Math.max(1, t.rows);
+            double access;
+            double out;
+            if (ta.scan) {
+                access = tableRows;
+                out = hasConstantFilter(plan, i, stats) ? Math.max(1, tableRows * FILTER_SELECTIVITY) : tableRows;
+                if (tableRows >= largeTableRows) {
+                    tips.add("Full table scan on " + ta.table + " (~" + tableRows + " rows).");
+                    indexTips(plan, i, t, tips, indexes, stats);
+                }
+            } else if (ta.index != null && ta.condition != null) {
+                SchemaStats.Index ix = stats == null ? null : stats.index(ta.schema, ta.index);
+                out = ix != null && ix.unique && isEquality(ta.condition)
+                        ? 1 : Math.max(1, tableRows * INDEX_SELECTIVITY);
+                access = log2(tableRows) + 1 + out;
+            } else {
+                // whole index walked (e.g. for order or a covering read), or access path unknown
+                access = tableRows;
+                out = tableRows;
+            }
+            if (ta.depth == 0) {
+                cost += rows * access;
+                rows *= out;
+            } else {
+                cost += access;
+            }
+        }
+        if (plan.directLookup) {
+            cost = Math.max(1, plan.tables.size());
+            rows = 1;
+        }
+        boolean sorts = !plan.orderBy.isEmpty() && !plan.indexSorted;
+        if (sorts && rows > 1) {
+            cost += rows * log2(rows);
+            if (rows >= largeTableRows) {
+                sortTip(plan, rows, tips, indexes, stats);
+            }
+        } else if (plan.fetch >= 0 && rows > plan.fetch) {
+            // rows stream out in order, so H2 stops after the first n
+            cost = Math.max(plan.fetch, cost * plan.fetch / rows);
+        }
+
+        List<String> fired = new ArrayList<>();
+        int penalty = ruleTips(sql, tips, fired);
         AdvisorResponse resp = new AdvisorResponse();
         resp.setOriginalSql(sql);
-        List<String> tips = new ArrayList<>();
-        try {
-            // Suggest using indexes if WHERE on non-indexed columns (heuristic)
-            if (s.contains("where") && !s.contains("idx_")) {
-                tips.add("Check if WHERE columns are indexed. Consider adding appropriate indexes for selective filters.");
+        resp.setPlan(planText);
+        resp.setEstimatedCost(Math.round(cost * 10) / 10.0);
+        resp.setSuggestedIndexes(new ArrayList<>(indexes));
+        resp.setTips(tips);
+        resp.setRules(fired);
+        // 100 for a handful of rows, ~64 at a thousand, ~28 at a million
+        long score = Math.round(100 - 12 * Math.log10(Math.max(1, cost)) - penalty);
+        resp.setScore((int) Math.max(0, Math.min(100, score)));
+        resp.setTimestamp(new Date().toString());
+        return resp;
+    }
+
+    /**
+     * Columns of the scanned table at {@code index} that a condition could seek on:
+     * compared with a constant, or joined to a table that comes earlier in the plan.
+     * When the scanned table drives a join, the constant filters of the tables joined
+     * to it are checked too, since an index there would let H2 start from that side.
+     */
+    private void indexTips(QueryPlan plan, int index, SchemaStats.Table t, List<String> tips,
+                           Set<String> indexes, SchemaStats stats) {
+        if (t == null) {
+            return;
+        }
+        Set<String> columns = new LinkedHashSet<>();
+        Set<String> joinColumns = new LinkedHashSet<>(); // seekable once the join starts from the other side
+        Set<Integer> joinedLater = new LinkedHashSet<>();
+        for (QueryPlan.Predicate p : plan.predicates) {
+            int left = resolve(p.column, plan, stats);
+            int right = p.other == null ? -1 : resolve(p.other, plan, stats);
+            if (left == index && (p.other == null || (right >= 0 && right < index))) {
+                columns.add(p.column.name);
+            } else if (right == index && left >= 0 && left < index) {
+                columns.add(p.other.name);
+            } else if (left == index && right > index) {
+                joinedLater.add(right);
+            } else if (right == index && left > index) {
+                joinedLater.add(left);
             }
-            if (s.contains("select *")) {
-                tips.add("Avoid SELECT *. Specify columns to reduce I/O and network transfer.");
+        }
+        for (int j : joinedLater) {
+            QueryPlan.TableAccess other = plan.tables.get(j);
+            SchemaStats.Table ot = stats.table(other.schema, other.table);
+            if (ot == null) {
+                continue;
             }
-            if (s.contains("order by") && !s.contains("limit")) {
-                tips.add("Consider adding LIMIT when ordering large result sets to avoid full sort spills.");
+            for (QueryPlan.Predicate p : plan.predicates) {
+                if (p.other == null && resolve(p.column, plan, stats) == j && !ot.hasLeadingIndex(p.column.name)) {
+                    tips.add("The join starts by scanning " + t.name + "; an index on " + ot.name + "."
+                            + p.column.name + " would let H2 start from the filtered " + ot.name + " rows instead.");
+                    indexes.add(createIndex(ot, p.column.name));
+                    for (QueryPlan.Predicate jp : plan.predicates) {
+                        QueryPlan.Column mine = jp.other == null ? null
+                                : resolve(jp.column, plan, stats) == index && resolve(jp.other, plan, stats) == j ? jp.column
+                                : resolve(jp.other, plan, stats) == index && resolve(jp.column, plan, stats) == j ? jp.other
+                                : null;
+                        if (mine != null) {
+                            joinColumns.add(mine.name);
+                        }
+                    }
+                    break;
+                }
             }
-            if (s.contains("join") && s.contains("on")) {
-                tips.add("Ensure JOIN conditions use indexed columns and correct join types.");
+        }
+        for (String column : columns) {
+            if (!t.hasLeadingIndex(column)) {
+                tips.add("No index starts with " + t.name + "." + column
+                        + ", which the WHERE/JOIN condition filters on.");
+                indexes.add(createIndex(t, column));
+            } else {
+                tips.add("An index on " + t.name + "." + column + " exists but is not used; the condition may "
+                        + "not be selective enough, or wraps the column in a function or cast.");
             }
-            if (s.length() > 1000) {
-                tips.add("Query is long — consider breaking into CTEs for readability and optimizer hints.");
+        }
+        for (String column : joinColumns) {
+            if (!columns.contains(column) && !t.hasLeadingIndex(column)) {
+                tips.add("No index starts with " + t.name + "." + column + ", which that join would then look up.");
+                indexes.add(createIndex(t, column));
             }
+        }
+    }
+
+    private void sortTip(QueryPlan plan, double rows, List<String> tips, Set<String> indexes, SchemaStats stats) {
+        String approx = "~" + Math.round(rows) + " rows";
+        QueryPlan.Column first = plan.orderBy.get(0);
+        int at = first == null ? -1 : resolve(first, plan, stats);
+        SchemaStats.Table t = at < 0 || stats == null ? null : stats.table(plan.tables.get(at).schema, plan.tables.get(at).table);
+        if (t == null) {
+            tips.add("ORDER BY sorts " + approx + " in memory; consider LIMIT or sorting on an indexed column.");
+        } else if (!t.hasLeadingIndex(first.name)) {
+            tips.add("ORDER BY " + t.name + "." + first.name + " sorts " + approx + "; an index on "
+                    + t.name + "(" + first.name + ") would let H2 read rows already in order.");
+            indexes.add(createIndex(t, first.name));
+        } else {
+            tips.add("ORDER BY sorts " + approx + " because the chosen access path does not return rows in index order.");
+        }
+    }
+
+    /**
+     * Text checks that the plan cannot show; returns the weight to take off the score.
+     */
+    private int ruleTips(String sql, List<String> tips, List<String> fired) {
+        int penalty = 0;
+        for (int r : rules.match(sql)) {
+            AdvisorRules.Rule rule = rules.rule(r);
+            tips.add(rule.tip);
+            fired.add(rule.name);
+            penalty += rule.weight;
+        }
+        if (sql.length() > LONG_SQL_CHARS) {
+            tips.add("Query is long — consider breaking into CTEs for readability and optimizer hints.");
+            penalty += LONG_SQL_WEIGHT;
+        }
+        return penalty;
+    }
 
-            // simple cardinality guess
-            if (s.contains("count(")) {
-                tips.add("COUNT can be expensive on large tables; consider using indexed counters or summarized tables.");
+    private static boolean hasConstantFilter(QueryPlan plan, int index, SchemaStats stats) {
+        for (QueryPlan.Predicate p : plan.predicates) {
+            if (p.other == null && resolve(p.column, plan, stats) == index) {
+                return true;
             }
+        }
+        return false;
+    }
 
-            // advisory scoring
-            int score = Math.max(0, 100 - (tips.size() * 10));
-            resp.setScore(score);
-            resp.setTips(tips);
-            resp.setTimestamp(new Date().toString());
-            return resp;
-        } catch (Exception ex) {
-            log.error("Advice analysis failed", ex);
-            return AdvisorResponse.error("Advice analysis failed: " + ex.getMessage());
+    /**
+     * Position of the plan table the column belongs to, or -1 if unknown or ambiguous.
+     */
+    private static int resolve(QueryPlan.Column c, QueryPlan plan, SchemaStats stats) {
+        List<QueryPlan.TableAccess> tables = plan.tables;
+        if (c.qualifier != null) {
+            for (int i = 0; i < tables.size(); i++) {
+                QueryPlan.TableAccess ta = tables.get(i);
+                boolean byAlias = c.qualifier.equals(ta.alias);
+                boolean byName = ta.alias == null && c.qualifier.equals(ta.table)
+                        && (c.schema == null || c.schema.equals(ta.schema));
+                if (byAlias || byName) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+        if (tables.size() == 1) {
+            return 0;
+        }
+        // unqualified: the innermost enclosing query level with exactly one table that has the column
+        int found = -1;
+        int foundDepth = -1;
+        boolean ambiguous = false;
+        for (int i = 0; stats != null && i < tables.size(); i++) {
+            QueryPlan.TableAccess ta = tables.get(i);
+            SchemaStats.Table t = stats.table(ta.schema, ta.table);
+            if (t == null || ta.depth > c.depth || !t.columns.contains(c.name)) {
+                continue;
+            }
+            if (ta.depth > foundDepth) {
+                found = i;
+                foundDepth = ta.depth;
+                ambiguous = false;
+            } else if (ta.depth == foundDepth) {
+                ambiguous = true;
+            }
         }
+        return ambiguous ? -1 : found;
+    }
+
+    private static boolean isEquality(String condition) {
+        return condition.contains(" = ") && condition.indexOf('<') < 0 && condition.indexOf('>') < 0
+                && !condition.contains(" IN(");
+    }
+
+    private static boolean startsWithExplain(String sql) {
+        SqlLexer lx = new SqlLexer(sql);
+        lx.next();
+        while (lx.isSymbol('(')) {
+            lx.next();
+        }
+        return lx.isKeyword("EXPLAIN");
+    }
+
+    private static String createIndex(SchemaStats.Table t, String column) {
+        String prefix = "PUBLIC".equals(t.schema) ? "" : identifier(t.schema) + ".";
+        String name = ("idx_" + t.name + "_" + column).toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9_]", "_");
+        return "CREATE INDEX " + name + " ON " + prefix + identifier(t.name) + "(" + identifier(column) + ")";
+    }
+
+    /**
+     * Lower-case if H2 would upper-case it back to the stored name, otherwise quoted.
+     */
+    private static String identifier(String canonical) {
+        String lower = canonical.toLowerCase(Locale.ROOT);
+        return TableVersions.canonical(lower).equals(canonical) && lower.matches("[a-z_][a-z0-9_]*")
+                ? lower : '"' + canonical.replace("\"", "\"\"") + '"';
+    }
+
+    private static double log2(double n) {
+        return Math.log(Math.max(1, n)) / Math.log(2);
     }
 }
@@ -0,0 +1,53 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Fixed pool of daemon threads with a bounded queue for CPU-only work behind the
+ * async endpoints. A full queue fails the future straight away with a
+ * {@link QueryRejectedException} instead of letting work pile up, and work that
+ * has not finished within the timeout fails with a {@code TimeoutException}.
+ */
+final class BoundedExecutor implements AutoCloseable {
+    private final String name;
+    private final long timeoutMs;
+    private final ThreadPoolExecutor pool;
+
+    BoundedExecutor(String name, int threads, int queueCapacity, long timeoutMs) {
+        this.name = name;
+        this.timeoutMs = timeoutMs;
+        AtomicInteger seq = new AtomicInteger();
+        int n = Math.max(1, threads);
+        this.pool = new ThreadPoolExecutor(n, n, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), r -> {
+            Thread t = new Thread(r, "sqlforge-" + name + "-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    <T> CompletableFuture<T> supply(Supplier<T> work) {
+        try {
+            CompletableFuture<T> future = CompletableFuture.supplyAsync(work, pool);
+            return timeoutMs > 0 ? future.orTimeout(timeoutMs, TimeUnit.MILLISECONDS) : future;
+        } catch (RejectedExecutionException ex) {
+            return CompletableFuture.failedFuture(
+                    new QueryRejectedException("The " + name + " queue is full, try again shortly", false));
+        }
+    }
+
+    @Override
+    public void close() {
+        pool.shutdownNow();
+    }
+}
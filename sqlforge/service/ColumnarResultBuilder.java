@@ -0,0 +1,253 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.service;
+
+import com.sqlforge.model.ColumnData;
+import com.sqlforge.model.ColumnarResult;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Fills a {@link ColumnarResult} straight from a {@link ResultSet} using the
+ * primitive getters, so numeric cells are never boxed and string columns with
+ * few distinct values (e.g. {@code dept}) are dictionary-encoded.
+ */
+final class ColumnarResultBuilder {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final Accumulator[] columns;
+    private int rows;
+
+    ColumnarResultBuilder(ResultSetMetaData md) throws SQLException {
+        int n = md.getColumnCount();
+        this.columns = new Accumulator[n];
+        for (int i = 0; i < n; i++) {
+            int col = i + 1;
+            Accumulator a;
+            switch (md.getColumnType(col)) {
+                case Types.TINYINT:
+                case Types.SMALLINT:
+                case Types.INTEGER:
+                    a = new IntAccumulator("int");
+                    break;
+                case Types.BOOLEAN:
+                case Types.BIT:
+                    a = new IntAccumulator("boolean");
+                    break;
+                case Types.BIGINT:
+                    a = new LongAccumulator();
+                    break;
+                case Types.REAL:
+                case Types.FLOAT:
+                case Types.DOUBLE:
+                case Types.DECIMAL:
+                case Types.NUMERIC:
+                    a = new DoubleAccumulator();
+                    break;
+                case Types.CHAR:
+                case Types.VARCHAR:
+                case Types.LONGVARCHAR:
+                case Types.NCHAR:
+                case Types.NVARCHAR:
+                    a = new StringAccumulator();
+                    break;
+                default:
+                    a = new ObjectAccumulator();
+            }
+            a.name = md.getColumnLabel(col);
+            a.sqlType = md.getColumnTypeName(col);
+            columns[i] = a;
+        }
+    }
+
+    int rowCount() {
+        return rows;
+    }
+
+    /**
+     * Appends the result set's current row.
+     */
+    void add(ResultSet rs) throws SQLException {
+        for (int i = 0; i < columns.length; i++) {
+            columns[i].read(rs, i + 1, rows);
+        }
+        rows++;
+    }
+
+    ColumnarResult build() {
+        ColumnarResult r = new ColumnarResult();
+        r.setRowCount(rows);
+        for (Accumulator a : columns) {
+            ColumnData c = new ColumnData();
+            c.setName(a.name);
+            c.setType(a.type);
+            c.setSqlType(a.sqlType);
+            c.setNulls(a.nulls == null ? null : Arrays.copyOf(a.nulls, (rows + 7) / 8));
+            a.fill(c, rows);
+            r.getColumns().add(c);
+        }
+        return r;
+    }
+
+    private abstract static class Accumulator {
+        final String type;
+        String name;
+        String sqlType;
+        byte[] nulls; // allocated on the first NULL
+
+        Accumulator(String type) {
+            this.type = type;
+        }
+
+        abstract void read(ResultSet rs, int col, int row) throws SQLException;
+
+        abstract void fill(ColumnData c, int rows);
+
+        void markNull(int row) {
+            int idx = row >>> 3;
+            if (nulls == null) {
+                nulls = new byte[Math.max(INITIAL_CAPACITY / 8, idx + 1)];
+            } else if (idx >= nulls.length) {
+                nulls = Arrays.copyOf(nulls, Math.max(nulls.length * 2, idx + 1));
+            }
+            nulls[idx] |= (byte) (1 << (row & 7));
+        }
+
+        static int grow(int length, int row) {
+            return row < length ? length : Math.max(INITIAL_CAPACITY, length * 2);
+        }
+    }
+
+    private static final class IntAccumulator extends Accumulator {
+        private int[] values = new int[INITIAL_CAPACITY];
+
+        IntAccumulator(String type) {
+            super(type);
+        }
+
+        @Override
+        void read(ResultSet rs, int col, int row) throws SQLException {
+            if (row >= values.length) values = Arrays.copyOf(values, grow(values.length, row));
+            values[row] = rs.getInt(col);
+            if (rs.wasNull()) markNull(row);
+        }
+
+        @Override
+        void fill(ColumnData c, int rows) {
+            c.setInts(Arrays.copyOf(values, rows));
+        }
+    }
+
+    private static final class LongAccumulator extends Accumulator {
+        private long[] values = new long[INITIAL_CAPACITY];
+
+        LongAccumulator() {
+            super("long");
+        }
+
+        @Override
+        void read(ResultSet rs, int col, int row) throws SQLException {
+            if (row >= values.length) values = Arrays.copyOf(values, grow(values.length, row));
+            values[row] = rs.getLong(col);
+            if (rs.wasNull()) markNull(row);
+        }
+
+        @Override
+        void fill(ColumnData c, int rows) {
+            c.setLongs(Arrays.copyOf(values, rows));
+        }
+    }
+
+    private static final class DoubleAccumulator extends Accumulator {
+        private double[] values = new double[INITIAL_CAPACITY];
+
+        DoubleAccumulator() {
+            super("double");
+        }
+
+        @Override
+        void read(ResultSet rs, int col, int row) throws SQLException {
+            if (row >= values.length) values = Arrays.copyOf(values, grow(values.length, row));
+            values[row] = rs.getDouble(col);
+            if (rs.wasNull()) markNull(row);
+        }
+
+        @Override
+        void fill(ColumnData c, int rows) {
+            c.setDoubles(Arrays.copyOf(values, rows));
+        }
+    }
+
+    private static final class StringAccumulator extends Accumulator {
+        private final Map<String, Integer> index = new HashMap<>();
+        private String[] dictionary = new String[16];
+        private int[] codes = new int[INITIAL_CAPACITY];
+
+        StringAccumulator() {
+            super("string");
+        }
+
+        @Override
+        void read(ResultSet rs, int col, int row) throws SQLException {
+            if (row >= codes.length) codes = Arrays.copyOf(codes, grow(codes.length, row));
+            String v = rs.getString(col);
+            if (v == null) {
+                markNull(row);
+                codes[row] = -1;
+                return;
+            }
+            Integer code = index.get(v);
+            if (code == null) {
+                code = index.size();
+                if (code >= dictionary.length) dictionary = Arrays.copyOf(dictionary, dictionary.length * 2);
+                dictionary[code] = v;
+                index.put(v, code);
+            }
+            codes[row] = code;
+        }
+
+        @Override
+        void fill(ColumnData c, int rows) {
+            int distinct = index.size();
+            if (distinct * 2 <= rows) {
+                c.setDictionary(Arrays.copyOf(dictionary, distinct));
+                c.setCodes(Arrays.copyOf(codes, rows));
+                return;
+            }
+            // Mostly unique values: a dictionary would only add indirection
+            String[] plain = new String[rows];
+            for (int i = 0; i < rows; i++) {
+                plain[i] = codes[i] < 0 ? null : dictionary[codes[i]];
+            }
+            c.setStrings(plain);
+        }
+    }
+
+    private static final class ObjectAccumulator extends Accumulator {
+        private Object[] values = new Object[INITIAL_CAPACITY];
+
+        ObjectAccumulator() {
+            super("object");
+        }
+
+        @Override
+        void read(ResultSet rs, int col, int row) throws SQLException {
+            if (row >= values.length) values = Arrays.copyOf(values, grow(values.length, row));
+            values[row] = rs.getObject(col);
+            if (values[row] == null) markNull(row);
+        }
+
+        @Override
+        void fill(ColumnData c, int rows) {
+            c.setValues(Arrays.copyOf(values, rows));
+        }
+    }
+}
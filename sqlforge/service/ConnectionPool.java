@@ -0,0 +1,302 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.service;
+
+import com.sqlforge.model.CacheStats;
+import com.sqlforge.model.PoolStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Small bounded JDBC connection pool for the H2 sandbox.
+ * Physical connections are capped at {@code maxSize}; callers wait at most
+ * {@code acquireTimeoutMs} and are rejected immediately once {@code maxWaiters}
+ * callers are already queued. Idle connections above {@code minSize} are evicted
+ * after {@code idleTimeoutMs}. Nothing is opened on construction; {@link #prefill()}
+ * opens the first {@code minSize}, and maintenance keeps them topped up.
+ */
+final class ConnectionPool implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(ConnectionPool.class);
+    private static final int VALIDATION_TIMEOUT_SECONDS = 1;
+
+    private final DataSource source;
+    private final int minSize;
+    private final int maxSize;
+    private final int maxWaiters;
+    private final long acquireTimeoutMs;
+    private final long idleTimeoutMs;
+    private final boolean validateOnBorrow;
+    private final int statementCacheSize;
+    private final LruCache.Counters statementCounters = new LruCache.Counters();
+
+    // One permit per connection that may be handed out; idle connections hold no permit.
+    private final Semaphore permits;
+    // LIFO so the most recently used (warm) connection is reused first.
+    private final Deque<PooledConnection> idle = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger total = new AtomicInteger();
+    private final AtomicInteger waiters = new AtomicInteger();
+
+    private final LongAdder acquired = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder created = new LongAdder();
+    private final LongAdder destroyed = new LongAdder();
+    private final LongAdder validationFailures = new LongAdder();
+    private final LongAdder acquireNanos = new LongAdder();
+    private final AtomicLong maxAcquireNanos = new AtomicLong();
+
+    private final ScheduledExecutorService evictor; // null when maintenance runs on a shared executor
+    private final ScheduledFuture<?> maintenance;
+    private volatile boolean closed;
+
+    ConnectionPool(DataSource source, int minSize, int maxSize, long acquireTimeoutMs,
+                   long idleTimeoutMs, int maxWaiters, boolean validateOnBorrow, int statementCacheSize) {
+        this(source, minSize, maxSize, acquireTimeoutMs, idleTimeoutMs, maxWaiters, validateOnBorrow,
+                statementCacheSize, null);
+    }
+
+    /**
+     * @param maintenanceExecutor runs idle eviction; null to give the pool its own thread
+     */
+    ConnectionPool(DataSource source, int minSize, int maxSize, long acquireTimeoutMs,
+                   long idleTimeoutMs, int maxWaiters, boolean validateOnBorrow, int statementCacheSize,
+                   ScheduledExecutorService maintenanceExecutor) {
+        if (maxSize < 1 || minSize < 0 || minSize > maxSize) {
+            throw new IllegalArgumentException("Invalid pool size: min=" + minSize + ", max=" + maxSize);
+        }
+        this.source = source;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.acquireTimeoutMs = Math.max(0, acquireTimeoutMs);
+        this.idleTimeoutMs = Math.max(1_000, idleTimeoutMs);
+        this.maxWaiters = Math.max(0, maxWaiters);
+        this.validateOnBorrow = validateOnBorrow;
+        this.statementCacheSize = Math.max(1, statementCacheSize);
+        this.permits = new Semaphore(maxSize, true);
+
+        this.evictor = maintenanceExecutor != null ? null : Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "sqlforge-pool-evictor");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.min(this.idleTimeoutMs / 2, 30_000);
+        this.maintenance = (evictor != null ? evictor : maintenanceExecutor)
+                .scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Opens connections up to {@code minSize} now rather than at the next maintenance run.
+     */
+    void prefill() {
+        fillToMinimum();
+    }
+
+    /**
+     * Borrows a connection. The caller must close the returned handle to give it back.
+     * @throws PoolExhaustedException if no connection became available in time
+     */
+    PooledConnection borrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        long start = System.nanoTime();
+        if (!permits.tryAcquire()) {
+            if (waiters.get() >= maxWaiters) {
+                rejected.increment();
+                throw new PoolExhaustedException("Connection pool exhausted: " + maxSize
+                        + " connections busy and " + maxWaiters + " requests already waiting");
+            }
+            waiters.incrementAndGet();
+            boolean ok;
+            try {
+                ok = permits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for a pooled connection");
+            } finally {
+                waiters.decrementAndGet();
+            }
+            if (!ok) {
+                rejected.increment();
+                throw new PoolExhaustedException("Connection pool exhausted: no connection available within "
+                        + acquireTimeoutMs + " ms");
+            }
+        }
+
+        try {
+            PooledConnection pc = takeIdle();
+            if (pc == null) {
+                pc = open();
+            }
+            pc.lease();
+            long elapsed = System.nanoTime() - start;
+            acquired.increment();
+            acquireNanos.add(elapsed);
+            maxAcquireNanos.accumulateAndGet(elapsed, Math::max);
+            return pc;
+        } catch (SQLException | RuntimeException ex) {
+            permits.release();
+            throw ex;
+        }
+    }
+
+    /**
+     * Returns a connection to the pool (called from {@link PooledConnection#close()}).
+     */
+    void release(PooledConnection pc) {
+        try {
+            if (closed || pc.isBroken()) {
+                destroy(pc);
+                return;
+            }
+            try {
+                Connection c = pc.physical();
+                if (!c.getAutoCommit()) {
+                    c.rollback();
+                    c.setAutoCommit(true);
+                }
+            } catch (SQLException ex) {
+                log.debug("Discarding connection that failed reset: {}", ex.getMessage());
+                destroy(pc);
+                return;
+            }
+            pc.touch();
+            idle.push(pc);
+        } finally {
+            permits.release();
+        }
+    }
+
+    PoolStats stats() {
+        PoolStats s = new PoolStats();
+        int idleCount = idle.size();
+        int totalCount = total.get();
+        long count = acquired.sum();
+        s.setMinSize(minSize);
+        s.setMaxSize(maxSize);
+        s.setTotal(totalCount);
+        s.setIdle(idleCount);
+        s.setActive(Math.max(0, totalCount - idleCount));
+        s.setWaiters(waiters.get());
+        s.setAcquired(count);
+        s.setRejected(rejected.sum());
+        s.setCreated(created.sum());
+        s.setDestroyed(destroyed.sum());
+        s.setValidationFailures(validationFailures.sum());
+        s.setAvgAcquireMicros(count == 0 ? 0 : acquireNanos.sum() / 1_000.0 / count);
+        s.setMaxAcquireMicros(TimeUnit.NANOSECONDS.toMicros(maxAcquireNanos.get()));
+        return s;
+    }
+
+    /**
+     * Connections currently handed out.
+     */
+    int active() {
+        return Math.max(0, total.get() - idle.size());
+    }
+
+    /**
+     * Aggregated prepared-statement cache counters across all pooled connections.
+     */
+    CacheStats statementCacheStats() {
+        return statementCounters.toStats("prepared-statements", (long) statementCacheSize * maxSize);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        maintenance.cancel(false);
+        if (evictor != null) {
+            evictor.shutdownNow();
+        }
+        PooledConnection pc;
+        while ((pc = idle.poll()) != null) {
+            destroy(pc);
+        }
+    }
+
+    private PooledConnection takeIdle() {
+        PooledConnection pc;
+        while ((pc = idle.poll()) != null) {
+            if (!validateOnBorrow || isValid(pc)) {
+                return pc;
+            }
+            validationFailures.increment();
+            destroy(pc);
+        }
+        return null;
+    }
+
+    private boolean isValid(PooledConnection pc) {
+        try {
+            return pc.physical().isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException ex) {
+            return false;
+        }
+    }
+
+    private PooledConnection open() throws SQLException {
+        Connection c = source.getConnection();
+        total.incrementAndGet();
+        created.increment();
+        return new PooledConnection(this, c, statementCacheSize, statementCounters);
+    }
+
+    private void destroy(PooledConnection pc) {
+        total.decrementAndGet();
+        destroyed.increment();
+        pc.clearStatements();
+        try {
+            pc.physical().close();
+        } catch (SQLException ex) {
+            log.debug("Error closing pooled connection: {}", ex.getMessage());
+        }
+    }
+
+    private void evictIdle() {
+        try {
+            long cutoff = System.currentTimeMillis() - idleTimeoutMs;
+            Iterator<PooledConnection> it = idle.descendingIterator(); // oldest first
+            while (it.hasNext() && total.get() > minSize) {
+                PooledConnection pc = it.next();
+                if (pc.lastUsedMillis() < cutoff && idle.remove(pc)) {
+                    destroy(pc);
+                }
+            }
+            fillToMinimum();
+        } catch (Exception ex) {
+            log.warn("Pool maintenance failed: {}", ex.getMessage());
+        }
+    }
+
+    private void fillToMinimum() {
+        while (!closed && total.get() < minSize && permits.tryAcquire()) {
+            try {
+                PooledConnection pc = open();
+                pc.touch();
+                idle.push(pc);
+            } catch (SQLException ex) {
+                log.warn("Could not pre-open pooled connection: {}", ex.getMessage());
+                return;
+            } finally {
+                permits.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * RFC 4180 CSV reader: quoted fields may hold delimiters, doubled quotes and line
+ * breaks; CRLF and LF line ends are both accepted. An unquoted empty field reads as
+ * null, a quoted one ({@code ""}) as the empty string. Fields are assembled in one
+ * reusable buffer, and a record longer than {@code maxRecordChars} is rejected
+ * rather than buffered.
+ */
+final class CsvRecordReader implements RecordReader {
+    private static final int EOF = -1;
+
+    private final Reader in;
+    private final char delimiter;
+    private final int maxRecordChars;
+    private final int maxColumns;
+    private final char[] buf = new char[64 * 1024];
+    private int pos;
+    private int len;
+    private final StringBuilder field = new StringBuilder();
+    private final List<String> fields = new ArrayList<>();
+    private List<String> columns;
+    private Object[] record;
+    private long recordNumber;
+    private int recordChars;
+
+    /**
+     * @param header true if the first line names the columns; otherwise they are COL1..COLn
+     */
+    CsvRecordReader(Reader in, char delimiter, boolean header, int maxRecordChars, int maxColumns) throws IOException {
+        if (delimiter == '"' || delimiter == '\r' || delimiter == '\n') {
+            throw new IllegalArgumentException("Invalid CSV delimiter");
+        }
+        this.in = in;
+        this.delimiter = delimiter;
+        this.maxRecordChars = maxRecordChars;
+        this.maxColumns = maxColumns;
+        if (header) {
+            if (!readRecord()) {
+                throw new IllegalArgumentException("CSV input is empty");
+            }
+            List<String> names = new ArrayList<>(fields.size());
+            for (String f : fields) {
+                names.add(f == null ? "" : f.trim());
+            }
+            this.columns = Collections.unmodifiableList(names);
+        }
+    }
+
+    @Override
+    public List<String> columns() throws IOException {
+        if (columns == null) {
+            // headerless: the first record fixes the width; it is replayed by next()
+            if (!readRecord()) {
+                throw new IllegalArgumentException("CSV input is empty");
+            }
+            List<String> names = new ArrayList<>(fields.size());
+            for (int i = 1; i <= fields.size(); i++) {
+                names.add("COL" + i);
+            }
+            columns = Collections.unmodifiableList(names);
+            record = fields.toArray(new Object[0]);
+            recordNumber = 0;
+            return columns;
+        }
+        return columns;
+    }
+
+    @Override
+    public Object[] next() throws IOException {
+        columns();
+        if (record != null && recordNumber == 0) {
+            // first record of a headerless file, read while finding the columns
+            recordNumber = 1;
+            return record;
+        }
+        do {
+            if (!readRecord()) {
+                return null;
+            }
+            recordNumber++;
+            // a blank line reads as one null field; skipped unless there is only one column
+        } while (fields.size() == 1 && fields.get(0) == null && columns.size() > 1);
+        if (fields.size() != columns.size()) {
+            throw new IllegalArgumentException("Record " + recordNumber + " has " + fields.size()
+                    + " fields; the header has " + columns.size());
+        }
+        if (record == null || record.length != fields.size()) {
+            record = new Object[fields.size()];
+        }
+        for (int i = 0; i < record.length; i++) {
+            record[i] = fields.get(i);
+        }
+        return record;
+    }
+
+    @Override
+    public long recordNumber() {
+        return recordNumber;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Reads one record into {@link #fields}.
+     * @return false at the end of the input
+     */
+    private boolean readRecord() throws IOException {
+        fields.clear();
+        recordChars = 0;
+        int c = read();
+        if (c == EOF) {
+            return false;
+        }
+        while (true) {
+            field.setLength(0);
+            boolean quoted = false;
+            if (c == '"') {
+                quoted = true;
+                while (true) {
+                    c = read();
+                    if (c == EOF) {
+                        throw new IllegalArgumentException("Record " + (recordNumber + 1) + " has an unterminated quoted field");
+                    }
+                    if (c == '"') {
+                        c = read();
+                        if (c != '"') {
+                            break;
+                        }
+                    }
+                    append(c);
+                }
+            } else {
+                while (c != delimiter && c != '\n' && c != '\r' && c != EOF) {
+                    append(c);
+                    c = read();
+                }
+            }
+            if (fields.size() == maxColumns) {
+                throw new IllegalArgumentException("Record " + (recordNumber + 1) + " has more than " + maxColumns + " fields");
+            }
+            fields.add(quoted || field.length() > 0 ? field.toString() : null);
+            if (c == delimiter) {
+                c = read();
+                continue;
+            }
+            if (c == '\r') {
+                c = read();
+                if (c != '\n' && c != EOF) {
+                    pos--; // lone CR ends the record
+                }
+            } else if (c != '\n' && c != EOF) {
+                throw new IllegalArgumentException("Record " + (recordNumber + 1) + ": unexpected character after a quoted field");
+            }
+            return true;
+        }
+    }
+
+    private void append(int c) {
+        if (++recordChars > maxRecordChars) {
+            throw new IllegalArgumentException("Record " + (recordNumber + 1) + " is longer than " + maxRecordChars + " characters");
+        }
+        field.append((char) c);
+    }
+
+    private int read() throws IOException {
+        if (pos == len) {
+            len = in.read(buf, 0, buf.length);
+            pos = 0;
+            if (len <= 0) {
+                len = 0;
+                return EOF;
+            }
+        }
+        return buf[pos++];
+    }
+}
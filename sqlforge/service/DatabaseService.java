@@ -4,48 +4,264 @@
  */
 package com.sqlforge.service;
 
+import com.sqlforge.model.CacheStats;
+import com.sqlforge.model.CoalescingStats;
+import com.sqlforge.model.OffHeapStats;
+import com.sqlforge.model.PoolStats;
+import com.sqlforge.model.QueryMetrics;
+import com.sqlforge.model.QueryRequest;
 import com.sqlforge.model.QueryResponse;
+import com.sqlforge.model.SandboxStats;
+import jakarta.annotation.PreDestroy;
 import org.h2.tools.Server;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Service;
 
 import javax.sql.DataSource;
+import java.io.IOException;
 import java.sql.*;
 import java.time.Instant;
 import java.util.*;
-import java.util.regex.Pattern;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Provides safe execution of SQL against an H2 sandbox instance.
  * Enforces allowed statement types and protects from destructive operations.
+ * <p>
+ * Construction only reads configuration. Opening the database, creating and seeding
+ * the sample schema and warming the statement path run once, on a background thread
+ * by default, so the application can finish booting meanwhile; requests that need the
+ * database wait for that ({@link #whenReady()}) up to {@code sqlforge.startup.ready-timeout-ms}.
  */
 @Service
 public class DatabaseService {
     private static final Logger log = LoggerFactory.getLogger(DatabaseService.class);
 
-    // Very small whitelist for allowed statements in the sandbox - adjustable
-    private static final Pattern ALLOWED_STATEMENT = Pattern.compile("^(SELECT|WITH|EXPLAIN)\\b.*", Pattern.CASE_INSENSITIVE);
-    private static final Pattern DISALLOWED = Pattern.compile("\\b(DROP|ALTER|TRUNCATE|DELETE|UPDATE|INSERT|REPLACE|MERGE|CREATE\\s+TABLE)\\b", Pattern.CASE_INSENSITIVE);
-
     private final DataSource dataSource;
-    private Server h2Server;
+    private final ConnectionPool pool;
+    // Firewall verdicts per normalized statement, so repeat queries skip the firewall scan
+    private final LruCache<String, FirewallVerdict> verdicts;
+    private final boolean parameterizeLiterals;
+    private final int maxRows;
+    private final boolean paginate; // LIMIT one row past the page and hand out cursors for the rest
+    private volatile MaterializedViews views; // null until MaterializedViewService installs them
+    private final int streamMaxRows;
+    private final int streamFetchSize;
+    private final long exportMaxRows;
+    private final int queryTimeoutSeconds;
+    private final int batchMaxStatements;
+    private final TableVersions tableVersions = new TableVersions();
+    private final ResultCache resultCache; // null unless sqlforge.result-cache.enabled
+    private final QueryCoalescer coalescer; // null when sqlforge.query.coalesce is false
+    private final SegmentPool offHeap; // null unless sqlforge.offheap.enabled
+    private final int offHeapSpillRows;
+    // Table/index statistics for the advisor, reloaded after the refresh interval or any server-side write
+    private final long statsRefreshMs;
+    private final AtomicBoolean statsLoading = new AtomicBoolean();
+    private volatile SchemaStats schemaStats;
+    private volatile boolean statsStale;
+    private final QueryTelemetry telemetry;
+    private final SandboxRegistry sandboxes; // null unless sqlforge.sandbox.enabled
+    private final List<String> sandboxTemplateTables;
+    private volatile List<String> sandboxScript; // captured on first use, dropped when a template table changes
+    private final AtomicLong templateWrites = new AtomicLong();
+    // H2 TCP server for external tools, off unless sqlforge.h2.tcp.enabled
+    private final boolean tcpEnabled;
+    private final int tcpPort;
+    private final boolean tcpAllowOthers;
+    private volatile Server h2Server;
+    private final boolean warmUp;
+    private final long readyTimeoutMs;
+    private final CompletableFuture<Void> ready = new CompletableFuture<>();
+    private volatile long readyMillis = -1; // how long initialization took, once done
+
+    public DatabaseService(Environment env) {
+        this.tcpEnabled = env.getProperty("sqlforge.h2.tcp.enabled", Boolean.class, false);
+        this.tcpPort = env.getProperty("sqlforge.h2.tcp.port", Integer.class, 9092);
+        this.tcpAllowOthers = env.getProperty("sqlforge.h2.tcp.allow-others", Boolean.class, false);
+        this.warmUp = env.getProperty("sqlforge.startup.warm-up", Boolean.class, true);
+        this.readyTimeoutMs = env.getProperty("sqlforge.startup.ready-timeout-ms", Long.class, 10_000L);
+
+        // Create a file-based database under ./data/sqlforge (persist between restarts)
+        String jdbc = env.getProperty("sqlforge.db.url", "jdbc:h2:./data/sqlforge");  // ✅ FIXED: Removed AUTO_SERVER and FILE_LOCK
+        String dbUser = env.getProperty("sqlforge.db.user", "sa");
+        String dbPassword = env.getProperty("sqlforge.db.password", "");
+        this.dataSource = createDataSource(jdbc, dbUser, dbPassword);
+
+        // Bounded pool so short queries don't pay for a new physical connection each time
+        this.pool = new ConnectionPool(dataSource,
+                env.getProperty("sqlforge.pool.min-size", Integer.class, 2),
+                env.getProperty("sqlforge.pool.max-size", Integer.class, 10),
+                env.getProperty("sqlforge.pool.acquire-timeout-ms", Long.class, 250L),
+                env.getProperty("sqlforge.pool.idle-timeout-ms", Long.class, 60_000L),
+                env.getProperty("sqlforge.pool.max-waiters", Integer.class, 32),
+                env.getProperty("sqlforge.pool.validate-on-borrow", Boolean.class, true),
+                env.getProperty("sqlforge.statement-cache.per-connection", Integer.class, 64));
+        this.verdicts = new LruCache<>("firewall-verdicts",
+                env.getProperty("sqlforge.statement-cache.size", Integer.class, 512));
+        this.parameterizeLiterals = env.getProperty("sqlforge.statement-cache.parameterize-literals", Boolean.class, false);
+        this.maxRows = env.getProperty("sqlforge.query.max-rows", Integer.class, 5000);
+        this.paginate = env.getProperty("sqlforge.query.paginate", Boolean.class, true);
+        this.streamMaxRows = env.getProperty("sqlforge.stream.max-rows", Integer.class, 1_000_000);
+        this.streamFetchSize = env.getProperty("sqlforge.stream.fetch-size", Integer.class, 500);
+        this.exportMaxRows = env.getProperty("sqlforge.export.max-rows", Long.class, 0L);
+        long timeoutMs = env.getProperty("sqlforge.query.timeout-ms", Long.class, 10_000L);
+        this.queryTimeoutSeconds = (int) Math.max(1, (timeoutMs + 999) / 1000);
+        this.batchMaxStatements = env.getProperty("sqlforge.batch.max-statements", Integer.class, 100);
+        this.resultCache = env.getProperty("sqlforge.result-cache.enabled", Boolean.class, false)
+                ? new ResultCache(tableVersions,
+                        env.getProperty("sqlforge.result-cache.max-bytes", Long.class, 64L * 1024 * 1024),
+                        env.getProperty("sqlforge.result-cache.ttl-ms", Long.class, 60_000L))
+                : null;
+        this.coalescer = env.getProperty("sqlforge.query.coalesce", Boolean.class, true)
+                ? new QueryCoalescer(tableVersions)
+                : null;
+        this.offHeap = env.getProperty("sqlforge.offheap.enabled", Boolean.class, false)
+                ? new SegmentPool(
+                        env.getProperty("sqlforge.offheap.max-bytes", Long.class, 64L * 1024 * 1024),
+                        env.getProperty("sqlforge.offheap.segment-bytes", Integer.class, 64 * 1024),
+                        env.getProperty("sqlforge.offheap.acquire-timeout-ms", Long.class, 250L))
+                : null;
+        this.offHeapSpillRows = env.getProperty("sqlforge.offheap.spill-rows", Integer.class, 500);
+        this.statsRefreshMs = env.getProperty("sqlforge.advisor.stats-refresh-ms", Long.class, 30_000L);
+        tableVersions.onChange(table -> statsStale = true);
+        this.telemetry = new QueryTelemetry(
+                env.getProperty("sqlforge.telemetry.enabled", Boolean.class, true),
+                env.getProperty("sqlforge.telemetry.max-statements", Integer.class, 1000),
+                env.getProperty("sqlforge.telemetry.slow-log-size", Integer.class, 50),
+                env.getProperty("sqlforge.telemetry.slow-ms", Long.class, 200L),
+                this::capturePlan);
+        this.sandboxTemplateTables = templateTables(env.getProperty("sqlforge.sandbox.template-tables", "employees,projects"));
+        tableVersions.onChange(table -> {
+            for (String t : sandboxTemplateTables) {
+                if (TableVersions.canonical(t.substring(t.lastIndexOf('.') + 1)).equals(table)) {
+                    templateWrites.incrementAndGet();
+                    sandboxScript = null;
+                }
+            }
+        });
+        this.sandboxes = env.getProperty("sqlforge.sandbox.enabled", Boolean.class, false)
+                ? new SandboxRegistry(this::sandboxTemplate, dbUser, dbPassword,
+                        env.getProperty("sqlforge.sandbox.max-sandboxes", Integer.class, 64),
+                        env.getProperty("sqlforge.sandbox.max-bytes", Long.class, 256L * 1024 * 1024),
+                        env.getProperty("sqlforge.sandbox.idle-timeout-ms", Long.class, 600_000L),
+                        env.getProperty("sqlforge.sandbox.pool-size", Integer.class, 2),
+                        env.getProperty("sqlforge.pool.acquire-timeout-ms", Long.class, 250L),
+                        env.getProperty("sqlforge.pool.idle-timeout-ms", Long.class, 60_000L),
+                        env.getProperty("sqlforge.pool.max-waiters", Integer.class, 32),
+                        env.getProperty("sqlforge.statement-cache.per-connection", Integer.class, 64))
+                : null;
+        if (env.getProperty("sqlforge.startup.background-init", Boolean.class, true)) {
+            Thread init = new Thread(this::initialize, "sqlforge-init");
+            init.setDaemon(true);
+            init.start();
+        } else {
+            initialize();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        telemetry.close();
+        if (sandboxes != null) {
+            sandboxes.close();
+        }
+        pool.close();
+        Server server = h2Server;
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    /**
+     * Completes once the database is open and the sample schema is in place. Failures
+     * along the way are logged and do not hold readiness back, as they would not be
+     * fixed by waiting.
+     */
+    public CompletionStage<Void> whenReady() {
+        return ready.minimalCompletionStage();
+    }
+
+    public boolean isReady() {
+        return ready.isDone();
+    }
+
+    /**
+     * Milliseconds the initialization took, or -1 while it runs.
+     */
+    public long readyMillis() {
+        return readyMillis;
+    }
 
-    public DatabaseService() throws SQLException {
-        // Start an H2 TCP server optionally for tools (bind to loopback)
+    /**
+     * The one-time startup work: TCP server if enabled, the pool's first connections,
+     * the sample schema, then a warm-up of the firewall and statistics paths so the
+     * first request does not pay for loading their classes.
+     */
+    private void initialize() {
+        long start = System.nanoTime();
         try {
-            this.h2Server = Server.createTcpServer("-tcpAllowOthers", "-tcpPort", "9092").start();
-        } catch (SQLException ex) {
-            log.warn("H2 TCP server not started: {}", ex.getMessage());
+            if (tcpEnabled) {
+                try {
+                    h2Server = tcpAllowOthers
+                            ? Server.createTcpServer("-tcpPort", String.valueOf(tcpPort), "-tcpAllowOthers").start()
+                            : Server.createTcpServer("-tcpPort", String.valueOf(tcpPort)).start();
+                } catch (SQLException ex) {
+                    log.warn("H2 TCP server not started: {}", ex.getMessage());
+                }
+            }
+            pool.prefill();
+            initializeSampleSchema();
+            if (warmUp) {
+                validate("SELECT id, name FROM employees WHERE dept = 'Sales' ORDER BY salary DESC");
+                loadSchemaStats();
+            }
+        } catch (RuntimeException ex) {
+            log.error("Database initialization failed", ex);
+        } finally {
+            readyMillis = (System.nanoTime() - start) / 1_000_000;
+            ready.complete(null);
+            log.info("Database ready in {} ms", readyMillis);
         }
+    }
 
-        // Create a file-based database under ./data/sqlforge (persist between restarts)
-        String jdbc = "jdbc:h2:./data/sqlforge";  // ✅ FIXED: Removed AUTO_SERVER and FILE_LOCK
-        this.dataSource = createDataSource(jdbc, "sa", "");
-        initializeSampleSchema();
+    /**
+     * Blocks until {@link #initialize()} has run.
+     * @throws PoolExhaustedException if it is still running after the ready timeout
+     */
+    private void awaitReady() throws SQLException {
+        if (ready.isDone()) {
+            return;
+        }
+        try {
+            ready.get(readyTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException te) {
+            throw new PoolExhaustedException("Database is still initializing");
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for the database to initialize");
+        } catch (ExecutionException ee) {
+            // never completed exceptionally
+        }
+    }
+
+    /**
+     * A pooled connection to the shared database, once it is initialized.
+     */
+    private PooledConnection borrowShared() throws SQLException {
+        awaitReady();
+        return pool.borrow();
     }
 
-    private DataSource createDataSource(String url, String user, String pass) throws SQLException {
+    private DataSource createDataSource(String url, String user, String pass) {
         org.h2.jdbcx.JdbcDataSource ds = new org.h2.jdbcx.JdbcDataSource();
         ds.setURL(url);
         ds.setUser(user);
@@ -53,6 +269,47 @@ public class DatabaseService {
         return ds;
     }
 
+    /**
+     * @throws IllegalArgumentException if a name is not a plain (optionally schema-qualified) identifier
+     */
+    private static List<String> templateTables(String configured) {
+        List<String> tables = new ArrayList<>();
+        for (String t : configured.split(",")) {
+            String name = t.trim();
+            if (!name.matches("[A-Za-z_][A-Za-z0-9_]*(\\.[A-Za-z_][A-Za-z0-9_]*)?")) {
+                throw new IllegalArgumentException("Invalid sqlforge.sandbox.template-tables entry: " + t);
+            }
+            tables.add(name);
+        }
+        return List.copyOf(tables);
+    }
+
+    /**
+     * Script that builds a sandbox: DDL and rows of the template tables, read from the
+     * shared database once and again after one of those tables was written.
+     */
+    private List<String> sandboxTemplate() throws SQLException {
+        List<String> script = sandboxScript;
+        if (script != null) {
+            return script;
+        }
+        long writes = templateWrites.get();
+        script = new ArrayList<>();
+        try (PooledConnection pc = borrowShared();
+             Statement st = pc.connection().createStatement();
+             ResultSet rs = st.executeQuery("SCRIPT NOPASSWORDS NOSETTINGS TABLE "
+                     + String.join(", ", sandboxTemplateTables))) {
+            while (rs.next()) {
+                script.add(rs.getString(1));
+            }
+        }
+        script = List.copyOf(script);
+        if (templateWrites.get() == writes) {
+            sandboxScript = script; // not kept if a template table was written while it was read
+        }
+        return script;
+    }
+
     private void initializeSampleSchema() {
         String[] statements = new String[]{
             "CREATE TABLE IF NOT EXISTS employees (id INT PRIMARY KEY, name VARCHAR(200), dept VARCHAR(100), salary DECIMAL)",
@@ -60,7 +317,8 @@ public class DatabaseService {
             "CREATE TABLE IF NOT EXISTS projects (id INT PRIMARY KEY, name VARCHAR(200), owner_id INT)",
             "CREATE INDEX IF NOT EXISTS idx_projects_owner ON projects(owner_id)"
         };
-        try (Connection c = dataSource.getConnection()) {
+        try (PooledConnection pc = pool.borrow()) {
+            Connection c = pc.connection();
             for (String s : statements) {
                 try (PreparedStatement ps = c.prepareStatement(s)) {
                     ps.execute();
@@ -80,6 +338,7 @@ public class DatabaseService {
                             ins.executeUpdate();
                         }
                     }
+                    tableVersions.bump("employees");
                 }
             }
         } catch (SQLException ex) {
@@ -94,55 +353,317 @@ public class DatabaseService {
      * @return QueryResponse with rows or message
      */
     public QueryResponse executeSafe(String sql, String mode) {
-        if (sql == null || sql.trim().isEmpty()) {
-            throw new IllegalArgumentException("SQL must not be empty");
+        return execute(new QueryRequest().setSql(sql).setMode(mode));
+    }
+
+    /**
+     * Same as {@link #executeSafe(String, String)}, honouring the request's row limit
+     * (capped by {@code sqlforge.query.max-rows}) and result format.
+     */
+    public QueryResponse execute(QueryRequest req) {
+        return execute(req, QueryContext.detached());
+    }
+
+    /**
+     * Executes the request, registering the running statement with {@code ctx}
+     * so it can be cancelled from another thread. While an identical read is already
+     * running on the shared database, waits for it and returns a copy of its response.
+     */
+    public QueryResponse execute(QueryRequest req, QueryContext ctx) {
+        QueryBatch.Entry entry = prepare(req.getUserId(), req, 0);
+        // Served from the result cache without touching the pool or H2
+        QueryResponse cached = cachedResponse(entry);
+        if (cached != null) {
+            return cached;
+        }
+        // Identical reads already running share that execution; requests for timings measure their own
+        if (coalescer == null || entry.timings || isSandboxed(entry.userId)) {
+            return executeEntry(entry, ctx);
+        }
+        String key = entry.cacheKey != null ? entry.cacheKey : resultKey(entry);
+        return coalescer.run(key, entry.normalized.getTables(), ctx, () -> executeEntry(entry, ctx));
+    }
+
+    private QueryResponse executeEntry(QueryBatch.Entry entry, QueryContext ctx) {
+        QueryTelemetry.Sample sample = startSample(entry);
+        QueryResponse resp;
+        try (PooledConnection pc = borrow(entry.userId)) {
+            sample.lap(QueryTelemetry.ACQUIRE);
+            resp = run(pc, entry, ctx, sample);
+        } catch (PoolExhaustedException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            resp = failure(ex);
+        }
+        return finish(entry, sample, resp);
+    }
+
+    /**
+     * Validates every statement of a batch up front, so a bad statement fails the
+     * whole request before anything runs.
+     * @param userId runs every statement, whatever the requests say
+     * @throws IllegalArgumentException naming the first statement that is empty or not allowed
+     */
+    public QueryBatch prepareBatch(String userId, List<QueryRequest> requests) {
+        if (requests == null || requests.isEmpty()) {
+            throw new IllegalArgumentException("Batch must contain at least one statement");
+        }
+        if (requests.size() > batchMaxStatements) {
+            throw new IllegalArgumentException("Batch has " + requests.size()
+                    + " statements; at most " + batchMaxStatements + " are allowed");
+        }
+        List<QueryBatch.Entry> entries = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            try {
+                entries.add(prepare(userId, requests.get(i), i));
+            } catch (IllegalArgumentException ex) {
+                throw new IllegalArgumentException("Statement " + (i + 1) + ": " + ex.getMessage());
+            }
+        }
+        return new QueryBatch(entries);
+    }
+
+    /**
+     * Runs the statements one after another on a single borrowed connection.
+     * A failing statement gets an error response and the rest still run; once
+     * {@code ctx} is cancelled the remaining statements are skipped.
+     * Each response carries its own elapsed time.
+     * @return this batch's responses, in its order
+     * @throws PoolExhaustedException if no connection could be borrowed
+     */
+    public List<QueryResponse> execute(QueryBatch batch, QueryContext ctx) {
+        List<QueryResponse> out = new ArrayList<>(batch.size());
+        PooledConnection pc = null;
+        try {
+            for (QueryBatch.Entry entry : batch.entries()) {
+                long start = System.nanoTime();
+                QueryResponse resp;
+                if (ctx.isCancelled()) {
+                    resp = QueryResponse.error("Not run: batch cancelled");
+                } else if ((resp = cachedResponse(entry)) == null) {
+                    QueryTelemetry.Sample sample = startSample(entry);
+                    try {
+                        if (pc == null) {
+                            // borrowed lazily, so a batch served from the cache never waits on the pool
+                            pc = borrow(entry.userId);
+                        }
+                        sample.lap(QueryTelemetry.ACQUIRE);
+                        resp = run(pc, entry, ctx, sample);
+                    } catch (PoolExhaustedException ex) {
+                        throw ex;
+                    } catch (Exception ex) {
+                        resp = failure(ex);
+                    }
+                    if (pc != null && pc.isBroken()) {
+                        pc.close();
+                        pc = null;
+                    }
+                    finish(entry, sample, resp);
+                }
+                resp.setElapsedMillis((System.nanoTime() - start) / 1e6);
+                batch.complete(entry, resp);
+                out.add(resp);
+            }
+        } finally {
+            if (pc != null) {
+                pc.close();
+            }
+        }
+        return out;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the statement is empty or not allowed, or the cursor is not valid for it
+     */
+    private QueryBatch.Entry prepare(String userId, QueryRequest req, int position) {
+        long start = System.nanoTime();
+        SqlNormalizer.NormalizedSql normalized = validate(req.getSql());
+        int limit = effectiveLimit(req.getMaxRows(), this.maxRows);
+        SqlNormalizer.NormalizedSql executed = normalized;
+        String view = null;
+        MaterializedViews mv = views;
+        if (mv != null && !isSandboxed(userId)) { // a sandbox has no view tables
+            MaterializedViews.Rewrite rewrite = mv.rewrite(normalized);
+            if (rewrite != null) {
+                executed = rewrite.sql();
+                view = rewrite.view();
+            }
+        }
+        String cursor = req.getCursor() == null || req.getCursor().isBlank() ? null : req.getCursor().trim();
+        Pagination.Page page = null;
+        if (paginate && !"explain".equalsIgnoreCase(req.getMode())) {
+            page = Pagination.plan(normalized, executed, view, cursor, limit, this::schemaStats);
+            if (page != null && !Objects.equals(page.view(), view)) {
+                executed = normalized; // the cursor's scan started on the tables, or its view is gone
+                view = null;
+            }
+        } else if (cursor != null) {
+            throw new IllegalArgumentException("Cursors are not supported " + (paginate ? "with EXPLAIN" : "on this server"));
+        }
+        return new QueryBatch.Entry(position, userId, req.getSql(), req.getMode(), normalized, limit,
+                QueryRequest.FORMAT_COLUMNAR.equalsIgnoreCase(req.getFormat()),
+                req.isTimings(), System.nanoTime() - start, executed, view, cursor, page);
+    }
+
+    private static QueryTelemetry.Sample startSample(QueryBatch.Entry entry) {
+        QueryTelemetry.Sample sample = new QueryTelemetry.Sample();
+        sample.add(QueryTelemetry.VALIDATE, entry.validateNanos);
+        return sample;
+    }
+
+    /**
+     * Records the execution with the telemetry and attaches its timings if the request asked for them.
+     * Responses served from the result cache bypass this, so they do not skew the latency figures.
+     */
+    private QueryResponse finish(QueryBatch.Entry entry, QueryTelemetry.Sample sample, QueryResponse resp) {
+        String mode = "explain".equalsIgnoreCase(entry.mode) ? QueryTelemetry.MODE_EXPLAIN : QueryTelemetry.MODE_READ;
+        telemetry.record(entry.normalized, mode, entry.sql, sample, resp.getRowCount(), resp.isOk());
+        if (entry.timings) {
+            resp.setTimings(sample.toTimings());
+        }
+        return resp;
+    }
+
+    /**
+     * @return the cached response, or null after noting the key and table versions to fill it with
+     */
+    private QueryResponse cachedResponse(QueryBatch.Entry entry) {
+        if (resultCache == null || isSandboxed(entry.userId)) {
+            return null; // a sandbox may be an older snapshot than the results cached from the shared database
+        }
+        entry.cacheKey = resultKey(entry);
+        QueryResponse cached = resultCache.get(entry.cacheKey);
+        if (cached == null) {
+            entry.versions = resultCache.snapshot(entry.normalized);
         }
-        String trimmed = sql.trim();
-        if (DISALLOWED.matcher(trimmed).find()) {
-            throw new IllegalArgumentException("Destructive or schema-changing statements are not allowed in the sandbox.");
-        }
-        if (!ALLOWED_STATEMENT.matcher(trimmed).matches()) {
-            throw new IllegalArgumentException("Only SELECT/WITH/EXPLAIN statements are allowed in the sandbox.");
-        }
-
-        try (Connection conn = dataSource.getConnection()) {
-            conn.setAutoCommit(true);
-            conn.setNetworkTimeout(null, 10_000);
-            String toRun = "explain".equalsIgnoreCase(mode) ? ("EXPLAIN " + trimmed) : trimmed;
-
-            try (PreparedStatement ps = conn.prepareStatement(toRun)) {
-                boolean hasResult = ps.execute();
-                QueryResponse resp = QueryResponse.ok();
-                resp.setTimestamp(Instant.now().toString());
-                if (hasResult) {
-                    try (ResultSet rs = ps.getResultSet()) {
-                        List<Map<String, Object>> rows = new ArrayList<>();
-                        ResultSetMetaData md = rs.getMetaData();
-                        int cols = md.getColumnCount();
-                        while (rs.next() && rows.size() < 5000) {
-                            Map<String, Object> row = new LinkedHashMap<>();
-                            for (int i = 1; i <= cols; i++) {
-                                row.put(md.getColumnLabel(i), rs.getObject(i));
+        return cached;
+    }
+
+    private static String resultKey(QueryBatch.Entry entry) {
+        return ResultCache.key(entry.mode + (entry.columnar ? "/columnar" : ""), entry.normalized, entry.limit, entry.cursor);
+    }
+
+    private static QueryResponse failure(Exception ex) {
+        if (ex instanceof SQLException) {
+            log.error("SQL execution error", ex);
+            return QueryResponse.error("SQL error: " + ex.getMessage());
+        }
+        log.error("Unexpected execution error", ex);
+        return QueryResponse.error("Execution error: " + ex.getMessage());
+    }
+
+    private QueryResponse run(PooledConnection pc, QueryBatch.Entry entry, QueryContext ctx,
+                              QueryTelemetry.Sample sample) throws SQLException {
+        Connection conn = pc.connection();
+        conn.setAutoCommit(true);
+        SqlNormalizer.NormalizedSql normalized = entry.executed;
+        int limit = entry.limit;
+        Pagination.Page page = entry.page;
+        String toRun = page != null ? page.sql()
+                : "explain".equalsIgnoreCase(entry.mode) ? ("EXPLAIN " + normalized.getText()) : normalized.getText();
+
+        int phase = QueryTelemetry.PREPARE;
+        try {
+            // Cached per connection; owned by the pool, so it is not closed here
+            PreparedStatement ps = pc.prepare(toRun);
+            bind(ps, page != null ? page.params() : normalized.getParams());
+            ps.setMaxRows(probeLimit(limit));
+            // Enforced by H2 itself (a network timeout does nothing for an embedded connection)
+            ps.setQueryTimeout(queryTimeoutSeconds);
+            ctx.attach(ps);
+            sample.lap(phase);
+            phase = QueryTelemetry.EXECUTE;
+            boolean hasResult = ps.execute();
+            sample.lap(phase);
+            phase = QueryTelemetry.MATERIALIZE;
+            QueryResponse resp = QueryResponse.ok();
+            resp.setTimestamp(Instant.now().toString());
+            resp.setMaterializedView(entry.view);
+            if (hasResult) {
+                try (ResultSet rs = ps.getResultSet()) {
+                    ResultSetMetaData md = rs.getMetaData();
+                    int[] keyColumns = page != null ? page.keyColumns(md) : null;
+                    Object[] lastKeys = null;
+                    boolean budgetExceeded = false;
+                    int count;
+                    if (entry.columnar) {
+                        ColumnarResultBuilder builder = new ColumnarResultBuilder(md);
+                        while (builder.rowCount() < limit && rs.next()) {
+                            builder.add(rs);
+                            if (keyColumns != null && builder.rowCount() == limit) {
+                                lastKeys = keyValues(rs, keyColumns);
                             }
-                            rows.add(row);
                         }
-                        resp.setRows(rows);
-                        resp.setRowCount(rows.size());
-                        resp.setMessage("OK");
-                        return resp;
+                        count = builder.rowCount();
+                        resp.setColumnar(builder.build());
+                    } else {
+                        // Large results move into off-heap segments; plans stay on the heap for the advisor
+                        OffHeapRows.Builder rows = new OffHeapRows.Builder(md,
+                                "explain".equalsIgnoreCase(entry.mode) ? null : offHeap, offHeapSpillRows);
+                        try {
+                            while (rows.size() < limit && rs.next()) {
+                                if (!rows.add(rs)) {
+                                    budgetExceeded = true; // the page ends here, the cursor resumes at this row
+                                    break;
+                                }
+                                if (keyColumns != null && rows.size() == limit) {
+                                    lastKeys = keyValues(rs, keyColumns);
+                                }
+                            }
+                        } catch (SQLException | RuntimeException ex) {
+                            rows.discard();
+                            throw ex;
+                        }
+                        count = rows.size();
+                        resp.setRows(rows.build());
+                    }
+                    resp.setRowCount(count);
+                    // the statement fetches one row past the limit, so a full page tells whether there is more
+                    boolean more = budgetExceeded || count == limit && rs.next();
+                    resp.setHasMore(more);
+                    if (more && page != null) {
+                        resp.setCursor(page.next(count, budgetExceeded ? null : lastKeys));
+                    }
+                    resp.setMessage("OK");
+                    if (entry.cacheKey != null) {
+                        resultCache.put(entry.cacheKey, resp, entry.versions);
                     }
-                } else {
-                    int updateCount = ps.getUpdateCount();
-                    resp.setMessage("Update count: " + updateCount);
+                    sample.lap(phase);
                     return resp;
                 }
+            } else {
+                int updateCount = ps.getUpdateCount();
+                resp.setMessage("Update count: " + updateCount);
+                return resp;
             }
         } catch (SQLException ex) {
-            log.error("SQL execution error", ex);
-            return QueryResponse.error("SQL error: " + ex.getMessage());
-        } catch (Exception ex) {
-            log.error("Unexpected execution error", ex);
-            return QueryResponse.error("Execution error: " + ex.getMessage());
+            sample.lap(phase);
+            pc.inspect(ex);
+            throw ex;
+        } finally {
+            ctx.detach();
+        }
+    }
+
+    /**
+     * Plan of a statement for the slow-query log. Runs on the telemetry thread outside
+     * any request, so it neither shows up in the telemetry nor fills the statement cache.
+     */
+    private String capturePlan(SqlNormalizer.NormalizedSql normalized) {
+        try (PooledConnection pc = borrowShared()) {
+            try (PreparedStatement ps = pc.connection().prepareStatement("EXPLAIN " + normalized.getText())) {
+                bind(ps, normalized.getParams());
+                ps.setQueryTimeout(queryTimeoutSeconds);
+                try (ResultSet rs = ps.executeQuery()) {
+                    return rs.next() ? rs.getString(1) : null;
+                }
+            } catch (SQLException ex) {
+                pc.inspect(ex);
+                throw ex;
+            }
+        } catch (SQLException ex) {
+            log.debug("EXPLAIN for the slow-query log failed: {}", ex.getMessage());
+            return null;
         }
     }
 
@@ -152,4 +673,320 @@ public class DatabaseService {
     public QueryResponse explain(String sql) {
         return executeSafe(sql, "explain");
     }
+
+    public QueryResponse explain(String sql, QueryContext ctx) {
+        return execute(new QueryRequest().setSql(sql).setMode("explain"), ctx);
+    }
+
+    /**
+     * Validates the statement against the sandbox firewall without running it.
+     * @throws IllegalArgumentException if the statement is empty or not allowed
+     */
+    public void checkAllowed(String sql) {
+        validate(sql);
+    }
+
+    /**
+     * Streams a read-only query row by row into the sink instead of materializing
+     * it. H2 runs the query lazily, one row buffer is reused for the whole result,
+     * and if the sink fails (e.g. the client disconnected) the statement is cancelled.
+     * Streams have no statement timeout; they end when the result or the client does.
+     * @param maxRows per-request limit, capped by {@code sqlforge.stream.max-rows}
+     * @return number of rows written
+     */
+    public long stream(String userId, String sql, Integer maxRows, RowSink sink, QueryContext ctx)
+            throws SQLException, IOException {
+        return streamRows(userId, sql, effectiveLimit(maxRows, streamMaxRows), QueryTelemetry.MODE_STREAM, sink, ctx);
+    }
+
+    /**
+     * Like {@link #stream}, for exports: the row cap is {@code sqlforge.export.max-rows}
+     * (0 = none) and the sink is told the JDBC type of every column.
+     * @param maxRows per-request limit, or null/0 for the whole result
+     */
+    public long export(String userId, String sql, Long maxRows, RowSink sink, QueryContext ctx)
+            throws SQLException, IOException {
+        long cap = exportMaxRows <= 0 ? Long.MAX_VALUE : exportMaxRows;
+        long limit = maxRows == null || maxRows <= 0 ? cap : Math.min(maxRows, cap);
+        return streamRows(userId, sql, limit, QueryTelemetry.MODE_EXPORT, sink, ctx);
+    }
+
+    private long streamRows(String userId, String sql, long limit, String mode, RowSink sink, QueryContext ctx)
+            throws SQLException, IOException {
+        long start = System.nanoTime();
+        SqlNormalizer.NormalizedSql normalized = validate(sql);
+        QueryTelemetry.Sample sample = new QueryTelemetry.Sample();
+        sample.add(QueryTelemetry.VALIDATE, System.nanoTime() - start);
+        long count = 0;
+        boolean ok = false;
+        int phase = QueryTelemetry.ACQUIRE;
+
+        try (PooledConnection pc = borrow(userId)) {
+            sample.lap(phase);
+            phase = QueryTelemetry.PREPARE;
+            Connection conn = pc.connection();
+            PreparedStatement ps = pc.prepare(normalized.getText());
+            setLazy(conn, true);
+            Throwable failure = null;
+            try {
+                bind(ps, normalized.getParams());
+                ps.setLargeMaxRows(limit >= Long.MAX_VALUE - 1 ? 0 : limit + 1);
+                ps.setFetchSize((int) Math.min(streamFetchSize, limit));
+                ps.setQueryTimeout(0);
+                ctx.attach(ps);
+                sample.lap(phase);
+                phase = QueryTelemetry.EXECUTE;
+                try (ResultSet rs = ps.executeQuery()) {
+                    sample.lap(phase);
+                    // includes the time the client takes to read the rows
+                    phase = QueryTelemetry.MATERIALIZE;
+                    ResultSetMetaData md = rs.getMetaData();
+                    int cols = md.getColumnCount();
+                    String[] columns = new String[cols];
+                    int[] types = new int[cols];
+                    for (int i = 0; i < cols; i++) {
+                        columns[i] = md.getColumnLabel(i + 1);
+                        types[i] = md.getColumnType(i + 1);
+                    }
+                    sink.start(columns, types);
+                    Object[] row = new Object[cols];
+                    boolean more = rs.next();
+                    while (more && count < limit) {
+                        for (int i = 0; i < cols; i++) {
+                            row[i] = rs.getObject(i + 1);
+                        }
+                        sink.row(row);
+                        count++;
+                        more = rs.next();
+                    }
+                    sink.end(count, more);
+                    ok = true;
+                    return count;
+                } catch (IOException io) {
+                    cancelQuietly(ps);
+                    throw io;
+                }
+            } catch (SQLException ex) {
+                pc.inspect(ex);
+                failure = ex;
+                throw ex;
+            } catch (IOException | RuntimeException | Error ex) {
+                failure = ex;
+                throw ex;
+            } finally {
+                ctx.detach();
+                try {
+                    ps.setFetchSize(0);
+                    ps.setLargeMaxRows(0);
+                    setLazy(conn, false);
+                } catch (SQLException cleanup) {
+                    // settings left behind by the stream: don't hand the connection out again
+                    pc.markBroken();
+                    if (failure == null) {
+                        throw cleanup;
+                    }
+                    // the stream's own failure is the one to report
+                    failure.addSuppressed(cleanup);
+                }
+            }
+        } finally {
+            if (phase != QueryTelemetry.ACQUIRE) {
+                // a stream refused by the pool never ran
+                sample.lap(phase);
+                telemetry.record(normalized, mode, sql, sample, count, ok);
+            }
+        }
+    }
+
+    /**
+     * Live sandboxes, their estimated memory and eviction counters.
+     */
+    public SandboxStats sandboxStats() {
+        if (sandboxes == null) {
+            SandboxStats disabled = new SandboxStats();
+            disabled.setEnabled(false);
+            return disabled;
+        }
+        return sandboxes.stats();
+    }
+
+    public PoolStats poolStats() {
+        return pool.stats();
+    }
+
+    public List<CacheStats> statementCacheStats() {
+        return List.of(verdicts.stats(), pool.statementCacheStats());
+    }
+
+    /**
+     * Latency statistics per statement fingerprint and the slow-query log.
+     * @param sort "p99", "count" or "total"
+     * @throws IllegalArgumentException for any other sort key
+     */
+    public QueryMetrics queryMetrics(String sort, int limit) {
+        return telemetry.metrics(sort, limit);
+    }
+
+    public CacheStats resultCacheStats() {
+        return resultCache == null ? new CacheStats("result-cache (disabled)") : resultCache.stats();
+    }
+
+    public OffHeapStats offHeapStats() {
+        return offHeap == null ? new OffHeapStats() : offHeap.stats();
+    }
+
+    /**
+     * Leader and follower counts of in-flight query coalescing.
+     */
+    public CoalescingStats coalescingStats() {
+        return coalescer == null ? new CoalescingStats() : coalescer.stats();
+    }
+
+    /**
+     * Current table statistics, reloaded when older than {@code sqlforge.advisor.stats-refresh-ms}
+     * or after a server-side write. One caller reloads while the others keep using the
+     * previous snapshot; null only if statistics were never loaded successfully, or
+     * while the database is still initializing.
+     */
+    SchemaStats schemaStats() {
+        return ready.isDone() ? loadSchemaStats() : schemaStats;
+    }
+
+    private SchemaStats loadSchemaStats() {
+        SchemaStats current = schemaStats;
+        boolean due = current == null || statsStale
+                || System.currentTimeMillis() - current.loadedAt() >= statsRefreshMs;
+        if (!due || !statsLoading.compareAndSet(false, true)) {
+            return current;
+        }
+        try (PooledConnection pc = pool.borrow()) {
+            statsStale = false;
+            current = SchemaStats.load(pc.connection());
+            schemaStats = current;
+            log.debug("Loaded statistics for {} tables", current.tableCount());
+        } catch (SQLException | RuntimeException ex) {
+            log.warn("Loading table statistics failed: {}", ex.getMessage());
+        } finally {
+            statsLoading.set(false);
+        }
+        return current;
+    }
+
+    /**
+     * Tables, columns and learned text values for the NL-to-SQL engine, read from the shared database.
+     */
+    NlSchemaIndex nlSchemaIndex(int maxValues, long maxScanRows) throws SQLException {
+        try (PooledConnection pc = borrowShared()) {
+            try {
+                return NlSchemaIndex.load(pc.connection(), maxValues, maxScanRows);
+            } catch (SQLException ex) {
+                pc.inspect(ex);
+                throw ex;
+            }
+        }
+    }
+
+    /**
+     * A physical connection outside the pool, for bulk loads that would otherwise
+     * hold a pooled connection for minutes. The caller closes it.
+     */
+    Connection openConnection() throws SQLException {
+        awaitReady();
+        return dataSource.getConnection();
+    }
+
+    /**
+     * The statement normalized for execution, once the firewall has allowed it.
+     * @throws IllegalArgumentException if it is empty or not allowed
+     */
+    SqlNormalizer.NormalizedSql validated(String sql) {
+        return validate(sql);
+    }
+
+    /**
+     * Lets {@link #execute} answer statements from the given materialized views.
+     */
+    void useViews(MaterializedViews views) {
+        this.views = views;
+    }
+
+    /**
+     * Write counters for server-side paths that modify sandbox tables.
+     */
+    TableVersions tableVersions() {
+        return tableVersions;
+    }
+
+    private SqlNormalizer.NormalizedSql validate(String sql) {
+        if (sql == null || sql.trim().isEmpty()) {
+            throw new IllegalArgumentException("SQL must not be empty");
+        }
+        SqlNormalizer.NormalizedSql normalized = SqlNormalizer.normalize(sql, parameterizeLiterals);
+        if (normalized.isEmpty()) {
+            throw new IllegalArgumentException("SQL must not be empty");
+        }
+        FirewallVerdict verdict = verdictFor(normalized.getText());
+        verdict.enforce();
+        return normalized.withTables(verdict.getTables());
+    }
+
+    private boolean isSandboxed(String userId) {
+        return sandboxes != null && userId != null && !userId.isBlank();
+    }
+
+    /**
+     * A connection to the user's sandbox when sandboxes are on, else to the shared database.
+     * Requests without a userId always use the shared database.
+     */
+    private PooledConnection borrow(String userId) throws SQLException {
+        return isSandboxed(userId) ? sandboxes.borrow(userId) : borrowShared();
+    }
+
+    private static int effectiveLimit(Integer requested, int configured) {
+        return requested == null || requested <= 0 ? configured : Math.min(requested, configured);
+    }
+
+    /**
+     * Max rows for H2: one past the limit so callers can tell whether the result was cut off.
+     */
+    private static int probeLimit(int limit) {
+        return limit >= Integer.MAX_VALUE - 1 ? 0 : limit + 1;
+    }
+
+    private static Object[] keyValues(ResultSet rs, int[] columns) throws SQLException {
+        Object[] values = new Object[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            values[i] = rs.getObject(columns[i]);
+        }
+        return values;
+    }
+
+    private static void bind(PreparedStatement ps, List<Object> params) throws SQLException {
+        for (int i = 0; i < params.size(); i++) {
+            ps.setObject(i + 1, params.get(i));
+        }
+    }
+
+    private static void setLazy(Connection conn, boolean lazy) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            st.execute("SET LAZY_QUERY_EXECUTION " + (lazy ? "TRUE" : "FALSE"));
+        }
+    }
+
+    private static void cancelQuietly(Statement st) {
+        try {
+            st.cancel();
+        } catch (SQLException ex) {
+            log.debug("Statement cancel failed: {}", ex.getMessage());
+        }
+    }
+
+    private FirewallVerdict verdictFor(String normalizedSql) {
+        FirewallVerdict verdict = verdicts.get(normalizedSql);
+        if (verdict == null) {
+            verdict = SqlFirewall.inspect(normalizedSql);
+            verdicts.put(normalizedSql, verdict);
+        }
+        return verdict;
+    }
 }
@@ -0,0 +1,66 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.service;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Outcome of the sandbox statement check ({@link SqlFirewall}), cached per
+ * normalized statement together with what the check learned about it.
+ */
+final class FirewallVerdict {
+
+    private final boolean allowed;
+    private final String reason;
+    private final String statementType;
+    private final Set<String> tables;
+
+    private FirewallVerdict(boolean allowed, String reason, String statementType, Set<String> tables) {
+        this.allowed = allowed;
+        this.reason = reason;
+        this.statementType = statementType;
+        this.tables = tables;
+    }
+
+    static FirewallVerdict allowed(String statementType, Set<String> tables) {
+        return new FirewallVerdict(true, null, statementType, tables);
+    }
+
+    static FirewallVerdict rejected(String reason) {
+        return new FirewallVerdict(false, reason, null, Collections.emptySet());
+    }
+
+    boolean isAllowed() {
+        return allowed;
+    }
+
+    String getReason() {
+        return reason;
+    }
+
+    /**
+     * Leading keyword: {@code SELECT}, {@code WITH} or {@code EXPLAIN}; null if rejected.
+     */
+    String getStatementType() {
+        return statementType;
+    }
+
+    /**
+     * Tables referenced after FROM/JOIN (best effort), canonicalized as in {@link TableVersions#canonical}.
+     */
+    Set<String> getTables() {
+        return tables;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the statement was rejected
+     */
+    void enforce() {
+        if (!allowed) {
+            throw new IllegalArgumentException(reason);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.service;
+
+import com.sqlforge.model.HistoryStats;
+
+import java.util.List;
+
+/**
+ * Where {@link QueryService} keeps per-user history: {@link HistoryLog} on disk,
+ * or {@link HistoryStore} in memory when persistence is off.
+ */
+interface HistoryBackend extends AutoCloseable {
+
+    void append(String userId, String sql);
+
+    /**
+     * Records several statements of one request, in order.
+     */
+    default void appendAll(String userId, List<String> statements) {
+        for (String sql : statements) {
+            append(userId, sql);
+        }
+    }
+
+    /**
+     * Newest first, skipping the {@code offset} most recent statements.
+     */
+    List<String> page(String userId, int offset, int limit);
+
+    HistoryStats stats();
+
+    @Override
+    void close();
+}
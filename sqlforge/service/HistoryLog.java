@@ -0,0 +1,793 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.service;
+
+import com.sqlforge.model.HistoryLogStats;
+import com.sqlforge.model.HistoryStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32C;
+
+/**
+ * Query history persisted as an append-only log of segment files
+ * ({@code history-<base offset>.log}) under the data directory.
+ * <ul>
+ *   <li>Request threads only enqueue. A single writer thread drains the queue
+ *       and writes each batch with one {@code write} and at most one {@code force}
+ *       (group commit).</li>
+ *   <li>An in-memory index keeps, per user, the log offsets of their last
+ *       {@code keepPerUser} statements. A page is resolved from the index and
+ *       decoded from memory-mapped segments, so reads cost O(page).</li>
+ *   <li>Sealed segments are deleted once they fall outside the retention window
+ *       and rewritten (compacted) once less than half their records are still indexed.</li>
+ *   <li>On startup every segment is scanned to rebuild the index; a record with
+ *       a bad length or CRC ends its segment and the torn tail is truncated.</li>
+ * </ul>
+ * Record layout: {@code int payloadLength, int crc32c(payload)}, then the payload
+ * {@code long timestampMillis, short userLength, user (UTF-8), sql (UTF-8)}.
+ */
+final class HistoryLog implements HistoryBackend {
+    private static final Logger log = LoggerFactory.getLogger(HistoryLog.class);
+
+    private static final String PREFIX = "history-";
+    private static final String SUFFIX = ".log";
+    private static final String COMPACT_SUFFIX = ".compact";
+    private static final int HEADER = 8;
+    private static final int PAYLOAD_FIXED = 10;
+    private static final int MAX_BATCH = 1024;
+    private static final long ENQUEUE_WAIT_MS = 50;
+
+    private final Path dir;
+    private final long segmentBytes;
+    private final long retentionBytes;
+    private final long retentionMs;
+    private final int keepPerUser;
+    private final boolean fsync;
+
+    private final BlockingQueue<Pending> queue;
+    private final Thread writer;
+    private final ScheduledExecutorService maintenance;
+    private volatile boolean running = true;
+
+    // Segments by base offset (the last one is being appended to) and the per-user index.
+    // Readers hold the read lock while resolving and decoding a page; the writer takes the
+    // write lock once per batch to publish it, retention and compaction to swap files.
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+    private final Map<String, OffsetList> index = new HashMap<>();
+    private long indexedRecords;
+
+    // Writer-thread state
+    private Segment active;
+    private FileChannel activeChannel;
+    private ByteBuffer batchBuffer = ByteBuffer.allocateDirect(64 * 1024);
+    private final CRC32C crc = new CRC32C();
+
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong compactions = new AtomicLong();
+    private final AtomicLong deletedSegments = new AtomicLong();
+    private long recoveredRecords;
+    private long truncatedBytes;
+
+    HistoryLog(Path dir, long segmentBytes, long retentionBytes, long retentionMs,
+               int keepPerUser, boolean fsync, int queueCapacity) throws IOException {
+        this.dir = dir;
+        this.segmentBytes = Math.max(4096, segmentBytes);
+        this.retentionBytes = retentionBytes;
+        this.retentionMs = retentionMs;
+        this.keepPerUser = Math.max(1, keepPerUser);
+        this.fsync = fsync;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        Files.createDirectories(dir);
+        recover();
+        this.writer = new Thread(this::writeLoop, "sqlforge-history-writer");
+        writer.setDaemon(true);
+        writer.start();
+        this.maintenance = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "sqlforge-history-maintenance");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1_000, Math.min(retentionMs / 10, 60_000));
+        maintenance.scheduleWithFixedDelay(this::maintain, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Queues the statement for the writer. If the queue stays full for
+     * {@value #ENQUEUE_WAIT_MS} ms the statement is dropped and counted.
+     */
+    @Override
+    public void append(String userId, String sql) {
+        try {
+            if (!queue.offer(new Pending(userId, sql, System.currentTimeMillis()),
+                    ENQUEUE_WAIT_MS, TimeUnit.MILLISECONDS)) {
+                dropped.incrementAndGet();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            dropped.incrementAndGet();
+        }
+    }
+
+    /**
+     * Queues the statements with one shared timestamp and one shared wait, so they
+     * normally reach the same write batch (and fsync).
+     */
+    @Override
+    public void appendAll(String userId, List<String> statements) {
+        long now = System.currentTimeMillis();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ENQUEUE_WAIT_MS);
+        for (int i = 0; i < statements.size(); i++) {
+            try {
+                if (!queue.offer(new Pending(userId, statements.get(i), now),
+                        Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                    dropped.addAndGet(statements.size() - i);
+                    return;
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                dropped.addAndGet(statements.size() - i);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Newest first. Statements still queued for the writer are not visible yet.
+     */
+    @Override
+    public List<String> page(String userId, int offset, int limit) {
+        lock.readLock().lock();
+        try {
+            OffsetList offsets = index.get(userId);
+            if (offsets == null) {
+                return Collections.emptyList();
+            }
+            int end = offsets.size() - offset;
+            int start = Math.max(0, end - limit);
+            List<String> out = new ArrayList<>(Math.max(0, end - start));
+            for (int i = end - 1; i >= start; i--) {
+                long at = offsets.get(i);
+                Map.Entry<Long, Segment> e = segments.floorEntry(at);
+                out.add(e.getValue().readSql((int) (at - e.getKey())));
+            }
+            return out;
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to read history", ex);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public HistoryStats stats() {
+        HistoryStats s = new HistoryStats();
+        HistoryLogStats l = new HistoryLogStats();
+        lock.readLock().lock();
+        try {
+            s.setUsers(index.size());
+            s.setEntries(indexedRecords);
+            long bytes = 0;
+            for (Segment seg : segments.values()) {
+                bytes += seg.size;
+            }
+            l.setSegments(segments.size());
+            l.setLogBytes(bytes);
+        } finally {
+            lock.readLock().unlock();
+        }
+        s.setPerUserLimit(keepPerUser);
+        s.setBytes(s.getEntries() * 8);
+        l.setDirectory(dir.toString());
+        l.setRetentionBytes(retentionBytes);
+        l.setPendingWrites(queue.size());
+        l.setBatches(batches.get());
+        l.setWrittenRecords(written.get());
+        l.setAvgBatchSize(batches.get() == 0 ? 0 : (double) written.get() / batches.get());
+        l.setDroppedWrites(dropped.get());
+        l.setCompactions(compactions.get());
+        l.setDeletedSegments(deletedSegments.get());
+        l.setRecoveredRecords(recoveredRecords);
+        l.setTruncatedBytes(truncatedBytes);
+        l.setFsync(fsync);
+        s.setLog(l);
+        return s;
+    }
+
+    /**
+     * Stops accepting work, lets the writer drain the queue and, once it has stopped, seals
+     * the active segment.
+     */
+    @Override
+    public void close() {
+        running = false;
+        maintenance.shutdownNow();
+        try {
+            writer.join(5_000);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        if (writer.isAlive()) {
+            // still writing a batch: leave the segment unsealed, recovery finds its end
+            log.warn("History writer did not stop within 5s; leaving the active segment unsealed");
+            return;
+        }
+        try {
+            sealActive();
+        } catch (IOException ex) {
+            log.warn("Closing history segment failed: {}", ex.getMessage());
+        }
+    }
+
+    // ---- writing -------------------------------------------------------------
+
+    private void writeLoop() {
+        List<Pending> batch = new ArrayList<>(MAX_BATCH);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, MAX_BATCH - 1);
+                writeBatch(batch);
+            } catch (InterruptedException ex) {
+                if (!running) {
+                    continue; // close() drains what is left
+                }
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException | RuntimeException ex) {
+                dropped.addAndGet(batch.size());
+                log.error("Writing {} history records failed", batch.size(), ex);
+                rewind();
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void writeBatch(List<Pending> batch) throws IOException {
+        long[] offsets = new long[batch.size()];
+        batchBuffer.clear();
+        long position = active.size;
+        for (int i = 0; i < batch.size(); i++) {
+            Pending p = batch.get(i);
+            byte[] user = p.userId.getBytes(StandardCharsets.UTF_8);
+            byte[] sql = p.sql.getBytes(StandardCharsets.UTF_8);
+            if (user.length > 0xFFFF) {
+                user = Arrays.copyOf(user, 0xFFFF);
+            }
+            int recordLength = HEADER + PAYLOAD_FIXED + user.length + sql.length;
+            if (position > 0 && position + recordLength > segmentBytes) {
+                flush(position);
+                roll();
+                position = 0;
+            }
+            ensureCapacity(recordLength);
+            int start = batchBuffer.position();
+            batchBuffer.putInt(recordLength - HEADER).putInt(0)
+                    .putLong(p.timestamp).putShort((short) user.length).put(user).put(sql);
+            crc.reset();
+            crc.update(batchBuffer.duplicate().position(start + HEADER).limit(batchBuffer.position()));
+            batchBuffer.putInt(start + 4, (int) crc.getValue());
+            offsets[i] = active.base + position;
+            position += recordLength;
+        }
+        flush(position);
+        publish(batch, offsets);
+        batches.incrementAndGet();
+        written.addAndGet(batch.size());
+    }
+
+    /**
+     * Writes the buffered records to the active segment and makes them durable.
+     */
+    private void flush(long newSize) throws IOException {
+        batchBuffer.flip();
+        while (batchBuffer.hasRemaining()) {
+            activeChannel.write(batchBuffer);
+        }
+        batchBuffer.clear();
+        if (fsync) {
+            activeChannel.force(false);
+        }
+        lock.writeLock().lock();
+        try {
+            active.size = newSize;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void publish(List<Pending> batch, long[] offsets) {
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < batch.size(); i++) {
+                Segment seg = segments.floorEntry(offsets[i]).getValue();
+                seg.records++;
+                seg.live++;
+                seg.lastTimestamp = Math.max(seg.lastTimestamp, batch.get(i).timestamp);
+                addToIndex(batch.get(i).userId, offsets[i]);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Caller holds the write lock (or is recovering before the log is shared).
+     */
+    private void addToIndex(String userId, long offset) {
+        OffsetList offsets = index.computeIfAbsent(userId, k -> new OffsetList());
+        offsets.add(offset);
+        indexedRecords++;
+        if (offsets.size() > keepPerUser) {
+            long dropped = offsets.removeFirst();
+            indexedRecords--;
+            Map.Entry<Long, Segment> e = segments.floorEntry(dropped);
+            if (e != null) {
+                e.getValue().live--;
+            }
+        }
+    }
+
+    /**
+     * Cuts a partially written batch off the active segment so the next one starts
+     * at the last published record.
+     */
+    private void rewind() {
+        try {
+            activeChannel.truncate(active.size);
+            activeChannel.position(active.size);
+            preallocate();
+        } catch (IOException ex) {
+            log.error("Rewinding history segment {} failed", active.path.getFileName(), ex);
+        }
+    }
+
+    private void roll() throws IOException {
+        sealActive();
+        Segment next = new Segment(dir.resolve(segmentName(active.base + active.size)), active.base + active.size);
+        openActive(next);
+        lock.writeLock().lock();
+        try {
+            segments.put(next.base, next);
+            active = next;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Opens the segment for appending and extends it (sparsely) to the full segment size,
+     * so readers map it once instead of after every batch. The zero-filled tail past the
+     * last record reads as a length of 0, which recovery treats as the end of data.
+     */
+    private void openActive(Segment seg) throws IOException {
+        activeChannel = FileChannel.open(seg.path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        activeChannel.position(seg.size);
+        preallocate();
+    }
+
+    private void preallocate() throws IOException {
+        if (activeChannel.size() < segmentBytes) {
+            activeChannel.write(ByteBuffer.allocate(1), segmentBytes - 1);
+        }
+    }
+
+    /**
+     * Cuts the preallocated tail off the active segment and closes it.
+     */
+    private void sealActive() throws IOException {
+        activeChannel.truncate(active.size);
+        activeChannel.force(true);
+        activeChannel.close();
+    }
+
+    private void ensureCapacity(int recordLength) {
+        if (batchBuffer.remaining() < recordLength) {
+            int capacity = Math.max(batchBuffer.capacity() * 2, batchBuffer.position() + recordLength);
+            ByteBuffer bigger = ByteBuffer.allocateDirect(capacity);
+            batchBuffer.flip();
+            bigger.put(batchBuffer);
+            batchBuffer = bigger;
+        }
+    }
+
+    // ---- retention and compaction ---------------------------------------------
+
+    private void maintain() {
+        try {
+            applyRetention();
+            compact();
+        } catch (IOException | RuntimeException ex) {
+            log.warn("History log maintenance failed", ex);
+        }
+    }
+
+    /**
+     * Deletes the oldest sealed segments while the log is over its byte budget or
+     * they only hold records older than the retention period.
+     */
+    private void applyRetention() throws IOException {
+        long cutoff = System.currentTimeMillis() - retentionMs;
+        while (true) {
+            Segment oldest;
+            lock.writeLock().lock();
+            try {
+                long total = 0;
+                for (Segment seg : segments.values()) {
+                    total += seg.size;
+                }
+                oldest = segments.firstEntry().getValue();
+                if (oldest == active || (total <= retentionBytes && oldest.lastTimestamp >= cutoff)) {
+                    return;
+                }
+                segments.remove(oldest.base);
+                dropFromIndex(oldest.base, oldest.base + oldest.size);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            Files.deleteIfExists(oldest.path);
+            deletedSegments.incrementAndGet();
+            log.info("Deleted history segment {}", oldest.path.getFileName());
+        }
+    }
+
+    /**
+     * Removes index entries in [from, to). Caller holds the write lock.
+     */
+    private void dropFromIndex(long from, long to) {
+        Iterator<OffsetList> it = index.values().iterator();
+        while (it.hasNext()) {
+            OffsetList offsets = it.next();
+            indexedRecords -= offsets.removeRange(from, to);
+            if (offsets.size() == 0) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Rewrites sealed segments in which less than half of the records are still indexed.
+     * The new file is written next to the old one and moved over it atomically, so a
+     * crash leaves either the old or the new segment (plus a stray {@code .compact} file
+     * that recovery deletes).
+     */
+    private void compact() throws IOException {
+        List<Segment> candidates = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (Segment seg : segments.values()) {
+                if (seg != active && seg.records > 0 && seg.live * 2 < seg.records) {
+                    candidates.add(seg);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        for (Segment seg : candidates) {
+            compact(seg);
+        }
+    }
+
+    private void compact(Segment seg) throws IOException {
+        long[] live;
+        lock.readLock().lock();
+        try {
+            if (!segments.containsKey(seg.base)) {
+                return;
+            }
+            live = liveOffsets(seg.base, seg.base + seg.size);
+        } finally {
+            lock.readLock().unlock();
+        }
+        // Sealed segments are immutable and only this thread replaces them, so copy without the lock
+        Path tmp = dir.resolve(seg.path.getFileName() + COMPACT_SUFFIX);
+        long[] moved = new long[live.length];
+        long size = 0;
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            MappedByteBuffer in = seg.map();
+            for (int i = 0; i < live.length; i++) {
+                int pos = (int) (live[i] - seg.base);
+                int length = HEADER + in.getInt(pos);
+                ByteBuffer record = in.duplicate().position(pos).limit(pos + length);
+                while (record.hasRemaining()) {
+                    out.write(record);
+                }
+                moved[i] = seg.base + size;
+                size += length;
+            }
+            out.force(true);
+        }
+        lock.writeLock().lock();
+        try {
+            int stillLive = 0;
+            for (OffsetList offsets : index.values()) {
+                stillLive += offsets.remap(seg.base, seg.base + seg.size, live, moved);
+            }
+            Files.move(tmp, seg.path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            seg.unmap();
+            seg.size = size;
+            seg.records = live.length;
+            seg.live = stillLive;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        compactions.incrementAndGet();
+        log.info("Compacted history segment {} to {} records", seg.path.getFileName(), live.length);
+    }
+
+    /**
+     * Sorted offsets in [from, to) that are still indexed. Caller holds the lock.
+     */
+    private long[] liveOffsets(long from, long to) {
+        long[] out = new long[16];
+        int n = 0;
+        for (OffsetList offsets : index.values()) {
+            for (int i = 0; i < offsets.size(); i++) {
+                long at = offsets.get(i);
+                if (at >= from && at < to) {
+                    if (n == out.length) out = Arrays.copyOf(out, n * 2);
+                    out[n++] = at;
+                }
+            }
+        }
+        out = Arrays.copyOf(out, n);
+        Arrays.sort(out);
+        return out;
+    }
+
+    // ---- recovery -------------------------------------------------------------
+
+    private void recover() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir, PREFIX + "*")) {
+            for (Path p : ds) {
+                String name = p.getFileName().toString();
+                if (name.endsWith(COMPACT_SUFFIX)) {
+                    Files.delete(p); // interrupted compaction; the original is intact
+                } else if (name.endsWith(SUFFIX)) {
+                    files.add(p);
+                }
+            }
+        }
+        for (Path p : files) {
+            String name = p.getFileName().toString();
+            long base;
+            try {
+                base = Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+            } catch (NumberFormatException ex) {
+                base = -1;
+            }
+            if (base < 0) {
+                log.warn("Ignoring {} in the history directory: not a segment name", name);
+                continue;
+            }
+            segments.put(base, new Segment(p, base));
+        }
+        for (Segment seg : segments.values()) {
+            scan(seg);
+        }
+        if (segments.isEmpty()) {
+            Segment first = new Segment(dir.resolve(segmentName(0)), 0);
+            segments.put(0L, first);
+        }
+        active = segments.lastEntry().getValue();
+        openActive(active);
+        if (recoveredRecords > 0 || truncatedBytes > 0) {
+            log.info("Recovered {} history records from {} segments ({} torn bytes truncated)",
+                    recoveredRecords, segments.size(), truncatedBytes);
+        }
+    }
+
+    /**
+     * Validates the segment record by record and indexes it; truncates at the first bad
+     * record, or at the preallocated zero tail of a segment that was not closed cleanly.
+     */
+    private void scan(Segment seg) throws IOException {
+        long fileSize = Files.size(seg.path);
+        seg.size = fileSize;
+        MappedByteBuffer buf = seg.map();
+        CRC32C check = new CRC32C();
+        int pos = 0;
+        while (pos + HEADER <= fileSize) {
+            int length = buf.getInt(pos);
+            if (length < PAYLOAD_FIXED || pos + HEADER + (long) length > fileSize) {
+                break;
+            }
+            check.reset();
+            check.update(buf.duplicate().position(pos + HEADER).limit(pos + HEADER + length));
+            if ((int) check.getValue() != buf.getInt(pos + 4)) {
+                break;
+            }
+            long timestamp = buf.getLong(pos + HEADER);
+            int userLength = buf.getShort(pos + HEADER + 8) & 0xFFFF;
+            if (PAYLOAD_FIXED + userLength > length) {
+                break;
+            }
+            byte[] user = new byte[userLength];
+            buf.get(pos + HEADER + PAYLOAD_FIXED, user);
+            seg.records++;
+            seg.live++;
+            seg.lastTimestamp = Math.max(seg.lastTimestamp, timestamp);
+            addToIndex(new String(user, StandardCharsets.UTF_8), seg.base + pos);
+            recoveredRecords++;
+            pos += HEADER + length;
+        }
+        if (pos < fileSize) {
+            boolean torn = pos + 4 > fileSize || buf.getInt(pos) != 0;
+            seg.unmap();
+            try (FileChannel ch = FileChannel.open(seg.path, StandardOpenOption.WRITE)) {
+                ch.truncate(pos);
+                ch.force(true);
+            }
+            seg.size = pos;
+            if (torn) {
+                truncatedBytes += fileSize - pos;
+                log.warn("Truncated {} torn bytes from history segment {}", fileSize - pos, seg.path.getFileName());
+            }
+        }
+    }
+
+    private static String segmentName(long base) {
+        return String.format("%s%020d%s", PREFIX, base, SUFFIX);
+    }
+
+    // ---- helpers ----------------------------------------------------------------
+
+    private static final class Pending {
+        final String userId;
+        final String sql;
+        final long timestamp;
+
+        Pending(String userId, String sql, long timestamp) {
+            this.userId = userId;
+            this.sql = sql;
+            this.timestamp = timestamp;
+        }
+    }
+
+    /**
+     * One segment file. {@code size} only grows past records that are fully written,
+     * so a mapping of the first {@code size} bytes only ever sees complete records.
+     */
+    private static final class Segment {
+        final Path path;
+        final long base;
+        volatile long size;
+        int records;
+        int live;
+        long lastTimestamp;
+        private MappedByteBuffer map;
+
+        Segment(Path path, long base) {
+            this.path = path;
+            this.base = base;
+        }
+
+        /**
+         * Maps the whole file (for the active segment that includes the preallocated tail),
+         * remapping only if the segment grew past the mapping.
+         */
+        synchronized MappedByteBuffer map() throws IOException {
+            if (map == null || map.capacity() < size) {
+                try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+                    map = ch.map(FileChannel.MapMode.READ_ONLY, 0, Math.max(size, ch.size()));
+                }
+            }
+            return map;
+        }
+
+        synchronized void unmap() {
+            map = null;
+        }
+
+        String readSql(int pos) throws IOException {
+            MappedByteBuffer buf = map();
+            int length = buf.getInt(pos);
+            int userLength = buf.getShort(pos + HEADER + 8) & 0xFFFF;
+            byte[] sql = new byte[length - PAYLOAD_FIXED - userLength];
+            buf.get(pos + HEADER + PAYLOAD_FIXED + userLength, sql);
+            return new String(sql, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Ascending log offsets of one user's indexed statements.
+     */
+    private static final class OffsetList {
+        private long[] items = new long[8];
+        private int start;
+        private int end;
+
+        int size() {
+            return end - start;
+        }
+
+        long get(int i) {
+            return items[start + i];
+        }
+
+        void add(long offset) {
+            if (end == items.length) {
+                if (start > items.length / 2) {
+                    System.arraycopy(items, start, items, 0, size());
+                } else {
+                    items = Arrays.copyOfRange(items, start, start + items.length * 2);
+                }
+                end -= start;
+                start = 0;
+            }
+            items[end++] = offset;
+        }
+
+        long removeFirst() {
+            return items[start++];
+        }
+
+        /**
+         * Removes offsets in [from, to); returns how many were removed.
+         */
+        int removeRange(long from, long to) {
+            int n = 0;
+            for (int i = start; i < end; i++) {
+                if (items[i] < from || items[i] >= to) {
+                    items[start + n++] = items[i];
+                }
+            }
+            int removed = size() - n;
+            end = start + n;
+            return removed;
+        }
+
+        /**
+         * Replaces offsets in [from, to) by their new position after compaction and returns
+         * how many were replaced. {@code oldOffsets} is sorted and {@code newOffsets} is parallel to it.
+         */
+        int remap(long from, long to, long[] oldOffsets, long[] newOffsets) {
+            int n = 0;
+            for (int i = start; i < end; i++) {
+                if (items[i] >= from && items[i] < to) {
+                    items[i] = newOffsets[Arrays.binarySearch(oldOffsets, items[i])];
+                    n++;
+                }
+            }
+            return n;
+        }
+    }
+}
@@ -0,0 +1,318 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.service;
+
+import com.sqlforge.model.HistoryStats;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-user query history kept in fixed-size ring buffers.
+ * <ul>
+ *   <li>Appends claim a slot with one {@code getAndIncrement} and never lock;
+ *       reads walk the ring newest-first and skip slots still being written.</li>
+ *   <li>Repeated statements share one String through a small lossy intern table.</li>
+ *   <li>Users idle for {@code idleTimeoutMs} are dropped by a background sweep,
+ *       and when the estimated footprint passes {@code maxBytes} the least recently
+ *       active users are dropped until it is back under 75%.</li>
+ * </ul>
+ * Activity is stamped from a clock the maintenance thread advances every
+ * {@value #CLOCK_TICK_MS} ms, which keeps {@code currentTimeMillis} off the append path.
+ */
+final class HistoryStore implements HistoryBackend {
+    // Rough JVM sizes: entry object + String header + array header, ring + map node per user
+    private static final int ENTRY_OVERHEAD = 56;
+    private static final int USER_OVERHEAD = 160;
+    // Marks a ring that was evicted; appends that race with eviction see a negative byte count
+    private static final long CLOSED = Long.MIN_VALUE / 2;
+    private static final long CLOCK_TICK_MS = 250;
+
+    private final int perUser;
+    private final long maxBytes;
+    private final long idleTimeoutMs;
+    private final Map<String, Ring> users = new ConcurrentHashMap<>();
+    private final AtomicReferenceArray<String> internTable;
+    private final int internMask;
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicBoolean trimming = new AtomicBoolean();
+    private final ScheduledExecutorService maintenance;
+    private volatile long clock = System.currentTimeMillis();
+
+    private final LongAdder idleEvictions = new LongAdder();
+    private final LongAdder memoryEvictions = new LongAdder();
+
+    /**
+     * @param internTableSize rounded up to a power of two
+     */
+    HistoryStore(int perUser, long maxBytes, long idleTimeoutMs, int internTableSize) {
+        this.perUser = Math.max(1, perUser);
+        this.maxBytes = maxBytes;
+        this.idleTimeoutMs = idleTimeoutMs;
+        int size = Integer.highestOneBit(Math.max(16, internTableSize - 1)) << 1;
+        this.internTable = new AtomicReferenceArray<>(size);
+        this.internMask = size - 1;
+        this.maintenance = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "sqlforge-history-maintenance");
+            t.setDaemon(true);
+            return t;
+        });
+        maintenance.scheduleAtFixedRate(() -> clock = System.currentTimeMillis(),
+                CLOCK_TICK_MS, CLOCK_TICK_MS, TimeUnit.MILLISECONDS);
+        long period = Math.max(1_000, Math.min(idleTimeoutMs / 4, 60_000));
+        maintenance.scheduleWithFixedDelay(this::sweepIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void append(String userId, String sql) {
+        long now = clock;
+        String shared = interned(sql);
+        String text = shared != null ? shared : sql;
+        long weight = ENTRY_OVERHEAD + (shared != null ? 0 : 2L * sql.length());
+        while (true) {
+            Ring ring = users.get(userId);
+            if (ring == null) {
+                ring = users.computeIfAbsent(userId, k -> {
+                    Ring r = new Ring(perUser);
+                    bytes.addAndGet(r.ringBytes.get());
+                    return r;
+                });
+            }
+            if (ring.append(text, weight, now)) {
+                break;
+            }
+            // evicted between lookup and append: it is already out of the map, use a fresh ring
+            users.remove(userId, ring);
+        }
+        if (bytes.get() > maxBytes) {
+            trim(userId);
+        }
+    }
+
+    /**
+     * Newest first; empty for unknown users.
+     */
+    @Override
+    public List<String> page(String userId, int offset, int limit) {
+        Ring ring = users.get(userId);
+        if (ring == null) {
+            return Collections.emptyList();
+        }
+        ring.lastAccess = clock;
+        return ring.snapshot(offset, limit);
+    }
+
+    @Override
+    public HistoryStats stats() {
+        HistoryStats s = new HistoryStats();
+        long entries = 0;
+        for (Ring r : users.values()) {
+            entries += r.size();
+        }
+        s.setUsers(users.size());
+        s.setEntries(entries);
+        s.setPerUserLimit(perUser);
+        s.setBytes(bytes.get());
+        s.setMaxBytes(maxBytes);
+        s.setIdleEvictions(idleEvictions.sum());
+        s.setMemoryEvictions(memoryEvictions.sum());
+        return s;
+    }
+
+    /**
+     * @return the already stored copy of {@code sql}, or null after storing this one
+     */
+    private String interned(String sql) {
+        int slot = sampledHash(sql) & internMask;
+        String existing = internTable.get(slot);
+        if (existing != null && existing.equals(sql)) {
+            return existing;
+        }
+        internTable.set(slot, sql);
+        return null;
+    }
+
+    @Override
+    public void close() {
+        maintenance.shutdownNow();
+    }
+
+    /**
+     * Hash over the length, 8 evenly spaced characters and the last 8. Statements arrive as
+     * fresh Strings, so a full {@code hashCode} would cost a pass over every one; a collision
+     * here only means a missed dedup.
+     */
+    private static int sampledHash(String s) {
+        int n = s.length();
+        int h = n;
+        int step = Math.max(1, n >>> 3);
+        for (int i = 0; i < n; i += step) {
+            h = 31 * h + s.charAt(i);
+        }
+        for (int i = Math.max(0, n - 8); i < n; i++) {
+            h = 31 * h + s.charAt(i);
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private void sweepIdle() {
+        long cutoff = clock - idleTimeoutMs;
+        for (Map.Entry<String, Ring> e : users.entrySet()) {
+            Ring ring = e.getValue();
+            if (ring.lastAccess < cutoff && users.remove(e.getKey(), ring)) {
+                release(ring);
+                idleEvictions.increment();
+            }
+        }
+    }
+
+    /**
+     * Drops the least recently active users (other than {@code keep}) until under 75% of the
+     * cap, so the sort is paid once per batch of evictions rather than once per new user.
+     */
+    private void trim(String keep) {
+        if (!trimming.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            // lastAccess keeps moving, so sort on a copy taken up front
+            List<Candidate> candidates = new ArrayList<>(users.size());
+            users.forEach((user, ring) -> candidates.add(new Candidate(user, ring, ring.lastAccess)));
+            candidates.sort((a, b) -> Long.compare(a.lastAccess, b.lastAccess));
+            long target = maxBytes / 4 * 3;
+            for (Candidate c : candidates) {
+                if (bytes.get() <= target) {
+                    break;
+                }
+                if (!c.user.equals(keep) && users.remove(c.user, c.ring)) {
+                    release(c.ring);
+                    memoryEvictions.increment();
+                }
+            }
+        } finally {
+            trimming.set(false);
+        }
+    }
+
+    private void release(Ring ring) {
+        bytes.addAndGet(-ring.close());
+    }
+
+    /**
+     * Holds the last {@code limit} statements; the slot array is rounded up to a power of
+     * two so a sequence number maps to its slot with a mask instead of a division.
+     */
+    private final class Ring {
+        private final AtomicReferenceArray<Entry> slots;
+        private final int mask;
+        private final int limit;
+        private final AtomicLong next = new AtomicLong();
+        private final AtomicLong ringBytes;
+        volatile long lastAccess;
+
+        Ring(int limit) {
+            int capacity = Integer.highestOneBit(Math.max(1, limit - 1)) << 1;
+            this.slots = new AtomicReferenceArray<>(capacity);
+            this.mask = capacity - 1;
+            this.limit = limit;
+            this.ringBytes = new AtomicLong(USER_OVERHEAD + 4L * capacity);
+            this.lastAccess = clock;
+        }
+
+        /**
+         * @return false if the ring was closed, in which case nothing was recorded
+         */
+        boolean append(String sql, long weight, long now) {
+            if (ringBytes.get() < 0) {
+                return false;
+            }
+            long seq = next.getAndIncrement();
+            Entry old = slots.getAndSet((int) seq & mask, new Entry(seq, sql, weight));
+            long delta = weight - (old == null ? 0 : old.weight);
+            // only count bytes while open; close() hands the ring's total back exactly once
+            if (delta == 0 ? ringBytes.get() < 0 : ringBytes.getAndAdd(delta) < 0) {
+                return false;
+            }
+            if (delta != 0) {
+                bytes.addAndGet(delta);
+            }
+            if (lastAccess != now) {
+                lastAccess = now;
+            }
+            return true;
+        }
+
+        List<String> snapshot(int skip, int max) {
+            long head = next.get() - skip;
+            String[] out = new String[(int) Math.max(0, Math.min(Math.min(head, limit - skip), max))];
+            int n = 0;
+            for (long seq = head - 1; n < out.length; seq--) {
+                Entry e = slots.get((int) seq & mask);
+                if (e != null && e.seq == seq) {
+                    out[n] = e.sql;
+                }
+                n++;
+            }
+            return compact(out);
+        }
+
+        int size() {
+            return (int) Math.min(next.get(), limit);
+        }
+
+        /**
+         * @return bytes the ring accounted for
+         */
+        long close() {
+            return Math.max(0, ringBytes.getAndSet(CLOSED));
+        }
+    }
+
+    /**
+     * Drops the holes left by slots that were mid-write when read.
+     */
+    private static List<String> compact(String[] items) {
+        int n = 0;
+        for (String s : items) {
+            if (s != null) items[n++] = s;
+        }
+        return Arrays.asList(n == items.length ? items : Arrays.copyOf(items, n));
+    }
+
+    private static final class Candidate {
+        final String user;
+        final Ring ring;
+        final long lastAccess;
+
+        Candidate(String user, Ring ring, long lastAccess) {
+            this.user = user;
+            this.ring = ring;
+            this.lastAccess = lastAccess;
+        }
+    }
+
+    private static final class Entry {
+        final long seq;
+        final String sql;
+        final long weight;
+
+        Entry(long seq, String sql, long weight) {
+            this.seq = seq;
+            this.sql = sql;
+            this.weight = weight;
+        }
+    }
+}
@@ -0,0 +1,262 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.service;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Target columns of an import: read from an existing table, parsed from an explicit
+ * {@code "name TYPE, ..."} list, or inferred from a sample of the input. Every name
+ * is a plain identifier and every type comes from a fixed list, so the DDL and
+ * INSERT built from a schema cannot carry anything but column definitions.
+ */
+final class ImportSchema {
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_][A-Za-z0-9_]{0,127}");
+    private static final Pattern TYPE = Pattern.compile(
+            "(TINYINT|SMALLINT|INT|INTEGER|BIGINT|REAL|FLOAT|DOUBLE|DOUBLE PRECISION|DECIMAL|NUMERIC|DECFLOAT|BOOLEAN"
+                    + "|DATE|TIME|TIMESTAMP|TIMESTAMP WITH TIME ZONE|UUID|CLOB|CHAR|CHARACTER|VARCHAR|CHARACTER VARYING)"
+                    + "(\\s*\\(\\s*\\d{1,9}\\s*(,\\s*\\d{1,9}\\s*)?\\))?");
+    private static final Pattern INTEGER = Pattern.compile("[-+]?\\d{1,18}");
+    private static final Pattern DECIMAL = Pattern.compile("[-+]?(\\d+\\.?\\d*|\\.\\d+)");
+    private static final Pattern DOUBLE = Pattern.compile("[-+]?(\\d+\\.?\\d*|\\.\\d+)([eE][-+]?\\d+)?");
+    private static final Pattern DATE = Pattern.compile("\\d{4}-\\d{2}-\\d{2}");
+    private static final Pattern TIMESTAMP = Pattern.compile("\\d{4}-\\d{2}-\\d{2}[T ]\\d{2}:\\d{2}(:\\d{2}(\\.\\d{1,9})?)?");
+
+    private final String table;
+    // canonical column name -> SQL type, in table order
+    private final Map<String, String> columns;
+
+    private ImportSchema(String table, Map<String, String> columns) {
+        this.table = table;
+        this.columns = columns;
+    }
+
+    /**
+     * Canonical (upper-case) table name.
+     * @throws IllegalArgumentException unless the name is a plain identifier
+     */
+    static String tableName(String name) {
+        if (name == null || !IDENTIFIER.matcher(name.trim()).matches()) {
+            throw new IllegalArgumentException("Table name must be a plain identifier (letters, digits, _)");
+        }
+        return name.trim().toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Column names of a source turned into identifiers: other characters become {@code _},
+     * blanks become COLn and repeats get a numeric suffix.
+     */
+    static List<String> columnNames(List<String> source) {
+        List<String> out = new ArrayList<>(source.size());
+        Set<String> seen = new HashSet<>();
+        for (int i = 0; i < source.size(); i++) {
+            // a UTF-8 byte order mark shows up at the start of the first header
+            String name = source.get(i) == null ? "" : source.get(i).replace("\uFEFF", "").trim().toUpperCase(Locale.ROOT)
+                    .replaceAll("[^A-Z0-9_]", "_");
+            if (name.isEmpty() || name.chars().allMatch(ch -> ch == '_')) {
+                name = "COL" + (i + 1);
+            } else if (Character.isDigit(name.charAt(0))) {
+                name = "_" + name;
+            }
+            if (name.length() > 128) {
+                name = name.substring(0, 128);
+            }
+            String unique = name;
+            for (int n = 2; !seen.add(unique); n++) {
+                unique = name + "_" + n;
+            }
+            out.add(unique);
+        }
+        return out;
+    }
+
+    /**
+     * @return the table's columns, or null if there is no such table in PUBLIC
+     */
+    static ImportSchema ofTable(Connection c, String table) throws SQLException {
+        Map<String, String> columns = new LinkedHashMap<>();
+        DatabaseMetaData md = c.getMetaData();
+        String escape = md.getSearchStringEscape();
+        String pattern = table.replace("_", escape + "_").replace("%", escape + "%");
+        try (ResultSet rs = md.getColumns(null, "PUBLIC", pattern, null)) {
+            while (rs.next()) {
+                columns.put(rs.getString("COLUMN_NAME"), rs.getString("TYPE_NAME"));
+            }
+        }
+        return columns.isEmpty() ? null : new ImportSchema(table, columns);
+    }
+
+    /**
+     * Parses {@code "id INT, name VARCHAR(200), price DECIMAL(10,2)"}.
+     * @throws IllegalArgumentException for anything but identifiers and known types
+     */
+    static ImportSchema parse(String table, String spec) {
+        Map<String, String> columns = new LinkedHashMap<>();
+        for (String def : splitTopLevel(spec)) {
+            String d = def.trim();
+            int space = d.indexOf(' ');
+            if (space < 0) {
+                throw new IllegalArgumentException("Schema entry '" + d + "' needs a name and a type");
+            }
+            String name = d.substring(0, space);
+            String type = d.substring(space + 1).trim().toUpperCase(Locale.ROOT).replaceAll("\\s+", " ");
+            if (!IDENTIFIER.matcher(name).matches()) {
+                throw new IllegalArgumentException("Schema column '" + name + "' is not a plain identifier");
+            }
+            if (!TYPE.matcher(type).matches()) {
+                throw new IllegalArgumentException("Schema column '" + name + "' has an unsupported type: " + type);
+            }
+            if (columns.put(name.toUpperCase(Locale.ROOT), type) != null) {
+                throw new IllegalArgumentException("Schema repeats the column '" + name + "'");
+            }
+        }
+        if (columns.isEmpty()) {
+            throw new IllegalArgumentException("Schema must name at least one column");
+        }
+        return new ImportSchema(table, columns);
+    }
+
+    /**
+     * Narrowest type that fits every sampled value of each column:
+     * INT, BIGINT, DECFLOAT, DOUBLE PRECISION, BOOLEAN, DATE, TIMESTAMP, else VARCHAR.
+     * Decimals become DECFLOAT rather than DECIMAL, whose default scale in H2 is 0.
+     */
+    static ImportSchema infer(String table, List<String> names, List<Object[]> sample) {
+        Map<String, String> columns = new LinkedHashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            columns.put(names.get(i), inferType(sample, i));
+        }
+        return new ImportSchema(table, columns);
+    }
+
+    private static String inferType(List<Object[]> sample, int col) {
+        boolean any = false, integer = true, bigint = false, decimal = true, dbl = true, bool = true, date = true, ts = true;
+        for (Object[] row : sample) {
+            Object v = row[col];
+            if (v == null) {
+                continue;
+            }
+            any = true;
+            if (v instanceof Long) {
+                long l = (Long) v;
+                bigint |= l < Integer.MIN_VALUE || l > Integer.MAX_VALUE;
+                bool = date = ts = false;
+                continue;
+            }
+            if (v instanceof BigDecimal) {
+                integer = false;
+                bool = date = ts = false;
+                continue;
+            }
+            if (v instanceof Boolean) {
+                integer = decimal = dbl = date = ts = false;
+                continue;
+            }
+            String s = v.toString().trim();
+            if (integer && INTEGER.matcher(s).matches()) {
+                long l = Long.parseLong(s);
+                bigint |= l < Integer.MIN_VALUE || l > Integer.MAX_VALUE;
+            } else {
+                integer = false;
+            }
+            decimal &= DECIMAL.matcher(s).matches();
+            dbl &= DOUBLE.matcher(s).matches();
+            bool &= s.equalsIgnoreCase("true") || s.equalsIgnoreCase("false");
+            date &= DATE.matcher(s).matches();
+            ts &= TIMESTAMP.matcher(s).matches();
+        }
+        if (!any) {
+            return "VARCHAR";
+        }
+        if (integer) {
+            return bigint ? "BIGINT" : "INT";
+        }
+        if (decimal) {
+            return "DECFLOAT";
+        }
+        if (dbl) {
+            return "DOUBLE PRECISION";
+        }
+        if (bool) {
+            return "BOOLEAN";
+        }
+        if (date) {
+            return "DATE";
+        }
+        return ts ? "TIMESTAMP" : "VARCHAR";
+    }
+
+    String table() {
+        return table;
+    }
+
+    List<String> columns() {
+        return new ArrayList<>(columns.keySet());
+    }
+
+    boolean hasColumn(String name) {
+        return columns.containsKey(name);
+    }
+
+    /**
+     * IF NOT EXISTS, so two loads racing to create the same table both go on to insert.
+     */
+    String createSql() {
+        StringBuilder sb = new StringBuilder("CREATE TABLE IF NOT EXISTS ").append(quote(table)).append(" (");
+        String sep = "";
+        for (Map.Entry<String, String> e : columns.entrySet()) {
+            sb.append(sep).append(quote(e.getKey())).append(' ').append(e.getValue());
+            sep = ", ";
+        }
+        return sb.append(')').toString();
+    }
+
+    /**
+     * INSERT of the given columns (a subset of this schema), with one parameter per column.
+     */
+    String insertSql(List<String> target) {
+        StringBuilder sb = new StringBuilder("INSERT INTO ").append(quote(table)).append(" (");
+        StringBuilder params = new StringBuilder();
+        for (int i = 0; i < target.size(); i++) {
+            sb.append(i == 0 ? "" : ", ").append(quote(target.get(i)));
+            params.append(i == 0 ? "?" : ", ?");
+        }
+        return sb.append(") VALUES (").append(params).append(')').toString();
+    }
+
+    static String quote(String identifier) {
+        return '"' + identifier.replace("\"", "\"\"") + '"';
+    }
+
+    private static List<String> splitTopLevel(String spec) {
+        List<String> parts = new ArrayList<>();
+        int depth = 0, start = 0;
+        for (int i = 0; i < spec.length(); i++) {
+            char ch = spec.charAt(i);
+            if (ch == '(') {
+                depth++;
+            } else if (ch == ')') {
+                depth--;
+            } else if (ch == ',' && depth == 0) {
+                parts.add(spec.substring(start, i));
+                start = i + 1;
+            }
+        }
+        parts.add(spec.substring(start));
+        return parts;
+    }
+}
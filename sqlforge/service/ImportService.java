@@ -0,0 +1,531 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sqlforge.model.ImportJob;
+import com.sqlforge.model.ImportRequest;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bulk loads of CSV or NDJSON into sandbox tables. This is the one write path
+ * into the sandbox and it deliberately bypasses the read-only firewall: it never
+ * runs client SQL, only a CREATE TABLE and an INSERT built from validated
+ * identifiers and a fixed list of column types. Access needs the admin token.
+ *
+ * <p>Records are streamed through a bounded reader and inserted with JDBC batches
+ * and a commit every {@code sqlforge.import.commit-rows}, on a dedicated connection
+ * so a long load does not hold a pooled one. With {@code sqlforge.import.native-csv}
+ * CSV files under the import directory go through H2's {@code CSVREAD} instead; it
+ * is opt-in because in an embedded database batching was as fast or faster, and
+ * CSVREAD loads in one transaction with no progress until it ends. Loads of
+ * different tables run in parallel, up to {@code sqlforge.import.parallelism} at a time.
+ */
+@Service
+public class ImportService {
+    private static final Logger log = LoggerFactory.getLogger(ImportService.class);
+
+    private static final String METHOD_BATCH = "batch";
+    private static final String METHOD_CSVREAD = "csvread";
+    private static final int KEEP_FINISHED = 100;
+
+    private final DatabaseService db;
+    private final ObjectMapper mapper;
+    private final byte[] token; // null: imports disabled
+    private final Path importDir;
+    private final int batchSize;
+    private final int commitRows;
+    private final int inferRows;
+    private final long maxRows;
+    private final int maxRecordChars;
+    private final int maxColumns;
+    private final boolean nativeCsv;
+    private final Semaphore slots;
+    private final ExecutorService workers;
+    private final AtomicLong ids = new AtomicLong();
+    private final ConcurrentHashMap<Long, Job> jobs = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Long> finished = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Live state of one load; {@link #snapshot()} turns it into the API model.
+     */
+    private static final class Job {
+        final long id;
+        final String table;
+        final String format;
+        final String source;
+        final AtomicLong rows = new AtomicLong();
+        volatile String method = METHOD_BATCH;
+        volatile String state = ImportJob.STATE_QUEUED;
+        volatile boolean createdTable;
+        volatile long startNanos;
+        volatile long endNanos;
+        volatile String startedAt;
+        volatile String message;
+
+        Job(long id, String table, String format, String source) {
+            this.id = id;
+            this.table = table;
+            this.format = format;
+            this.source = source;
+        }
+
+        ImportJob snapshot() {
+            ImportJob j = new ImportJob();
+            j.setId(id);
+            j.setTable(table);
+            j.setFormat(format);
+            j.setSource(source);
+            j.setMethod(method);
+            j.setState(state);
+            j.setCreatedTable(createdTable);
+            long n = rows.get();
+            j.setRows(n);
+            if (startNanos != 0) {
+                long elapsed = (endNanos != 0 ? endNanos : System.nanoTime()) - startNanos;
+                j.setElapsedMillis(elapsed / 1e6);
+                j.setRowsPerSecond(elapsed == 0 ? 0 : n * 1e9 / elapsed);
+            }
+            j.setStartedAt(startedAt);
+            j.setMessage(message);
+            return j;
+        }
+    }
+
+    public ImportService(DatabaseService db, ObjectMapper mapper, Environment env) {
+        this.db = db;
+        this.mapper = mapper;
+        String configured = env.getProperty("sqlforge.import.token", "");
+        this.token = configured.isBlank() ? null : configured.getBytes(StandardCharsets.UTF_8);
+        this.importDir = Paths.get(env.getProperty("sqlforge.import.dir", "./data/import")).toAbsolutePath().normalize();
+        this.batchSize = Math.max(1, env.getProperty("sqlforge.import.batch-size", Integer.class, 1000));
+        this.commitRows = Math.max(batchSize, env.getProperty("sqlforge.import.commit-rows", Integer.class, 50_000));
+        this.inferRows = Math.max(1, env.getProperty("sqlforge.import.infer-rows", Integer.class, 1000));
+        this.maxRows = env.getProperty("sqlforge.import.max-rows", Long.class, 10_000_000L);
+        this.maxRecordChars = env.getProperty("sqlforge.import.max-record-chars", Integer.class, 1024 * 1024);
+        this.maxColumns = env.getProperty("sqlforge.import.max-columns", Integer.class, 1024);
+        this.nativeCsv = env.getProperty("sqlforge.import.native-csv", Boolean.class, false);
+        int parallelism = Math.max(1, env.getProperty("sqlforge.import.parallelism", Integer.class, 2));
+        this.slots = new Semaphore(parallelism);
+        AtomicInteger threads = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(parallelism, r -> {
+            Thread t = new Thread(r, "sqlforge-import-" + threads.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    /**
+     * False until {@code sqlforge.import.token} is configured.
+     */
+    public boolean isEnabled() {
+        return token != null;
+    }
+
+    public boolean isAuthorized(String presented) {
+        return token != null && presented != null
+                && MessageDigest.isEqual(token, presented.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Loads the request body into one table on the calling thread.
+     * @return the finished job; a failed load reports its error and the rows committed before it
+     * @throws IllegalArgumentException if the request is invalid (nothing is loaded)
+     * @throws QueryRejectedException if every import slot is busy
+     */
+    public ImportJob importStream(ImportRequest req, InputStream body) {
+        String table = ImportSchema.tableName(req.getTable());
+        String format = format(req);
+        if (!slots.tryAcquire()) {
+            throw new QueryRejectedException("All import slots are busy; try again later", false);
+        }
+        try {
+            Job job = register(table, format, "body");
+            run(job, () -> {
+                try (RecordReader reader = reader(format, req, new InputStreamReader(body, StandardCharsets.UTF_8))) {
+                    loadBatched(job, req, reader);
+                }
+            });
+            return job.snapshot();
+        } finally {
+            slots.release();
+        }
+    }
+
+    /**
+     * Starts one background load per file; loads of different tables run in parallel.
+     * Every request is checked before any load starts.
+     * @return the queued jobs, to be followed with {@link #job(long)}
+     * @throws IllegalArgumentException if any request is invalid (nothing is started)
+     */
+    public List<ImportJob> importFiles(List<ImportRequest> requests) {
+        if (requests == null || requests.isEmpty()) {
+            throw new IllegalArgumentException("At least one file must be given");
+        }
+        List<String> tables = new ArrayList<>(requests.size());
+        List<Path> files = new ArrayList<>(requests.size());
+        Set<String> seen = new HashSet<>();
+        for (ImportRequest req : requests) {
+            String table = ImportSchema.tableName(req.getTable());
+            if (!seen.add(table)) {
+                throw new IllegalArgumentException("Table " + table + " is loaded twice; combine its files or load them one after another");
+            }
+            format(req);
+            tables.add(table);
+            files.add(resolve(req.getPath()));
+        }
+        List<ImportJob> out = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            ImportRequest req = requests.get(i);
+            Path file = files.get(i);
+            Job job = register(tables.get(i), format(req), importDir.relativize(file).toString());
+            workers.execute(() -> {
+                slots.acquireUninterruptibly();
+                try {
+                    run(job, () -> loadFile(job, req, file));
+                } finally {
+                    slots.release();
+                }
+            });
+            out.add(job.snapshot());
+        }
+        return out;
+    }
+
+    /**
+     * Running and recently finished loads, newest first.
+     */
+    public List<ImportJob> jobs() {
+        List<ImportJob> out = new ArrayList<>(jobs.size());
+        for (Job job : jobs.values()) {
+            out.add(job.snapshot());
+        }
+        out.sort(Comparator.comparingLong(ImportJob::getId).reversed());
+        return out;
+    }
+
+    /**
+     * @return the job, or null if it is unknown or no longer kept
+     */
+    public ImportJob job(long id) {
+        Job job = jobs.get(id);
+        return job == null ? null : job.snapshot();
+    }
+
+    private interface Load {
+        void run() throws IOException, SQLException;
+    }
+
+    private Job register(String table, String format, String source) {
+        Job job = new Job(ids.incrementAndGet(), table, format, source);
+        jobs.put(job.id, job);
+        return job;
+    }
+
+    /**
+     * Runs a load, recording its outcome on the job. Invalid input ends the load
+     * like any other failure: earlier commits stay and the job says why it stopped.
+     */
+    private void run(Job job, Load load) {
+        job.startedAt = Instant.now().toString();
+        job.startNanos = System.nanoTime();
+        job.state = ImportJob.STATE_RUNNING;
+        try {
+            load.run();
+            job.state = ImportJob.STATE_DONE;
+            log.info("Imported {} rows into {} ({}, {})", job.rows.get(), job.table, job.method, job.source);
+        } catch (JsonProcessingException ex) {
+            fail(job, "Malformed NDJSON: " + ex.getOriginalMessage());
+        } catch (IllegalArgumentException ex) {
+            fail(job, ex.getMessage());
+        } catch (SQLException ex) {
+            fail(job, "SQL error: " + ex.getMessage());
+        } catch (IOException ex) {
+            fail(job, "Read error: " + ex.getMessage());
+        } catch (RuntimeException ex) {
+            log.error("Import into {} failed", job.table, ex);
+            fail(job, "Import error: " + ex.getMessage());
+        } finally {
+            job.endNanos = System.nanoTime();
+            finished.add(job.id);
+            while (finished.size() > KEEP_FINISHED) {
+                Long oldest = finished.poll();
+                if (oldest != null) {
+                    jobs.remove(oldest);
+                }
+            }
+        }
+    }
+
+    private static void fail(Job job, String message) {
+        job.state = ImportJob.STATE_FAILED;
+        job.message = message;
+        log.warn("Import into {} failed after {} rows: {}", job.table, job.rows.get(), message);
+    }
+
+    private void loadFile(Job job, ImportRequest req, Path file) throws IOException, SQLException {
+        try (Reader in = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+             RecordReader reader = reader(job.format, req, in)) {
+            if (nativeCsv && ImportRequest.FORMAT_CSV.equals(job.format) && req.isHeader()
+                    && nativeDelimiter(req.getDelimiter())) {
+                job.method = METHOD_CSVREAD;
+                loadCsvRead(job, req, reader, file);
+            } else {
+                loadBatched(job, req, reader);
+            }
+        }
+    }
+
+    private void loadBatched(Job job, ImportRequest req, RecordReader reader) throws IOException, SQLException {
+        try (Connection c = db.openConnection()) {
+            List<String> source = ImportSchema.columnNames(reader.columns());
+            List<Object[]> sample = new ArrayList<>();
+            ImportSchema schema = prepareTable(c, job, req, source, reader, sample);
+            List<String> target = targetColumns(job, req, schema, source);
+            String insert = schema.insertSql(target);
+            int cols = target.size();
+            c.setAutoCommit(false);
+            try (PreparedStatement ps = c.prepareStatement(insert)) {
+                long loaded = 0;
+                long committed = 0;
+                int pending = 0;
+                int sampled = 0;
+                while (true) {
+                    Object[] record = sampled < sample.size() ? sample.get(sampled++) : reader.next();
+                    if (record == null) {
+                        break;
+                    }
+                    if (++loaded > maxRows) {
+                        throw new IllegalArgumentException("Import exceeds sqlforge.import.max-rows (" + maxRows + ")");
+                    }
+                    for (int i = 0; i < cols; i++) {
+                        ps.setObject(i + 1, record[i]);
+                    }
+                    ps.addBatch();
+                    if (++pending == batchSize) {
+                        executeBatch(ps, loaded - pending + 1, loaded);
+                        pending = 0;
+                        if (loaded - committed >= commitRows) {
+                            c.commit();
+                            committed = loaded;
+                            job.rows.set(committed);
+                            db.tableVersions().bump(job.table);
+                        }
+                    }
+                }
+                if (pending > 0) {
+                    executeBatch(ps, loaded - pending + 1, loaded);
+                }
+                c.commit();
+                job.rows.set(loaded);
+            } catch (SQLException | IOException | RuntimeException ex) {
+                c.rollback();
+                throw ex;
+            } finally {
+                db.tableVersions().bump(job.table);
+            }
+        }
+    }
+
+    /**
+     * One INSERT ... SELECT over H2's CSVREAD. The reader has only been used for the
+     * header and the inference sample; H2 parses the file itself.
+     */
+    private void loadCsvRead(Job job, ImportRequest req, RecordReader reader, Path file) throws IOException, SQLException {
+        try (Connection c = db.openConnection()) {
+            List<String> source = ImportSchema.columnNames(reader.columns());
+            ImportSchema schema = prepareTable(c, job, req, source, reader, new ArrayList<>());
+            List<String> target = targetColumns(job, req, schema, source);
+            String columns = String.join(", ", target.stream().map(ImportSchema::quote).toList());
+            // H2 resolves table functions while preparing, so the arguments cannot be parameters;
+            // the path is a resolved file inside the import directory and the delimiter is whitelisted
+            String sql = "INSERT INTO " + ImportSchema.quote(job.table) + " (" + columns + ") "
+                    + "SELECT * FROM CSVREAD(" + literal(file.toString()) + ", NULL, "
+                    + literal("charset=UTF-8 fieldSeparator=" + req.getDelimiter()) + ") "
+                    + "FETCH FIRST " + (maxRows + 1) + " ROWS ONLY";
+            c.setAutoCommit(false);
+            try (Statement st = c.createStatement()) {
+                long loaded = st.executeLargeUpdate(sql);
+                if (loaded > maxRows) {
+                    throw new IllegalArgumentException("Import exceeds sqlforge.import.max-rows (" + maxRows + ")");
+                }
+                c.commit();
+                job.rows.set(loaded);
+            } catch (SQLException | RuntimeException ex) {
+                c.rollback();
+                throw ex;
+            } finally {
+                db.tableVersions().bump(job.table);
+            }
+        }
+    }
+
+    /**
+     * Finds or creates the target table and checks that every source column exists in it.
+     * Creating a table without an explicit schema reads up to {@code sqlforge.import.infer-rows}
+     * records into {@code sample}; the caller loads those first.
+     */
+    private ImportSchema prepareTable(Connection c, Job job, ImportRequest req, List<String> source,
+                                      RecordReader reader, List<Object[]> sample) throws IOException, SQLException {
+        ImportSchema schema = ImportSchema.ofTable(c, job.table);
+        if (schema == null) {
+            if (!req.isCreate()) {
+                throw new IllegalArgumentException("Table " + job.table + " does not exist");
+            }
+            if (req.getSchema() != null && !req.getSchema().isBlank()) {
+                schema = ImportSchema.parse(job.table, req.getSchema());
+            } else {
+                for (Object[] r; sample.size() < inferRows && (r = reader.next()) != null; ) {
+                    sample.add(r.clone());
+                }
+                schema = ImportSchema.infer(job.table, source, sample);
+            }
+            try (Statement st = c.createStatement()) {
+                st.execute(schema.createSql());
+            }
+            job.createdTable = true;
+            // a parallel load may have created it first
+            schema = ImportSchema.ofTable(c, job.table);
+        } else if (req.isTruncate()) {
+            try (Statement st = c.createStatement()) {
+                st.execute("TRUNCATE TABLE " + ImportSchema.quote(job.table));
+            }
+        }
+        return schema;
+    }
+
+    /**
+     * Table columns the source columns load into: matched by name, or by position
+     * for CSV without a header.
+     */
+    private static List<String> targetColumns(Job job, ImportRequest req, ImportSchema schema, List<String> source) {
+        if (ImportRequest.FORMAT_CSV.equals(job.format) && !req.isHeader()) {
+            List<String> columns = schema.columns();
+            if (source.size() > columns.size()) {
+                throw new IllegalArgumentException("Input has " + source.size() + " columns; table "
+                        + job.table + " has " + columns.size());
+            }
+            return columns.subList(0, source.size());
+        }
+        for (String col : source) {
+            if (!schema.hasColumn(col)) {
+                throw new IllegalArgumentException("Column " + col + " is not in table " + job.table);
+            }
+        }
+        return source;
+    }
+
+    private static String literal(String s) {
+        return "'" + s.replace("'", "''") + "'";
+    }
+
+    private static void executeBatch(PreparedStatement ps, long first, long last) throws SQLException {
+        try {
+            ps.executeBatch();
+        } catch (BatchUpdateException ex) {
+            SQLException cause = ex.getNextException() != null ? ex.getNextException() : ex;
+            throw new SQLException("Rows " + first + "-" + last + ": " + cause.getMessage(), ex);
+        }
+    }
+
+    private RecordReader reader(String format, ImportRequest req, Reader in) throws IOException {
+        try {
+            if (ImportRequest.FORMAT_NDJSON.equals(format)) {
+                return new NdjsonRecordReader(in, mapper, maxRecordChars, maxColumns);
+            }
+            return new CsvRecordReader(in, delimiter(req.getDelimiter()), req.isHeader(), maxRecordChars, maxColumns);
+        } catch (IOException | RuntimeException ex) {
+            in.close();
+            throw ex;
+        }
+    }
+
+    private static String format(ImportRequest req) {
+        String format = req.getFormat() == null ? ImportRequest.FORMAT_CSV : req.getFormat().toLowerCase(Locale.ROOT);
+        if (!ImportRequest.FORMAT_CSV.equals(format) && !ImportRequest.FORMAT_NDJSON.equals(format)) {
+            throw new IllegalArgumentException("Unknown import format: " + req.getFormat() + " (expected csv or ndjson)");
+        }
+        if (ImportRequest.FORMAT_CSV.equals(format)) {
+            delimiter(req.getDelimiter());
+        }
+        return format;
+    }
+
+    private static char delimiter(String delimiter) {
+        String d = delimiter == null ? "," : delimiter;
+        if ("\\t".equals(d)) {
+            return '\t';
+        }
+        if (d.length() != 1 || d.charAt(0) == '"' || d.charAt(0) == '\n' || d.charAt(0) == '\r') {
+            throw new IllegalArgumentException("CSV delimiter must be a single character other than a quote or line break");
+        }
+        return d.charAt(0);
+    }
+
+    /**
+     * Delimiters that pass through CSVREAD's space-separated option string unchanged.
+     */
+    private static boolean nativeDelimiter(String delimiter) {
+        return ",".equals(delimiter) || ";".equals(delimiter) || "|".equals(delimiter);
+    }
+
+    /**
+     * @throws IllegalArgumentException unless the path names a regular file inside the import directory
+     */
+    private Path resolve(String path) {
+        if (path == null || path.isBlank()) {
+            throw new IllegalArgumentException("File imports need a path relative to the import directory");
+        }
+        try {
+            Path dir = importDir.toRealPath();
+            Path file = dir.resolve(path).normalize().toRealPath();
+            if (!file.startsWith(dir) || !Files.isRegularFile(file)) {
+                throw new IllegalArgumentException("Not a file in the import directory: " + path);
+            }
+            return file;
+        } catch (IOException ex) {
+            throw new IllegalArgumentException("Not a file in the import directory: " + path);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.service;
+
+import com.sqlforge.model.CacheStats;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.BiPredicate;
+import java.util.function.Predicate;
+import java.util.function.ToLongBiFunction;
+
+/**
+ * Weight-bounded LRU map. Every entry has a weight (1 by default, or e.g. an
+ * estimated byte size); least recently used entries are evicted once the total
+ * weight exceeds {@code maxWeight}. All operations are synchronized, and the
+ * eviction listener runs while the lock is held, so it must stay cheap.
+ */
+final class LruCache<K, V> {
+
+    /**
+     * Counters that can be shared by several caches of the same kind
+     * (e.g. one statement cache per pooled connection).
+     */
+    static final class Counters {
+        final LongAdder hits = new LongAdder();
+        final LongAdder misses = new LongAdder();
+        final LongAdder evictions = new LongAdder();
+        final AtomicLong entries = new AtomicLong();
+        final AtomicLong weight = new AtomicLong();
+
+        CacheStats toStats(String name, long maxWeight) {
+            CacheStats s = new CacheStats(name);
+            s.setSize(entries.get());
+            s.setWeight(weight.get());
+            s.setMaxWeight(maxWeight);
+            s.setHits(hits.sum());
+            s.setMisses(misses.sum());
+            s.setEvictions(evictions.sum());
+            return s;
+        }
+    }
+
+    private final String name;
+    private final long maxWeight;
+    private final ToLongBiFunction<K, V> weigher;
+    private final BiConsumer<K, V> onEvict;
+    private final Counters counters;
+    private final LinkedHashMap<K, V> map = new LinkedHashMap<>(16, 0.75f, true);
+    private long weight;
+
+    LruCache(String name, long maxEntries) {
+        this(name, maxEntries, (k, v) -> 1L, null, new Counters());
+    }
+
+    LruCache(String name, long maxWeight, ToLongBiFunction<K, V> weigher,
+             BiConsumer<K, V> onEvict, Counters counters) {
+        this.name = name;
+        this.maxWeight = Math.max(1, maxWeight);
+        this.weigher = weigher;
+        this.onEvict = onEvict;
+        this.counters = counters;
+    }
+
+    synchronized V get(K key) {
+        V v = map.get(key);
+        if (v == null) {
+            counters.misses.increment();
+        } else {
+            counters.hits.increment();
+        }
+        return v;
+    }
+
+    /**
+     * Like {@link #get(Object)}, but an entry failing the freshness check is
+     * dropped (counted as an eviction) and reported as a miss.
+     */
+    synchronized V get(K key, Predicate<V> fresh) {
+        V v = map.get(key);
+        if (v != null && !fresh.test(v)) {
+            map.remove(key);
+            adjust(-weigher.applyAsLong(key, v), -1);
+            counters.evictions.increment();
+            if (onEvict != null) {
+                onEvict.accept(key, v);
+            }
+            v = null;
+        }
+        if (v == null) {
+            counters.misses.increment();
+        } else {
+            counters.hits.increment();
+        }
+        return v;
+    }
+
+    /**
+     * Inserts or replaces an entry. Values heavier than the whole cache are not stored.
+     */
+    synchronized void put(K key, V value) {
+        long w = weigher.applyAsLong(key, value);
+        if (w > maxWeight) {
+            return;
+        }
+        V old = map.put(key, value);
+        if (old != null) {
+            adjust(-weigher.applyAsLong(key, old), -1);
+            if (old != value && onEvict != null) {
+                onEvict.accept(key, old);
+            }
+        }
+        adjust(w, 1);
+        Iterator<Map.Entry<K, V>> it = map.entrySet().iterator();
+        while (weight > maxWeight && it.hasNext()) {
+            Map.Entry<K, V> eldest = it.next();
+            it.remove();
+            adjust(-weigher.applyAsLong(eldest.getKey(), eldest.getValue()), -1);
+            counters.evictions.increment();
+            if (onEvict != null) {
+                onEvict.accept(eldest.getKey(), eldest.getValue());
+            }
+        }
+    }
+
+    synchronized V remove(K key) {
+        V v = map.remove(key);
+        if (v != null) {
+            adjust(-weigher.applyAsLong(key, v), -1);
+            if (onEvict != null) {
+                onEvict.accept(key, v);
+            }
+        }
+        return v;
+    }
+
+    /**
+     * Removes every entry matching the predicate; returns how many were dropped.
+     */
+    synchronized int removeIf(BiPredicate<K, V> predicate) {
+        int removed = 0;
+        Iterator<Map.Entry<K, V>> it = map.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<K, V> e = it.next();
+            if (predicate.test(e.getKey(), e.getValue())) {
+                it.remove();
+                adjust(-weigher.applyAsLong(e.getKey(), e.getValue()), -1);
+                if (onEvict != null) {
+                    onEvict.accept(e.getKey(), e.getValue());
+                }
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    synchronized void clear() {
+        removeIf((k, v) -> true);
+    }
+
+    synchronized int size() {
+        return map.size();
+    }
+
+    CacheStats stats() {
+        return counters.toStats(name, maxWeight);
+    }
+
+    private void adjust(long deltaWeight, int deltaEntries) {
+        weight += deltaWeight;
+        counters.weight.addAndGet(deltaWeight);
+        counters.entries.addAndGet(deltaEntries);
+    }
+}
@@ -0,0 +1,408 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.service;
+
+import com.sqlforge.model.MaterializedViewInfo;
+import com.sqlforge.model.MaterializedViewRequest;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Materialized views managed by SQLForge. An admin registers a SELECT; its result is
+ * stored in {@code SQLFORGE_MV.<name>} and refreshed shortly after a server-side write
+ * to a source table, on a fixed interval, or only on request. A refresh recomputes the
+ * rows and swaps them in one transaction, so readers see either the old rows or the
+ * new ones. While a view is current, {@link DatabaseService} answers matching
+ * statements from it (see {@link MaterializedViews} for what matches).
+ *
+ * <p>Definitions are kept in {@code SQLFORGE_META.MATERIALIZED_VIEWS} and reloaded on
+ * startup, each view refreshed once before it serves anything. Registering, dropping
+ * and refreshing need the admin token ({@code sqlforge.views.token}, by default the
+ * import token).
+ */
+@Service
+public class MaterializedViewService {
+    private static final Logger log = LoggerFactory.getLogger(MaterializedViewService.class);
+
+    private static final String CATALOG_SCHEMA = "SQLFORGE_META";
+    private static final String CATALOG = CATALOG_SCHEMA + ".MATERIALIZED_VIEWS";
+
+    private final DatabaseService db;
+    private final TableVersions tableVersions;
+    private final MaterializedViews views;
+    private final byte[] token; // null: registering disabled
+    private final long changeDelayMs;
+    private final ScheduledExecutorService refresher;
+
+    public MaterializedViewService(DatabaseService db, Environment env) {
+        this.db = db;
+        this.tableVersions = db.tableVersions();
+        String configured = env.getProperty("sqlforge.views.token", env.getProperty("sqlforge.import.token", ""));
+        this.token = configured.isBlank() ? null : configured.getBytes(StandardCharsets.UTF_8);
+        this.changeDelayMs = Math.max(0, env.getProperty("sqlforge.views.change-delay-ms", Long.class, 1_000L));
+        this.views = new MaterializedViews(tableVersions,
+                env.getProperty("sqlforge.views.rewrite-cache-size", Integer.class, 512));
+        AtomicInteger threads = new AtomicInteger();
+        this.refresher = Executors.newScheduledThreadPool(
+                Math.max(1, env.getProperty("sqlforge.views.refresh-threads", Integer.class, 1)), r -> {
+                    Thread t = new Thread(r, "sqlforge-views-refresh-" + threads.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        tableVersions.onChange(this::onWrite);
+        if (env.getProperty("sqlforge.views.rewrite", Boolean.class, true)) {
+            db.useViews(views);
+        }
+        refresher.execute(this::loadCatalog); // waits for the database, not for the application to boot
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refresher.shutdownNow();
+    }
+
+    /**
+     * False until {@code sqlforge.views.token} (or the import token) is configured.
+     */
+    public boolean isEnabled() {
+        return token != null;
+    }
+
+    public boolean isAuthorized(String presented) {
+        return token != null && presented != null
+                && MessageDigest.isEqual(token, presented.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Creates the view's table and fills it once before answering.
+     * @return the view; its state is "failed" with the error if that first refresh failed
+     * @throws IllegalArgumentException if the request is invalid or the name is taken
+     * @throws SQLException if H2 rejects the definition (nothing is registered)
+     */
+    public MaterializedViewInfo register(MaterializedViewRequest req) throws SQLException {
+        if (req == null) {
+            throw new IllegalArgumentException("Request body is required");
+        }
+        String name = ImportSchema.tableName(req.getName());
+        String refresh = refreshMode(req.getRefresh());
+        long intervalMs = req.getIntervalMs() == null ? 0 : req.getIntervalMs();
+        if (MaterializedViewRequest.REFRESH_INTERVAL.equals(refresh) && intervalMs < 1_000) {
+            throw new IllegalArgumentException("Interval refresh needs intervalMs of at least 1000");
+        }
+        long maxStaleMs = req.getMaxStaleMs() == null ? 0 : Math.max(0, req.getMaxStaleMs());
+        MaterializedViews.View v = view(name, req.getSql(), refresh, intervalMs, maxStaleMs, System.currentTimeMillis());
+        synchronized (this) {
+            if (views.get(name) != null) {
+                throw new IllegalArgumentException("View " + name + " already exists; drop it first");
+            }
+            try (Connection c = db.openConnection(); Statement st = c.createStatement()) {
+                st.execute("CREATE SCHEMA IF NOT EXISTS " + MaterializedViews.SCHEMA);
+                st.execute("CREATE SCHEMA IF NOT EXISTS " + CATALOG_SCHEMA);
+                st.execute("CREATE TABLE IF NOT EXISTS " + CATALOG + " (NAME VARCHAR(128) PRIMARY KEY, "
+                        + "DEFINITION CHARACTER VARYING NOT NULL, REFRESH VARCHAR(16) NOT NULL, "
+                        + "INTERVAL_MS BIGINT NOT NULL, MAX_STALE_MS BIGINT NOT NULL, CREATED_AT BIGINT NOT NULL)");
+                st.execute("DROP TABLE IF EXISTS " + v.table());
+                st.execute("CREATE TABLE " + v.table() + " AS " + v.storageSql + " WITH NO DATA");
+                try (PreparedStatement ps = c.prepareStatement("INSERT INTO " + CATALOG + " VALUES (?, ?, ?, ?, ?, ?)")) {
+                    describe(c, v);
+                    ps.setString(1, v.name);
+                    ps.setString(2, v.sql);
+                    ps.setString(3, v.refresh);
+                    ps.setLong(4, v.intervalMs);
+                    ps.setLong(5, v.maxStaleMs);
+                    ps.setLong(6, v.createdAt);
+                    ps.executeUpdate();
+                } catch (SQLException ex) {
+                    st.execute("DROP TABLE IF EXISTS " + v.table());
+                    throw ex;
+                }
+            }
+            views.add(v);
+            schedule(v);
+        }
+        log.info("Materialized view {} registered ({} refresh)", name, refresh);
+        refreshQuietly(v);
+        return info(v);
+    }
+
+    /**
+     * Drops the view and its table; statements go back to the source tables.
+     * @return false if there is no such view
+     */
+    public boolean drop(String name) throws SQLException {
+        String key = ImportSchema.tableName(name);
+        MaterializedViews.View v;
+        synchronized (this) {
+            v = views.remove(key);
+            if (v == null) {
+                return false;
+            }
+            ScheduledFuture<?> s = v.schedule;
+            if (s != null) {
+                s.cancel(false);
+            }
+            synchronized (v) {
+                try (Connection c = db.openConnection(); Statement st = c.createStatement();
+                     PreparedStatement ps = c.prepareStatement("DELETE FROM " + CATALOG + " WHERE NAME = ?")) {
+                    st.execute("DROP TABLE IF EXISTS " + v.table());
+                    ps.setString(1, key);
+                    ps.executeUpdate();
+                }
+            }
+        }
+        tableVersions.bump(key);
+        log.info("Materialized view {} dropped", key);
+        return true;
+    }
+
+    /**
+     * Refreshes the view now, on the calling thread.
+     * @return the view after the refresh, or null if there is no such view
+     */
+    public MaterializedViewInfo refresh(String name) {
+        MaterializedViews.View v = views.get(ImportSchema.tableName(name));
+        if (v == null) {
+            return null;
+        }
+        refreshQuietly(v);
+        return info(v);
+    }
+
+    /**
+     * Every registered view, by name.
+     */
+    public List<MaterializedViewInfo> list() {
+        List<MaterializedViewInfo> out = new ArrayList<>();
+        for (MaterializedViews.View v : views.all()) {
+            out.add(info(v));
+        }
+        out.sort(Comparator.comparing(MaterializedViewInfo::getName));
+        return out;
+    }
+
+    /**
+     * @throws IllegalArgumentException unless the definition is a SELECT the firewall allows, without ORDER BY or LIMIT
+     */
+    private MaterializedViews.View view(String name, String sql, String refresh, long intervalMs, long maxStaleMs,
+                                        long createdAt) {
+        SqlNormalizer.NormalizedSql definition = db.validated(sql);
+        if (definition.getText().startsWith("EXPLAIN")) {
+            throw new IllegalArgumentException("A view must be defined by a SELECT");
+        }
+        if (SummaryShape.isOrdered(definition.getText())) {
+            throw new IllegalArgumentException("ORDER BY, LIMIT and OFFSET belong in the statements that read a view, not in its definition");
+        }
+        return new MaterializedViews.View(name, sql, definition, SqlNormalizer.normalize(sql, false).getText(),
+                refresh, intervalMs, maxStaleMs, createdAt);
+    }
+
+    private static String refreshMode(String refresh) {
+        String mode = refresh == null || refresh.isBlank()
+                ? MaterializedViewRequest.REFRESH_ON_CHANGE : refresh.trim().toLowerCase(Locale.ROOT);
+        switch (mode) {
+            case MaterializedViewRequest.REFRESH_ON_CHANGE:
+            case MaterializedViewRequest.REFRESH_INTERVAL:
+            case MaterializedViewRequest.REFRESH_MANUAL:
+                return mode;
+            default:
+                throw new IllegalArgumentException("Unknown refresh mode: " + refresh);
+        }
+    }
+
+    /**
+     * Reads the stored columns and their types, and the label H2 gives each aggregate of
+     * the definition when it has no alias, so rewritten statements keep their column names.
+     */
+    private static void describe(Connection c, MaterializedViews.View v) throws SQLException {
+        String[] columns, types, labels;
+        try (Statement st = c.createStatement();
+             ResultSet rs = st.executeQuery("SELECT * FROM " + v.table() + " WHERE 1 = 0")) {
+            ResultSetMetaData md = rs.getMetaData();
+            columns = new String[md.getColumnCount()];
+            types = new String[columns.length];
+            for (int i = 0; i < columns.length; i++) {
+                columns[i] = md.getColumnLabel(i + 1);
+                types[i] = sqlType(md, i + 1);
+            }
+        }
+        labels = columns;
+        if (v.shape != null) {
+            StringBuilder bare = new StringBuilder("SELECT ");
+            for (int i = 0; i < v.shape.items.size(); i++) {
+                bare.append(i > 0 ? ", " : "").append(v.shape.items.get(i).expression);
+            }
+            bare.append(" FROM ").append(MaterializedViews.quote(v.shape.table));
+            try (PreparedStatement ps = c.prepareStatement(bare.toString())) {
+                ResultSetMetaData md = ps.getMetaData();
+                if (md != null && md.getColumnCount() == columns.length) {
+                    labels = new String[columns.length];
+                    for (int i = 0; i < labels.length; i++) {
+                        labels[i] = md.getColumnLabel(i + 1);
+                    }
+                }
+            }
+        }
+        v.types = types;
+        v.labels = labels;
+        v.columns = columns; // last: a view is usable once its columns are known
+    }
+
+    private static String sqlType(ResultSetMetaData md, int column) throws SQLException {
+        int type = md.getColumnType(column);
+        if (type == Types.NUMERIC || type == Types.DECIMAL) {
+            return "NUMERIC(" + md.getPrecision(column) + ", " + md.getScale(column) + ')';
+        }
+        return md.getColumnTypeName(column);
+    }
+
+    private void loadCatalog() {
+        try (Connection c = db.openConnection()) {
+            try (PreparedStatement ps = c.prepareStatement("SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES "
+                    + "WHERE TABLE_SCHEMA = ? AND TABLE_NAME = 'MATERIALIZED_VIEWS'")) {
+                ps.setString(1, CATALOG_SCHEMA);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (!rs.next() || rs.getLong(1) == 0) {
+                        return;
+                    }
+                }
+            }
+            try (Statement st = c.createStatement();
+                 ResultSet rs = st.executeQuery("SELECT NAME, DEFINITION, REFRESH, INTERVAL_MS, MAX_STALE_MS, CREATED_AT FROM "
+                         + CATALOG + " ORDER BY NAME")) {
+                while (rs.next()) {
+                    String name = rs.getString(1);
+                    try {
+                        MaterializedViews.View v = view(name, rs.getString(2), rs.getString(3), rs.getLong(4),
+                                rs.getLong(5), rs.getLong(6));
+                        try (Statement create = c.createStatement()) {
+                            create.execute("CREATE TABLE IF NOT EXISTS " + v.table() + " AS " + v.storageSql + " WITH NO DATA");
+                        }
+                        describe(c, v);
+                        views.add(v);
+                        schedule(v);
+                        refresher.execute(() -> refreshQuietly(v)); // its rows may predate the restart
+                    } catch (IllegalArgumentException | SQLException ex) {
+                        log.warn("Materialized view {} not loaded: {}", name, ex.getMessage());
+                    }
+                }
+            }
+        } catch (SQLException ex) {
+            log.warn("Loading materialized views failed: {}", ex.getMessage());
+        }
+    }
+
+    private void schedule(MaterializedViews.View v) {
+        if (MaterializedViewRequest.REFRESH_INTERVAL.equals(v.refresh)) {
+            v.schedule = refresher.scheduleWithFixedDelay(() -> refreshQuietly(v),
+                    v.intervalMs, v.intervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Imports commit every few thousand rows: one refresh per view per change delay at most.
+     */
+    private void onWrite(String table) {
+        for (MaterializedViews.View v : views.all()) {
+            if (MaterializedViewRequest.REFRESH_ON_CHANGE.equals(v.refresh) && v.sources.contains(table)
+                    && v.changePending.compareAndSet(false, true)) {
+                refresher.schedule(() -> {
+                    v.changePending.set(false);
+                    refreshQuietly(v);
+                }, changeDelayMs, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private void refreshQuietly(MaterializedViews.View v) {
+        try {
+            refresh(v);
+        } catch (SQLException | RuntimeException ex) {
+            log.warn("Refreshing materialized view {} failed: {}", v.name, ex.getMessage());
+        }
+    }
+
+    /**
+     * Recomputes the rows in one transaction. The source versions are read first, so
+     * a write that lands while the query runs leaves the view stale rather than wrongly current.
+     */
+    private void refresh(MaterializedViews.View v) throws SQLException {
+        synchronized (v) {
+            if (views.get(v.name) != v) {
+                return; // dropped in the meantime
+            }
+            Map<String, Long> versions = tableVersions.snapshot(v.sources);
+            long start = System.nanoTime();
+            try (Connection c = db.openConnection()) {
+                c.setAutoCommit(false);
+                try (Statement st = c.createStatement()) {
+                    st.executeUpdate("DELETE FROM " + v.table());
+                    v.rows = st.executeLargeUpdate("INSERT INTO " + v.table() + ' ' + v.storageSql);
+                    c.commit();
+                } catch (SQLException ex) {
+                    c.rollback();
+                    throw ex;
+                }
+            } catch (SQLException ex) {
+                v.error = ex.getMessage();
+                throw ex;
+            }
+            v.refreshMillis = (System.nanoTime() - start) / 1e6;
+            v.refreshedAt = System.currentTimeMillis();
+            v.versions = versions;
+            v.error = null;
+            v.refreshes.incrementAndGet();
+        }
+        tableVersions.bump(v.name); // results cached from the view's own table
+        log.debug("Materialized view {} refreshed ({} rows)", v.name, v.rows);
+    }
+
+    private MaterializedViewInfo info(MaterializedViews.View v) {
+        MaterializedViewInfo i = new MaterializedViewInfo();
+        i.setName(v.name);
+        i.setTable(MaterializedViews.SCHEMA + '.' + v.name);
+        i.setSql(v.sql);
+        i.setRefresh(v.refresh);
+        i.setIntervalMs(v.intervalMs);
+        i.setMaxStaleMs(v.maxStaleMs);
+        i.setSummary(v.shape != null);
+        i.setState(v.error != null ? MaterializedViewInfo.STATE_FAILED
+                : v.versions == null ? MaterializedViewInfo.STATE_PENDING
+                : v.isCurrent(tableVersions) ? MaterializedViewInfo.STATE_FRESH
+                : MaterializedViewInfo.STATE_STALE);
+        i.setRows(v.rows);
+        i.setRefreshes(v.refreshes.get());
+        i.setHits(v.hits.get());
+        if (v.refreshedAt != 0) {
+            i.setRefreshedAt(Instant.ofEpochMilli(v.refreshedAt).toString());
+        }
+        i.setRefreshMillis(v.refreshMillis);
+        i.setMessage(v.error);
+        return i;
+    }
+}
@@ -0,0 +1,451 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Registered materialized views and the query rewrite that reads from them.
+ * A statement is answered from a view when
+ * <ul>
+ *   <li>its normalized text and parameters are those of the view definition, or</li>
+ *   <li>both are single-table aggregates ({@link SummaryShape}) over the same table, the view
+ *       has no WHERE, and the statement groups by (and filters on) a subset of the view's
+ *       GROUP BY columns using aggregates the view stores: COUNT and SUM roll up as SUM,
+ *       MIN and MAX as themselves; AVG only when the groups are the same.</li>
+ * </ul>
+ * A view serves rewrites only while its stored rows reflect the current
+ * {@link TableVersions} of its source tables, or are younger than its max staleness.
+ * Rewrite plans are cached per statement text until the set of views changes.
+ */
+final class MaterializedViews {
+    static final String SCHEMA = "SQLFORGE_MV";
+
+    // Words a rewritten clause may contain besides columns, functions and aggregates
+    private static final Set<String> CLAUSE_WORDS = Set.of(
+            "AND", "OR", "NOT", "IN", "IS", "NULL", "LIKE", "ILIKE", "REGEXP", "BETWEEN", "TRUE", "FALSE", "UNKNOWN",
+            "ESCAPE", "CASE", "WHEN", "THEN", "ELSE", "END", "ASC", "DESC", "NULLS", "FIRST", "LAST", "CAST", "AS",
+            "DATE", "TIME", "TIMESTAMP", "INTERVAL", "INT", "INTEGER", "BIGINT", "VARCHAR", "DECIMAL", "NUMERIC",
+            "DOUBLE", "PRECISION", "REAL", "BOOLEAN");
+    private static final int WHERE = 0, HAVING = 1, ORDER = 2;
+    private static final Plan NO_PLAN = new Plan(null, null);
+
+    /**
+     * One view: its definition, where its rows live and how current they are.
+     */
+    static final class View {
+        final String name;
+        final String sql;                          // as registered
+        final SqlNormalizer.NormalizedSql definition; // normalized like incoming statements
+        final String storageSql;                   // normalized with literals kept, for CREATE/INSERT
+        final Set<String> sources;
+        final String refresh;
+        final long intervalMs;
+        final long maxStaleMs;
+        final SummaryShape shape;                  // null unless it can answer other aggregates
+        final long createdAt;
+        final AtomicLong hits = new AtomicLong();
+        final AtomicLong refreshes = new AtomicLong();
+        final AtomicBoolean changePending = new AtomicBoolean();
+        // filled in from the stored table: per select item, its column, type and H2's label without an alias
+        volatile String[] columns;
+        volatile String[] types;
+        volatile String[] labels;
+        volatile Map<String, Long> versions;       // source versions the rows reflect; null until refreshed
+        volatile long refreshedAt;
+        volatile double refreshMillis;
+        volatile long rows;
+        volatile String error;
+        volatile ScheduledFuture<?> schedule;
+
+        View(String name, String sql, SqlNormalizer.NormalizedSql definition, String storageSql,
+             String refresh, long intervalMs, long maxStaleMs, long createdAt) {
+            this.name = name;
+            this.sql = sql;
+            this.definition = definition;
+            this.storageSql = storageSql;
+            this.sources = definition.getTables();
+            this.refresh = refresh;
+            this.intervalMs = intervalMs;
+            this.maxStaleMs = maxStaleMs;
+            SummaryShape s = SummaryShape.parse(definition.getText());
+            this.shape = s != null && s.where == null && s.having == null && s.order == null && s.tail == null ? s : null;
+            this.createdAt = createdAt;
+        }
+
+        /**
+         * Fully qualified storage table.
+         */
+        String table() {
+            return SCHEMA + '.' + quote(name);
+        }
+
+        boolean isCurrent(TableVersions tableVersions) {
+            Map<String, Long> v = versions;
+            return v != null && tableVersions.isCurrent(v);
+        }
+
+        boolean isUsable(TableVersions tableVersions, long now) {
+            return columns != null && (isCurrent(tableVersions)
+                    || (versions != null && maxStaleMs > 0 && now - refreshedAt <= maxStaleMs));
+        }
+    }
+
+    /**
+     * A statement answered from a view.
+     */
+    static final class Rewrite {
+        private final View view;
+        private final SqlNormalizer.NormalizedSql sql;
+
+        Rewrite(View view, SqlNormalizer.NormalizedSql sql) {
+            this.view = view;
+            this.sql = sql;
+        }
+
+        String view() {
+            return view.name;
+        }
+
+        SqlNormalizer.NormalizedSql sql() {
+            return sql;
+        }
+    }
+
+    private static final class Plan {
+        final View view;
+        final String text;
+
+        Plan(View view, String text) {
+            this.view = view;
+            this.text = text;
+        }
+    }
+
+    private final TableVersions tableVersions;
+    private final Map<String, View> views = new ConcurrentHashMap<>();
+    private final LruCache<String, Plan> plans;
+    // rebuilt whenever the views change
+    private volatile Map<Long, List<View>> byFingerprint = Collections.emptyMap();
+    private volatile Set<String> summaryTables = Collections.emptySet();
+
+    MaterializedViews(TableVersions tableVersions, int planCacheSize) {
+        this.tableVersions = tableVersions;
+        this.plans = new LruCache<>("view-rewrites", planCacheSize);
+    }
+
+    View get(String name) {
+        return views.get(name);
+    }
+
+    Collection<View> all() {
+        return views.values();
+    }
+
+    /**
+     * @return false if a view of that name is already registered
+     */
+    boolean add(View view) {
+        if (views.putIfAbsent(view.name, view) != null) {
+            return false;
+        }
+        reindex();
+        return true;
+    }
+
+    View remove(String name) {
+        View v = views.remove(name);
+        if (v != null) {
+            reindex();
+        }
+        return v;
+    }
+
+    private synchronized void reindex() {
+        Map<Long, List<View>> fp = new HashMap<>();
+        Set<String> tables = new HashSet<>();
+        for (View v : views.values()) {
+            fp.computeIfAbsent(v.definition.getFingerprint(), k -> new ArrayList<>()).add(v);
+            if (v.shape != null) {
+                tables.add(v.shape.table);
+            }
+        }
+        byFingerprint = fp;
+        summaryTables = tables;
+        plans.clear();
+    }
+
+    /**
+     * @return the statement rewritten to read from a current view, or null to run it as written
+     */
+    Rewrite rewrite(SqlNormalizer.NormalizedSql sql) {
+        if (views.isEmpty()) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        List<View> same = byFingerprint.get(sql.getFingerprint());
+        if (same != null) {
+            for (View v : same) {
+                if (v.definition.getText().equals(sql.getText()) && v.definition.getParams().equals(sql.getParams())
+                        && v.isUsable(tableVersions, now)) {
+                    v.hits.incrementAndGet();
+                    return new Rewrite(v, rewritten(sql, "SELECT * FROM " + v.table(), v));
+                }
+            }
+        }
+        if (sql.getTables().size() != 1 || !summaryTables.contains(sql.getTables().iterator().next())) {
+            return null;
+        }
+        Plan plan = plans.get(sql.getText());
+        if (plan == null) {
+            plan = plan(sql.getText());
+            plans.put(sql.getText(), plan);
+        }
+        if (plan.view == null || !plan.view.isUsable(tableVersions, now)) {
+            return null;
+        }
+        plan.view.hits.incrementAndGet();
+        return new Rewrite(plan.view, rewritten(sql, plan.text, plan.view));
+    }
+
+    private static SqlNormalizer.NormalizedSql rewritten(SqlNormalizer.NormalizedSql sql, String text, View v) {
+        return new SqlNormalizer.NormalizedSql(text, sql.getParams(),
+                Collections.singleton(TableVersions.canonical(v.name)), sql.getFingerprint());
+    }
+
+    /**
+     * Rewrite against the narrowest view that can answer the statement.
+     */
+    private Plan plan(String text) {
+        SummaryShape q = SummaryShape.parse(text);
+        if (q == null) {
+            return NO_PLAN;
+        }
+        Plan best = NO_PLAN;
+        int bestGroups = Integer.MAX_VALUE;
+        for (View v : views.values()) {
+            if (v.shape == null || v.columns == null || !v.shape.table.equals(q.table)
+                    || v.shape.groups.size() >= bestGroups) {
+                continue;
+            }
+            String rewritten = rewrite(q, v);
+            if (rewritten != null) {
+                best = new Plan(v, rewritten);
+                bestGroups = v.shape.groups.size();
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return the statement over the view's table, or null if the view cannot answer it
+     */
+    static String rewrite(SummaryShape q, View v) {
+        SummaryShape s = v.shape;
+        if (!s.groups.containsAll(q.groups)) {
+            return null;
+        }
+        // the same groups: one stored row per result row, so aggregates are read as they are
+        boolean rollUp = !new HashSet<>(q.groups).equals(new HashSet<>(s.groups));
+        StringBuilder sb = new StringBuilder(128).append("SELECT ");
+        for (int i = 0; i < q.items.size(); i++) {
+            SummaryShape.Item item = q.items.get(i);
+            if (i > 0) {
+                sb.append(", ");
+            }
+            if (item.isAggregate()) {
+                String expr = aggregate(v, item, rollUp);
+                String label = item.alias != null ? item.alias : naturalLabel(v, item);
+                if (expr == null || label == null) {
+                    return null;
+                }
+                sb.append(expr).append(" AS ").append(item.alias != null ? item.alias : quote(label));
+            } else {
+                String column = groupColumn(v, item.column);
+                sb.append(quote(column));
+                if (item.alias != null) {
+                    sb.append(" AS ").append(item.alias);
+                } else if (!column.equals(item.column)) {
+                    sb.append(" AS ").append(quote(item.column));
+                }
+            }
+        }
+        sb.append(" FROM ").append(v.table());
+        String where = q.where == null ? null : clause(q.where, q, v, rollUp, WHERE);
+        String having = q.having == null ? null : clause(q.having, q, v, rollUp, HAVING);
+        if ((q.where != null && where == null) || (q.having != null && having == null)) {
+            return null;
+        }
+        if (rollUp) {
+            if (where != null) {
+                sb.append(" WHERE ").append(where);
+            }
+            if (!q.groups.isEmpty()) {
+                sb.append(" GROUP BY ");
+                for (int i = 0; i < q.groups.size(); i++) {
+                    sb.append(i > 0 ? ", " : "").append(quote(groupColumn(v, q.groups.get(i))));
+                }
+            }
+            if (having != null) {
+                sb.append(" HAVING ").append(having);
+            }
+        } else if (where != null && having != null) {
+            // parameters of the WHERE come before those of the HAVING, as in the statement
+            sb.append(" WHERE (").append(where).append(") AND (").append(having).append(')');
+        } else if (where != null || having != null) {
+            sb.append(" WHERE ").append(where != null ? where : having);
+        }
+        if (q.order != null) {
+            String order = clause(q.order, q, v, rollUp, ORDER);
+            if (order == null) {
+                return null;
+            }
+            sb.append(" ORDER BY ").append(order);
+        }
+        if (q.tail != null) {
+            sb.append(' ').append(q.tail);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * The view's expression for an aggregate of the statement, cast back to the type the
+     * statement would have produced, or null if the view does not store what it needs.
+     */
+    private static String aggregate(View v, SummaryShape.Item item, boolean rollUp) {
+        String fn = item.function;
+        boolean minMax = fn.equals("MIN") || fn.equals("MAX");
+        if (minMax && v.shape.groups.contains(item.argument)) {
+            String column = quote(groupColumn(v, item.argument));
+            return rollUp ? fn + '(' + column + ')' : column;
+        }
+        int at = aggregateIndex(v, item.key());
+        if (at < 0) {
+            return null;
+        }
+        String column = quote(v.columns[at]);
+        if (!rollUp) {
+            return column;
+        }
+        if (minMax) {
+            return fn + '(' + column + ')';
+        }
+        if (fn.equals("COUNT")) {
+            return "CAST(COALESCE(SUM(" + column + "), 0) AS BIGINT)";
+        }
+        if (fn.equals("SUM")) {
+            return "CAST(SUM(" + column + ") AS " + v.types[at] + ')';
+        }
+        return null; // an average of averages is not the average
+    }
+
+    private static String naturalLabel(View v, SummaryShape.Item item) {
+        int at = aggregateIndex(v, item.key());
+        return at < 0 ? null : v.labels[at];
+    }
+
+    private static int aggregateIndex(View v, String key) {
+        for (int i = 0; i < v.shape.items.size(); i++) {
+            SummaryShape.Item it = v.shape.items.get(i);
+            if (it.isAggregate() && it.key().equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Stored column of a GROUP BY column of the view.
+     */
+    private static String groupColumn(View v, String column) {
+        for (int i = 0; i < v.shape.items.size(); i++) {
+            SummaryShape.Item it = v.shape.items.get(i);
+            if (!it.isAggregate() && it.column.equals(column)) {
+                return v.columns[i];
+            }
+        }
+        return column; // not selected by the view: CREATE TABLE AS failed before it got here
+    }
+
+    /**
+     * A WHERE, HAVING or ORDER BY body with its columns and aggregates pointed at the view,
+     * or null if it refers to anything the view does not have.
+     */
+    private static String clause(String body, SummaryShape q, View v, boolean rollUp, int kind) {
+        List<int[]> tokens = new ArrayList<>();
+        SqlLexer lx = new SqlLexer(body);
+        for (int type = lx.next(); type != SqlLexer.EOF; type = lx.next()) {
+            tokens.add(new int[]{type, lx.start(), lx.end()});
+        }
+        StringBuilder sb = new StringBuilder(body.length() + 32);
+        int copied = 0;
+        for (int i = 0; i < tokens.size(); i++) {
+            int[] t = tokens.get(i);
+            boolean call = i + 1 < tokens.size() && SummaryShape.isSymbol(body, tokens.get(i + 1), '(');
+            boolean qualified = (i + 1 < tokens.size() && SummaryShape.isSymbol(body, tokens.get(i + 1), '.'))
+                    || (i > 0 && SummaryShape.isSymbol(body, tokens.get(i - 1), '.'));
+            String replacement;
+            if (t[0] == SqlLexer.WORD && call && SummaryShape.keyword(body, t, SummaryShape.AGGREGATES) >= 0) {
+                if (kind == WHERE || i + 3 >= tokens.size() || !SummaryShape.isSymbol(body, tokens.get(i + 3), ')')) {
+                    return null;
+                }
+                SummaryShape shape = SummaryShape.parse("SELECT " + body.substring(t[1], tokens.get(i + 3)[2])
+                        + " FROM " + quote(q.table));
+                String expr = shape == null ? null : aggregate(v, shape.items.get(0), rollUp);
+                if (expr == null) {
+                    return null;
+                }
+                sb.append(body, copied, t[1]).append(expr);
+                copied = tokens.get(i + 3)[2];
+                i += 3;
+                continue;
+            } else if (t[0] == SqlLexer.WORD && (call || CLAUSE_WORDS.contains(SummaryShape.text(body, t)))) {
+                continue;
+            } else if (t[0] == SqlLexer.WORD || t[0] == SqlLexer.QUOTED) {
+                if (qualified) {
+                    return null;
+                }
+                String name = TableVersions.canonical(SummaryShape.text(body, t));
+                if (kind == ORDER && isAlias(q, name)) {
+                    continue;
+                }
+                List<String> allowed = kind == WHERE ? v.shape.groups : q.groups;
+                if (!allowed.contains(name)) {
+                    return null;
+                }
+                replacement = quote(groupColumn(v, name));
+            } else {
+                continue;
+            }
+            sb.append(body, copied, t[1]).append(replacement);
+            copied = t[2];
+        }
+        return sb.append(body, copied, body.length()).toString();
+    }
+
+    private static boolean isAlias(SummaryShape q, String name) {
+        for (SummaryShape.Item item : q.items) {
+            if (name.equals(item.aliasName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static String quote(String identifier) {
+        return '"' + identifier.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.StreamReadConstraints;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Newline-delimited JSON reader: one flat object per record, read token by token.
+ * The first object's keys are the columns; later objects may omit keys (null) but
+ * not add new ones. Numbers, booleans and strings keep their JSON type; nested
+ * objects and arrays are imported as their JSON text.
+ */
+final class NdjsonRecordReader implements RecordReader {
+    private final JsonParser parser;
+    private final int maxRecordChars;
+    private final int maxColumns;
+    private final Map<String, Integer> index = new HashMap<>();
+    private List<String> columns;
+    private Object[] pending; // the first record, read while finding the columns
+    private long recordNumber;
+
+    NdjsonRecordReader(Reader in, ObjectMapper mapper, int maxRecordChars, int maxColumns) throws IOException {
+        JsonFactory factory = JsonFactory.builder()
+                .streamReadConstraints(StreamReadConstraints.builder().maxStringLength(maxRecordChars).build())
+                .build();
+        factory.setCodec(mapper);
+        this.parser = factory.createParser(in);
+        this.maxRecordChars = maxRecordChars;
+        this.maxColumns = maxColumns;
+    }
+
+    @Override
+    public List<String> columns() throws IOException {
+        if (columns == null) {
+            List<String> names = new ArrayList<>();
+            List<Object> values = new ArrayList<>();
+            if (!startRecord()) {
+                throw new IllegalArgumentException("NDJSON input is empty");
+            }
+            long start = parser.currentLocation().getCharOffset();
+            for (JsonToken t = parser.nextToken(); t != JsonToken.END_OBJECT; t = parser.nextToken()) {
+                String name = parser.currentName();
+                if (index.putIfAbsent(name, names.size()) != null) {
+                    throw new IllegalArgumentException("Record 1 repeats the field '" + name + "'");
+                }
+                if (names.size() == maxColumns) {
+                    throw new IllegalArgumentException("Record 1 has more than " + maxColumns + " fields");
+                }
+                parser.nextToken();
+                names.add(name);
+                values.add(value());
+            }
+            checkSize(start, 1);
+            columns = Collections.unmodifiableList(names);
+            pending = values.toArray();
+        }
+        return columns;
+    }
+
+    @Override
+    public Object[] next() throws IOException {
+        columns();
+        if (pending != null) {
+            Object[] first = pending;
+            pending = null;
+            recordNumber = 1;
+            return first;
+        }
+        if (!startRecord()) {
+            return null;
+        }
+        long number = ++recordNumber;
+        long start = parser.currentLocation().getCharOffset();
+        Object[] record = new Object[columns.size()];
+        for (JsonToken t = parser.nextToken(); t != JsonToken.END_OBJECT; t = parser.nextToken()) {
+            Integer i = index.get(parser.currentName());
+            if (i == null) {
+                throw new IllegalArgumentException("Record " + number + " has the field '" + parser.currentName()
+                        + "', which the first record does not");
+            }
+            parser.nextToken();
+            record[i] = value();
+        }
+        checkSize(start, number);
+        return record;
+    }
+
+    @Override
+    public long recordNumber() {
+        return recordNumber;
+    }
+
+    @Override
+    public void close() throws IOException {
+        parser.close();
+    }
+
+    private boolean startRecord() throws IOException {
+        JsonToken t = parser.nextToken();
+        if (t == null) {
+            return false;
+        }
+        if (t != JsonToken.START_OBJECT) {
+            throw new IllegalArgumentException("Record " + (recordNumber + 1) + " is not a JSON object");
+        }
+        return true;
+    }
+
+    private Object value() throws IOException {
+        switch (parser.currentToken()) {
+            case VALUE_NULL:
+                return null;
+            case VALUE_TRUE:
+                return Boolean.TRUE;
+            case VALUE_FALSE:
+                return Boolean.FALSE;
+            case VALUE_NUMBER_INT:
+                return parser.getNumberType() == JsonParser.NumberType.BIG_INTEGER
+                        ? parser.getDecimalValue() : (Object) parser.getLongValue();
+            case VALUE_NUMBER_FLOAT:
+                return parser.getDecimalValue();
+            case START_OBJECT:
+            case START_ARRAY:
+                return parser.readValueAsTree().toString();
+            default:
+                return parser.getText();
+        }
+    }
+
+    private void checkSize(long start, long number) {
+        if (parser.currentLocation().getCharOffset() - start > maxRecordChars) {
+            throw new IllegalArgumentException("Record " + number + " is longer than " + maxRecordChars + " characters");
+        }
+    }
+}
@@ -0,0 +1,745 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Rule-based NL-to-SQL translator compiled from intent rules and a {@link NlSchemaIndex}.
+ * <p>
+ * A rule reads {@code name: pattern => template}. The pattern lists elements that
+ * must appear in this order, with any words in between: literal words
+ * ({@code top|highest}, alternatives separated by '|') and slots:
+ * <ul>
+ *   <li>{@code {table}}: a table name, singular or plural;</li>
+ *   <li>{@code {measure}}: a numeric, non-key column;</li>
+ *   <li>{@code {column}}: any column;</li>
+ *   <li>{@code {value}}: a learned value of a text column, e.g. a department;</li>
+ *   <li>{@code {text}}: the rest of the input (last element only).</li>
+ * </ul>
+ * Slots after the first are confined to the table the first one named. An empty
+ * pattern always matches. Template placeholders are {@code {table}},
+ * {@code {measure}}, {@code {column}}, {@code {owner}} (the table whose ID the
+ * table's OWNER_ID holds), {@code {category}} (its column with the fewest learned
+ * values), {@code {default}} (the configured default table), {@code {where}}
+ * (" WHERE ..." over every learned value in the input that belongs to the table,
+ * else nothing), {@code {text}}, {@code {text:title}}, {@code {text:contains}} (a
+ * LIKE pattern), {@code {text:title-contains}} and {@code {limit:N}} (the first
+ * number in the input, else N). {@code :name} on an identifier gives a bare
+ * lower-case name for aliases; {@code :alias} on {@code {table}} or {@code {owner}}
+ * gives a table alias, the first letter of the name.
+ * Identifiers are written into the statement; text, values and limits become
+ * {@code ?} parameters of the {@link NlTranslation}.
+ * <p>
+ * At build time the literal words of all rules and the names of all tables,
+ * columns and learned values go into one phrase trie, and every entry lists the
+ * (rule, element) pairs waiting for it. A translation tokenizes the input once,
+ * takes the longest phrase at each position and advances exactly the rules that
+ * are waiting for it, so the cost is one pass over the input whatever the rule
+ * count. The first complete rule, in declared order, whose template can be filled wins.
+ */
+final class NlEngine {
+
+    static final List<String> DEFAULT_RULES = List.of(
+            "top: top|highest|largest|biggest|best {measure} => SELECT * FROM {table}{where} ORDER BY {measure} DESC LIMIT {limit:10}",
+            "bottom: lowest|smallest|bottom|least {measure} => SELECT * FROM {table}{where} ORDER BY {measure} ASC LIMIT {limit:10}",
+            "average-by: average|avg|mean {measure} by|per|each {column} => SELECT {column}, AVG({measure}) AS avg_{measure:name} FROM {table}{where} GROUP BY {column} ORDER BY {column}",
+            "average: average|avg|mean {measure} => SELECT AVG({measure}) AS avg_{measure:name} FROM {table}{where}",
+            "sum-by: total|sum {measure} by|per|each {column} => SELECT {column}, SUM({measure}) AS total_{measure:name} FROM {table}{where} GROUP BY {column} ORDER BY {column}",
+            "sum: total|sum {measure} => SELECT SUM({measure}) AS total_{measure:name} FROM {table}{where}",
+            "count-by: count|many|number|total {table} by|per|each {column} => SELECT {column}, COUNT(*) AS total FROM {table}{where} GROUP BY {column} ORDER BY {column}",
+            "count: count|many|number|total {table} => SELECT COUNT(*) AS total_{table:name} FROM {table}{where}",
+            "owned-by: {table} owned by {text} => SELECT {table:alias}.* FROM {table} {table:alias} JOIN {owner} {owner:alias} ON {table:alias}.owner_id = {owner:alias}.id WHERE {owner:alias}.name LIKE {text:title-contains}",
+            "filter: {value} => SELECT * FROM {table}{where} LIMIT {limit:100}",
+            "filter-in: {table} in {text} => SELECT * FROM {table} WHERE {category} = {text:title} LIMIT {limit:100}",
+            "list: {table} => SELECT * FROM {table} LIMIT {limit:50}",
+            "fallback: => SELECT * FROM {default} LIMIT {limit:50}");
+
+    private static final int LITERAL = 0, TABLE = 1, MEASURE = 2, COLUMN = 3, VALUE = 4, TEXT = 5;
+    private static final String[] SLOT_NAMES = {null, "table", "measure", "column", "value", "text"};
+    private static final Set<String> PLACEHOLDERS = Set.of(
+            "table", "measure", "column", "owner", "category", "default", "where", "text", "limit");
+    private static final Set<String> RESERVED = Set.of("ALL", "AND", "AS", "BY", "FROM", "GROUP", "KEY",
+            "LIMIT", "NOT", "NULL", "OR", "ORDER", "SELECT", "TABLE", "TO", "USER", "VALUE", "VALUES", "WHERE");
+    private static final int MAX_ELEMENTS = 255;
+
+    static final class Rule {
+        final String name;
+        final int[] kinds;
+        final String[][] words;   // alternatives of each LITERAL element, null for slots
+        final Object[] template;  // String or Placeholder parts
+
+        private Rule(String name, int[] kinds, String[][] words, Object[] template) {
+            this.name = name;
+            this.kinds = kinds;
+            this.words = words;
+            this.template = template;
+        }
+    }
+
+    private static final class Placeholder {
+        final String name;
+        final String modifier; // null, "name", "alias", "title", "contains", "title-contains" or the default limit
+
+        Placeholder(String name, String modifier) {
+            this.name = name;
+            this.modifier = modifier;
+        }
+    }
+
+    private static final class Entity {
+        final int kind; // TABLE, COLUMN or VALUE
+        final NlSchemaIndex.Table table;
+        final NlSchemaIndex.Column column;
+        final String value;
+
+        Entity(int kind, NlSchemaIndex.Table table, NlSchemaIndex.Column column, String value) {
+            this.kind = kind;
+            this.table = table;
+            this.column = column;
+            this.value = value;
+        }
+    }
+
+    private static final class Node {
+        Map<String, Node> next;
+        int[] waiting;          // packed rule << 8 | element, for literal words
+        List<Entity> entities;
+
+        Node child(String word) {
+            return next == null ? null : next.get(word);
+        }
+
+        Node add(String word) {
+            if (next == null) {
+                next = new HashMap<>(4);
+            }
+            return next.computeIfAbsent(word, w -> new Node());
+        }
+
+        boolean terminal() {
+            return waiting != null || entities != null;
+        }
+    }
+
+    /**
+     * Progress of one rule through the input.
+     */
+    private static final class Match {
+        int next;
+        int lastSymbol = -1;
+        int textFrom = -1;
+        NlSchemaIndex.Table table;
+        NlSchemaIndex.Column measure;
+        NlSchemaIndex.Column column;
+
+        boolean bind(int kind, Entity e) {
+            if (table != null && e.table != table) {
+                return false;
+            }
+            switch (kind) {
+                case TABLE:
+                    if (e.kind != TABLE) return false;
+                    break;
+                case MEASURE:
+                    if (e.kind != COLUMN || !e.column.numeric || e.column.key) return false;
+                    measure = e.column;
+                    break;
+                case COLUMN:
+                    if (e.kind != COLUMN) return false;
+                    column = e.column;
+                    break;
+                case VALUE:
+                    if (e.kind != VALUE) return false;
+                    break;
+                default:
+                    return false;
+            }
+            table = e.table;
+            return true;
+        }
+    }
+
+    private final Rule[] rules;
+    private final Node root = new Node();
+    private final int[][] slotWaiting = new int[TEXT][];
+    private final NlSchemaIndex index;
+    private final String defaultTable;
+    private final int maxLimit;
+
+    /**
+     * @param defaultTable table for {@code {default}}, looked up in the index case-insensitively
+     * @param maxLimit cap for {@code {limit}} values taken from the input
+     */
+    NlEngine(List<Rule> rules, NlSchemaIndex index, String defaultTable, int maxLimit) {
+        this.rules = rules.toArray(new Rule[0]);
+        this.index = index;
+        this.defaultTable = defaultTable;
+        this.maxLimit = Math.max(1, maxLimit);
+
+        Map<Node, List<Integer>> literalWaiting = new LinkedHashMap<>();
+        List<List<Integer>> slots = new ArrayList<>();
+        for (int k = 0; k < TEXT; k++) {
+            slots.add(new ArrayList<>());
+        }
+        for (int r = 0; r < this.rules.length; r++) {
+            Rule rule = this.rules[r];
+            for (int e = 0; e < rule.kinds.length; e++) {
+                int packed = r << 8 | e;
+                if (rule.kinds[e] == LITERAL) {
+                    for (String w : rule.words[e]) {
+                        literalWaiting.computeIfAbsent(root.add(w), n -> new ArrayList<>()).add(packed);
+                    }
+                } else if (rule.kinds[e] != TEXT) {
+                    slots.get(rule.kinds[e]).add(packed);
+                }
+            }
+        }
+        literalWaiting.forEach((node, packed) -> node.waiting = toArray(packed));
+        for (int k = 0; k < TEXT; k++) {
+            slotWaiting[k] = toArray(slots.get(k));
+        }
+
+        for (NlSchemaIndex.Table t : index.tables()) {
+            Entity te = new Entity(TABLE, t, null, null);
+            for (String form : nameForms(t.name)) {
+                addPhrase(form, te);
+            }
+            for (NlSchemaIndex.Column c : t.columns) {
+                Entity ce = new Entity(COLUMN, t, c, null);
+                for (String form : nameForms(c.name)) {
+                    addPhrase(form, ce);
+                }
+                for (String v : c.values) {
+                    addPhrase(v.toLowerCase(Locale.ROOT), new Entity(VALUE, t, c, v));
+                }
+            }
+        }
+    }
+
+    /**
+     * Parses rules, one per line; blank lines and lines starting with '#' are skipped.
+     * @throws IllegalArgumentException naming the first malformed rule
+     */
+    static List<Rule> parseRules(List<String> lines) {
+        List<Rule> out = new ArrayList<>();
+        for (String raw : lines) {
+            String line = raw.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            try {
+                out.add(parseRule(line));
+            } catch (IllegalArgumentException ex) {
+                throw new IllegalArgumentException("Invalid NL rule '" + line + "': " + ex.getMessage());
+            }
+        }
+        return out;
+    }
+
+    private static Rule parseRule(String line) {
+        int colon = line.indexOf(':');
+        int arrow = line.indexOf("=>");
+        if (colon <= 0 || arrow < colon) {
+            throw new IllegalArgumentException("expected 'name: pattern => template'");
+        }
+        String[] elements = line.substring(colon + 1, arrow).trim().split("\\s+");
+        if (elements.length == 1 && elements[0].isEmpty()) {
+            elements = new String[0];
+        }
+        if (elements.length > MAX_ELEMENTS) {
+            throw new IllegalArgumentException("more than " + MAX_ELEMENTS + " pattern elements");
+        }
+        int[] kinds = new int[elements.length];
+        String[][] words = new String[elements.length][];
+        Set<Integer> bound = new HashSet<>();
+        for (int i = 0; i < elements.length; i++) {
+            String el = elements[i];
+            if (el.startsWith("{") && el.endsWith("}")) {
+                int kind = Arrays.asList(SLOT_NAMES).indexOf(el.substring(1, el.length() - 1));
+                if (kind <= LITERAL) {
+                    throw new IllegalArgumentException("unknown slot " + el);
+                }
+                if (kind == TEXT && i != elements.length - 1) {
+                    throw new IllegalArgumentException("{text} must be the last element");
+                }
+                kinds[i] = kind;
+                bound.add(kind);
+            } else {
+                words[i] = el.toLowerCase(Locale.ROOT).split("\\|");
+                for (String w : words[i]) {
+                    if (w.isEmpty() || !isWord(w)) {
+                        throw new IllegalArgumentException("bad literal " + el);
+                    }
+                }
+            }
+        }
+        Object[] template = parseTemplate(line.substring(arrow + 2).trim(), bound);
+        return new Rule(line.substring(0, colon).trim(), kinds, words, template);
+    }
+
+    private static Object[] parseTemplate(String template, Set<Integer> bound) {
+        if (template.isEmpty()) {
+            throw new IllegalArgumentException("empty template");
+        }
+        List<Object> parts = new ArrayList<>();
+        int pos = 0;
+        while (pos < template.length()) {
+            int open = template.indexOf('{', pos);
+            String text = template.substring(pos, open < 0 ? template.length() : open);
+            if (text.indexOf('?') >= 0) {
+                throw new IllegalArgumentException("'?' outside a placeholder");
+            }
+            if (!text.isEmpty()) {
+                parts.add(text);
+            }
+            if (open < 0) {
+                break;
+            }
+            int close = template.indexOf('}', open);
+            if (close < 0) {
+                throw new IllegalArgumentException("unclosed placeholder");
+            }
+            String body = template.substring(open + 1, close);
+            int sep = body.indexOf(':');
+            String name = sep < 0 ? body : body.substring(0, sep);
+            String modifier = sep < 0 ? null : body.substring(sep + 1);
+            if (!PLACEHOLDERS.contains(name)) {
+                throw new IllegalArgumentException("unknown placeholder {" + body + "}");
+            }
+            boolean tableBound = bound.contains(TABLE) || bound.contains(MEASURE)
+                    || bound.contains(COLUMN) || bound.contains(VALUE);
+            if ((name.equals("measure") && !bound.contains(MEASURE))
+                    || (name.equals("column") && !bound.contains(COLUMN))
+                    || (name.equals("text") && !bound.contains(TEXT))
+                    || (!tableBound && (name.equals("table") || name.equals("owner") || name.equals("category")))) {
+                throw new IllegalArgumentException("{" + name + "} is not bound by the pattern");
+            }
+            if (name.equals("limit")) {
+                try {
+                    Integer.parseInt(modifier);
+                } catch (NumberFormatException ex) {
+                    throw new IllegalArgumentException("{limit:N} needs a default number");
+                }
+            }
+            parts.add(new Placeholder(name, modifier));
+            pos = close + 1;
+        }
+        return parts.toArray();
+    }
+
+    /**
+     * Translates the text, or returns null if no rule matched (never the case with a
+     * {@code fallback} rule, whose pattern is empty).
+     */
+    NlTranslation translate(String text) {
+        Tokens tokens = Tokens.of(text);
+        Match[] matches = new Match[rules.length];
+        for (int r = 0; r < rules.length; r++) {
+            matches[r] = new Match();
+            if (rules[r].kinds.length > 0 && rules[r].kinds[0] == TEXT) {
+                matches[r].textFrom = 0;
+            }
+        }
+        List<Entity> values = null;
+        int number = -1;
+        int symbol = 0;
+        for (int i = 0; i < tokens.count; symbol++) {
+            Node node = root;
+            Node found = null;
+            int foundEnd = i;
+            for (int j = i; j < tokens.count && (node = node.child(tokens.words[j])) != null; j++) {
+                if (node.terminal()) {
+                    found = node;
+                    foundEnd = j + 1;
+                }
+            }
+            if (found == null) {
+                if (number < 0 && tokens.numeric(i)) {
+                    number = tokens.number(i);
+                }
+                i++;
+                continue;
+            }
+            int end = tokens.ends[foundEnd - 1];
+            if (found.waiting != null) {
+                offer(matches, found.waiting, symbol, null, end);
+            }
+            if (found.entities != null) {
+                for (Entity e : found.entities) {
+                    if (e.kind == COLUMN) {
+                        offer(matches, slotWaiting[MEASURE], symbol, e, end);
+                    }
+                    offer(matches, slotWaiting[e.kind], symbol, e, end);
+                    if (e.kind == VALUE) {
+                        if (values == null) {
+                            values = new ArrayList<>(2);
+                        }
+                        values.add(e);
+                    }
+                }
+            }
+            i = foundEnd;
+        }
+
+        for (int r = 0; r < rules.length; r++) {
+            Rule rule = rules[r];
+            Match m = matches[r];
+            String rest = null;
+            if (m.next == rule.kinds.length - 1 && rule.kinds[m.next] == TEXT && m.textFrom >= 0) {
+                rest = trimPunctuation(text.substring(m.textFrom));
+                if (rest.isEmpty()) {
+                    continue;
+                }
+            } else if (m.next != rule.kinds.length) {
+                continue;
+            }
+            NlTranslation t = render(rule, m, rest, values, number);
+            if (t != null) {
+                return t;
+            }
+        }
+        return null;
+    }
+
+    private void offer(Match[] matches, int[] waiting, int symbol, Entity e, int end) {
+        for (int packed : waiting) {
+            int r = packed >>> 8;
+            int el = packed & 0xFF;
+            Match m = matches[r];
+            if (m.next != el || m.lastSymbol == symbol) {
+                continue;
+            }
+            if (e != null && !m.bind(rules[r].kinds[el], e)) {
+                continue;
+            }
+            m.next++;
+            m.lastSymbol = symbol;
+            int[] kinds = rules[r].kinds;
+            if (m.next < kinds.length && kinds[m.next] == TEXT) {
+                m.textFrom = end;
+            }
+        }
+    }
+
+    /**
+     * Statement text with parameter values and the offset of each placeholder.
+     */
+    private static final class Builder {
+        final StringBuilder sql = new StringBuilder(96);
+        final List<Object> params = new ArrayList<>(2);
+        int[] placeholders = new int[4];
+
+        void param(Object value) {
+            if (params.size() == placeholders.length) {
+                placeholders = Arrays.copyOf(placeholders, placeholders.length * 2);
+            }
+            placeholders[params.size()] = sql.length();
+            params.add(value);
+            sql.append('?');
+        }
+    }
+
+    /**
+     * @return null if a placeholder cannot be filled for this match
+     */
+    private NlTranslation render(Rule rule, Match m, String text, List<Entity> values, int number) {
+        Builder b = new Builder();
+        for (Object part : rule.template) {
+            if (part instanceof String) {
+                b.sql.append((String) part);
+                continue;
+            }
+            Placeholder p = (Placeholder) part;
+            switch (p.name) {
+                case "table":
+                    if (m.table == null) return null;
+                    b.sql.append("alias".equals(p.modifier) ? alias(m.table, null) : identifier(m.table.name, p.modifier));
+                    break;
+                case "measure":
+                    b.sql.append(identifier(m.measure.name, p.modifier));
+                    break;
+                case "column":
+                    b.sql.append(identifier(m.column.name, p.modifier));
+                    break;
+                case "owner": {
+                    NlSchemaIndex.Table owner = owner(m.table);
+                    if (owner == null) return null;
+                    b.sql.append("alias".equals(p.modifier) ? alias(owner, m.table) : identifier(owner.name, p.modifier));
+                    break;
+                }
+                case "category": {
+                    NlSchemaIndex.Column category = m.table == null ? null : m.table.category();
+                    if (category == null) return null;
+                    b.sql.append(identifier(category.name, p.modifier));
+                    break;
+                }
+                case "default": {
+                    NlSchemaIndex.Table t = index.table(defaultTable.toUpperCase(Locale.ROOT));
+                    b.sql.append(identifier(t != null ? t.name : defaultTable.toUpperCase(Locale.ROOT), p.modifier));
+                    break;
+                }
+                case "where":
+                    where(b, m.table, values);
+                    break;
+                case "text":
+                    b.param("title".equals(p.modifier) ? titleCase(text)
+                            : "contains".equals(p.modifier) ? '%' + escapeLike(text) + '%'
+                            : "title-contains".equals(p.modifier) ? '%' + escapeLike(titleCase(text)) + '%'
+                            : text);
+                    break;
+                case "limit":
+                    b.param(Math.min(number > 0 ? number : Integer.parseInt(p.modifier), maxLimit));
+                    break;
+                default:
+                    return null;
+            }
+        }
+        return new NlTranslation(rule.name, b.sql.toString(),
+                Arrays.copyOf(b.placeholders, b.params.size()), b.params);
+    }
+
+    /**
+     * Appends " WHERE col = ? AND other IN (?, ?)" for the learned values that belong to
+     * the table, grouped by column in the order they appeared; nothing if there are none.
+     */
+    private static void where(Builder b, NlSchemaIndex.Table table, List<Entity> values) {
+        if (table == null || values == null) {
+            return;
+        }
+        Map<NlSchemaIndex.Column, Set<String>> byColumn = new LinkedHashMap<>();
+        for (Entity v : values) {
+            if (v.table == table) {
+                byColumn.computeIfAbsent(v.column, c -> new LinkedHashSet<>()).add(v.value);
+            }
+        }
+        String sep = " WHERE ";
+        for (Map.Entry<NlSchemaIndex.Column, Set<String>> e : byColumn.entrySet()) {
+            b.sql.append(sep).append(identifier(e.getKey().name, null));
+            if (e.getValue().size() == 1) {
+                b.sql.append(" = ");
+                b.param(e.getValue().iterator().next());
+            } else {
+                String inSep = " IN (";
+                for (String v : e.getValue()) {
+                    b.sql.append(inSep);
+                    b.param(v);
+                    inSep = ", ";
+                }
+                b.sql.append(')');
+            }
+            sep = " AND ";
+        }
+    }
+
+    /**
+     * Table referenced by {@code table.OWNER_ID}: another table with ID and NAME columns.
+     */
+    private NlSchemaIndex.Table owner(NlSchemaIndex.Table table) {
+        if (table == null || !hasColumn(table, "OWNER_ID")) {
+            return null;
+        }
+        for (NlSchemaIndex.Table t : index.tables()) {
+            if (t != table && hasColumn(t, "ID") && hasColumn(t, "NAME")) {
+                return t;
+            }
+        }
+        return null;
+    }
+
+    private static boolean hasColumn(NlSchemaIndex.Table table, String name) {
+        for (NlSchemaIndex.Column c : table.columns) {
+            if (c.name.equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void addPhrase(String phrase, Entity entity) {
+        Tokens tokens = Tokens.of(phrase);
+        if (tokens.count == 0) {
+            return;
+        }
+        boolean allNumeric = true;
+        for (int i = 0; i < tokens.count && allNumeric; i++) {
+            allNumeric = tokens.numeric(i);
+        }
+        if (allNumeric && entity.kind == VALUE) {
+            return; // would shadow the numbers read as limits
+        }
+        Node node = root;
+        for (int i = 0; i < tokens.count; i++) {
+            node = node.add(tokens.words[i]);
+        }
+        if (node.entities == null) {
+            node.entities = new ArrayList<>(1);
+        }
+        for (Entity e : node.entities) {
+            if (e.kind == entity.kind && e.table == entity.table && e.column == entity.column) {
+                return;
+            }
+        }
+        node.entities.add(entity);
+    }
+
+    /**
+     * Ways a table or column may be written: as stored, with spaces for underscores,
+     * and with the last word made singular or plural.
+     */
+    private static Set<String> nameForms(String name) {
+        String lower = name.toLowerCase(Locale.ROOT);
+        Set<String> forms = new LinkedHashSet<>();
+        for (String base : new String[]{lower, lower.replace('_', ' ')}) {
+            forms.add(base);
+            if (base.endsWith("ies")) {
+                forms.add(base.substring(0, base.length() - 3) + 'y');
+            } else if (base.endsWith("s") && !base.endsWith("ss")) {
+                forms.add(base.substring(0, base.length() - 1));
+            } else if (base.endsWith("y") && base.length() > 1 && "aeiou".indexOf(base.charAt(base.length() - 2)) < 0) {
+                forms.add(base.substring(0, base.length() - 1) + "ies");
+            } else if (base.endsWith("x") || base.endsWith("ch") || base.endsWith("sh") || base.endsWith("ss")) {
+                forms.add(base + "es");
+            } else {
+                forms.add(base + 's');
+            }
+        }
+        return forms;
+    }
+
+    /**
+     * Lower-case bare name for plain identifiers (as H2 folds them), quoted otherwise;
+     * with {@code :name}, a bare word usable inside an alias.
+     */
+    private static String identifier(String name, String modifier) {
+        boolean plain = !name.isEmpty() && !Character.isDigit(name.charAt(0)) && !RESERVED.contains(name);
+        for (int i = 0; i < name.length() && plain; i++) {
+            char c = name.charAt(i);
+            plain = (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+        }
+        if ("name".equals(modifier)) {
+            StringBuilder sb = new StringBuilder(name.length());
+            for (int i = 0; i < name.length(); i++) {
+                char c = Character.toLowerCase(name.charAt(i));
+                sb.append((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') ? c : '_');
+            }
+            return sb.toString();
+        }
+        return plain ? name.toLowerCase(Locale.ROOT) : '"' + name.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * First letter of the table's name as an alias, with a 2 appended when it would
+     * clash with the alias of {@code other} (the table already aliased in the statement).
+     */
+    private static String alias(NlSchemaIndex.Table table, NlSchemaIndex.Table other) {
+        char first = identifier(table.name, "name").charAt(0);
+        String alias = first >= 'a' && first <= 'z' ? String.valueOf(first) : "t";
+        return other != null && alias.equals(alias(other, null)) ? alias + '2' : alias;
+    }
+
+    private static String titleCase(String s) {
+        StringBuilder sb = new StringBuilder(s.length());
+        boolean start = true;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            sb.append(start ? Character.toUpperCase(c) : c);
+            start = Character.isWhitespace(c);
+        }
+        return sb.toString();
+    }
+
+    private static String escapeLike(String s) {
+        return s.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    private static String trimPunctuation(String s) {
+        int from = 0, to = s.length();
+        while (from < to && !Character.isLetterOrDigit(s.charAt(from))) from++;
+        while (to > from && !Character.isLetterOrDigit(s.charAt(to - 1))) to--;
+        return s.substring(from, to);
+    }
+
+    private static boolean isWord(String w) {
+        for (int i = 0; i < w.length(); i++) {
+            if (!isWordChar(w.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+
+    private static int[] toArray(List<Integer> values) {
+        int[] out = new int[values.size()];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = values.get(i);
+        }
+        return out;
+    }
+
+    int ruleCount() {
+        return rules.length;
+    }
+
+    /**
+     * Lower-cased words of a text with their end offsets, read in one pass.
+     */
+    private static final class Tokens {
+        String[] words = new String[8];
+        int[] ends = new int[8];
+        int count;
+
+        static Tokens of(String text) {
+            Tokens t = new Tokens();
+            int len = text.length();
+            int i = 0;
+            while (i < len) {
+                while (i < len && !isWordChar(text.charAt(i))) i++;
+                int start = i;
+                while (i < len && isWordChar(text.charAt(i))) i++;
+                if (i > start) {
+                    if (t.count == t.words.length) {
+                        t.words = Arrays.copyOf(t.words, t.count * 2);
+                        t.ends = Arrays.copyOf(t.ends, t.count * 2);
+                    }
+                    t.words[t.count] = text.substring(start, i).toLowerCase(Locale.ROOT);
+                    t.ends[t.count++] = i;
+                }
+            }
+            return t;
+        }
+
+        boolean numeric(int i) {
+            String w = words[i];
+            for (int k = 0; k < w.length(); k++) {
+                if (w.charAt(k) < '0' || w.charAt(k) > '9') {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * The word as a number, saturating instead of overflowing.
+         */
+        int number(int i) {
+            String w = words[i];
+            return w.length() > 9 ? Integer.MAX_VALUE : Integer.parseInt(w);
+        }
+    }
+}
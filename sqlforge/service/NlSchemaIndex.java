@@ -0,0 +1,173 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.service;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable snapshot of what the NL-to-SQL engine may name: the tables of the
+ * {@code PUBLIC} schema, their columns, and the distinct values of short text
+ * columns (department names and the like) in tables small enough to scan.
+ * {@link QueryService} reloads it periodically and rebuilds its engine from it.
+ */
+final class NlSchemaIndex {
+
+    static final class Table {
+        final String name;
+        final long rows;
+        final List<Column> columns = new ArrayList<>();
+
+        Table(String name, long rows) {
+            this.name = name;
+            this.rows = rows;
+        }
+
+        /**
+         * First numeric column that is not a key: what "top", "average" and the like measure.
+         */
+        Column defaultMeasure() {
+            for (Column c : columns) {
+                if (c.numeric && !c.key) {
+                    return c;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Column with the fewest learned values (DEPT rather than NAME): what
+         * "in &lt;something&gt;" filters on when the something is not a known value.
+         */
+        Column category() {
+            Column best = null;
+            for (Column c : columns) {
+                if (!c.values.isEmpty() && (best == null || c.values.size() < best.values.size())) {
+                    best = c;
+                }
+            }
+            return best;
+        }
+    }
+
+    static final class Column {
+        final Table table;
+        final String name;
+        final boolean numeric;
+        final boolean text;
+        final boolean key;
+        final List<String> values = new ArrayList<>();
+
+        Column(Table table, String name, String dataType) {
+            this.table = table;
+            this.name = name;
+            this.numeric = NUMERIC_TYPES.contains(dataType);
+            this.text = dataType != null && dataType.startsWith("CHARACTER");
+            this.key = name.equals("ID") || name.endsWith("_ID");
+        }
+    }
+
+    private static final Set<String> NUMERIC_TYPES = Set.of("TINYINT", "SMALLINT", "INTEGER", "BIGINT",
+            "NUMERIC", "DECIMAL", "DECFLOAT", "REAL", "DOUBLE PRECISION");
+    private static final int MAX_VALUE_CHARS = 64;
+    private static final int SCAN_TIMEOUT_SECONDS = 5;
+
+    private static final String TABLES_SQL = "SELECT TABLE_NAME, ROW_COUNT_ESTIMATE FROM INFORMATION_SCHEMA.TABLES "
+            + "WHERE TABLE_SCHEMA = 'PUBLIC' AND TABLE_TYPE = 'BASE TABLE' ORDER BY TABLE_NAME";
+    private static final String COLUMNS_SQL = "SELECT TABLE_NAME, COLUMN_NAME, DATA_TYPE FROM INFORMATION_SCHEMA.COLUMNS "
+            + "WHERE TABLE_SCHEMA = 'PUBLIC' ORDER BY TABLE_NAME, ORDINAL_POSITION";
+
+    private final Map<String, Table> tables; // canonical name, in name order
+    private final long loadedAt;
+
+    private NlSchemaIndex(Map<String, Table> tables, long loadedAt) {
+        this.tables = tables;
+        this.loadedAt = loadedAt;
+    }
+
+    static NlSchemaIndex empty() {
+        return new NlSchemaIndex(Collections.emptyMap(), 0);
+    }
+
+    /**
+     * @param maxValues text columns with more distinct values than this are not learned
+     * @param maxScanRows tables estimated larger than this are not scanned for values
+     */
+    static NlSchemaIndex load(Connection c, int maxValues, long maxScanRows) throws SQLException {
+        Map<String, Table> tables = new LinkedHashMap<>();
+        try (PreparedStatement ps = c.prepareStatement(TABLES_SQL); ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                tables.put(rs.getString(1), new Table(rs.getString(1), Math.max(0, rs.getLong(2))));
+            }
+        }
+        try (PreparedStatement ps = c.prepareStatement(COLUMNS_SQL); ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                Table t = tables.get(rs.getString(1));
+                if (t != null) {
+                    t.columns.add(new Column(t, rs.getString(2), rs.getString(3)));
+                }
+            }
+        }
+        for (Table t : tables.values()) {
+            if (t.rows > maxScanRows) {
+                continue;
+            }
+            for (Column col : t.columns) {
+                if (col.text && !col.key) {
+                    learnValues(c, col, maxValues);
+                }
+            }
+        }
+        return new NlSchemaIndex(Collections.unmodifiableMap(tables), System.currentTimeMillis());
+    }
+
+    private static void learnValues(Connection c, Column col, int maxValues) throws SQLException {
+        String sql = "SELECT DISTINCT " + quote(col.name) + " FROM PUBLIC." + quote(col.table.name)
+                + " WHERE " + quote(col.name) + " IS NOT NULL LIMIT " + (maxValues + 1);
+        List<String> values = new ArrayList<>();
+        try (Statement st = c.createStatement()) {
+            st.setQueryTimeout(SCAN_TIMEOUT_SECONDS);
+            try (ResultSet rs = st.executeQuery(sql)) {
+                while (rs.next()) {
+                    String v = rs.getString(1);
+                    if (values.size() == maxValues || v.length() > MAX_VALUE_CHARS) {
+                        return; // too many or too long to be names worth recognizing
+                    }
+                    values.add(v);
+                }
+            }
+        }
+        col.values.addAll(values);
+    }
+
+    private static String quote(String identifier) {
+        return '"' + identifier.replace("\"", "\"\"") + '"';
+    }
+
+    Table table(String name) {
+        return tables.get(name);
+    }
+
+    Iterable<Table> tables() {
+        return tables.values();
+    }
+
+    long loadedAt() {
+        return loadedAt;
+    }
+
+    int tableCount() {
+        return tables.size();
+    }
+}
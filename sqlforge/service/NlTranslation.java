@@ -0,0 +1,68 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.service;
+
+import java.util.List;
+
+/**
+ * Output of {@link NlEngine}: a statement with {@code ?} placeholders, the values
+ * bound to them, and the rule that produced it. Identifiers come from the schema
+ * index and are part of the template; everything taken from the user's text or
+ * from learned column values is a parameter.
+ */
+final class NlTranslation {
+    private final String rule;
+    private final String template;
+    private final int[] placeholders; // offset of each '?' in the template
+    private final List<Object> params;
+
+    NlTranslation(String rule, String template, int[] placeholders, List<Object> params) {
+        this.rule = rule;
+        this.template = template;
+        this.placeholders = placeholders;
+        this.params = params;
+    }
+
+    String rule() {
+        return rule;
+    }
+
+    String template() {
+        return template;
+    }
+
+    List<Object> params() {
+        return params;
+    }
+
+    /**
+     * The statement with every parameter written as a literal, for display and for
+     * clients that send it back to {@code /api/run}. Placeholders are found by their
+     * recorded offsets, so a '?' inside a quoted identifier is left alone.
+     */
+    String sql() {
+        if (params.isEmpty()) {
+            return template;
+        }
+        StringBuilder sb = new StringBuilder(template.length() + 16 * params.size());
+        int from = 0;
+        for (int i = 0; i < placeholders.length; i++) {
+            sb.append(template, from, placeholders[i]);
+            Object v = params.get(i);
+            if (v instanceof Number) {
+                sb.append(v);
+            } else {
+                sb.append('\'').append(String.valueOf(v).replace("'", "''")).append('\'');
+            }
+            from = placeholders[i] + 1;
+        }
+        return sb.append(template, from, template.length()).toString();
+    }
+
+    @Override
+    public String toString() {
+        return sql();
+    }
+}
@@ -0,0 +1,862 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.lang.ref.Cleaner;
+import java.lang.ref.Reference;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Result rows kept in {@link SegmentPool} segments instead of one map per row. Each cell is
+ * a tag byte and a compact payload: zigzag varints for integers, raw bits for floating
+ * point, UTF-8 for text, scale and unscaled value for decimals. Values of any other type
+ * (dates, UUIDs, ...) stay on the heap in a side list, so the JSON is exactly what the
+ * row maps would have produced.
+ * <p>
+ * Jackson writes the rows straight from the segments (see {@link Serializer}) and then
+ * releases them: an instance is written once. Several instances can share the same
+ * encoded rows through {@link #retain()}; the segments go back to the pool when the last
+ * one is released, or when it is garbage collected without ever being written. Reading
+ * through the {@link List} interface decodes rows into maps on demand.
+ */
+@JsonSerialize(using = OffHeapRows.Serializer.class)
+final class OffHeapRows extends AbstractList<Map<String, Object>> {
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    private static final byte NULL = 0;
+    private static final byte FALSE = 1;
+    private static final byte TRUE = 2;
+    private static final byte INT = 3;
+    private static final byte LONG = 4;
+    private static final byte DOUBLE = 5;
+    private static final byte FLOAT = 6;
+    private static final byte STRING = 7;
+    private static final byte DECIMAL = 8;     // scale, then the unscaled value when it fits a long
+    private static final byte BIG_DECIMAL = 9; // as text
+    private static final byte BYTES = 10;
+    private static final byte OTHER = 11;      // index into the side list
+
+    /**
+     * The encoded rows, shared by every instance retained from the first.
+     */
+    private static final class Block {
+        final SegmentPool pool;
+        final String[] columns;
+        final SerializedString[] names;
+        final ByteBuffer[] segments;
+        final int segmentBytes;
+        final long[] rowStarts;
+        final List<Object> others;
+        final AtomicInteger refs = new AtomicInteger(1);
+
+        Block(SegmentPool pool, String[] columns, ByteBuffer[] segments, long[] rowStarts, List<Object> others) {
+            this.pool = pool;
+            this.columns = columns;
+            this.names = new SerializedString[columns.length];
+            for (int i = 0; i < columns.length; i++) {
+                names[i] = new SerializedString(columns[i]);
+            }
+            this.segments = segments;
+            this.segmentBytes = pool.segmentBytes();
+            this.rowStarts = rowStarts;
+            this.others = others;
+        }
+
+        void release() {
+            if (refs.decrementAndGet() == 0) {
+                for (ByteBuffer segment : segments) {
+                    pool.recycle(segment);
+                }
+            }
+        }
+    }
+
+    /**
+     * Cleaner action; must not reach the instance it cleans up after.
+     */
+    private static final class Releaser implements Runnable {
+        final Block block;
+        volatile boolean explicit;
+
+        Releaser(Block block) {
+            this.block = block;
+        }
+
+        @Override
+        public void run() {
+            if (!explicit) {
+                block.pool.reclaimed();
+            }
+            block.release();
+        }
+    }
+
+    private final Block block;
+    private final Releaser releaser;
+    private final Cleaner.Cleanable cleanable;
+    private volatile boolean released;
+
+    private OffHeapRows(Block block) {
+        this.block = block;
+        this.releaser = new Releaser(block);
+        this.cleanable = CLEANER.register(this, releaser);
+    }
+
+    /**
+     * Another instance over the same rows, to be written or released on its own.
+     * @return null if this instance, and with it possibly the rows, was already released
+     */
+    OffHeapRows retain() {
+        if (released) {
+            return null;
+        }
+        for (int r = block.refs.get(); r > 0; r = block.refs.get()) {
+            if (block.refs.compareAndSet(r, r + 1)) {
+                return new OffHeapRows(block);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gives this instance's hold on the segments back; later calls do nothing.
+     */
+    void release() {
+        if (!released) {
+            released = true;
+            releaser.explicit = true;
+            cleanable.clean();
+        }
+    }
+
+    @Override
+    public int size() {
+        return block.rowStarts.length;
+    }
+
+    @Override
+    public Map<String, Object> get(int index) {
+        checkLive();
+        try {
+            Reader r = new Reader(block, block.rowStarts[index]);
+            Scratch scratch = new Scratch();
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (String column : block.columns) {
+                row.put(column, r.value(block, scratch));
+            }
+            return row;
+        } finally {
+            Reference.reachabilityFence(this);
+        }
+    }
+
+    /**
+     * Writes the rows as a JSON array of objects, the way a list of row maps is written.
+     */
+    void write(JsonGenerator gen, SerializerProvider provider) throws IOException {
+        checkLive();
+        try {
+            Block b = block;
+            Reader r = new Reader(b, 0);
+            Scratch scratch = new Scratch();
+            int rows = b.rowStarts.length;
+            gen.writeStartArray(this, rows);
+            for (int i = 0; i < rows; i++) {
+                gen.writeStartObject();
+                for (SerializedString name : b.names) {
+                    gen.writeFieldName(name);
+                    r.write(b, gen, provider, scratch);
+                }
+                gen.writeEndObject();
+            }
+            gen.writeEndArray();
+        } finally {
+            Reference.reachabilityFence(this); // the Cleaner must not recycle segments being read
+        }
+    }
+
+    private void checkLive() {
+        if (released) {
+            throw new IllegalStateException("Off-heap rows were already written or released");
+        }
+    }
+
+    /**
+     * Writes the rows, then releases them.
+     */
+    public static final class Serializer extends StdSerializer<OffHeapRows> {
+        private static final long serialVersionUID = 1L;
+
+        public Serializer() {
+            super(OffHeapRows.class);
+        }
+
+        @Override
+        public void serialize(OffHeapRows rows, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            try {
+                rows.write(gen, provider);
+            } finally {
+                rows.release();
+            }
+        }
+    }
+
+    /**
+     * Collects the rows of one result: as row maps while they are few, then, past the
+     * spill threshold, encoded into pooled segments.
+     */
+    static final class Builder {
+        private final String[] columns;
+        private final int[] types;
+        private final SegmentPool pool; // null: the rows stay on the heap
+        private final int spillRows;
+        private List<Map<String, Object>> heapRows = new ArrayList<>();
+        private Writer writer; // set once the rows moved off the heap
+
+        /**
+         * @param pool null to keep every row on the heap
+         * @param spillRows rows kept as maps before the result moves into segments
+         */
+        Builder(ResultSetMetaData md, SegmentPool pool, int spillRows) throws SQLException {
+            int n = md.getColumnCount();
+            this.columns = new String[n];
+            this.types = new int[n];
+            for (int i = 0; i < n; i++) {
+                columns[i] = md.getColumnLabel(i + 1);
+                types[i] = md.getColumnType(i + 1);
+            }
+            // a row map keeps one value per label, so duplicate labels stay on the heap
+            this.pool = pool != null && new HashSet<>(Arrays.asList(columns)).size() == n ? pool : null;
+            this.spillRows = Math.max(0, spillRows);
+        }
+
+        int size() {
+            return writer != null ? writer.rows : heapRows.size();
+        }
+
+        /**
+         * Adds the result set's current row.
+         * @return false, without adding it, if the off-heap budget is used up
+         * @throws PoolExhaustedException if the result needs to move off the heap and
+         *         the budget stays exhausted for the acquire timeout, or has no room for
+         *         even one row
+         */
+        boolean add(ResultSet rs) throws SQLException {
+            if (writer == null && pool != null && heapRows.size() >= spillRows && !spill()) {
+                return false;
+            }
+            if (writer != null) {
+                if (!writer.add(rs, types)) {
+                    if (writer.rows == 0) {
+                        throw new PoolExhaustedException("Off-heap result budget exhausted before the first row; retry shortly");
+                    }
+                    pool.truncated();
+                    return false;
+                }
+                return true;
+            }
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (int i = 0; i < columns.length; i++) {
+                row.put(columns[i], rs.getObject(i + 1));
+            }
+            heapRows.add(row);
+            return true;
+        }
+
+        List<Map<String, Object>> build() {
+            return writer != null ? writer.finish(columns) : heapRows;
+        }
+
+        /**
+         * Returns the segments after a failure; the builder is not used again.
+         */
+        void discard() {
+            if (writer != null) {
+                writer.discard();
+                writer = null;
+            }
+        }
+
+        private boolean spill() {
+            Writer w = new Writer(pool, pool.admit());
+            for (Map<String, Object> row : heapRows) {
+                if (!w.add(row.values())) {
+                    w.discard();
+                    pool.truncated();
+                    return false;
+                }
+            }
+            writer = w;
+            heapRows = null;
+            return true;
+        }
+    }
+
+    /**
+     * Thrown inside {@link Writer} when the budget has no segment left; never escapes it.
+     */
+    private static final class Full extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        static final Full INSTANCE = new Full();
+
+        private Full() {
+            super(null, null, false, false);
+        }
+    }
+
+    /**
+     * Appends rows to a growing list of segments, treating them as one byte stream:
+     * a value that does not fit the current segment continues in the next one.
+     */
+    private static final class Writer {
+        private final SegmentPool pool;
+        private final List<ByteBuffer> segments = new ArrayList<>();
+        private ByteBuffer cur;
+        private final ByteBuffer spill = ByteBuffer.allocate(Utf8.MAX_CHAR_BYTES);
+        private long[] rowStarts = new long[256];
+        private int rows;
+        private List<Object> others; // created on the first value kept on the heap
+
+        Writer(SegmentPool pool, ByteBuffer first) {
+            this.pool = pool;
+            this.cur = first;
+            segments.add(first);
+        }
+
+        boolean add(ResultSet rs, int[] types) throws SQLException {
+            int markSegment = segments.size() - 1;
+            int markPosition = cur.position();
+            int markOthers = others == null ? 0 : others.size();
+            try {
+                for (int i = 0; i < types.length; i++) {
+                    cell(rs, i + 1, types[i]);
+                }
+            } catch (Full full) {
+                rollback(markSegment, markPosition, markOthers);
+                return false;
+            }
+            addRowStart(markSegment, markPosition);
+            return true;
+        }
+
+        boolean add(Iterable<Object> values) {
+            int markSegment = segments.size() - 1;
+            int markPosition = cur.position();
+            int markOthers = others == null ? 0 : others.size();
+            try {
+                for (Object v : values) {
+                    value(v);
+                }
+            } catch (Full full) {
+                rollback(markSegment, markPosition, markOthers);
+                return false;
+            }
+            addRowStart(markSegment, markPosition);
+            return true;
+        }
+
+        OffHeapRows finish(String[] columns) {
+            return new OffHeapRows(new Block(pool, columns, segments.toArray(new ByteBuffer[0]),
+                    Arrays.copyOf(rowStarts, rows), others == null ? List.of() : others));
+        }
+
+        void discard() {
+            for (ByteBuffer segment : segments) {
+                pool.recycle(segment);
+            }
+            segments.clear();
+        }
+
+        private void cell(ResultSet rs, int col, int type) throws SQLException {
+            switch (type) {
+                case Types.TINYINT:
+                case Types.SMALLINT:
+                case Types.INTEGER: {
+                    int v = rs.getInt(col);
+                    if (rs.wasNull()) {
+                        put(NULL);
+                    } else {
+                        put(INT);
+                        putVarint(zigzag(v));
+                    }
+                    break;
+                }
+                case Types.BIGINT: {
+                    long v = rs.getLong(col);
+                    if (rs.wasNull()) {
+                        put(NULL);
+                    } else {
+                        putLongValue(v);
+                    }
+                    break;
+                }
+                case Types.FLOAT:
+                case Types.DOUBLE: {
+                    double v = rs.getDouble(col);
+                    if (rs.wasNull()) {
+                        put(NULL);
+                    } else {
+                        put(DOUBLE);
+                        putLong(Double.doubleToRawLongBits(v));
+                    }
+                    break;
+                }
+                case Types.REAL: {
+                    float v = rs.getFloat(col);
+                    if (rs.wasNull()) {
+                        put(NULL);
+                    } else {
+                        put(FLOAT);
+                        putInt(Float.floatToRawIntBits(v));
+                    }
+                    break;
+                }
+                case Types.BOOLEAN:
+                case Types.BIT: {
+                    boolean v = rs.getBoolean(col);
+                    put(rs.wasNull() ? NULL : v ? TRUE : FALSE);
+                    break;
+                }
+                case Types.CHAR:
+                case Types.VARCHAR:
+                case Types.LONGVARCHAR:
+                case Types.NCHAR:
+                case Types.NVARCHAR:
+                case Types.LONGNVARCHAR:
+                    string(rs.getString(col));
+                    break;
+                case Types.DECIMAL:
+                case Types.NUMERIC:
+                    decimal(rs.getBigDecimal(col));
+                    break;
+                case Types.BINARY:
+                case Types.VARBINARY:
+                case Types.LONGVARBINARY:
+                    bytes(rs.getBytes(col));
+                    break;
+                default:
+                    value(rs.getObject(col));
+            }
+        }
+
+        private void value(Object v) {
+            if (v == null) {
+                put(NULL);
+            } else if (v instanceof Integer) {
+                int i = (Integer) v;
+                put(INT);
+                putVarint(zigzag(i));
+            } else if (v instanceof Long) {
+                putLongValue((Long) v);
+            } else if (v instanceof Double) {
+                put(DOUBLE);
+                putLong(Double.doubleToRawLongBits((Double) v));
+            } else if (v instanceof Float) {
+                put(FLOAT);
+                putInt(Float.floatToRawIntBits((Float) v));
+            } else if (v instanceof Boolean) {
+                put((Boolean) v ? TRUE : FALSE);
+            } else if (v instanceof String) {
+                string((String) v);
+            } else if (v instanceof BigDecimal) {
+                decimal((BigDecimal) v);
+            } else if (v instanceof byte[]) {
+                bytes((byte[]) v);
+            } else {
+                if (others == null) {
+                    others = new ArrayList<>();
+                }
+                others.add(v);
+                put(OTHER);
+                putVarint(others.size() - 1);
+            }
+        }
+
+        private static long zigzag(int v) {
+            return ((v << 1) ^ (v >> 31)) & 0xFFFFFFFFL;
+        }
+
+        private void putLongValue(long v) {
+            put(LONG);
+            putVarint((v << 1) ^ (v >> 63));
+        }
+
+        private void string(String s) {
+            if (s == null) {
+                put(NULL);
+                return;
+            }
+            int n = s.length();
+            put(STRING);
+            putVarint(Utf8.length(s));
+            int i = 0;
+            while ((i = Utf8.encode(s, i, n, cur)) < n) {
+                // the segment is nearly full: one character through put(), which moves to the next
+                spill.clear();
+                i = Utf8.encode(s, i, n, spill);
+                spill.flip();
+                while (spill.hasRemaining()) {
+                    put(spill.get());
+                }
+            }
+        }
+
+        private void decimal(BigDecimal v) {
+            if (v == null) {
+                put(NULL);
+                return;
+            }
+            BigInteger unscaled = v.unscaledValue();
+            if (unscaled.bitLength() < 64) {
+                put(DECIMAL);
+                int scale = v.scale();
+                putVarint(zigzag(scale));
+                long u = unscaled.longValue();
+                putVarint((u << 1) ^ (u >> 63));
+            } else {
+                byte[] text = v.toString().getBytes(StandardCharsets.US_ASCII);
+                put(BIG_DECIMAL);
+                putVarint(text.length);
+                putBytes(text);
+            }
+        }
+
+        private void bytes(byte[] v) {
+            if (v == null) {
+                put(NULL);
+                return;
+            }
+            put(BYTES);
+            putVarint(v.length);
+            putBytes(v);
+        }
+
+        private void put(byte b) {
+            if (!cur.hasRemaining()) {
+                nextSegment();
+            }
+            cur.put(b);
+        }
+
+        private void putVarint(long v) {
+            while ((v & ~0x7FL) != 0) {
+                put((byte) ((v & 0x7F) | 0x80));
+                v >>>= 7;
+            }
+            put((byte) v);
+        }
+
+        private void putInt(int v) {
+            if (cur.remaining() >= 4) {
+                cur.putInt(v);
+                return;
+            }
+            for (int i = 0; i < 32; i += 8) {
+                put((byte) (v >>> i));
+            }
+        }
+
+        private void putLong(long v) {
+            if (cur.remaining() >= 8) {
+                cur.putLong(v);
+                return;
+            }
+            for (int i = 0; i < 64; i += 8) {
+                put((byte) (v >>> i));
+            }
+        }
+
+        private void putBytes(byte[] v) {
+            int off = 0;
+            while (off < v.length) {
+                if (!cur.hasRemaining()) {
+                    nextSegment();
+                }
+                int n = Math.min(v.length - off, cur.remaining());
+                cur.put(v, off, n);
+                off += n;
+            }
+        }
+
+        private void nextSegment() {
+            ByteBuffer next = pool.tryAcquire();
+            if (next == null) {
+                throw Full.INSTANCE;
+            }
+            segments.add(next);
+            cur = next;
+        }
+
+        private void addRowStart(int segment, int position) {
+            if (rows == rowStarts.length) {
+                rowStarts = Arrays.copyOf(rowStarts, rows * 2);
+            }
+            rowStarts[rows++] = (long) segment * pool.segmentBytes() + position;
+        }
+
+        private void rollback(int segment, int position, int othersSize) {
+            while (segments.size() - 1 > segment) {
+                pool.recycle(segments.remove(segments.size() - 1));
+            }
+            cur = segments.get(segment);
+            cur.position(position);
+            if (others != null) {
+                others.subList(othersSize, others.size()).clear();
+            }
+        }
+    }
+
+    /**
+     * Reusable buffers for decoding one value at a time.
+     */
+    private static final class Scratch {
+        byte[] bytes = new byte[256];
+        char[] chars = new char[256];
+
+        byte[] bytes(int n) {
+            if (bytes.length < n) {
+                bytes = new byte[Math.max(n, bytes.length * 2)];
+            }
+            return bytes;
+        }
+
+        char[] chars(int n) {
+            if (chars.length < n) {
+                chars = new char[Math.max(n, chars.length * 2)];
+            }
+            return chars;
+        }
+    }
+
+    /**
+     * Reads values in order from a position; absolute reads only, so any number of
+     * readers can share the segments.
+     */
+    private static final class Reader {
+        private final ByteBuffer[] segments;
+        private final int segmentBytes;
+        private int segment;
+        private int off;
+
+        Reader(Block block, long position) {
+            this.segments = block.segments;
+            this.segmentBytes = block.segmentBytes;
+            this.segment = (int) (position / segmentBytes);
+            this.off = (int) (position % segmentBytes);
+        }
+
+        Object value(Block block, Scratch scratch) {
+            return decode(get(), block, scratch);
+        }
+
+        private Object decode(byte tag, Block block, Scratch scratch) {
+            switch (tag) {
+                case NULL:
+                    return null;
+                case FALSE:
+                    return Boolean.FALSE;
+                case TRUE:
+                    return Boolean.TRUE;
+                case INT:
+                    return zigzagInt();
+                case LONG:
+                    return zigzagLong();
+                case DOUBLE:
+                    return Double.longBitsToDouble(getLong());
+                case FLOAT:
+                    return Float.intBitsToFloat(getInt());
+                case STRING: {
+                    int len = utf8((int) getVarint(), scratch);
+                    return new String(scratch.chars, 0, len);
+                }
+                case DECIMAL: {
+                    int scale = zigzagInt();
+                    return BigDecimal.valueOf(zigzagLong(), scale);
+                }
+                case BIG_DECIMAL: {
+                    int n = (int) getVarint();
+                    byte[] text = scratch.bytes(n);
+                    getBytes(text, n);
+                    return new BigDecimal(new String(text, 0, n, StandardCharsets.US_ASCII));
+                }
+                case BYTES: {
+                    byte[] v = new byte[(int) getVarint()];
+                    getBytes(v, v.length);
+                    return v;
+                }
+                case OTHER:
+                    return block.others.get((int) getVarint());
+                default:
+                    throw new IllegalStateException("Corrupt off-heap row: tag " + tag);
+            }
+        }
+
+        /**
+         * Writes the next value the way Jackson writes the boxed value.
+         */
+        void write(Block block, JsonGenerator gen, SerializerProvider provider, Scratch scratch) throws IOException {
+            byte tag = get();
+            switch (tag) {
+                case NULL:
+                    gen.writeNull();
+                    break;
+                case FALSE:
+                    gen.writeBoolean(false);
+                    break;
+                case TRUE:
+                    gen.writeBoolean(true);
+                    break;
+                case INT:
+                    gen.writeNumber(zigzagInt());
+                    break;
+                case LONG:
+                    gen.writeNumber(zigzagLong());
+                    break;
+                case DOUBLE:
+                    gen.writeNumber(Double.longBitsToDouble(getLong()));
+                    break;
+                case FLOAT:
+                    gen.writeNumber(Float.intBitsToFloat(getInt()));
+                    break;
+                case STRING: {
+                    int len = utf8((int) getVarint(), scratch);
+                    gen.writeString(scratch.chars, 0, len);
+                    break;
+                }
+                case BYTES: {
+                    int n = (int) getVarint();
+                    byte[] v = scratch.bytes(n);
+                    getBytes(v, n);
+                    gen.writeBinary(provider.getConfig().getBase64Variant(), v, 0, n);
+                    break;
+                }
+                case DECIMAL:
+                case BIG_DECIMAL:
+                case OTHER:
+                    provider.defaultSerializeValue(decode(tag, block, scratch), gen);
+                    break;
+                default:
+                    throw new IllegalStateException("Corrupt off-heap row: tag " + tag);
+            }
+        }
+
+        private byte get() {
+            if (off == segmentBytes) {
+                segment++;
+                off = 0;
+            }
+            return segments[segment].get(off++);
+        }
+
+        private long getVarint() {
+            long v = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = get();
+                v |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return v;
+                }
+            }
+        }
+
+        private int zigzagInt() {
+            int v = (int) getVarint();
+            return (v >>> 1) ^ -(v & 1);
+        }
+
+        private long zigzagLong() {
+            long v = getVarint();
+            return (v >>> 1) ^ -(v & 1);
+        }
+
+        private int getInt() {
+            if (segmentBytes - off >= 4) {
+                int v = segments[segment].getInt(off);
+                off += 4;
+                return v;
+            }
+            int v = 0;
+            for (int i = 0; i < 32; i += 8) {
+                v |= (get() & 0xFF) << i;
+            }
+            return v;
+        }
+
+        private long getLong() {
+            if (segmentBytes - off >= 8) {
+                long v = segments[segment].getLong(off);
+                off += 8;
+                return v;
+            }
+            long v = 0;
+            for (int i = 0; i < 64; i += 8) {
+                v |= (long) (get() & 0xFF) << i;
+            }
+            return v;
+        }
+
+        private void getBytes(byte[] dst, int n) {
+            int done = 0;
+            while (done < n) {
+                if (off == segmentBytes) {
+                    segment++;
+                    off = 0;
+                }
+                int len = Math.min(n - done, segmentBytes - off);
+                segments[segment].get(off, dst, done, len);
+                off += len;
+                done += len;
+            }
+        }
+
+        /**
+         * Decodes {@code n} bytes of UTF-8 into the scratch characters.
+         * @return the number of characters
+         */
+        private int utf8(int n, Scratch scratch) {
+            byte[] src = scratch.bytes(n);
+            getBytes(src, n);
+            char[] dst = scratch.chars(n);
+            int len = 0;
+            for (int i = 0; i < n; ) {
+                int b = src[i++];
+                if (b >= 0) {
+                    dst[len++] = (char) b;
+                } else if ((b & 0xE0) == 0xC0) {
+                    dst[len++] = (char) (((b & 0x1F) << 6) | (src[i++] & 0x3F));
+                } else if ((b & 0xF0) == 0xE0) {
+                    dst[len++] = (char) (((b & 0x0F) << 12) | ((src[i++] & 0x3F) << 6) | (src[i++] & 0x3F));
+                } else {
+                    int cp = ((b & 0x07) << 18) | ((src[i++] & 0x3F) << 12) | ((src[i++] & 0x3F) << 6) | (src[i++] & 0x3F);
+                    dst[len++] = Character.highSurrogate(cp);
+                    dst[len++] = Character.lowSurrogate(cp);
+                }
+            }
+            return len;
+        }
+    }
+}
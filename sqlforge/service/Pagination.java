@@ -0,0 +1,673 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.service;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Server-side paging for {@code /api/run}. A SELECT without a LIMIT of its own
+ * gets one (the page size plus one, to tell whether more rows follow), and a
+ * response that stops short of the end carries an opaque cursor for the next page:
+ * <ul>
+ *   <li>keyset: when the top-level FROM names a single base table (no join, comma,
+ *       derived table, VALUES or table function), orders by plain columns the
+ *       first of which an index leads with, and the keys are unique (they contain
+ *       a unique index, or its columns are appended as tie-breakers), the next page
+ *       adds {@code k1 >= ? AND (k1 > ? OR k2 > ?)} to the WHERE clause. H2 seeks to
+ *       the first row after the previous page, so deep pages cost what the first does;</li>
+ *   <li>offset: anything else pages with {@code LIMIT ? OFFSET ?}; a statement
+ *       with a LIMIT of its own is wrapped in a derived table first.</li>
+ * </ul>
+ * Statements with DISTINCT, GROUP BY, HAVING or set operators at the top level,
+ * and ORDER BY items that are expressions, positions or carry NULLS FIRST/LAST,
+ * always use offsets. A keyset page whose last key is NULL continues with an
+ * offset page. NULL ordering is H2's default (NULLs sort low).
+ * <p>
+ * The cursor is the page kind, a hash of the statement and its parameters, the
+ * rows already returned, the materialized view the first page was answered from
+ * (if any) and, for keyset pages, the key values of the last row, base64url
+ * encoded. Key values are always bound as parameters. The hash is taken before any
+ * view rewrite, and a scan stays on the source it started on: once its view is
+ * gone it carries on from the tables by offset, and a view created mid-scan is
+ * not used until the next first page.
+ */
+final class Pagination {
+    static final char KEYSET = 'K';
+    static final char OFFSET = 'O';
+
+    private static final String VERSION = "2";
+    private static final String VERSION_WITHOUT_VIEW = "1";
+    private static final int MAX_CURSOR_CHARS = 4096;
+    private static final String WRAP_ALIAS = "SQLFORGE_PAGE";
+    private static final String[] NOT_SIMPLE = {"DISTINCT", "GROUP", "HAVING", "UNION", "INTERSECT", "EXCEPT",
+            "MINUS", "WINDOW", "QUALIFY", "FOR"};
+    private static final String[] LIMITS = {"LIMIT", "FETCH", "OFFSET"};
+    // Keywords that end a top-level FROM clause
+    private static final String[] FROM_END = {"WHERE", "GROUP", "HAVING", "ORDER", "LIMIT", "OFFSET", "FETCH",
+            "UNION", "INTERSECT", "EXCEPT", "MINUS", "WINDOW", "QUALIFY", "FOR"};
+
+    private Pagination() {}
+
+    /**
+     * An ORDER BY item that is a plain (optionally qualified) column.
+     */
+    private static final class Key {
+        final String expression; // as it appears in the normalized text
+        final String column;     // canonical column name
+        final boolean descending;
+        boolean nullable;
+
+        Key(String expression, String column, boolean descending) {
+            this.expression = expression;
+            this.column = column;
+            this.descending = descending;
+        }
+    }
+
+    /**
+     * Top-level structure of a normalized statement, from one lexer pass.
+     */
+    private static final class Shape {
+        boolean select;
+        boolean simple = true;
+        boolean limited;
+        int whereEnd = -1;  // just after the WHERE keyword
+        int order = -1;     // at the ORDER keyword
+        int end;            // end of the statement, before any trailing ';'
+        List<Key> keys;     // null unless every ORDER BY item is a plain column
+        String[] table;     // {schema or null, table} when the FROM clause is one base table, else null
+        final List<Integer> placeholders = new ArrayList<>();
+
+        int placeholdersBefore(int offset) {
+            int n = 0;
+            while (n < placeholders.size() && placeholders.get(n) < offset) n++;
+            return n;
+        }
+    }
+
+    /**
+     * The statement to run for one page, with its parameters.
+     */
+    static final class Page {
+        private final String sql;
+        private final List<Object> params;
+        private final List<Key> keys; // null for offset paging
+        private final long fingerprint;
+        private final long offset;    // rows returned by earlier pages
+        private final String view;    // materialized view the page reads, or null for the tables
+
+        private Page(String sql, List<Object> params, List<Key> keys, long fingerprint, long offset, String view) {
+            this.sql = sql;
+            this.params = params;
+            this.keys = keys;
+            this.fingerprint = fingerprint;
+            this.offset = offset;
+            this.view = view;
+        }
+
+        String sql() {
+            return sql;
+        }
+
+        /**
+         * The view this page reads: the rewrite's view, or null when the scan started on
+         * the tables or its view is no longer the one answering the statement.
+         */
+        String view() {
+            return view;
+        }
+
+        List<Object> params() {
+            return params;
+        }
+
+        /**
+         * Result positions (1-based) of the keys, or null when the page is not keyset-paged
+         * or some key is not a distinct output column (then the next page uses an offset).
+         */
+        int[] keyColumns(ResultSetMetaData md) throws SQLException {
+            if (keys == null) {
+                return null;
+            }
+            int[] at = new int[keys.size()];
+            int cols = md.getColumnCount();
+            for (int k = 0; k < at.length; k++) {
+                for (int i = 1; i <= cols; i++) {
+                    if (md.getColumnLabel(i).equalsIgnoreCase(keys.get(k).column)) {
+                        if (at[k] != 0) {
+                            return null; // ambiguous, e.g. ID of two joined tables
+                        }
+                        at[k] = i;
+                    }
+                }
+                if (at[k] == 0) {
+                    return null;
+                }
+            }
+            return at;
+        }
+
+        /**
+         * Cursor for the page after this one.
+         * @param rows rows this page returned
+         * @param lastKeys key values of its last row, or null to continue by offset
+         */
+        String next(int rows, Object[] lastKeys) {
+            StringBuilder sb = new StringBuilder(64);
+            boolean keyset = keys != null && lastKeys != null;
+            for (int i = 0; keyset && i < lastKeys.length; i++) {
+                keyset = encodable(lastKeys[i]);
+            }
+            sb.append(VERSION).append('|').append(keyset ? KEYSET : OFFSET).append('|')
+                    .append(Long.toHexString(fingerprint)).append('|').append(offset + rows).append('|');
+            if (view == null) {
+                sb.append("0|");
+            } else {
+                sb.append("1|");
+                encode(sb, view);
+            }
+            if (keyset) {
+                sb.append(lastKeys.length).append('|');
+                for (Object v : lastKeys) {
+                    encode(sb, v);
+                }
+            }
+            return Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString(sb.toString().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static final class Cursor {
+        char kind;
+        long fingerprint;
+        long offset;
+        String view;
+        Object[] values;
+    }
+
+    /**
+     * Plans the page the cursor points at, or the first page when it is null.
+     * @param statement the normalized statement, which the cursor is tied to
+     * @param rewritten the statement answered from {@code view}, or {@code statement} itself
+     * @param view the materialized view currently answering the statement, or null
+     * @param stats table statistics, asked for only when the statement could be keyset-paged
+     * @return null if the statement is not a SELECT (it then runs as written)
+     * @throws IllegalArgumentException if the cursor is malformed or belongs to another statement
+     */
+    static Page plan(SqlNormalizer.NormalizedSql statement, SqlNormalizer.NormalizedSql rewritten, String view,
+                     String cursor, int limit, Supplier<SchemaStats> stats) {
+        if (!scan(statement.getText()).select || limit >= Integer.MAX_VALUE - 1) {
+            if (cursor != null) {
+                throw new IllegalArgumentException("This statement cannot be paged with a cursor");
+            }
+            return null;
+        }
+        long fingerprint = fingerprint(statement);
+        Cursor c = cursor == null ? null : decode(cursor, fingerprint);
+        if (c != null && !Objects.equals(c.view, view)) {
+            if (c.view != null && c.kind == KEYSET) {
+                c.kind = OFFSET; // the key values came from the view's columns
+            }
+            view = null; // stay on (or go back to) the tables
+        }
+        SqlNormalizer.NormalizedSql sql = view != null ? rewritten : statement;
+        String text = sql.getText();
+        Shape shape = scan(text);
+        long offset = c == null ? 0 : c.offset;
+
+        List<Key> keys = shape.simple && !shape.limited ? keysetKeys(shape, stats) : null;
+        String base = text.substring(0, shape.end);
+        if (keys != null && keys.size() > shape.keys.size()) {
+            StringBuilder sb = new StringBuilder(base);
+            for (Key k : keys.subList(shape.keys.size(), keys.size())) {
+                sb.append(", ").append(k.expression);
+            }
+            base = sb.toString();
+        }
+        List<Object> params = new ArrayList<>(sql.getParams());
+
+        // an index dropped since the cursor was handed out: carry on from the same row by offset
+        if (c != null && c.kind == KEYSET && keys != null && keys.size() == c.values.length) {
+            StringBuilder pred = new StringBuilder();
+            List<Object> predParams = new ArrayList<>();
+            predicate(pred, predParams, keys, c.values);
+            int at = shape.placeholdersBefore(shape.order);
+            params.addAll(at, predParams);
+            String head = shape.whereEnd >= 0
+                    ? text.substring(0, shape.whereEnd) + " (" + text.substring(shape.whereEnd, shape.order).trim()
+                            + ") AND " + pred + ' '
+                    : text.substring(0, shape.order).trim() + " WHERE " + pred + ' ';
+            params.add(limit + 1);
+            return new Page(head + base.substring(shape.order) + " LIMIT ?", params, keys, fingerprint, offset, view);
+        }
+        if (c == null) {
+            if (shape.limited) {
+                return new Page(text, sql.getParams(), null, fingerprint, 0, view);
+            }
+            params.add(limit + 1);
+            return new Page(base + " LIMIT ?", params, keys, fingerprint, 0, view);
+        }
+        params.add(limit + 1);
+        params.add(offset);
+        String paged = shape.limited
+                ? "SELECT * FROM (" + base + ") " + WRAP_ALIAS + " LIMIT ? OFFSET ?"
+                : base + " LIMIT ? OFFSET ?";
+        return new Page(paged, params, keys, fingerprint, offset, view);
+    }
+
+    private static Shape scan(String sql) {
+        Shape s = new Shape();
+        SqlLexer lx = new SqlLexer(sql);
+        int depth = 0;
+        boolean first = true;
+        boolean afterSelect = false;
+        int orderState = 0; // 1: ORDER seen, 2: in the items, 3: past them
+        List<Key> keys = new ArrayList<>();
+        boolean plainKeys = true;
+        List<int[]> item = new ArrayList<>(); // {type, start, end} of the current ORDER BY item
+        boolean plainItem = true;
+        boolean with = false;
+        int froms = 0;
+        boolean inFrom = false;
+        List<int[]> from = new ArrayList<>(); // {type, start, end} of the top-level FROM clause
+        for (int type = lx.next(); type != SqlLexer.EOF; type = lx.next()) {
+            if (first) {
+                first = false;
+                with = lx.isKeyword("WITH");
+                s.select = lx.isKeyword("SELECT") || with;
+                if (!s.select) {
+                    return s;
+                }
+            }
+            boolean trailingSemicolon = false;
+            if (type == SqlLexer.SYMBOL) {
+                char c = lx.firstChar();
+                if (c == '(') {
+                    depth++;
+                } else if (c == ')') {
+                    depth--;
+                } else if (c == '?') {
+                    s.placeholders.add(lx.start());
+                } else if (c == ';' && depth == 0) {
+                    trailingSemicolon = true;
+                }
+            }
+            if (trailingSemicolon) {
+                continue;
+            }
+            s.end = lx.end();
+            if (inFrom) {
+                if (depth == 0 && type == SqlLexer.WORD && lx.keywordIndex(FROM_END) >= 0) {
+                    inFrom = false;
+                } else {
+                    from.add(new int[]{type, lx.start(), lx.end()});
+                    continue;
+                }
+            }
+            if (orderState == 2) {
+                if (depth == 0 && lx.isSymbol(',')) {
+                    plainKeys &= addKey(keys, sql, item, plainItem);
+                    item.clear();
+                    plainItem = true;
+                    continue;
+                }
+                if (depth > 0 || lx.isSymbol('(') || lx.isSymbol(')')) {
+                    plainItem = false;
+                }
+                if (depth == 0 && type == SqlLexer.WORD && lx.keywordIndex(LIMITS) >= 0) {
+                    s.limited = true;
+                    orderState = 3;
+                    continue;
+                }
+                item.add(new int[]{type, lx.start(), lx.end()});
+                continue;
+            }
+            if (depth != 0 || type != SqlLexer.WORD) {
+                afterSelect = false;
+                continue;
+            }
+            if (afterSelect && lx.isKeyword("TOP")) {
+                s.limited = true;
+            }
+            afterSelect = lx.isKeyword("SELECT");
+            if (lx.isKeyword("FROM")) {
+                froms++;
+                inFrom = true;
+            }
+            if (orderState == 1) {
+                orderState = lx.isKeyword("BY") ? 2 : 0;
+            } else if (lx.isKeyword("WHERE")) {
+                s.whereEnd = lx.end();
+            } else if (lx.isKeyword("ORDER")) {
+                s.order = lx.start();
+                orderState = 1;
+            } else if (lx.keywordIndex(LIMITS) >= 0) {
+                s.limited = true;
+            } else if (lx.keywordIndex(NOT_SIMPLE) >= 0) {
+                s.simple = false;
+            }
+        }
+        if (orderState == 2) {
+            plainKeys &= addKey(keys, sql, item, plainItem);
+        }
+        s.keys = s.order >= 0 && plainKeys && !keys.isEmpty() ? keys : null;
+        // a WITH query may name a CTE that shadows a table, so only plain SELECTs qualify
+        s.table = !with && froms == 1 ? baseTable(sql, from) : null;
+        return s;
+    }
+
+    /**
+     * The table of a FROM clause that is exactly {@code [schema.]table [[AS] alias]}, else null.
+     * Joins, comma lists, derived tables, VALUES and table functions all add tokens this
+     * rejects, and any of them can return a row of the table more than once.
+     */
+    private static String[] baseTable(String sql, List<int[]> from) {
+        int n = from.size();
+        int name = 1;
+        while (name + 1 < n && from.get(name)[0] == SqlLexer.SYMBOL && sql.charAt(from.get(name)[1]) == '.') {
+            name += 2;
+        }
+        if (n == 0 || name > 3) {
+            return null;
+        }
+        for (int i = 0; i < name; i += 2) {
+            int t = from.get(i)[0];
+            if (t != SqlLexer.WORD && t != SqlLexer.QUOTED) {
+                return null;
+            }
+        }
+        int rest = n - name; // alias, AS alias, or nothing
+        if (rest == 2 && !(from.get(name)[0] == SqlLexer.WORD && text(sql, from.get(name)).equalsIgnoreCase("AS"))
+                || rest > 2) {
+            return null;
+        }
+        if (rest > 0) {
+            int alias = from.get(n - 1)[0];
+            if (alias != SqlLexer.WORD && alias != SqlLexer.QUOTED) {
+                return null;
+            }
+        }
+        String table = TableVersions.canonical(text(sql, from.get(name - 1)));
+        String schema = name == 3 ? TableVersions.canonical(text(sql, from.get(0))) : null;
+        return new String[]{schema, table};
+    }
+
+    private static String text(String sql, int[] token) {
+        return sql.substring(token[1], token[2]);
+    }
+
+    /**
+     * Appends the item as a key if it is {@code name[.name[.name]] [ASC|DESC]}.
+     * @return false if it is anything else, which rules out keyset paging
+     */
+    private static boolean addKey(List<Key> keys, String sql, List<int[]> item, boolean plain) {
+        int n = item.size();
+        if (!plain || n == 0) {
+            return false;
+        }
+        boolean descending = false;
+        int[] last = item.get(n - 1);
+        if (last[0] == SqlLexer.WORD) {
+            String word = sql.substring(last[1], last[2]);
+            if (word.equals("DESC") || word.equals("ASC")) {
+                descending = word.equals("DESC");
+                n--;
+            }
+        }
+        if (n == 0 || n % 2 == 0 || n > 5) {
+            return false;
+        }
+        for (int i = 0; i < n; i++) {
+            int[] t = item.get(i);
+            boolean ok = i % 2 == 0
+                    ? t[0] == SqlLexer.WORD || t[0] == SqlLexer.QUOTED
+                    : t[0] == SqlLexer.SYMBOL && sql.charAt(t[1]) == '.';
+            if (!ok) {
+                return false;
+            }
+        }
+        int[] column = item.get(n - 1);
+        keys.add(new Key(sql.substring(item.get(0)[1], column[2]),
+                TableVersions.canonical(sql.substring(column[1], column[2])), descending));
+        return true;
+    }
+
+    /**
+     * The ORDER BY keys, plus unique-index tie-breakers, if the statement can be keyset-paged; else null.
+     */
+    private static List<Key> keysetKeys(Shape shape, Supplier<SchemaStats> statsSource) {
+        if (shape.keys == null || shape.table == null) {
+            return null;
+        }
+        SchemaStats stats = statsSource.get();
+        SchemaStats.Table table = stats == null ? null : stats.table(shape.table[0], shape.table[1]);
+        if (table == null || !table.hasLeadingIndex(shape.keys.get(0).column)) {
+            return null;
+        }
+        List<Key> keys = new ArrayList<>(shape.keys.size() + 1);
+        List<String> names = new ArrayList<>();
+        for (Key k : shape.keys) {
+            if (!table.columns.contains(k.column) || names.contains(k.column)) {
+                return null;
+            }
+            k.nullable = table.nullable.contains(k.column);
+            keys.add(k);
+            names.add(k.column);
+        }
+        SchemaStats.Index tieBreaker = null;
+        for (SchemaStats.Index ix : table.indexes) {
+            if (!ix.unique || ix.columns.isEmpty()) {
+                continue;
+            }
+            if (names.containsAll(ix.columns)) {
+                return keys;
+            }
+            if (tieBreaker == null || ix.columns.size() < tieBreaker.columns.size()) {
+                tieBreaker = ix;
+            }
+        }
+        if (tieBreaker == null) {
+            return null;
+        }
+        String first = shape.keys.get(0).expression;
+        int dot = first.lastIndexOf('.');
+        String qualifier = dot < 0 ? "" : first.substring(0, dot + 1);
+        for (String col : tieBreaker.columns) {
+            if (!names.contains(col)) {
+                Key k = new Key(qualifier + '"' + col.replace("\"", "\"\"") + '"', col, false);
+                k.nullable = table.nullable.contains(col);
+                keys.add(k);
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Rows after the cursor: {@code k1 >= ? AND (k1 > ? OR (k2 > ? OR (k2 = ? AND k3 > ?)))},
+     * with the comparisons flipped for DESC keys. The leading bound lets H2 seek on the index.
+     */
+    private static void predicate(StringBuilder sb, List<Object> params, List<Key> keys, Object[] values) {
+        if (keys.size() == 1) {
+            after(sb, params, keys.get(0), values[0], false);
+            return;
+        }
+        sb.append('(');
+        after(sb, params, keys.get(0), values[0], true);
+        sb.append(" AND (");
+        after(sb, params, keys.get(0), values[0], false);
+        sb.append(" OR ");
+        tail(sb, params, keys, values, 1);
+        sb.append("))");
+    }
+
+    private static void tail(StringBuilder sb, List<Object> params, List<Key> keys, Object[] values, int i) {
+        if (i == keys.size() - 1) {
+            after(sb, params, keys.get(i), values[i], false);
+            return;
+        }
+        sb.append('(');
+        after(sb, params, keys.get(i), values[i], false);
+        sb.append(" OR (").append(keys.get(i).expression).append(" = ? AND ");
+        params.add(values[i]);
+        tail(sb, params, keys, values, i + 1);
+        sb.append("))");
+    }
+
+    /**
+     * {@code k > ?} (or {@code >=}), or for a DESC key {@code k < ?}; NULLs sort low,
+     * so they follow every value of a nullable DESC key.
+     */
+    private static void after(StringBuilder sb, List<Object> params, Key k, Object value, boolean inclusive) {
+        String op = (k.descending ? "<" : ">") + (inclusive ? "=" : "");
+        boolean nullsAfter = k.descending && k.nullable;
+        if (nullsAfter) {
+            sb.append('(');
+        }
+        sb.append(k.expression).append(' ').append(op).append(" ?");
+        params.add(value);
+        if (nullsAfter) {
+            sb.append(" OR ").append(k.expression).append(" IS NULL)");
+        }
+    }
+
+    private static long fingerprint(SqlNormalizer.NormalizedSql sql) {
+        long h = 0xcbf29ce484222325L;
+        String text = sql.getText();
+        for (int i = 0; i < text.length(); i++) {
+            h = (h ^ text.charAt(i)) * 0x100000001b3L;
+        }
+        for (Object p : sql.getParams()) {
+            String s = String.valueOf(p);
+            h *= 0x100000001b3L; // separator
+            for (int i = 0; i < s.length(); i++) {
+                h = (h ^ s.charAt(i)) * 0x100000001b3L;
+            }
+        }
+        return h;
+    }
+
+    private static boolean encodable(Object v) {
+        return v instanceof Number || v instanceof String || v instanceof Boolean
+                || v instanceof java.util.Date || v instanceof java.time.temporal.Temporal
+                || v instanceof java.util.UUID;
+    }
+
+    /**
+     * {@code <tag><length>:<text>}: L long, F double, D decimal, B boolean, S anything H2 converts from text.
+     */
+    private static void encode(StringBuilder sb, Object v) {
+        char tag;
+        String text;
+        if (v instanceof Long || v instanceof Integer || v instanceof Short || v instanceof Byte) {
+            tag = 'L';
+            text = v.toString();
+        } else if (v instanceof Double || v instanceof Float) {
+            tag = 'F';
+            text = Double.toString(((Number) v).doubleValue());
+        } else if (v instanceof Number) {
+            tag = 'D';
+            text = v instanceof BigDecimal ? ((BigDecimal) v).toPlainString() : v.toString();
+        } else if (v instanceof Boolean) {
+            tag = 'B';
+            text = v.toString();
+        } else {
+            tag = 'S';
+            text = v.toString();
+        }
+        sb.append(tag).append(text.length()).append(':').append(text);
+    }
+
+    private static Cursor decode(String cursor, long fingerprint) {
+        Cursor c;
+        try {
+            if (cursor.length() > MAX_CURSOR_CHARS) {
+                throw new IllegalArgumentException();
+            }
+            c = parse(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+        } catch (RuntimeException ex) { // bad base64, numbers or lengths
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        if (c.fingerprint != fingerprint) {
+            throw new IllegalArgumentException("Cursor belongs to a different statement");
+        }
+        return c;
+    }
+
+    private static Cursor parse(String s) {
+        String version = s.length() > MAX_CURSOR_CHARS ? null : field(s, new int[]{0});
+        if (!VERSION.equals(version) && !VERSION_WITHOUT_VIEW.equals(version)) {
+            throw new IllegalArgumentException();
+        }
+        int[] pos = {version.length() + 1};
+        Cursor c = new Cursor();
+        String kind = field(s, pos);
+        c.kind = kind.length() == 1 ? kind.charAt(0) : '?';
+        c.fingerprint = Long.parseUnsignedLong(field(s, pos), 16);
+        c.offset = Long.parseLong(field(s, pos));
+        if (c.offset < 0 || (c.kind != KEYSET && c.kind != OFFSET)) {
+            throw new IllegalArgumentException();
+        }
+        if (VERSION.equals(version)) {
+            String hasView = field(s, pos);
+            if (hasView.equals("1")) {
+                Object view = value(s, pos);
+                if (!(view instanceof String)) {
+                    throw new IllegalArgumentException();
+                }
+                c.view = (String) view;
+            } else if (!hasView.equals("0")) {
+                throw new IllegalArgumentException();
+            }
+        }
+        if (c.kind == KEYSET) {
+            int n = Integer.parseInt(field(s, pos));
+            if (n <= 0 || n > 16) {
+                throw new IllegalArgumentException();
+            }
+            c.values = new Object[n];
+            for (int i = 0; i < n; i++) {
+                c.values[i] = value(s, pos);
+            }
+        }
+        if (pos[0] != s.length()) {
+            throw new IllegalArgumentException();
+        }
+        return c;
+    }
+
+    private static String field(String s, int[] pos) {
+        int bar = s.indexOf('|', pos[0]);
+        if (bar < 0) {
+            throw new IllegalArgumentException();
+        }
+        String f = s.substring(pos[0], bar);
+        pos[0] = bar + 1;
+        return f;
+    }
+
+    private static Object value(String s, int[] pos) {
+        char tag = s.charAt(pos[0]);
+        int colon = s.indexOf(':', pos[0]);
+        int len = Integer.parseInt(s.substring(pos[0] + 1, colon));
+        String text = s.substring(colon + 1, colon + 1 + len);
+        pos[0] = colon + 1 + len;
+        switch (tag) {
+            case 'L': return Long.parseLong(text);
+            case 'F': return Double.parseDouble(text);
+            case 'D': return new BigDecimal(text);
+            case 'B': return Boolean.parseBoolean(text);
+            case 'S': return text;
+            default: throw new IllegalArgumentException();
+        }
+    }
+}
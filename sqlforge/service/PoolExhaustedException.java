@@ -0,0 +1,17 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.service;
+
+/**
+ * Raised when the sandbox connection pool cannot hand out a connection in time
+ * (or its wait queue is already full). Mapped to HTTP 503 by the API layer.
+ */
+public class PoolExhaustedException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public PoolExhaustedException(String message) {
+        super(message);
+    }
+}
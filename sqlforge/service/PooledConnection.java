@@ -0,0 +1,121 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Lease on a physical connection owned by {@link ConnectionPool}.
+ * Closing the lease hands the connection back instead of closing it.
+ * Each physical connection keeps a small LRU of prepared statements so
+ * repeated (normalized) SQL skips H2's parse/plan step.
+ */
+final class PooledConnection implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(PooledConnection.class);
+
+    private final ConnectionPool pool;
+    private final Connection physical;
+    private final LruCache<String, PreparedStatement> statements;
+    private volatile long lastUsedMillis = System.currentTimeMillis();
+    private boolean leased;
+    private boolean broken;
+
+    PooledConnection(ConnectionPool pool, Connection physical, int statementCacheSize,
+                     LruCache.Counters statementCounters) {
+        this.pool = pool;
+        this.physical = physical;
+        this.statements = new LruCache<>("prepared-statements", Math.max(1, statementCacheSize),
+                (sql, ps) -> 1L, (sql, ps) -> closeQuietly(ps), statementCounters);
+    }
+
+    Connection connection() {
+        if (!leased) {
+            throw new IllegalStateException("Connection used after it was returned to the pool");
+        }
+        return physical;
+    }
+
+    Connection physical() {
+        return physical;
+    }
+
+    /**
+     * Returns a cached prepared statement for the SQL, preparing it on first use.
+     * The statement stays owned by this connection: callers close its result sets
+     * but must not close the statement itself.
+     */
+    PreparedStatement prepare(String sql) throws SQLException {
+        PreparedStatement ps = statements.get(sql);
+        if (ps == null || ps.isClosed()) {
+            ps = connection().prepareStatement(sql);
+            statements.put(sql, ps);
+        } else {
+            ps.clearParameters();
+        }
+        return ps;
+    }
+
+    /**
+     * Drops cached statements before the physical connection is closed.
+     */
+    void clearStatements() {
+        statements.clear();
+    }
+
+    private static void closeQuietly(PreparedStatement ps) {
+        try {
+            ps.close();
+        } catch (SQLException ex) {
+            log.debug("Error closing cached statement: {}", ex.getMessage());
+        }
+    }
+
+    /**
+     * Flags the connection so it is discarded rather than reused on release.
+     */
+    void markBroken() {
+        this.broken = true;
+    }
+
+    /**
+     * Marks the connection broken if the error is a connection-level failure (SQLState class 08).
+     */
+    void inspect(SQLException ex) {
+        String state = ex.getSQLState();
+        if (state != null && state.startsWith("08")) {
+            markBroken();
+        }
+    }
+
+    boolean isBroken() {
+        return broken;
+    }
+
+    long lastUsedMillis() {
+        return lastUsedMillis;
+    }
+
+    void touch() {
+        lastUsedMillis = System.currentTimeMillis();
+    }
+
+    void lease() {
+        leased = true;
+    }
+
+    @Override
+    public void close() {
+        if (!leased) {
+            return;
+        }
+        leased = false;
+        pool.release(this);
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.service;
+
+import com.sqlforge.model.QueryResponse;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Statements of one {@code /api/run/batch} call, already validated by
+ * {@link DatabaseService#prepareBatch}. A batch can be split into parts that run
+ * on different connections; every part writes its responses into the slots of
+ * the batch it came from, so {@link #responses()} is always in request order.
+ */
+public final class QueryBatch {
+
+    static final class Entry {
+        final int position;
+        final String userId;
+        final String sql;
+        final String mode;
+        final SqlNormalizer.NormalizedSql normalized;
+        final int limit;
+        final boolean columnar;
+        final boolean timings;
+        final long validateNanos;
+        final SqlNormalizer.NormalizedSql executed; // normalized, or rewritten to read a materialized view
+        final String view;                         // that view, or null
+        final String cursor;
+        final Pagination.Page page; // null when the statement runs as written
+        // set just before the entry runs when the result cache is on
+        String cacheKey;
+        Map<String, Long> versions;
+
+        Entry(int position, String userId, String sql, String mode, SqlNormalizer.NormalizedSql normalized, int limit, boolean columnar,
+              boolean timings, long validateNanos, SqlNormalizer.NormalizedSql executed, String view,
+              String cursor, Pagination.Page page) {
+            this.position = position;
+            this.userId = userId;
+            this.sql = sql;
+            this.mode = mode;
+            this.normalized = normalized;
+            this.limit = limit;
+            this.columnar = columnar;
+            this.timings = timings;
+            this.validateNanos = validateNanos;
+            this.executed = executed;
+            this.view = view;
+            this.cursor = cursor;
+            this.page = page;
+        }
+    }
+
+    private final List<Entry> entries;
+    private final QueryResponse[] responses;
+
+    QueryBatch(List<Entry> entries) {
+        this(entries, new QueryResponse[entries.size()]);
+    }
+
+    private QueryBatch(List<Entry> entries, QueryResponse[] responses) {
+        this.entries = entries;
+        this.responses = responses;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Deals the statements round-robin into at most {@code parts} batches sharing this
+     * batch's response slots, so short and long statements spread evenly.
+     */
+    public List<QueryBatch> split(int parts) {
+        int n = Math.max(1, Math.min(parts, entries.size()));
+        if (n == 1) {
+            return List.of(this);
+        }
+        List<List<Entry>> dealt = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            dealt.add(new ArrayList<>(entries.size() / n + 1));
+        }
+        for (int i = 0; i < entries.size(); i++) {
+            dealt.get(i % n).add(entries.get(i));
+        }
+        List<QueryBatch> out = new ArrayList<>(n);
+        for (List<Entry> part : dealt) {
+            out.add(new QueryBatch(part, responses));
+        }
+        return out;
+    }
+
+    /**
+     * Original statements, in request order (for the history).
+     */
+    public List<String> statements() {
+        List<String> out = new ArrayList<>(entries.size());
+        for (Entry e : entries) {
+            out.add(e.sql);
+        }
+        return out;
+    }
+
+    /**
+     * Responses of the whole batch in request order; null for statements that have not run.
+     * Read it only after every part has finished.
+     */
+    public List<QueryResponse> responses() {
+        return Arrays.asList(responses.clone());
+    }
+
+    List<Entry> entries() {
+        return entries;
+    }
+
+    void complete(Entry entry, QueryResponse response) {
+        responses[entry.position] = response;
+    }
+}
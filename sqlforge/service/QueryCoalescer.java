@@ -0,0 +1,185 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.service;
+
+import com.sqlforge.model.CoalescingStats;
+import com.sqlforge.model.QueryResponse;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight execution of identical reads. The first request for a key (the leader)
+ * runs the statement; requests for the same key arriving while it runs (followers) wait
+ * for it and get their own copy of its response instead of running the statement again.
+ * <p>
+ * A follower only joins if none of the statement's tables was written through a
+ * server-side path since the leader started (see {@link TableVersions}), so it never
+ * sees data older than its own arrival would allow. If the leader was cancelled, its
+ * followers run the statement again rather than inherit the cancellation.
+ */
+final class QueryCoalescer {
+    private static final long CANCEL_POLL_MS = 50;
+
+    private static final class Flight {
+        final CompletableFuture<QueryResponse> result = new CompletableFuture<>();
+        final Map<String, Long> versions;
+        final QueryContext ctx;
+        // The leader, then each follower until it has its copy: off-heap rows in the
+        // result stay valid while anyone still needs to copy them
+        final AtomicInteger holders = new AtomicInteger(1);
+
+        Flight(Map<String, Long> versions, QueryContext ctx) {
+            this.versions = versions;
+            this.ctx = ctx;
+        }
+
+        boolean join() {
+            for (int h = holders.get(); h > 0; h = holders.get()) {
+                if (holders.compareAndSet(h, h + 1)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void leave() {
+            if (holders.decrementAndGet() == 0 && result.isDone() && !result.isCompletedExceptionally()) {
+                List<Map<String, Object>> rows = result.join().getRows();
+                if (rows instanceof OffHeapRows) {
+                    ((OffHeapRows) rows).release();
+                }
+            }
+        }
+    }
+
+    private final ConcurrentHashMap<String, Flight> inFlight = new ConcurrentHashMap<>();
+    private final TableVersions tableVersions;
+    private final LongAdder leaders = new LongAdder();
+    private final LongAdder followers = new LongAdder();
+    private final LongAdder stale = new LongAdder();   // ran alone: a table changed after the leader started
+    private final LongAdder retried = new LongAdder(); // ran again after the leader was cancelled
+
+    QueryCoalescer(TableVersions tableVersions) {
+        this.tableVersions = tableVersions;
+    }
+
+    /**
+     * Runs {@code execution} or shares the result of an identical one already running.
+     * @param key identifies identical requests (statement, parameters, mode, limit, page)
+     * @param tables canonical names of the tables the statement reads
+     * @param ctx the caller's context; a follower stops waiting once it is cancelled
+     * @param execution runs the statement and returns a response only this caller holds;
+     *                  its unchecked exceptions reach the followers as well
+     */
+    QueryResponse run(String key, Set<String> tables, QueryContext ctx, Supplier<QueryResponse> execution) {
+        while (true) {
+            Flight mine = new Flight(tableVersions.snapshot(tables), ctx);
+            Flight running = inFlight.putIfAbsent(key, mine);
+            if (running == null) {
+                return lead(key, mine, execution);
+            }
+            if (!tableVersions.isCurrent(running.versions)) {
+                stale.increment();
+                return execution.get();
+            }
+            if (!running.join()) {
+                continue; // finished and left just now
+            }
+            try {
+                QueryResponse shared = await(running, ctx);
+                if (shared == null) {
+                    return QueryResponse.error("Query cancelled");
+                }
+                if (!running.ctx.isCancelled()) {
+                    followers.increment();
+                    return copy(shared);
+                }
+            } finally {
+                running.leave();
+            }
+            retried.increment(); // the leader's caller gave up, not this one: try again, possibly as leader
+        }
+    }
+
+    CoalescingStats stats() {
+        CoalescingStats s = new CoalescingStats();
+        s.setEnabled(true);
+        s.setInFlight(inFlight.size());
+        s.setLeaders(leaders.sum());
+        s.setFollowers(followers.sum());
+        s.setStale(stale.sum());
+        s.setRetried(retried.sum());
+        return s;
+    }
+
+    private QueryResponse lead(String key, Flight mine, Supplier<QueryResponse> execution) {
+        leaders.increment();
+        try {
+            QueryResponse resp = execution.get();
+            mine.result.complete(copy(resp)); // the flight's own copy; the leader's caller may release its rows at once
+            return resp;
+        } catch (RuntimeException | Error ex) {
+            mine.result.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight.remove(key, mine);
+            mine.leave();
+        }
+    }
+
+    /**
+     * @return the leader's response, or null if {@code ctx} was cancelled first
+     */
+    private static QueryResponse await(Flight flight, QueryContext ctx) {
+        boolean interrupted = false;
+        try {
+            while (!ctx.isCancelled()) {
+                try {
+                    return flight.result.get(CANCEL_POLL_MS, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException ignored) {
+                    // poll the caller's cancellation again
+                } catch (InterruptedException ie) {
+                    interrupted = true;
+                    ctx.cancel();
+                } catch (ExecutionException ee) {
+                    Throwable cause = ee.getCause();
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    }
+                    throw (Error) cause;
+                }
+            }
+            return null;
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Copy of the leader's response. Rows and columns are shared: nothing modifies a
+     * response once it has been built, and off-heap rows are retained for the copy.
+     */
+    private static QueryResponse copy(QueryResponse src) {
+        QueryResponse r = QueryResponse.copyOf(src);
+        List<Map<String, Object>> rows = src.getRows();
+        if (rows instanceof OffHeapRows) {
+            r.setRows(((OffHeapRows) rows).retain());
+        }
+        r.setCoalesced(true);
+        return r;
+    }
+}
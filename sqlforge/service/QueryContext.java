@@ -0,0 +1,70 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Per-execution handle that lets another thread cancel the JDBC statement a
+ * query is currently running (e.g. when {@link QueryExecutor} gives up waiting).
+ */
+public final class QueryContext {
+    private static final Logger log = LoggerFactory.getLogger(QueryContext.class);
+
+    // Statements are cached per connection and reused by later requests. Cancelling under
+    // the same lock as detach() keeps a late cancel from reaching the next user's execution.
+    private final Object lock = new Object();
+    private Statement statement; // guarded by lock
+    private volatile boolean cancelled;
+
+    /**
+     * A context nobody else holds, for direct (non-executor) calls.
+     */
+    public static QueryContext detached() {
+        return new QueryContext();
+    }
+
+    /**
+     * Registers the running statement; cancels it at once if cancellation already happened.
+     */
+    void attach(Statement st) throws SQLException {
+        synchronized (lock) {
+            this.statement = st;
+            if (cancelled) {
+                st.cancel();
+            }
+        }
+    }
+
+    /**
+     * Unregisters the statement; must happen before it can be reused by another request.
+     */
+    void detach() {
+        synchronized (lock) {
+            this.statement = null;
+        }
+    }
+
+    public void cancel() {
+        cancelled = true;
+        synchronized (lock) {
+            if (statement != null) {
+                try {
+                    statement.cancel();
+                } catch (SQLException ex) {
+                    log.debug("Statement cancel failed: {}", ex.getMessage());
+                }
+            }
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+}
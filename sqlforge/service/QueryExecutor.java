@@ -0,0 +1,355 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.service;
+
+import com.sqlforge.model.ExecutorStats;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs sandbox queries on a virtual-thread-per-task executor (platform threads
+ * before Java 21) behind per-user and global concurrency caps. Each user may
+ * have a few queries running plus a short queue; beyond that requests are
+ * rejected instead of piling up, so a handful of slow analytical queries
+ * cannot starve everyone else. A query that overruns its time budget has its
+ * JDBC statement cancelled through {@link QueryContext}.
+ * <p>
+ * Streams and exports run as long as the client keeps reading, so they get a
+ * separate, smaller cap ({@link #executeStream}) and never hold the permits
+ * interactive queries wait for.
+ */
+@Service
+public class QueryExecutor {
+    private static final Logger log = LoggerFactory.getLogger(QueryExecutor.class);
+
+    private static final class UserSlot {
+        final Semaphore permits;
+        final AtomicInteger inFlight = new AtomicInteger(); // queued + running
+
+        UserSlot(int permits) {
+            this.permits = new Semaphore(permits, true);
+        }
+    }
+
+    private static final class Admitted<T> {
+        final CompletableFuture<T> future;
+        final QueryContext ctx;
+
+        Admitted(CompletableFuture<T> future, QueryContext ctx) {
+            this.future = future;
+            this.ctx = ctx;
+        }
+    }
+
+    private final ExecutorService executor;
+    private final boolean virtualThreads;
+    private final Semaphore global;
+    private final Semaphore streams; // separate from global: a stalled reader only blocks other streams
+    private final Map<String, UserSlot> users = new ConcurrentHashMap<>();
+    private final int maxConcurrent;
+    private final int maxConcurrentStreams;
+    private final int maxInFlight;
+    private final int perUserMaxConcurrent;
+    private final int perUserMaxInFlight;
+    private final long queueTimeoutMs;
+    private final long queryTimeoutMs;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicInteger streaming = new AtomicInteger();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAdder execNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    public QueryExecutor(Environment env) {
+        this.maxConcurrent = env.getProperty("sqlforge.executor.max-concurrent", Integer.class, 16);
+        this.maxInFlight = maxConcurrent + env.getProperty("sqlforge.executor.max-queued", Integer.class, 256);
+        this.perUserMaxConcurrent = env.getProperty("sqlforge.executor.per-user-max-concurrent", Integer.class, 2);
+        this.perUserMaxInFlight = perUserMaxConcurrent + env.getProperty("sqlforge.executor.per-user-max-queued", Integer.class, 8);
+        this.queueTimeoutMs = env.getProperty("sqlforge.executor.queue-timeout-ms", Long.class, 5_000L);
+        this.queryTimeoutMs = env.getProperty("sqlforge.query.timeout-ms", Long.class, 10_000L);
+        this.maxConcurrentStreams = Math.max(1, env.getProperty("sqlforge.executor.max-concurrent-streams", Integer.class, 2));
+        this.global = new Semaphore(maxConcurrent, true);
+        this.streams = new Semaphore(maxConcurrentStreams, true);
+
+        ExecutorService virtual = newVirtualThreadExecutor();
+        this.virtualThreads = virtual != null;
+        this.executor = virtual != null ? virtual : Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "sqlforge-query");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Runs the task for the user and waits for its result, cancelling it once it
+     * overruns the queue timeout plus {@code sqlforge.query.timeout-ms}.
+     * @throws QueryRejectedException if the user's or the global queue is full,
+     *         or no execution slot freed up within the queue timeout
+     */
+    public <T> T execute(String userId, QueryTask<T> task) throws SQLException, IOException {
+        return execute(userId, queueTimeoutMs + queryTimeoutMs + 1_000, task);
+    }
+
+    /**
+     * Like {@link #execute(String, QueryTask)} with an explicit overall budget;
+     * {@code budgetMs <= 0} waits until the task finishes.
+     */
+    public <T> T execute(String userId, long budgetMs, QueryTask<T> task) throws SQLException, IOException {
+        Admitted<T> admitted = submit(uid(userId), task, false);
+        return await(admitted, budgetMs > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(budgetMs) : 0);
+    }
+
+    /**
+     * Runs a streaming task (NDJSON or export) and waits until it finishes, however long
+     * the client takes to read. Streams queue and are rejected like other queries, but run
+     * under {@code sqlforge.executor.max-concurrent-streams} instead of the global and
+     * per-user caps, so slow readers cannot take slots or connections from interactive queries.
+     */
+    public <T> T executeStream(String userId, QueryTask<T> task) throws SQLException, IOException {
+        return await(submit(uid(userId), task, true), 0);
+    }
+
+    /**
+     * Non-blocking form of {@link #execute(String, QueryTask)}: admits the task and
+     * returns at once. The future fails with {@link QueryRejectedException} if the task
+     * is not admitted, and with a {@link TimeoutException} (after cancelling the
+     * statement) once it overruns the queue timeout plus {@code sqlforge.query.timeout-ms}.
+     */
+    public <T> CompletableFuture<T> executeAsync(String userId, QueryTask<T> task) {
+        return executeAsync(userId, queueTimeoutMs + queryTimeoutMs + 1_000, task);
+    }
+
+    /**
+     * Like {@link #executeAsync(String, QueryTask)} with an explicit overall budget.
+     */
+    public <T> CompletableFuture<T> executeAsync(String userId, long budgetMs, QueryTask<T> task) {
+        Admitted<T> admitted;
+        try {
+            admitted = submit(uid(userId), task, false);
+        } catch (RuntimeException ex) {
+            return CompletableFuture.failedFuture(ex);
+        }
+        if (budgetMs > 0) {
+            admitted.future.orTimeout(budgetMs, TimeUnit.MILLISECONDS);
+        }
+        admitted.future.whenComplete((v, t) -> {
+            if (t instanceof TimeoutException) {
+                timedOut.increment();
+                admitted.ctx.cancel();
+            } else if (t instanceof CancellationException) {
+                admitted.ctx.cancel(); // the caller gave up
+            }
+        });
+        return admitted.future;
+    }
+
+    /**
+     * Runs the tasks side by side for one user, each admitted like a separate query
+     * (so the per-user caps bound the fan-out), and waits for all of them within one
+     * shared budget. If any is rejected or fails, the others are cancelled.
+     * @return results in task order
+     */
+    public <T> List<T> executeAll(String userId, long budgetMs, List<QueryTask<T>> tasks) throws SQLException, IOException {
+        String uid = uid(userId);
+        List<Admitted<T>> admitted = new ArrayList<>(tasks.size());
+        try {
+            for (QueryTask<T> task : tasks) {
+                admitted.add(submit(uid, task, false));
+            }
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(budgetMs);
+            List<T> results = new ArrayList<>(tasks.size());
+            for (Admitted<T> a : admitted) {
+                results.add(await(a, deadline));
+            }
+            return results;
+        } finally {
+            for (Admitted<T> a : admitted) {
+                if (!a.future.isDone()) {
+                    a.ctx.cancel();
+                }
+            }
+        }
+    }
+
+    /**
+     * Overall budget for {@code statements} statements run back to back in one task.
+     */
+    public long budgetFor(int statements) {
+        return queueTimeoutMs + Math.max(1, statements) * queryTimeoutMs + 1_000;
+    }
+
+    public int perUserMaxConcurrent() {
+        return perUserMaxConcurrent;
+    }
+
+    private static String uid(String userId) {
+        return (userId == null || userId.isBlank()) ? "anonymous" : userId;
+    }
+
+    private <T> Admitted<T> submit(String uid, QueryTask<T> task, boolean stream) {
+        // Slots are created and dropped atomically with their in-flight count, so idle users cost nothing
+        UserSlot slot = users.compute(uid, (k, v) -> {
+            UserSlot us = v == null ? new UserSlot(perUserMaxConcurrent) : v;
+            us.inFlight.incrementAndGet();
+            return us;
+        });
+        if (slot.inFlight.get() > perUserMaxInFlight) {
+            releaseSlot(uid);
+            rejected.increment();
+            throw new QueryRejectedException("Too many queries in flight for user " + uid, true);
+        }
+        if (inFlight.incrementAndGet() > maxInFlight) {
+            inFlight.decrementAndGet();
+            releaseSlot(uid);
+            rejected.increment();
+            throw new QueryRejectedException("Query queue is full, try again shortly", false);
+        }
+
+        QueryContext ctx = new QueryContext();
+        long enqueued = System.nanoTime();
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(runAdmitted(uid, slot, ctx, task, enqueued, stream));
+                } catch (Throwable t) {
+                    future.completeExceptionally(t);
+                }
+            });
+        } catch (RuntimeException ex) {
+            inFlight.decrementAndGet();
+            releaseSlot(uid);
+            throw ex;
+        }
+        return new Admitted<>(future, ctx);
+    }
+
+    /**
+     * @param deadline {@link System#nanoTime()} by which the task must finish; 0 waits indefinitely
+     */
+    private <T> T await(Admitted<T> admitted, long deadline) throws SQLException, IOException {
+        CompletableFuture<T> future = admitted.future;
+        QueryContext ctx = admitted.ctx;
+        try {
+            // H2 enforces the statement timeout itself; this is the backstop
+            return deadline != 0 ? future.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS) : future.get();
+        } catch (TimeoutException te) {
+            timedOut.increment();
+            ctx.cancel();
+            throw new SQLException("Query cancelled after exceeding its time budget", "57014");
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            ctx.cancel();
+            throw new SQLException("Interrupted while waiting for query result", "57014");
+        } catch (ExecutionException ee) {
+            Throwable cause = ee.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof SQLException) throw (SQLException) cause;
+            if (cause instanceof IOException) throw (IOException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    public ExecutorStats stats() {
+        ExecutorStats s = new ExecutorStats();
+        long done = completed.sum();
+        int run = running.get();
+        s.setVirtualThreads(virtualThreads);
+        s.setMaxConcurrent(maxConcurrent);
+        s.setPerUserMaxConcurrent(perUserMaxConcurrent);
+        s.setMaxConcurrentStreams(maxConcurrentStreams);
+        s.setRunning(run);
+        s.setStreaming(streaming.get());
+        s.setQueued(Math.max(0, inFlight.get() - run - streaming.get()));
+        s.setCompleted(done);
+        s.setRejected(rejected.sum());
+        s.setTimedOut(timedOut.sum());
+        s.setAvgWaitMillis(done == 0 ? 0 : waitNanos.sum() / 1e6 / done);
+        s.setAvgExecMillis(done == 0 ? 0 : execNanos.sum() / 1e6 / done);
+        s.setMaxWaitMillis(maxWaitNanos.get() / 1e6);
+        return s;
+    }
+
+    private <T> T runAdmitted(String uid, UserSlot slot, QueryContext ctx, QueryTask<T> task, long enqueued,
+                              boolean stream) throws Exception {
+        Semaphore cap = stream ? streams : global;
+        AtomicInteger active = stream ? streaming : running;
+        boolean userPermit = false;
+        boolean capPermit = false;
+        try {
+            long deadline = enqueued + TimeUnit.MILLISECONDS.toNanos(queueTimeoutMs);
+            userPermit = !stream && slot.permits.tryAcquire(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            capPermit = (stream || userPermit) && cap.tryAcquire(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            if (!capPermit) {
+                rejected.increment();
+                throw new QueryRejectedException("No execution slot available within " + queueTimeoutMs + " ms", false);
+            }
+            long start = System.nanoTime();
+            long waited = start - enqueued;
+            waitNanos.add(waited);
+            maxWaitNanos.accumulateAndGet(waited, Math::max);
+            active.incrementAndGet();
+            try {
+                return task.run(ctx);
+            } finally {
+                active.decrementAndGet();
+                execNanos.add(System.nanoTime() - start);
+                completed.increment();
+            }
+        } finally {
+            if (capPermit) cap.release();
+            if (userPermit) slot.permits.release();
+            inFlight.decrementAndGet();
+            releaseSlot(uid);
+        }
+    }
+
+    private void releaseSlot(String uid) {
+        users.computeIfPresent(uid, (k, v) -> v.inFlight.decrementAndGet() == 0 ? null : v);
+    }
+
+    /**
+     * Java 21+ virtual-thread executor, looked up reflectively so the app still runs on 17.
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException ex) {
+            log.info("Virtual threads not available on this JVM; running queries on platform threads");
+            return null;
+        }
+    }
+}
@@ -0,0 +1,418 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * What {@link AdvisorService} needs from an H2 {@code EXPLAIN} result: the tables
+ * in join order with the access path H2 chose for each, the columns compared in
+ * WHERE/ON conditions, and whether the final ORDER BY is served by an index.
+ * <p>
+ * H2 prints plans as normalized SQL with every identifier quoted and the access
+ * path in a comment after each table, e.g.
+ * {@code FROM "PUBLIC"."EMPLOYEES" "E" /* PUBLIC.IDX_EMPLOYEES_DEPT: DEPT = 'Sales' *}{@code /}.
+ * The comments are cut out first (they nest for subqueries) and the rest is read
+ * with {@link SqlLexer}. Parsing is best effort: anything unrecognized is skipped.
+ */
+final class QueryPlan {
+
+    static final class TableAccess {
+        final String schema;
+        final String table;
+        final String alias;
+        /** Parenthesis depth: 0 for the main join chain, deeper for subqueries. */
+        final int depth;
+        /** Index used, or null for a table scan or an unknown access path. */
+        String index;
+        /** Index condition (e.g. {@code ID = 2}), null when the index is walked in full. */
+        String condition;
+        boolean scan;
+
+        TableAccess(String schema, String table, String alias, int depth) {
+            this.schema = schema;
+            this.table = table;
+            this.alias = alias;
+            this.depth = depth;
+        }
+    }
+
+    /**
+     * Column reference as printed: {@code "C"}, {@code "T"."C"} or {@code "S"."T"."C"}.
+     */
+    static final class Column {
+        final String schema;
+        final String qualifier;
+        final String name;
+        final int depth;
+
+        Column(String schema, String qualifier, String name, int depth) {
+            this.schema = schema;
+            this.qualifier = qualifier;
+            this.name = name;
+            this.depth = depth;
+        }
+    }
+
+    /**
+     * A column compared with a constant ({@code other == null}) or with another column.
+     */
+    static final class Predicate {
+        final Column column;
+        final Column other;
+
+        Predicate(Column column, Column other) {
+            this.column = column;
+            this.other = other;
+        }
+    }
+
+    private static final String[] CONDITION_KEYWORDS = {"IN", "LIKE", "ILIKE", "BETWEEN", "IS", "REGEXP"};
+    private static final int OTHER = 0, SELECT = 1, FROM = 2, WHERE = 3, ORDER = 4, FETCH = 5;
+
+    final List<TableAccess> tables = new ArrayList<>();
+    final List<Predicate> predicates = new ArrayList<>();
+    /** Top-level ORDER BY items resolved to columns; null entries are expressions. */
+    final List<Column> orderBy = new ArrayList<>();
+    boolean indexSorted;
+    boolean directLookup;
+    /** Top-level {@code FETCH FIRST n ROWS} (how H2 prints LIMIT), or -1. */
+    long fetch = -1;
+
+    private QueryPlan() {}
+
+    static QueryPlan parse(String plan) {
+        QueryPlan qp = new QueryPlan();
+        List<int[]> hints = new ArrayList<>();
+        String text = cutComments(plan, hints);
+        for (int[] h : hints) {
+            String hint = plan.substring(h[0], h[1]).trim();
+            if (h[2] == 0 && hint.equals("index sorted")) {
+                qp.indexSorted = true;
+            } else if (hint.equals("direct lookup")) {
+                qp.directLookup = true;
+            }
+        }
+        new Parser(plan, text, hints, qp).run();
+        return qp;
+    }
+
+    /**
+     * Replaces each (possibly nested) block comment with spaces so token positions
+     * still line up with the original, recording [contentStart, contentEnd, parenDepth].
+     */
+    private static String cutComments(String plan, List<int[]> hints) {
+        char[] out = plan.toCharArray();
+        int depth = 0;
+        int i = 0;
+        while (i < out.length) {
+            char c = out[i];
+            if (c == '\'' || c == '"') {
+                int j = i + 1;
+                while (j < out.length && !(out[j] == c && (j + 1 >= out.length || out[j + 1] != c))) {
+                    j += out[j] == c ? 2 : 1;
+                }
+                i = j + 1;
+            } else if (c == '/' && i + 1 < out.length && out[i + 1] == '*') {
+                int nest = 0;
+                int j = i;
+                while (j + 1 < out.length) {
+                    if (out[j] == '/' && out[j + 1] == '*') {
+                        nest++;
+                        j += 2;
+                    } else if (out[j] == '*' && out[j + 1] == '/') {
+                        j += 2;
+                        if (--nest == 0) {
+                            break;
+                        }
+                    } else {
+                        j++;
+                    }
+                }
+                int end = Math.min(j, out.length);
+                hints.add(new int[]{i + 2, Math.max(i + 2, end - 2), depth});
+                for (int k = i; k < end; k++) {
+                    out[k] = ' ';
+                }
+                i = end;
+            } else {
+                if (c == '(') depth++;
+                else if (c == ')') depth--;
+                i++;
+            }
+        }
+        return new String(out);
+    }
+
+    /**
+     * Index-based pass over the token list (plans are small, so tokens are materialized).
+     */
+    private static final class Parser {
+        private final String plan;
+        private final List<int[]> hints;
+        private final QueryPlan qp;
+        private final SqlLexer lx;
+        private final List<int[]> tokens = new ArrayList<>(); // type, start, end, depth
+
+        private final List<Column> selectItems = new ArrayList<>();
+        private final List<Object> conditionAtoms = new ArrayList<>();
+
+        Parser(String plan, String text, List<int[]> hints, QueryPlan qp) {
+            this.plan = plan;
+            this.hints = hints;
+            this.qp = qp;
+            this.lx = new SqlLexer(text);
+        }
+
+        void run() {
+            int depth = 0;
+            for (int type = lx.next(); type != SqlLexer.EOF && type != SqlLexer.UNTERMINATED; type = lx.next()) {
+                if (lx.isSymbol(')')) depth--;
+                tokens.add(new int[]{type, lx.start(), lx.end(), depth});
+                if (lx.isSymbol('(')) depth++;
+            }
+            int section = OTHER;
+            // section to return to when the current parenthesis closes (subqueries, grouped conditions)
+            Deque<Integer> outer = new ArrayDeque<>();
+            boolean topSelectSeen = false;
+            boolean collectSelect = false;
+            boolean itemStart = true;
+            for (int i = 0; i < tokens.size(); i++) {
+                int[] t = tokens.get(i);
+                int type = t[0];
+                if (type == SqlLexer.WORD) {
+                    String word = word(t);
+                    int next = section;
+                    switch (word) {
+                        case "SELECT":
+                            next = SELECT;
+                            collectSelect = t[3] == 0 && !topSelectSeen;
+                            topSelectSeen |= t[3] == 0;
+                            itemStart = true;
+                            break;
+                        case "FROM":
+                        case "JOIN":
+                            next = FROM;
+                            i = tableRef(i + 1) - 1;
+                            break;
+                        case "WHERE":
+                        case "ON":
+                        case "HAVING":
+                            next = WHERE;
+                            break;
+                        case "ORDER":
+                            next = t[3] == 0 ? ORDER : OTHER;
+                            itemStart = true;
+                            break;
+                        case "FETCH":
+                            next = t[3] == 0 ? FETCH : OTHER;
+                            break;
+                        case "GROUP":
+                        case "LIMIT":
+                        case "OFFSET":
+                        case "UNION":
+                        case "EXCEPT":
+                        case "INTERSECT":
+                        case "MINUS":
+                            next = OTHER;
+                            break;
+                        default:
+                            if (section == WHERE) {
+                                conditionAtoms.add(indexOf(CONDITION_KEYWORDS, word) >= 0 ? word : null);
+                            }
+                            break;
+                    }
+                    if (next != section) {
+                        flushConditions();
+                        if (section == SELECT) collectSelect = false;
+                    }
+                    section = next;
+                    continue;
+                }
+                if (type == SqlLexer.QUOTED) {
+                    int after = columnEnd(i);
+                    boolean call = after < tokens.size() && isSymbol(tokens.get(after), '(');
+                    Column col = call ? null : column(i, after);
+                    if (section == WHERE) {
+                        conditionAtoms.add(col);
+                    } else if (section == SELECT && collectSelect && itemStart) {
+                        // a plain column item: next token ends the item
+                        boolean plain = after >= tokens.size() || isSymbol(tokens.get(after), ',')
+                                || tokens.get(after)[0] == SqlLexer.WORD;
+                        selectItems.add(plain ? col : null);
+                        itemStart = false;
+                    } else if (section == ORDER && itemStart) {
+                        qp.orderBy.add(col);
+                        itemStart = false;
+                    }
+                    i = after - 1;
+                    continue;
+                }
+                if (isSymbol(t, '(')) {
+                    outer.push(section);
+                } else if (isSymbol(t, ')') && !outer.isEmpty()) {
+                    int restored = outer.pop();
+                    if (restored != section && section == WHERE) {
+                        flushConditions();
+                    }
+                    section = restored;
+                }
+                if (section == WHERE) {
+                    conditionAtoms.add(type == SqlLexer.OPERATOR ? "=" : null);
+                } else if (section == FETCH && type == SqlLexer.NUMBER && qp.fetch < 0) {
+                    qp.fetch = number(t);
+                } else if (section == SELECT && collectSelect) {
+                    if (isSymbol(t, ',') && t[3] == 0) {
+                        itemStart = true;
+                    } else if (itemStart) {
+                        selectItems.add(null);
+                        itemStart = false;
+                    }
+                } else if (section == ORDER) {
+                    if (isSymbol(t, ',')) {
+                        itemStart = true;
+                    } else if (itemStart) {
+                        qp.orderBy.add(type == SqlLexer.NUMBER ? selectItem(t) : null);
+                        itemStart = false;
+                    }
+                }
+            }
+            flushConditions();
+        }
+
+        /**
+         * Reads {@code "S"."T" ["ALIAS"]} and the access-path comment after it.
+         * @return index of the first token after the reference
+         */
+        private int tableRef(int i) {
+            if (i >= tokens.size() || tokens.get(i)[0] != SqlLexer.QUOTED) {
+                return i; // derived table, function table, ...
+            }
+            int after = columnEnd(i);
+            if (after < tokens.size() && isSymbol(tokens.get(after), '(')) {
+                return after;
+            }
+            List<String> parts = parts(i, after);
+            String alias = null;
+            if (after < tokens.size() && tokens.get(after)[0] == SqlLexer.QUOTED) {
+                alias = unquote(tokens.get(after));
+                after++;
+            }
+            String table = parts.get(parts.size() - 1);
+            String schema = parts.size() > 1 ? parts.get(parts.size() - 2) : null;
+            TableAccess ta = new TableAccess(schema, table, alias, tokens.get(i)[3]);
+            int from = tokens.get(after - 1)[2];
+            int to = after < tokens.size() ? tokens.get(after)[1] : plan.length();
+            for (int[] h : hints) {
+                if (h[0] >= from && h[0] < to) {
+                    access(ta, plan.substring(h[0], h[1]).trim());
+                    break;
+                }
+            }
+            qp.tables.add(ta);
+            return after;
+        }
+
+        private void access(TableAccess ta, String hint) {
+            if (hint.endsWith(".tableScan")) {
+                ta.scan = true;
+                return;
+            }
+            int colon = hint.indexOf(':');
+            String name = colon < 0 ? hint : hint.substring(0, colon);
+            if (name.indexOf(' ') >= 0 || name.indexOf('(') >= 0) {
+                return; // derived-table plan or something else we do not model
+            }
+            ta.index = name.substring(name.lastIndexOf('.') + 1);
+            ta.condition = colon < 0 ? null : hint.substring(colon + 1).trim();
+        }
+
+        /**
+         * Turns the atoms of one WHERE/ON section into column predicates.
+         */
+        private void flushConditions() {
+            List<Object> a = conditionAtoms;
+            for (int i = 0; i < a.size(); i++) {
+                Object atom = a.get(i);
+                if ("=".equals(atom)) {
+                    Column left = i > 0 && a.get(i - 1) instanceof Column ? (Column) a.get(i - 1) : null;
+                    Column right = i + 1 < a.size() && a.get(i + 1) instanceof Column ? (Column) a.get(i + 1) : null;
+                    if (left != null) {
+                        qp.predicates.add(new Predicate(left, right));
+                    } else if (right != null) {
+                        qp.predicates.add(new Predicate(right, null));
+                    }
+                } else if (atom instanceof String && i > 0 && a.get(i - 1) instanceof Column) {
+                    qp.predicates.add(new Predicate((Column) a.get(i - 1), null));
+                }
+            }
+            a.clear();
+        }
+
+        private Column selectItem(int[] number) {
+            long pos = number(number);
+            return pos >= 1 && pos <= selectItems.size() ? selectItems.get((int) pos - 1) : null;
+        }
+
+        private long number(int[] t) {
+            try {
+                return Long.parseLong(plan.substring(t[1], t[2]));
+            } catch (NumberFormatException ex) {
+                return -1;
+            }
+        }
+
+        /**
+         * End (exclusive) of a dotted run of quoted identifiers starting at {@code i}.
+         */
+        private int columnEnd(int i) {
+            int j = i + 1;
+            while (j + 1 < tokens.size() && isSymbol(tokens.get(j), '.') && tokens.get(j + 1)[0] == SqlLexer.QUOTED) {
+                j += 2;
+            }
+            return j;
+        }
+
+        private Column column(int i, int end) {
+            List<String> p = parts(i, end);
+            int n = p.size();
+            return new Column(n >= 3 ? p.get(n - 3) : null, n >= 2 ? p.get(n - 2) : null, p.get(n - 1),
+                    tokens.get(i)[3]);
+        }
+
+        private List<String> parts(int i, int end) {
+            List<String> out = new ArrayList<>(3);
+            for (int j = i; j < end; j += 2) {
+                out.add(unquote(tokens.get(j)));
+            }
+            return out;
+        }
+
+        private String unquote(int[] t) {
+            return TableVersions.canonical(plan.substring(t[1], t[2]));
+        }
+
+        private String word(int[] t) {
+            return plan.substring(t[1], t[2]).toUpperCase(Locale.ROOT);
+        }
+
+        private boolean isSymbol(int[] t, char c) {
+            return t[0] == SqlLexer.SYMBOL && plan.charAt(t[1]) == c;
+        }
+
+        private static int indexOf(String[] words, String word) {
+            for (int i = 0; i < words.length; i++) {
+                if (words[i].equals(word)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.service;
+
+/**
+ * Raised when a query cannot be admitted to the executor: the caller already
+ * has too many queries queued ({@link #isUserLimit()} = true, HTTP 429) or the
+ * global queue is full / the wait timed out (HTTP 503).
+ */
+public class QueryRejectedException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final boolean userLimit;
+
+    public QueryRejectedException(String message, boolean userLimit) {
+        super(message);
+        this.userLimit = userLimit;
+    }
+
+    public boolean isUserLimit() {
+        return userLimit;
+    }
+}
@@ -4,101 +4,190 @@
  */
 package com.sqlforge.service;
 
+import com.sqlforge.model.HistoryStats;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.sql.SQLException;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Query utilities: lightweight NL->SQL mapping, history store.
- * This is intentionally rule-based to avoid external dependencies.
+ * This is intentionally rule-based to avoid external dependencies: NL-to-SQL is an
+ * {@link NlEngine} compiled from intent rules and a {@link NlSchemaIndex} of the
+ * shared database, rebuilt in the background every {@code sqlforge.nl.refresh-ms}
+ * and shortly after a server-side write.
  */
 @Service
 public class QueryService {
     private static final Logger log = LoggerFactory.getLogger(QueryService.class);
 
-    // Simple in-memory per-user history. For production, replace with persistent store.
-    private final Map<String, Deque<String>> history = new ConcurrentHashMap<>();
-    private final int HISTORY_LIMIT = 100;
+    public static final int DEFAULT_HISTORY_PAGE = 100;
+    public static final int MAX_HISTORY_PAGE = 1000;
+    private static final long NL_WRITE_DELAY_MS = 1_000;
+
+    // Per-user history: an append-only log under the data directory, or bounded ring buffers in memory
+    private final HistoryBackend history;
+    private final BoundedExecutor translator; // for nlToSqlAsync
+    private final DatabaseService db;
+    private final List<NlEngine.Rule> nlRules;
+    private final String nlDefaultTable;
+    private final int nlMaxValues;
+    private final long nlMaxScanRows;
+    private final int nlMaxLimit;
+    private final ScheduledExecutorService nlRefresher;
+    private final AtomicBoolean nlRefreshPending = new AtomicBoolean();
+    private volatile NlEngine nlEngine;
+
+    /**
+     * @throws IllegalArgumentException if {@code sqlforge.nl.rules-file} holds a malformed rule
+     */
+    public QueryService(Environment env, DatabaseService db) throws IOException {
+        // Rules from the file come first, so they take precedence over the built-in ones
+        List<String> ruleLines = new ArrayList<>();
+        String rulesFile = env.getProperty("sqlforge.nl.rules-file", "");
+        if (!rulesFile.isBlank()) {
+            ruleLines.addAll(Files.readAllLines(Paths.get(rulesFile), StandardCharsets.UTF_8));
+        }
+        ruleLines.addAll(NlEngine.DEFAULT_RULES);
+        this.db = db;
+        this.nlRules = NlEngine.parseRules(ruleLines);
+        if (env.getProperty("sqlforge.history.persist", Boolean.class, true)) {
+            this.history = new HistoryLog(
+                    Paths.get(env.getProperty("sqlforge.history.dir", "./data/history")),
+                    env.getProperty("sqlforge.history.segment-bytes", Long.class, 16L * 1024 * 1024),
+                    env.getProperty("sqlforge.history.retention-bytes", Long.class, 1024L * 1024 * 1024),
+                    env.getProperty("sqlforge.history.retention-ms", Long.class, 7 * 24 * 3_600_000L),
+                    env.getProperty("sqlforge.history.keep-per-user", Integer.class, 1000),
+                    env.getProperty("sqlforge.history.fsync", Boolean.class, true),
+                    env.getProperty("sqlforge.history.queue-capacity", Integer.class, 65_536));
+        } else {
+            this.history = new HistoryStore(
+                    env.getProperty("sqlforge.history.per-user", Integer.class, 100),
+                    env.getProperty("sqlforge.history.max-bytes", Long.class, 32L * 1024 * 1024),
+                    env.getProperty("sqlforge.history.idle-timeout-ms", Long.class, 30 * 60_000L),
+                    env.getProperty("sqlforge.history.intern-table-size", Integer.class, 4096));
+        }
+        this.translator = new BoundedExecutor("nl",
+                env.getProperty("sqlforge.nl.threads", Integer.class, 1),
+                env.getProperty("sqlforge.nl.queue-capacity", Integer.class, 256),
+                env.getProperty("sqlforge.nl.timeout-ms", Long.class, 1_000L));
+        this.nlDefaultTable = env.getProperty("sqlforge.nl.default-table", "employees");
+        this.nlMaxValues = env.getProperty("sqlforge.nl.max-values", Integer.class, 100);
+        this.nlMaxScanRows = env.getProperty("sqlforge.nl.max-scan-rows", Long.class, 100_000L);
+        this.nlMaxLimit = env.getProperty("sqlforge.nl.max-limit", Integer.class, 1000);
+        this.nlEngine = new NlEngine(nlRules, NlSchemaIndex.empty(), nlDefaultTable, nlMaxLimit);
+        this.nlRefresher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "sqlforge-nl-refresh");
+            t.setDaemon(true);
+            return t;
+        });
+        long refreshMs = Math.max(1_000, env.getProperty("sqlforge.nl.refresh-ms", Long.class, 60_000L));
+        nlRefresher.scheduleWithFixedDelay(this::refreshNlEngine, 0, refreshMs, TimeUnit.MILLISECONDS);
+        // writes come in bursts (an import commits every few thousand rows): one rebuild a second at most
+        db.tableVersions().onChange(table -> {
+            if (nlRefreshPending.compareAndSet(false, true)) {
+                nlRefresher.schedule(this::refreshNlEngine, NL_WRITE_DELAY_MS, TimeUnit.MILLISECONDS);
+            }
+        });
+    }
+
+    /**
+     * Rebuilds the NL engine from a fresh schema index now, on the calling thread,
+     * instead of waiting for the next background refresh.
+     */
+    public void reloadNlIndex() {
+        refreshNlEngine();
+    }
+
+    /**
+     * Rebuilds the NL engine from a fresh schema index; on failure the previous engine stays in use.
+     */
+    private void refreshNlEngine() {
+        nlRefreshPending.set(false);
+        try {
+            NlSchemaIndex index = db.nlSchemaIndex(nlMaxValues, nlMaxScanRows);
+            nlEngine = new NlEngine(nlRules, index, nlDefaultTable, nlMaxLimit);
+            log.debug("NL engine rebuilt for {} tables", index.tableCount());
+        } catch (SQLException | RuntimeException ex) {
+            log.warn("Loading the NL schema index failed: {}", ex.getMessage());
+        }
+    }
 
     public void recordHistory(String userId, String sql) {
         String uid = (userId == null || userId.isBlank()) ? "anonymous" : userId;
-        history.putIfAbsent(uid, new ArrayDeque<>());
-        Deque<String> q = history.get(uid);
-        synchronized (q) {
-            q.addFirst(sql);
-            while (q.size() > HISTORY_LIMIT) q.removeLast();
-        }
+        history.append(uid, sql);
     }
 
+    /**
+     * Records the statements of a batch in one history write, in request order.
+     */
+    public void recordHistory(String userId, List<String> statements) {
+        String uid = (userId == null || userId.isBlank()) ? "anonymous" : userId;
+        history.appendAll(uid, statements);
+    }
+
+    /**
+     * Most recent {@value #DEFAULT_HISTORY_PAGE} statements, newest first.
+     */
     public List<String> getHistory(String userId) {
+        return getHistory(userId, 0, DEFAULT_HISTORY_PAGE);
+    }
+
+    /**
+     * One page of history, newest first, skipping the {@code offset} most recent statements.
+     */
+    public List<String> getHistory(String userId, int offset, int limit) {
         String uid = (userId == null || userId.isBlank()) ? "anonymous" : userId;
-        Deque<String> q = history.getOrDefault(uid, new ArrayDeque<>());
-        synchronized (q) {
-            return new ArrayList<>(q);
-        }
+        return history.page(uid, Math.max(0, offset), Math.max(1, Math.min(limit, MAX_HISTORY_PAGE)));
+    }
+
+    public HistoryStats historyStats() {
+        return history.stats();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        nlRefresher.shutdownNow();
+        translator.close();
+        history.close();
     }
 
     /**
-     * Very small local NL->SQL translator using heuristics.
+     * Local NL->SQL translator: one pass of the compiled rule engine over the text.
+     * Values are bound by the engine and written back as literals here.
      * Examples:
-     *  - "list employees in engineering" -> SELECT * FROM employees WHERE dept = 'Engineering'
+     *  - "list employees in engineering" -> SELECT * FROM employees WHERE dept = 'Engineering' LIMIT 100
      *  - "top salaries" -> SELECT * FROM employees ORDER BY salary DESC LIMIT 10
+     *  - "average salary by dept" -> SELECT dept, AVG(salary) AS avg_salary FROM employees GROUP BY dept ORDER BY dept
      */
     public String nlToSql(String nl) {
         if (nl == null || nl.trim().isEmpty()) {
             throw new IllegalArgumentException("Text cannot be empty");
         }
-        String t = nl.trim().toLowerCase(Locale.ROOT);
-        log.info("Converting NL to SQL: {}", t);
-
-        // heuristics
-        if (t.matches(".*top .*salary.*") || t.matches(".*highest .*salary.*")) {
-            return "SELECT * FROM employees ORDER BY salary DESC LIMIT 10";
-        }
-        if (t.matches(".*list .*employees.*in .*")) {
-            String dept = extractAfter(t, "in ");
-            if (dept != null) {
-                dept = capitalizeWords(dept);
-                return "SELECT * FROM employees WHERE dept = '" + escapeLiteral(dept) + "' LIMIT 100";
-            }
-        }
-        if (t.matches(".*count .*employees.*")) {
-            return "SELECT COUNT(*) AS total_employees FROM employees";
-        }
-        if (t.matches(".*projects owned by .*")) {
-            String who = extractAfter(t, "owned by ");
-            if (who != null) {
-                who = escapeLiteral(capitalizeWords(who));
-                return "SELECT p.* FROM projects p JOIN employees e ON p.owner_id = e.id WHERE e.name LIKE '%" + who + "%'";
-            }
-        }
-        // fallback -> search across tables
-        return "SELECT * FROM employees LIMIT 50";
-    }
-
-    private String extractAfter(String text, String marker) {
-        int idx = text.indexOf(marker);
-        if (idx < 0) return null;
-        String s = text.substring(idx + marker.length()).trim();
-        // take first phrase
-        int end = s.indexOf(" ");
-        return end > 0 ? s.substring(0, end) : s;
-    }
-
-    private String capitalizeWords(String s) {
-        String[] parts = s.split("\\s+");
-        StringBuilder sb = new StringBuilder();
-        for (String p : parts) {
-            if (p.isEmpty()) continue;
-            sb.append(Character.toUpperCase(p.charAt(0))).append(p.substring(1)).append(' ');
-        }
-        return sb.toString().trim();
+        // never null: the built-in fallback rule is always last
+        NlTranslation t = nlEngine.translate(nl.trim());
+        log.debug("NL to SQL via rule {}: {}", t.rule(), t.template());
+        return t.sql();
     }
 
-    private String escapeLiteral(String s) {
-        return s.replace("'", "''");
+    /**
+     * {@link #nlToSql} on a small bounded pool of its own, for the async API.
+     * An empty text fails the future with {@link IllegalArgumentException}.
+     */
+    public CompletableFuture<String> nlToSqlAsync(String nl) {
+        return translator.supply(() -> nlToSql(nl));
     }
 }
@@ -0,0 +1,16 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.service;
+
+import java.io.IOException;
+import java.sql.SQLException;
+
+/**
+ * Unit of work run by {@link QueryExecutor}.
+ */
+@FunctionalInterface
+public interface QueryTask<T> {
+    T run(QueryContext ctx) throws SQLException, IOException;
+}
@@ -0,0 +1,335 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.service;
+
+import com.sqlforge.model.PhaseTimings;
+import com.sqlforge.model.QueryMetrics;
+import com.sqlforge.model.SlowQuery;
+import com.sqlforge.model.StatementStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Per-statement execution telemetry. Every execution is timed phase by phase
+ * ({@link Sample}) and folded into the latency histogram of its fingerprint;
+ * executions slower than the threshold compete for a place in a top-N slow-query
+ * log. The first time a fingerprint lands in that log its plan is captured on a
+ * background thread, so the request that was slow does not wait for an EXPLAIN.
+ */
+final class QueryTelemetry {
+    private static final Logger log = LoggerFactory.getLogger(QueryTelemetry.class);
+
+    static final int VALIDATE = 0;
+    static final int ACQUIRE = 1;
+    static final int PREPARE = 2;
+    static final int EXECUTE = 3;
+    static final int MATERIALIZE = 4;
+    private static final int PHASES = 5;
+
+    static final String MODE_READ = "read";
+    static final String MODE_EXPLAIN = "explain";
+    static final String MODE_STREAM = "stream";
+    static final String MODE_EXPORT = "export";
+
+    private static final int MAX_SQL_CHARS = 1000;
+
+    /**
+     * Stopwatch for one execution: each {@link #lap} charges the time since the
+     * previous lap to a phase. Not thread-safe; a statement is timed by the thread running it.
+     */
+    static final class Sample {
+        private final long[] phases = new long[PHASES];
+        private long last = System.nanoTime();
+
+        void lap(int phase) {
+            long now = System.nanoTime();
+            phases[phase] += now - last;
+            last = now;
+        }
+
+        /**
+         * Charges time measured elsewhere (batch statements are validated before the batch runs).
+         */
+        void add(int phase, long nanos) {
+            phases[phase] += nanos;
+        }
+
+        PhaseTimings toTimings() {
+            PhaseTimings t = new PhaseTimings();
+            t.setValidateMillis(millis(phases[VALIDATE]));
+            t.setAcquireMillis(millis(phases[ACQUIRE]));
+            t.setPrepareMillis(millis(phases[PREPARE]));
+            t.setExecuteMillis(millis(phases[EXECUTE]));
+            t.setMaterializeMillis(millis(phases[MATERIALIZE]));
+            t.setTotalMillis(millis(sum()));
+            return t;
+        }
+
+        long sum() {
+            long total = 0;
+            for (long p : phases) {
+                total += p;
+            }
+            return total;
+        }
+    }
+
+    private static final class Stats {
+        final String fingerprint;
+        final String sql;
+        final String mode;
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder[] phases = new LongAdder[PHASES];
+        final LongAdder errors = new LongAdder();
+        final LongAdder rows = new LongAdder();
+        final AtomicBoolean planRequested = new AtomicBoolean();
+        volatile String plan;
+
+        Stats(String fingerprint, String sql, String mode) {
+            this.fingerprint = fingerprint;
+            this.sql = sql;
+            this.mode = mode;
+            for (int i = 0; i < PHASES; i++) {
+                phases[i] = new LongAdder();
+            }
+        }
+
+        StatementStats snapshot() {
+            StatementStats s = new StatementStats();
+            long count = latency.count();
+            s.setFingerprint(fingerprint);
+            s.setSql(sql);
+            s.setMode(mode);
+            s.setCount(count);
+            s.setErrors(errors.sum());
+            s.setMeanMillis(latency.meanMillis());
+            s.setP50Millis(latency.percentileMillis(0.50));
+            s.setP90Millis(latency.percentileMillis(0.90));
+            s.setP99Millis(latency.percentileMillis(0.99));
+            s.setMaxMillis(latency.maxMillis());
+            long rowCount = rows.sum();
+            long workNanos = phases[EXECUTE].sum() + phases[MATERIALIZE].sum();
+            s.setRows(rowCount);
+            s.setRowsPerSecond(workNanos == 0 ? 0 : rowCount * 1e9 / workNanos);
+            PhaseTimings mean = new PhaseTimings();
+            if (count > 0) {
+                mean.setValidateMillis(millis(phases[VALIDATE].sum()) / count);
+                mean.setAcquireMillis(millis(phases[ACQUIRE].sum()) / count);
+                mean.setPrepareMillis(millis(phases[PREPARE].sum()) / count);
+                mean.setExecuteMillis(millis(phases[EXECUTE].sum()) / count);
+                mean.setMaterializeMillis(millis(phases[MATERIALIZE].sum()) / count);
+                mean.setTotalMillis(latency.meanMillis());
+            }
+            s.setMeanPhases(mean);
+            return s;
+        }
+    }
+
+    private static final class Slow {
+        final Stats stats;
+        final String sql;
+        final long totalNanos;
+        final long at = System.currentTimeMillis();
+        final long rows;
+        final boolean ok;
+        final PhaseTimings timings;
+
+        Slow(Stats stats, String sql, Sample sample, long rows, boolean ok) {
+            this.stats = stats;
+            this.sql = sql.length() > MAX_SQL_CHARS ? sql.substring(0, MAX_SQL_CHARS) + "…" : sql;
+            this.totalNanos = sample.sum();
+            this.rows = rows;
+            this.ok = ok;
+            this.timings = sample.toTimings();
+        }
+    }
+
+    private final boolean enabled;
+    private final int maxStatements;
+    private final int slowLogSize;
+    private final long slowThresholdNanos;
+    private final ConcurrentHashMap<Long, Stats> statements = new ConcurrentHashMap<>();
+    // executions of fingerprints seen after maxStatements was reached
+    private final Stats overflow = new Stats("overflow", "(statements beyond sqlforge.telemetry.max-statements)", "");
+    // min-heap on latency, so the fastest of the slow queries is the one evicted
+    private final PriorityQueue<Slow> slowLog = new PriorityQueue<>(Comparator.comparingLong((Slow s) -> s.totalNanos));
+    // latency a query must beat to enter the full slow log; read without the lock
+    private volatile long slowFloorNanos;
+    private final Function<SqlNormalizer.NormalizedSql, String> planner;
+    private final ThreadPoolExecutor planExecutor;
+
+    /**
+     * @param planner returns the plan text of a normalized statement, or null; runs on the telemetry thread
+     */
+    QueryTelemetry(boolean enabled, int maxStatements, int slowLogSize, long slowThresholdMs,
+                   Function<SqlNormalizer.NormalizedSql, String> planner) {
+        this.enabled = enabled;
+        this.maxStatements = Math.max(1, maxStatements);
+        this.slowLogSize = Math.max(0, slowLogSize);
+        this.slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, slowThresholdMs));
+        this.slowFloorNanos = slowThresholdNanos;
+        this.planner = planner;
+        // one thread and a short queue: plans are a diagnostic, dropped rather than queued behind load;
+        // a rejected capture throws so capturePlan can clear planRequested for a later try
+        this.planExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(16), r -> {
+            Thread t = new Thread(r, "sqlforge-telemetry");
+            t.setDaemon(true);
+            return t;
+        }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Folds one finished execution into the statistics of its fingerprint.
+     * @param normalized the statement as validated, also used to capture the plan
+     * @param sql the statement as submitted, shown in the slow-query log
+     */
+    void record(SqlNormalizer.NormalizedSql normalized, String mode, String sql, Sample sample, long rows, boolean ok) {
+        if (!enabled) {
+            return;
+        }
+        Stats stats = statsFor(normalized, mode);
+        long total = sample.sum();
+        stats.latency.record(total);
+        for (int i = 0; i < PHASES; i++) {
+            if (sample.phases[i] != 0) {
+                stats.phases[i].add(sample.phases[i]);
+            }
+        }
+        stats.rows.add(rows);
+        if (!ok) {
+            stats.errors.increment();
+        }
+        if (total >= slowFloorNanos && slowLogSize > 0 && stats != overflow) {
+            offerSlow(new Slow(stats, sql, sample, rows, ok));
+            if (!MODE_EXPLAIN.equals(mode) && stats.planRequested.compareAndSet(false, true)) {
+                capturePlan(stats, normalized);
+            }
+        }
+    }
+
+    /**
+     * @param sort "p99" (default), "count" or "total" (count × mean, i.e. where the time goes)
+     */
+    QueryMetrics metrics(String sort, int limit) {
+        QueryMetrics m = new QueryMetrics();
+        m.setEnabled(enabled);
+        m.setTrackedStatements(statements.size());
+        m.setMaxStatements(maxStatements);
+        m.setOverflowCount(overflow.latency.count());
+        m.setSlowThresholdMillis(millis(slowThresholdNanos));
+        List<StatementStats> all = new ArrayList<>(statements.size());
+        for (Stats s : statements.values()) {
+            all.add(s.snapshot());
+        }
+        all.sort(comparator(sort));
+        m.setStatements(new ArrayList<>(all.subList(0, Math.min(Math.max(0, limit), all.size()))));
+        List<Slow> slow;
+        synchronized (slowLog) {
+            slow = new ArrayList<>(slowLog);
+        }
+        slow.sort(Comparator.comparingLong((Slow s) -> s.totalNanos).reversed());
+        for (Slow s : slow) {
+            SlowQuery q = new SlowQuery();
+            q.setFingerprint(s.stats.fingerprint);
+            q.setSql(s.sql);
+            q.setTimestamp(Instant.ofEpochMilli(s.at).toString());
+            q.setRows(s.rows);
+            q.setOk(s.ok);
+            q.setTimings(s.timings);
+            q.setPlan(s.stats.plan);
+            m.getSlowQueries().add(q);
+        }
+        return m;
+    }
+
+    void close() {
+        planExecutor.shutdownNow();
+    }
+
+    private Stats statsFor(SqlNormalizer.NormalizedSql normalized, String mode) {
+        long fingerprint = normalized.getFingerprint();
+        Long key = fingerprint ^ (mode.hashCode() * 0x9E3779B97F4A7C15L);
+        Stats stats = statements.get(key);
+        if (stats != null) {
+            return stats;
+        }
+        if (statements.size() >= maxStatements) {
+            return overflow;
+        }
+        // the display text is only worked out for a fingerprint's first execution
+        return statements.computeIfAbsent(key, k -> new Stats(Long.toHexString(fingerprint),
+                SqlNormalizer.fingerprintText(normalized.getText()), mode));
+    }
+
+    private void offerSlow(Slow slow) {
+        synchronized (slowLog) {
+            if (slowLog.size() >= slowLogSize) {
+                if (slow.totalNanos <= slowLog.peek().totalNanos) {
+                    return;
+                }
+                slowLog.poll();
+            }
+            slowLog.add(slow);
+            if (slowLog.size() >= slowLogSize) {
+                slowFloorNanos = Math.max(slowThresholdNanos, slowLog.peek().totalNanos);
+            }
+        }
+    }
+
+    private void capturePlan(Stats stats, SqlNormalizer.NormalizedSql normalized) {
+        try {
+            planExecutor.execute(() -> {
+                try {
+                    stats.plan = planner.apply(normalized);
+                } catch (RuntimeException ex) {
+                    log.debug("Plan capture failed for {}: {}", stats.fingerprint, ex.getMessage());
+                }
+                if (stats.plan == null) {
+                    // let a later slow execution try again
+                    stats.planRequested.set(false);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            stats.planRequested.set(false);
+        }
+    }
+
+    private static Comparator<StatementStats> comparator(String sort) {
+        String key = sort == null ? "p99" : sort.toLowerCase(Locale.ROOT);
+        switch (key) {
+            case "count":
+                return Comparator.comparingLong(StatementStats::getCount).reversed();
+            case "total":
+                return Comparator.comparingDouble((StatementStats s) -> s.getCount() * s.getMeanMillis()).reversed();
+            case "p99":
+                return Comparator.comparingDouble(StatementStats::getP99Millis).reversed();
+            default:
+                throw new IllegalArgumentException("Unknown sort: " + sort + " (expected p99, count or total)");
+        }
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+}
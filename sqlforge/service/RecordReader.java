@@ -0,0 +1,33 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Pull-style reader over the records of an import source. Records are read one
+ * at a time from the underlying stream, so memory use does not grow with the input.
+ */
+interface RecordReader extends Closeable {
+
+    /**
+     * Source column names, as given by the header or the first record.
+     */
+    List<String> columns() throws IOException;
+
+    /**
+     * Next record aligned with {@link #columns()}, or null at the end of the input.
+     * The returned array may be reused by the next call.
+     * @throws IllegalArgumentException if the record is malformed or over the size limits
+     */
+    Object[] next() throws IOException;
+
+    /**
+     * 1-based number of the record last returned, for error messages.
+     */
+    long recordNumber();
+}
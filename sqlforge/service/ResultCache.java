@@ -0,0 +1,166 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.service;
+
+import com.sqlforge.model.CacheStats;
+import com.sqlforge.model.ColumnData;
+import com.sqlforge.model.ColumnarResult;
+import com.sqlforge.model.QueryResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Opt-in cache of successful query responses, bounded by estimated heap bytes.
+ * Entries expire after a TTL and are dropped as soon as any table they read
+ * from is written through a server-side path (see {@link TableVersions}).
+ * Table detection is best effort, so the TTL also bounds staleness for
+ * statements whose tables could not be identified.
+ */
+final class ResultCache {
+
+    private static final class Entry {
+        final QueryResponse response;
+        final Map<String, Long> versions;
+        final long expiresAt;
+        final long bytes;
+
+        Entry(QueryResponse response, Map<String, Long> versions, long expiresAt, long bytes) {
+            this.response = response;
+            this.versions = versions;
+            this.expiresAt = expiresAt;
+            this.bytes = bytes;
+        }
+    }
+
+    private final LruCache<String, Entry> cache;
+    private final TableVersions tableVersions;
+    private final long ttlMs;
+
+    ResultCache(TableVersions tableVersions, long maxBytes, long ttlMs) {
+        this.tableVersions = tableVersions;
+        this.ttlMs = ttlMs;
+        this.cache = new LruCache<>("result-cache", maxBytes, (k, e) -> e.bytes, null, new LruCache.Counters());
+        // Free memory eagerly; the version check in get() covers writes racing a fill.
+        tableVersions.onChange(table -> cache.removeIf((k, e) -> e.versions.containsKey(table)));
+    }
+
+    /**
+     * Cache key: mode, row limit, page cursor, normalized text and typed bind parameters.
+     * @param cursor null for the first page
+     */
+    static String key(String mode, SqlNormalizer.NormalizedSql sql, int maxRows, String cursor) {
+        StringBuilder sb = new StringBuilder(sql.getText().length() + 24);
+        sb.append(mode == null ? "read" : mode.toLowerCase(Locale.ROOT)).append('\u0000').append(maxRows)
+                .append('\u0000').append(cursor == null ? "" : cursor)
+                .append('\u0000').append(sql.getText());
+        for (Object p : sql.getParams()) {
+            sb.append('\u0000').append(p.getClass().getSimpleName()).append(':').append(p);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Versions of the statement's tables, taken before it executes.
+     */
+    Map<String, Long> snapshot(SqlNormalizer.NormalizedSql sql) {
+        return tableVersions.snapshot(sql.getTables());
+    }
+
+    QueryResponse get(String key) {
+        Entry e = cache.get(key, this::isFresh);
+        return e == null ? null : markCached(e.response);
+    }
+
+    void put(String key, QueryResponse response, Map<String, Long> versions) {
+        if (!response.isOk()) {
+            return;
+        }
+        if (response.getRows() instanceof OffHeapRows) {
+            // the caller writes and releases its rows; the cache keeps a heap copy that lives as long as the entry
+            QueryResponse copy = markCached(response);
+            copy.setCached(false);
+            copy.setRows(new ArrayList<>(response.getRows()));
+            response = copy;
+        }
+        long bytes = estimateBytes(key, response);
+        cache.put(key, new Entry(response, versions, System.currentTimeMillis() + ttlMs, bytes));
+    }
+
+    CacheStats stats() {
+        return cache.stats();
+    }
+
+    private boolean isFresh(Entry e) {
+        return System.currentTimeMillis() < e.expiresAt && tableVersions.isCurrent(e.versions);
+    }
+
+    private static QueryResponse markCached(QueryResponse src) {
+        QueryResponse r = QueryResponse.copyOf(src);
+        r.setCached(true);
+        return r;
+    }
+
+    /**
+     * Rough retained-size estimate: object headers, map entries and string payloads.
+     */
+    static long estimateBytes(String key, QueryResponse r) {
+        long bytes = 256 + 2L * key.length();
+        List<Map<String, Object>> rows = r.getRows();
+        for (Map<String, Object> row : rows) {
+            bytes += 80;
+            for (Object v : row.values()) {
+                bytes += 48 + valueBytes(v);
+            }
+        }
+        if (r.getColumnar() != null) {
+            bytes += columnarBytes(r.getColumnar());
+        }
+        return bytes;
+    }
+
+    private static long columnarBytes(ColumnarResult result) {
+        long bytes = 64;
+        for (ColumnData c : result.getColumns()) {
+            bytes += 128;
+            if (c.getNulls() != null) bytes += c.getNulls().length;
+            if (c.getInts() != null) bytes += 4L * c.getInts().length;
+            if (c.getCodes() != null) bytes += 4L * c.getCodes().length;
+            if (c.getLongs() != null) bytes += 8L * c.getLongs().length;
+            if (c.getDoubles() != null) bytes += 8L * c.getDoubles().length;
+            bytes += arrayBytes(c.getDictionary()) + arrayBytes(c.getStrings()) + arrayBytes(c.getValues());
+        }
+        return bytes;
+    }
+
+    private static long arrayBytes(Object[] values) {
+        if (values == null) {
+            return 0;
+        }
+        long bytes = 16 + 8L * values.length;
+        for (Object v : values) {
+            bytes += valueBytes(v);
+        }
+        return bytes;
+    }
+
+    private static long valueBytes(Object v) {
+        if (v == null) {
+            return 0;
+        }
+        if (v instanceof CharSequence) {
+            return 40 + 2L * ((CharSequence) v).length();
+        }
+        if (v instanceof Number || v instanceof Boolean) {
+            return 24;
+        }
+        if (v instanceof byte[]) {
+            return 16 + ((byte[]) v).length;
+        }
+        return 64;
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.service;
+
+import java.io.IOException;
+
+/**
+ * Receives a query result row by row (see {@link DatabaseService#stream}).
+ * Throwing {@link IOException} aborts the query.
+ */
+public interface RowSink {
+
+    void start(String[] columns) throws IOException;
+
+    /**
+     * Called instead of {@link #start(String[])} when the column types are known.
+     * @param types {@link java.sql.Types} constants, one per column
+     */
+    default void start(String[] columns, int[] types) throws IOException {
+        start(columns);
+    }
+
+    /**
+     * @param values cell values; the array is reused for the next row, so copy anything kept
+     */
+    void row(Object[] values) throws IOException;
+
+    /**
+     * @param truncated true if the row limit stopped the result early
+     */
+    void end(long rowCount, boolean truncated) throws IOException;
+}
@@ -0,0 +1,369 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.service;
+
+import com.sqlforge.model.SandboxInfo;
+import com.sqlforge.model.SandboxStats;
+import org.h2.jdbcx.JdbcDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-user in-memory H2 databases. A user's first statement builds a sandbox by
+ * replaying the template script (DDL and rows of the template tables); later
+ * statements borrow from that sandbox's own small pool, so one user's scans never
+ * touch another user's pages or locks.
+ * <p>
+ * Live sandboxes are kept in LRU order under a global estimated-heap budget and a
+ * count limit. Making room evicts the least recently used sandboxes that have no
+ * connection out; sandboxes idle for longer than the idle timeout are dropped in
+ * the background. A sandbox is a snapshot of the template when it was built.
+ */
+final class SandboxRegistry implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(SandboxRegistry.class);
+
+    // Heap held by an in-memory H2 2.2 database, measured: about 512 KiB empty, plus
+    // roughly six bytes per character of the script that filled it.
+    private static final long BASE_BYTES = 512 * 1024;
+    private static final long BYTES_PER_SCRIPT_CHAR = 6;
+
+    /**
+     * Source of the statements that build a fresh sandbox.
+     */
+    interface Template {
+        List<String> script() throws SQLException;
+    }
+
+    private static final class Sandbox {
+        final String userId;
+        final String database;
+        final long bytes;
+        final long createdAt = System.currentTimeMillis();
+        final CompletableFuture<ConnectionPool> pool = new CompletableFuture<>();
+        final LongAdder borrowed = new LongAdder();
+        volatile long lastUsedMillis = createdAt;
+        int pending; // borrowers between lookup and lease; guarded by the registry
+
+        Sandbox(String userId, String database, long bytes) {
+            this.userId = userId;
+            this.database = database;
+            this.bytes = bytes;
+        }
+
+        /**
+         * @return the pool, or null while the sandbox is being built or if building failed
+         */
+        ConnectionPool poolNow() {
+            return pool.isDone() && !pool.isCompletedExceptionally() ? pool.join() : null;
+        }
+    }
+
+    private final Template template;
+    private final String user;
+    private final String password;
+    private final int maxSandboxes;
+    private final long maxBytes;
+    private final long idleTimeoutMs;
+    private final int poolSize;
+    private final long acquireTimeoutMs;
+    private final long connectionIdleMs;
+    private final int maxWaiters;
+    private final int statementCacheSize;
+    private final ScheduledExecutorService maintenance;
+
+    // access order: iteration starts at the least recently used sandbox
+    private final LinkedHashMap<String, Sandbox> sandboxes = new LinkedHashMap<>(16, 0.75f, true);
+    private long usedBytes;
+    private long templateBytes;
+    private long nextId = 1;
+    private boolean closed;
+
+    private final LongAdder created = new LongAdder();
+    private final LongAdder evictedIdle = new LongAdder();
+    private final LongAdder evictedForBudget = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    SandboxRegistry(Template template, String user, String password, int maxSandboxes, long maxBytes,
+                    long idleTimeoutMs, int poolSize, long acquireTimeoutMs, long connectionIdleMs,
+                    int maxWaiters, int statementCacheSize) {
+        this.template = template;
+        this.user = user;
+        this.password = password;
+        this.maxSandboxes = Math.max(1, maxSandboxes);
+        this.maxBytes = Math.max(BASE_BYTES, maxBytes);
+        this.idleTimeoutMs = Math.max(1_000, idleTimeoutMs);
+        this.poolSize = Math.max(1, poolSize);
+        this.acquireTimeoutMs = acquireTimeoutMs;
+        this.connectionIdleMs = connectionIdleMs;
+        this.maxWaiters = maxWaiters;
+        this.statementCacheSize = statementCacheSize;
+        // one thread for idle eviction of the sandboxes and of their pools' connections
+        this.maintenance = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "sqlforge-sandbox-maintenance");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.min(this.idleTimeoutMs / 2, 30_000);
+        maintenance.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrows a connection to the user's sandbox, building the sandbox first if needed.
+     * @throws PoolExhaustedException if the sandbox pool is busy, or no sandbox can be
+     *         built because every one holding the budget is in use
+     */
+    PooledConnection borrow(String userId) throws SQLException {
+        Sandbox sb = reserve(userId);
+        try {
+            PooledConnection pc = awaitPool(sb).borrow();
+            sb.borrowed.increment();
+            return pc;
+        } finally {
+            synchronized (this) {
+                sb.pending--;
+                sb.lastUsedMillis = System.currentTimeMillis();
+            }
+        }
+    }
+
+    /**
+     * Finds or builds the user's sandbox and pins it against eviction until the caller holds a connection.
+     */
+    private Sandbox reserve(String userId) throws SQLException {
+        synchronized (this) {
+            Sandbox sb = lookup(userId);
+            if (sb != null) {
+                return sb;
+            }
+        }
+        List<String> script = template.script();
+        long bytes = estimate(script);
+        Sandbox sb;
+        List<Sandbox> evicted = new ArrayList<>();
+        synchronized (this) {
+            sb = lookup(userId);
+            if (sb != null) {
+                return sb; // built by a concurrent request meanwhile
+            }
+            templateBytes = bytes;
+            if (bytes > maxBytes) {
+                rejected.increment();
+                throw new PoolExhaustedException("A sandbox needs about " + bytes
+                        + " bytes, more than the whole sandbox budget of " + maxBytes);
+            }
+            makeRoom(bytes, evicted);
+            if (sandboxes.size() >= maxSandboxes || usedBytes + bytes > maxBytes) {
+                rejected.increment();
+                retireLater(evicted);
+                throw new PoolExhaustedException("No sandbox available: " + sandboxes.size()
+                        + " sandboxes holding " + usedBytes + " of " + maxBytes + " bytes are all in use");
+            }
+            sb = new Sandbox(userId, "sqlforge-sandbox-" + nextId++, bytes);
+            sb.pending = 1;
+            sandboxes.put(userId, sb);
+            usedBytes += bytes;
+            created.increment();
+        }
+        retireLater(evicted);
+        build(sb, script);
+        return sb;
+    }
+
+    private Sandbox lookup(String userId) {
+        if (closed) {
+            throw new IllegalStateException("Sandbox registry is closed");
+        }
+        Sandbox sb = sandboxes.get(userId);
+        if (sb != null) {
+            sb.pending++;
+        }
+        return sb;
+    }
+
+    private void build(Sandbox sb, List<String> script) throws SQLException {
+        long start = System.nanoTime();
+        JdbcDataSource ds = dataSource(sb);
+        try (Connection c = ds.getConnection(); Statement st = c.createStatement()) {
+            for (String s : script) {
+                st.execute(s);
+            }
+            ConnectionPool pool = new ConnectionPool(ds, 1, poolSize, acquireTimeoutMs, connectionIdleMs,
+                    maxWaiters, false, statementCacheSize, maintenance);
+            pool.prefill();
+            sb.pool.complete(pool);
+            log.info("Built sandbox {} for user {} in {} ms (~{} KiB)", sb.database, sb.userId,
+                    (System.nanoTime() - start) / 1_000_000, sb.bytes / 1024);
+        } catch (SQLException | RuntimeException ex) {
+            log.warn("Building sandbox {} failed: {}", sb.database, ex.getMessage());
+            sb.pool.completeExceptionally(ex);
+            synchronized (this) {
+                if (sandboxes.get(sb.userId) == sb) {
+                    sandboxes.remove(sb.userId);
+                    usedBytes -= sb.bytes;
+                }
+            }
+            shutdown(sb);
+            throw ex;
+        }
+    }
+
+    private static ConnectionPool awaitPool(Sandbox sb) throws SQLException {
+        try {
+            return sb.pool.get();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for the sandbox");
+        } catch (ExecutionException ee) {
+            throw new SQLException("Sandbox could not be built: " + ee.getCause().getMessage(), ee.getCause());
+        }
+    }
+
+    /**
+     * Removes least recently used idle sandboxes until the new one fits. Caller holds the lock.
+     */
+    private void makeRoom(long bytes, List<Sandbox> evicted) {
+        Iterator<Sandbox> it = sandboxes.values().iterator();
+        while (it.hasNext() && (sandboxes.size() >= maxSandboxes || usedBytes + bytes > maxBytes)) {
+            Sandbox sb = it.next();
+            if (isIdle(sb)) {
+                it.remove();
+                usedBytes -= sb.bytes;
+                evictedForBudget.increment();
+                evicted.add(sb);
+            }
+        }
+    }
+
+    private static boolean isIdle(Sandbox sb) {
+        ConnectionPool pool = sb.poolNow();
+        return sb.pending == 0 && pool != null && pool.active() == 0;
+    }
+
+    private void evictIdle() {
+        List<Sandbox> evicted = new ArrayList<>();
+        try {
+            long cutoff = System.currentTimeMillis() - idleTimeoutMs;
+            synchronized (this) {
+                Iterator<Sandbox> it = sandboxes.values().iterator();
+                while (it.hasNext()) {
+                    Sandbox sb = it.next();
+                    if (sb.lastUsedMillis < cutoff && isIdle(sb)) {
+                        it.remove();
+                        usedBytes -= sb.bytes;
+                        evictedIdle.increment();
+                        evicted.add(sb);
+                    }
+                }
+            }
+            for (Sandbox sb : evicted) {
+                retire(sb);
+            }
+        } catch (Exception ex) {
+            log.warn("Sandbox maintenance failed: {}", ex.getMessage());
+        }
+    }
+
+    /**
+     * Drops evicted sandboxes on the maintenance thread, so the request that made room does not wait.
+     */
+    private void retireLater(List<Sandbox> evicted) {
+        for (Sandbox sb : evicted) {
+            maintenance.execute(() -> retire(sb));
+        }
+    }
+
+    private void retire(Sandbox sb) {
+        ConnectionPool pool = sb.poolNow();
+        if (pool != null) {
+            pool.close();
+        }
+        shutdown(sb);
+        log.debug("Dropped sandbox {} of user {}", sb.database, sb.userId);
+    }
+
+    /**
+     * Frees the in-memory database; it outlives its connections until told otherwise.
+     */
+    private void shutdown(Sandbox sb) {
+        try (Connection c = dataSource(sb).getConnection(); Statement st = c.createStatement()) {
+            st.execute("SHUTDOWN");
+        } catch (SQLException ex) {
+            log.debug("Shutting down sandbox {} failed: {}", sb.database, ex.getMessage());
+        }
+    }
+
+    private JdbcDataSource dataSource(Sandbox sb) {
+        JdbcDataSource ds = new JdbcDataSource();
+        ds.setURL("jdbc:h2:mem:" + sb.database + ";DB_CLOSE_DELAY=-1");
+        ds.setUser(user);
+        ds.setPassword(password);
+        return ds;
+    }
+
+    private static long estimate(List<String> script) {
+        long chars = 0;
+        for (String s : script) {
+            chars += s.length();
+        }
+        return BASE_BYTES + chars * BYTES_PER_SCRIPT_CHAR;
+    }
+
+    synchronized SandboxStats stats() {
+        SandboxStats s = new SandboxStats();
+        s.setEnabled(true);
+        s.setLive(sandboxes.size());
+        s.setMaxSandboxes(maxSandboxes);
+        s.setUsedBytes(usedBytes);
+        s.setMaxBytes(maxBytes);
+        s.setTemplateBytes(templateBytes);
+        s.setCreated(created.sum());
+        s.setEvictedIdle(evictedIdle.sum());
+        s.setEvictedForBudget(evictedForBudget.sum());
+        s.setRejected(rejected.sum());
+        for (Sandbox sb : sandboxes.values()) {
+            SandboxInfo info = new SandboxInfo();
+            ConnectionPool pool = sb.poolNow();
+            info.setUserId(sb.userId);
+            info.setDatabase(sb.database);
+            info.setEstimatedBytes(sb.bytes);
+            info.setCreatedAt(Instant.ofEpochMilli(sb.createdAt).toString());
+            info.setLastUsedAt(Instant.ofEpochMilli(sb.lastUsedMillis).toString());
+            info.setActiveConnections(pool == null ? 0 : pool.active());
+            info.setBorrowed(sb.borrowed.sum());
+            s.getSandboxes().add(info);
+        }
+        return s;
+    }
+
+    @Override
+    public void close() {
+        List<Sandbox> all;
+        synchronized (this) {
+            closed = true;
+            all = new ArrayList<>(sandboxes.values());
+            sandboxes.clear();
+            usedBytes = 0;
+        }
+        maintenance.shutdownNow();
+        for (Sandbox sb : all) {
+            retire(sb);
+        }
+    }
+}
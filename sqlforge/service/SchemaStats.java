@@ -0,0 +1,146 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.service;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable snapshot of user tables, their row-count estimates, columns (and
+ * which of them are nullable) and indexes, read from {@code INFORMATION_SCHEMA}. {@link DatabaseService} keeps
+ * one and replaces it after the refresh interval or a server-side write.
+ * Names are canonical (as H2 stores them).
+ */
+final class SchemaStats {
+
+    static final class Table {
+        final String schema;
+        final String name;
+        final long rows;
+        final Set<String> columns = new HashSet<>();
+        final Set<String> nullable = new HashSet<>();
+        final List<Index> indexes = new ArrayList<>();
+
+        Table(String schema, String name, long rows) {
+            this.schema = schema;
+            this.name = name;
+            this.rows = rows;
+        }
+
+        /**
+         * True if some index can seek on {@code column}, i.e. has it as its first column.
+         */
+        boolean hasLeadingIndex(String column) {
+            for (Index ix : indexes) {
+                if (!ix.columns.isEmpty() && ix.columns.get(0).equals(column)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    static final class Index {
+        final String name;
+        final boolean unique;
+        final List<String> columns = new ArrayList<>();
+
+        Index(String name, boolean unique) {
+            this.name = name;
+            this.unique = unique;
+        }
+    }
+
+    private static final String TABLES_SQL = "SELECT TABLE_SCHEMA, TABLE_NAME, ROW_COUNT_ESTIMATE "
+            + "FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_TYPE = 'BASE TABLE' AND TABLE_SCHEMA <> 'INFORMATION_SCHEMA'";
+    private static final String COLUMNS_SQL = "SELECT TABLE_SCHEMA, TABLE_NAME, COLUMN_NAME, IS_NULLABLE "
+            + "FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_SCHEMA <> 'INFORMATION_SCHEMA'";
+    private static final String INDEXES_SQL = "SELECT i.TABLE_SCHEMA, i.TABLE_NAME, i.INDEX_NAME, i.INDEX_TYPE_NAME, c.COLUMN_NAME "
+            + "FROM INFORMATION_SCHEMA.INDEXES i JOIN INFORMATION_SCHEMA.INDEX_COLUMNS c "
+            + "ON c.INDEX_SCHEMA = i.INDEX_SCHEMA AND c.INDEX_NAME = i.INDEX_NAME AND c.TABLE_NAME = i.TABLE_NAME "
+            + "WHERE i.TABLE_SCHEMA <> 'INFORMATION_SCHEMA' ORDER BY i.TABLE_SCHEMA, i.INDEX_NAME, c.ORDINAL_POSITION";
+
+    private final Map<String, Table> tables;   // "SCHEMA.TABLE"
+    private final Map<String, Index> indexes;  // "SCHEMA.INDEX"
+    private final long loadedAt;
+
+    private SchemaStats(Map<String, Table> tables, Map<String, Index> indexes, long loadedAt) {
+        this.tables = tables;
+        this.indexes = indexes;
+        this.loadedAt = loadedAt;
+    }
+
+    static SchemaStats load(Connection c) throws SQLException {
+        Map<String, Table> tables = new HashMap<>();
+        Map<String, Index> indexes = new HashMap<>();
+        try (PreparedStatement ps = c.prepareStatement(TABLES_SQL); ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                Table t = new Table(rs.getString(1), rs.getString(2), Math.max(0, rs.getLong(3)));
+                tables.put(key(t.schema, t.name), t);
+            }
+        }
+        try (PreparedStatement ps = c.prepareStatement(COLUMNS_SQL); ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                Table t = tables.get(key(rs.getString(1), rs.getString(2)));
+                if (t != null) {
+                    t.columns.add(rs.getString(3));
+                    if (!"NO".equals(rs.getString(4))) {
+                        t.nullable.add(rs.getString(3));
+                    }
+                }
+            }
+        }
+        try (PreparedStatement ps = c.prepareStatement(INDEXES_SQL); ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                Table t = tables.get(key(rs.getString(1), rs.getString(2)));
+                if (t == null) {
+                    continue;
+                }
+                String type = rs.getString(4);
+                Index ix = indexes.computeIfAbsent(key(t.schema, rs.getString(3)), k -> {
+                    Index created = new Index(k.substring(k.indexOf('.') + 1),
+                            type != null && (type.startsWith("PRIMARY") || type.startsWith("UNIQUE")));
+                    t.indexes.add(created);
+                    return created;
+                });
+                ix.columns.add(rs.getString(5));
+            }
+        }
+        return new SchemaStats(Collections.unmodifiableMap(tables), Collections.unmodifiableMap(indexes),
+                System.currentTimeMillis());
+    }
+
+    /**
+     * @param schema null to look in {@code PUBLIC}
+     */
+    Table table(String schema, String name) {
+        return tables.get(key(schema == null ? "PUBLIC" : schema, name));
+    }
+
+    Index index(String schema, String name) {
+        return indexes.get(key(schema == null ? "PUBLIC" : schema, name));
+    }
+
+    long loadedAt() {
+        return loadedAt;
+    }
+
+    int tableCount() {
+        return tables.size();
+    }
+
+    private static String key(String schema, String name) {
+        return schema + '.' + name;
+    }
+}
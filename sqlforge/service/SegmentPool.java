@@ -0,0 +1,114 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.service;
+
+import com.sqlforge.model.OffHeapStats;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-size direct buffers for {@link OffHeapRows}, under one global budget. Buffers are
+ * allocated lazily and kept for reuse once released, so the process holds at most
+ * {@code maxBytes} of direct memory for results however many queries come and go, and
+ * allocating a result's storage costs no GC work.
+ * <p>
+ * Admission control: a result that moves off the heap waits up to the acquire timeout for
+ * its first segment and is refused (503) if the budget stays exhausted; further segments
+ * are taken without waiting, and a result that cannot get one ends its page early.
+ */
+final class SegmentPool {
+    private final int segmentBytes;
+    private final int maxSegments;
+    private final long acquireTimeoutMs;
+    private final Semaphore permits;
+    private final ConcurrentLinkedQueue<ByteBuffer> free = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger allocated = new AtomicInteger(); // direct buffers created so far
+    private final LongAdder spills = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder truncated = new LongAdder();
+    private final LongAdder reclaimed = new LongAdder(); // released by the GC because nobody wrote them
+
+    SegmentPool(long maxBytes, int segmentBytes, long acquireTimeoutMs) {
+        this.segmentBytes = Math.max(1024, segmentBytes);
+        this.maxSegments = (int) Math.max(1, Math.min(Integer.MAX_VALUE, maxBytes / this.segmentBytes));
+        this.acquireTimeoutMs = acquireTimeoutMs;
+        this.permits = new Semaphore(maxSegments);
+    }
+
+    int segmentBytes() {
+        return segmentBytes;
+    }
+
+    /**
+     * First segment of a result, waiting up to the acquire timeout.
+     * @throws PoolExhaustedException if the budget stays exhausted that long
+     */
+    ByteBuffer admit() {
+        boolean granted;
+        try {
+            granted = permits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            granted = false;
+        }
+        if (!granted) {
+            rejected.increment();
+            throw new PoolExhaustedException("Off-heap result budget exhausted (" + maxSegments + " segments of "
+                    + segmentBytes + " bytes in use); retry shortly");
+        }
+        spills.increment();
+        return take();
+    }
+
+    /**
+     * Another segment for a result already admitted, or null if the budget is used up.
+     */
+    ByteBuffer tryAcquire() {
+        return permits.tryAcquire() ? take() : null;
+    }
+
+    void recycle(ByteBuffer segment) {
+        segment.clear();
+        free.offer(segment);
+        permits.release();
+    }
+
+    void truncated() {
+        truncated.increment();
+    }
+
+    void reclaimed() {
+        reclaimed.increment();
+    }
+
+    OffHeapStats stats() {
+        OffHeapStats s = new OffHeapStats();
+        s.setEnabled(true);
+        s.setSegmentBytes(segmentBytes);
+        s.setMaxBytes((long) maxSegments * segmentBytes);
+        s.setUsedBytes((long) (maxSegments - permits.availablePermits()) * segmentBytes);
+        s.setAllocatedBytes((long) allocated.get() * segmentBytes);
+        s.setSpills(spills.sum());
+        s.setRejected(rejected.sum());
+        s.setTruncated(truncated.sum());
+        s.setReclaimed(reclaimed.sum());
+        return s;
+    }
+
+    private ByteBuffer take() {
+        ByteBuffer segment = free.poll();
+        if (segment == null) {
+            segment = ByteBuffer.allocateDirect(segmentBytes).order(ByteOrder.LITTLE_ENDIAN);
+            allocated.incrementAndGet();
+        }
+        return segment;
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.service;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Sandbox statement check built on {@link SqlLexer}. One pass over the tokens
+ * classifies the statement, collects the tables named after FROM/JOIN and
+ * rejects anything that could modify the database. Because literals, quoted
+ * identifiers and comments are tokens of their own, {@code WHERE name = 'Update team'}
+ * is fine while {@code SELECT 1; SHUTDOWN} is not. Comments are recognized as H2
+ * recognizes them ({@code //} included, line comments ending at CR or LF), so a second
+ * statement cannot hide behind one.
+ */
+final class SqlFirewall {
+
+    static final String NOT_READ_ONLY = "Destructive or schema-changing statements are not allowed in the sandbox.";
+    static final String NOT_A_QUERY = "Only SELECT/WITH/EXPLAIN statements are allowed in the sandbox.";
+    static final String MULTIPLE_STATEMENTS = "Multiple statements are not allowed in the sandbox.";
+    static final String UNTERMINATED = "SQL contains an unterminated string, quoted identifier or comment.";
+
+    private static final String[] STATEMENT_TYPES = {"SELECT", "WITH", "EXPLAIN"};
+    private static final String[] DISALLOWED = {
+            "DROP", "ALTER", "TRUNCATE", "DELETE", "UPDATE", "INSERT", "REPLACE", "MERGE", "CREATE"};
+    // Built-ins that reach the server's file system or other databases
+    private static final String[] DISALLOWED_FUNCTIONS = {
+            "FILE_READ", "FILE_WRITE", "CSVREAD", "CSVWRITE", "LINK_SCHEMA"};
+    // Keywords that end a FROM/JOIN table list.
+    private static final String[] TABLE_LIST_END = {
+            "WHERE", "GROUP", "ORDER", "HAVING", "LIMIT", "OFFSET", "FETCH", "UNION", "EXCEPT",
+            "INTERSECT", "MINUS", "ON", "USING", "WINDOW", "QUALIFY", "FOR", "SELECT"};
+    private static final int NO_TABLE = 0, EXPECT_TABLE = 1, AFTER_TABLE = 2;
+
+    private SqlFirewall() {}
+
+    static FirewallVerdict inspect(CharSequence sql) {
+        SqlLexer lx = new SqlLexer(sql);
+        int type = lx.next();
+        while (lx.isSymbol('(')) {
+            type = lx.next();
+        }
+        int statement = lx.keywordIndex(STATEMENT_TYPES);
+        if (statement < 0) {
+            return type == SqlLexer.UNTERMINATED
+                    ? FirewallVerdict.rejected(UNTERMINATED)
+                    : FirewallVerdict.rejected(NOT_A_QUERY);
+        }
+
+        Set<String> tables = new LinkedHashSet<>();
+        int tableState = NO_TABLE;
+        String addedTable = null;       // table added by the previous token, if it was new
+        int pendingKeyword = -1;        // disallowed keyword waiting to see whether '(' follows
+        int pendingFunction = -1;
+        boolean ended = false;          // a ';' was seen
+        for (type = lx.next(); type != SqlLexer.EOF; type = lx.next()) {
+            boolean call = lx.isSymbol('(');
+            if (pendingKeyword >= 0 && !(call && "REPLACE".equals(DISALLOWED[pendingKeyword]))) {
+                return FirewallVerdict.rejected(NOT_READ_ONLY);
+            }
+            if (pendingFunction >= 0 && call) {
+                return FirewallVerdict.rejected(
+                        "Function " + DISALLOWED_FUNCTIONS[pendingFunction] + " is not allowed in the sandbox.");
+            }
+            pendingKeyword = -1;
+            pendingFunction = -1;
+            if (ended) {
+                if (!lx.isSymbol(';')) {
+                    return FirewallVerdict.rejected(MULTIPLE_STATEMENTS);
+                }
+                continue;
+            }
+
+            String added = null;
+            switch (type) {
+                case SqlLexer.UNTERMINATED:
+                    return FirewallVerdict.rejected(UNTERMINATED);
+                case SqlLexer.WORD:
+                    pendingKeyword = lx.keywordIndex(DISALLOWED);
+                    pendingFunction = lx.keywordIndex(DISALLOWED_FUNCTIONS);
+                    if (lx.isKeyword("FROM") || lx.isKeyword("JOIN")) {
+                        tableState = EXPECT_TABLE;
+                    } else if (tableState == EXPECT_TABLE) {
+                        added = addTable(tables, lx);
+                        tableState = AFTER_TABLE;
+                    } else if (tableState == AFTER_TABLE && lx.keywordIndex(TABLE_LIST_END) >= 0) {
+                        tableState = NO_TABLE;
+                    }
+                    break;
+                case SqlLexer.QUOTED:
+                    if (tableState == EXPECT_TABLE) {
+                        added = addTable(tables, lx);
+                        tableState = AFTER_TABLE;
+                    }
+                    break;
+                case SqlLexer.SYMBOL:
+                    char c = lx.firstChar();
+                    if (c == ';') {
+                        ended = true;
+                    } else if (c == ',' && tableState == AFTER_TABLE) {
+                        tableState = EXPECT_TABLE;
+                    } else if (c == '.' && tableState == AFTER_TABLE && addedTable != null) {
+                        // schema-qualified name: the part after the dot is the table
+                        tables.remove(addedTable);
+                        tableState = EXPECT_TABLE;
+                    } else if (c == '(' || c == ')') {
+                        tableState = NO_TABLE;
+                    }
+                    break;
+                default:
+                    break;
+            }
+            addedTable = added;
+        }
+        if (pendingKeyword >= 0) {
+            return FirewallVerdict.rejected(NOT_READ_ONLY);
+        }
+        return FirewallVerdict.allowed(STATEMENT_TYPES[statement], Collections.unmodifiableSet(tables));
+    }
+
+    /**
+     * @return the canonical name if it was not in the set yet, else null
+     */
+    private static String addTable(Set<String> tables, SqlLexer lx) {
+        String name = TableVersions.canonical(lx.text());
+        return tables.add(name) ? name : null;
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.service;
+
+/**
+ * Single-pass SQL tokenizer. It keeps a cursor over the text and exposes the
+ * current token as a type plus a [start, end) range, so scanning allocates
+ * nothing unless a caller asks for {@link #text()}.
+ * <p>
+ * Whitespace and comments ({@code -- ...}, {@code // ...} and {@code /* ... *}{@code /})
+ * are skipped; {@link #gapBefore()} tells whether any preceded the current token.
+ * String literals, quoted identifiers and {@code $$...$$} blocks are single
+ * tokens, so keywords inside them are never seen as keywords.
+ */
+final class SqlLexer {
+    static final int EOF = 0;
+    /** Unquoted identifier or keyword. */
+    static final int WORD = 1;
+    /** {@code "..."} or {@code `...`} identifier. */
+    static final int QUOTED = 2;
+    /** {@code '...'} or {@code $$...$$} literal. */
+    static final int STRING = 3;
+    static final int NUMBER = 4;
+    /** Comparison operator made of {@code < > ! =}, at most two characters. */
+    static final int OPERATOR = 5;
+    /** Any other single character: {@code ( ) , . ; + - * / ?} ... */
+    static final int SYMBOL = 6;
+    /** String, quoted identifier or block comment that runs to the end of the text. */
+    static final int UNTERMINATED = 7;
+
+    private final CharSequence sql;
+    private final int length;
+    private int pos;
+    private int type = EOF;
+    private int start;
+    private int end;
+    private boolean gap;
+
+    SqlLexer(CharSequence sql) {
+        this.sql = sql;
+        this.length = sql.length();
+    }
+
+    /**
+     * Advances to the next token and returns its type.
+     */
+    int next() {
+        gap = false;
+        if (!skipTrivia()) {
+            type = UNTERMINATED;
+            start = pos;
+            end = pos = length;
+            return type;
+        }
+        start = pos;
+        if (pos >= length) {
+            end = pos;
+            return type = EOF;
+        }
+        char c = sql.charAt(pos);
+        if (c == '\'') {
+            type = quoted('\'', STRING);
+        } else if (c == '"' || c == '`') {
+            type = quoted(c, QUOTED);
+        } else if (c == '$' && pos + 1 < length && sql.charAt(pos + 1) == '$') {
+            type = dollarQuoted();
+        } else if (Character.isLetter(c) || c == '_') {
+            while (pos < length && isWordChar(sql.charAt(pos))) pos++;
+            type = WORD;
+        } else if (isDigit(c) || (c == '.' && pos + 1 < length && isDigit(sql.charAt(pos + 1)))) {
+            while (pos < length && (isDigit(sql.charAt(pos)) || sql.charAt(pos) == '.')) pos++;
+            type = NUMBER;
+        } else if (isOperatorChar(c)) {
+            pos++;
+            if (pos < length && isOperatorChar(sql.charAt(pos))) pos++;
+            type = OPERATOR;
+        } else {
+            pos++;
+            type = SYMBOL;
+        }
+        end = pos;
+        return type;
+    }
+
+    int type() {
+        return type;
+    }
+
+    int start() {
+        return start;
+    }
+
+    int end() {
+        return end;
+    }
+
+    /**
+     * True if whitespace or a comment separated the current token from the previous one.
+     */
+    boolean gapBefore() {
+        return gap;
+    }
+
+    char firstChar() {
+        return sql.charAt(start);
+    }
+
+    boolean isSymbol(char c) {
+        return type == SYMBOL && sql.charAt(start) == c;
+    }
+
+    /**
+     * Case-insensitive match of the current WORD token against an upper-case keyword.
+     */
+    boolean isKeyword(String keyword) {
+        int len = keyword.length();
+        if (type != WORD || end - start != len) {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            if (Character.toUpperCase(sql.charAt(start + i)) != keyword.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Index of the keyword in {@code keywords} that the current token matches, or -1.
+     */
+    int keywordIndex(String[] keywords) {
+        if (type != WORD) {
+            return -1;
+        }
+        for (int i = 0; i < keywords.length; i++) {
+            if (isKeyword(keywords[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    String text() {
+        return sql.subSequence(start, end).toString();
+    }
+
+    /**
+     * Skips whitespace and comments; returns false if a block comment is never closed.
+     */
+    private boolean skipTrivia() {
+        while (pos < length) {
+            char c = sql.charAt(pos);
+            if (Character.isWhitespace(c)) {
+                pos++;
+            } else if ((c == '-' || c == '/') && pos + 1 < length && sql.charAt(pos + 1) == c) {
+                // -- and // both run to the end of the line, which H2 ends at CR as well as LF
+                pos += 2;
+                while (pos < length && sql.charAt(pos) != '\n' && sql.charAt(pos) != '\r') pos++;
+            } else if (c == '/' && pos + 1 < length && sql.charAt(pos + 1) == '*') {
+                int close = indexOf("*/", pos + 2);
+                gap = true;
+                if (close < 0) {
+                    return false;
+                }
+                pos = close + 2;
+                continue;
+            } else {
+                return true;
+            }
+            gap = true;
+        }
+        return true;
+    }
+
+    /**
+     * Consumes a quoted token, honouring doubled-quote escapes.
+     */
+    private int quoted(char quote, int kind) {
+        pos++;
+        while (pos < length) {
+            if (sql.charAt(pos) == quote) {
+                if (pos + 1 < length && sql.charAt(pos + 1) == quote) {
+                    pos += 2;
+                    continue;
+                }
+                pos++;
+                return kind;
+            }
+            pos++;
+        }
+        return UNTERMINATED;
+    }
+
+    private int dollarQuoted() {
+        int close = indexOf("$$", pos + 2);
+        if (close < 0) {
+            pos = length;
+            return UNTERMINATED;
+        }
+        pos = close + 2;
+        return STRING;
+    }
+
+    private int indexOf(String needle, int from) {
+        char first = needle.charAt(0), second = needle.charAt(1);
+        for (int i = from; i + 1 < length; i++) {
+            if (sql.charAt(i) == first && sql.charAt(i + 1) == second) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isOperatorChar(char c) {
+        return c == '<' || c == '>' || c == '!' || c == '=';
+    }
+}
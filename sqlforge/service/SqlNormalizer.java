@@ -0,0 +1,183 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Produces a canonical form of a SQL statement so textually different but
+ * equivalent statements share cache entries:
+ * <ul>
+ *   <li>comments are dropped and whitespace runs collapse to one space,</li>
+ *   <li>unquoted words are upper-cased (H2 folds unquoted identifiers anyway),</li>
+ *   <li>string and quoted-identifier contents are preserved verbatim,</li>
+ *   <li>optionally, literals compared against a column ({@code = 'x'}, {@code > 10},
+ *       {@code LIKE 'a%'}, {@code LIMIT 50}) become {@code ?} parameters.</li>
+ * </ul>
+ * Tokens come from {@link SqlLexer}; an unterminated literal or comment is copied
+ * through verbatim so {@link SqlFirewall} still sees (and rejects) it.
+ * The normalized text is what gets executed, so the transformation must stay
+ * semantics-preserving; anything ambiguous is left untouched.
+ */
+final class SqlNormalizer {
+
+    // Literals following these tokens can be bound as parameters without changing meaning.
+    private static final Set<String> PARAM_PREDECESSORS = Set.of(
+            "=", "<>", "!=", "<", ">", "<=", ">=", "LIKE", "LIMIT", "OFFSET");
+
+    private SqlNormalizer() {}
+
+    static final class NormalizedSql {
+        private final String text;
+        private final List<Object> params;
+        private final Set<String> tables;
+        private final long fingerprint;
+
+        NormalizedSql(String text, List<Object> params, Set<String> tables, long fingerprint) {
+            this.text = text;
+            this.params = params;
+            this.tables = tables;
+            this.fingerprint = fingerprint;
+        }
+
+        String getText() {
+            return text;
+        }
+
+        List<Object> getParams() {
+            return params;
+        }
+
+        /**
+         * Tables referenced after FROM/JOIN, canonicalized as in {@link TableVersions#canonical};
+         * empty until the statement has passed the firewall.
+         */
+        Set<String> getTables() {
+            return tables;
+        }
+
+        /**
+         * Hash of the normalized text with every string and number literal masked, so
+         * statements differing only in their constants share it (see {@link #fingerprintText}).
+         */
+        long getFingerprint() {
+            return fingerprint;
+        }
+
+        NormalizedSql withTables(Set<String> tables) {
+            return new NormalizedSql(text, params, tables, fingerprint);
+        }
+
+        boolean isEmpty() {
+            return text.isEmpty();
+        }
+    }
+
+    static NormalizedSql normalize(String sql, boolean parameterizeLiterals) {
+        StringBuilder out = new StringBuilder(sql.length());
+        List<Object> params = parameterizeLiterals ? new ArrayList<>() : Collections.emptyList();
+        SqlLexer lx = new SqlLexer(sql);
+        String prevToken = "";
+        long fp = FNV_OFFSET;
+        for (int type = lx.next(); type != SqlLexer.EOF; type = lx.next()) {
+            if (lx.gapBefore() && out.length() > 0) {
+                out.append(' ');
+            }
+            int start = lx.start(), end = lx.end();
+            fp = type == SqlLexer.STRING || type == SqlLexer.NUMBER
+                    ? mix(fp, '?')
+                    : type == SqlLexer.WORD ? mixUpper(fp, sql, start, end) : mix(fp, sql, start, end);
+            switch (type) {
+                case SqlLexer.STRING:
+                    if (parameterizeLiterals && lx.firstChar() == '\'' && PARAM_PREDECESSORS.contains(prevToken)) {
+                        params.add(sql.substring(start + 1, end - 1).replace("''", "'"));
+                        out.append('?');
+                    } else {
+                        out.append(sql, start, end);
+                    }
+                    prevToken = "'";
+                    break;
+                case SqlLexer.WORD:
+                    String word = sql.substring(start, end).toUpperCase(Locale.ROOT);
+                    out.append(word);
+                    prevToken = word;
+                    break;
+                case SqlLexer.NUMBER:
+                    String number = sql.substring(start, end);
+                    boolean identifierTail = end < sql.length() && SqlLexer.isWordChar(sql.charAt(end));
+                    boolean plain = number.indexOf('.') == number.lastIndexOf('.');
+                    if (parameterizeLiterals && plain && !identifierTail && PARAM_PREDECESSORS.contains(prevToken)) {
+                        params.add(toNumber(number));
+                        out.append('?');
+                    } else {
+                        out.append(number);
+                    }
+                    prevToken = number;
+                    break;
+                default:
+                    // quoted identifiers, operators, symbols and unterminated tails are kept as written
+                    out.append(sql, start, end);
+                    prevToken = type == SqlLexer.OPERATOR ? sql.substring(start, end) : "";
+            }
+        }
+        return new NormalizedSql(out.toString(), params, Collections.emptySet(), fp);
+    }
+
+    /**
+     * Display form of the fingerprint: the normalized statement with every string and
+     * number literal replaced by {@code ?}.
+     */
+    static String fingerprintText(String sql) {
+        StringBuilder out = new StringBuilder(Math.min(sql.length(), 256));
+        SqlLexer lx = new SqlLexer(sql);
+        for (int type = lx.next(); type != SqlLexer.EOF; type = lx.next()) {
+            if (lx.gapBefore() && out.length() > 0) {
+                out.append(' ');
+            }
+            if (type == SqlLexer.STRING || type == SqlLexer.NUMBER) {
+                out.append('?');
+            } else if (type == SqlLexer.WORD) {
+                out.append(lx.text().toUpperCase(Locale.ROOT));
+            } else {
+                out.append(sql, lx.start(), lx.end());
+            }
+        }
+        return out.toString();
+    }
+
+    // 64-bit FNV-1a, folded one token at a time; token boundaries are mixed in as a separator
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private static long mix(long h, char c) {
+        return ((h ^ c) * FNV_PRIME ^ ' ') * FNV_PRIME;
+    }
+
+    private static long mix(long h, String s, int start, int end) {
+        for (int i = start; i < end; i++) {
+            h = (h ^ s.charAt(i)) * FNV_PRIME;
+        }
+        return (h ^ ' ') * FNV_PRIME;
+    }
+
+    private static long mixUpper(long h, String s, int start, int end) {
+        for (int i = start; i < end; i++) {
+            h = (h ^ Character.toUpperCase(s.charAt(i))) * FNV_PRIME;
+        }
+        return (h ^ ' ') * FNV_PRIME;
+    }
+
+    private static Object toNumber(String number) {
+        if (number.indexOf('.') < 0 && number.length() < 19) {
+            return Long.parseLong(number);
+        }
+        return new BigDecimal(number);
+    }
+}
@@ -0,0 +1,300 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Shape of a single-table aggregate query, read from its normalized text:
+ * {@code SELECT items FROM table [WHERE ..] [GROUP BY columns] [HAVING ..] [ORDER BY ..] [LIMIT ..]},
+ * every item a plain column or {@code COUNT/SUM/MIN/MAX/AVG} of {@code *} or a plain column,
+ * optionally with an {@code AS} alias. {@link MaterializedViews} reads view definitions and
+ * incoming statements with it; anything else (joins, subqueries, DISTINCT, window functions,
+ * expressions over aggregates) has no shape and is only ever matched verbatim.
+ */
+final class SummaryShape {
+    static final String[] AGGREGATES = {"COUNT", "SUM", "MIN", "MAX", "AVG"};
+    private static final String[] CLAUSES = {"FROM", "WHERE", "GROUP", "HAVING", "ORDER", "LIMIT", "OFFSET", "FETCH"};
+    private static final int FROM = 0, WHERE = 1, GROUP = 2, HAVING = 3, ORDER = 4, TAIL = 5;
+    // Anywhere in the statement, these rule the shape out
+    private static final String[] UNSUPPORTED = {"SELECT", "DISTINCT", "ALL", "TOP", "OVER", "FILTER", "WITHIN",
+            "UNION", "INTERSECT", "EXCEPT", "MINUS", "WINDOW", "QUALIFY", "FOR", "JOIN"};
+
+    /**
+     * One select item: a plain column or one aggregate call.
+     */
+    static final class Item {
+        final String column;     // canonical name of a plain column item, else null
+        final String function;   // aggregate of an aggregate item, else null
+        final String argument;   // canonical column or "*"
+        final String alias;      // as written, or null
+        final String expression; // the item without its alias
+
+        Item(String column, String function, String argument, String alias, String expression) {
+            this.column = column;
+            this.function = function;
+            this.argument = argument;
+            this.alias = alias;
+            this.expression = expression;
+        }
+
+        boolean isAggregate() {
+            return function != null;
+        }
+
+        /**
+         * Same key for the same aggregate however it was spelled, e.g. {@code SUM(SALARY)}.
+         */
+        String key() {
+            return function + '(' + argument + ')';
+        }
+
+        String aliasName() {
+            return alias == null ? null : TableVersions.canonical(alias);
+        }
+    }
+
+    final String table;
+    final List<Item> items;
+    final List<String> groups; // canonical GROUP BY columns; empty without GROUP BY
+    // clause bodies as written (without their keywords), null when absent
+    final String where;
+    final String having;
+    final String order;
+    final String tail;         // LIMIT / OFFSET / FETCH, keywords included
+
+    private SummaryShape(String table, List<Item> items, List<String> groups,
+                         String where, String having, String order, String tail) {
+        this.table = table;
+        this.items = items;
+        this.groups = groups;
+        this.where = where;
+        this.having = having;
+        this.order = order;
+        this.tail = tail;
+    }
+
+    /**
+     * @param sql normalized statement text
+     * @return its shape, or null if it is not a single-table aggregate query
+     */
+    static SummaryShape parse(String sql) {
+        List<int[]> tokens = tokens(sql);
+        if (tokens == null || tokens.isEmpty() || !is(sql, tokens.get(0), "SELECT")) {
+            return null;
+        }
+        // token index where each clause starts, -1 if absent
+        int[] clause = {-1, -1, -1, -1, -1, -1};
+        int last = -1;
+        for (int i = 1; i < tokens.size() && clause[TAIL] < 0; i++) {
+            int[] t = tokens.get(i);
+            if (t[0] != SqlLexer.WORD || t[3] != 0) {
+                continue;
+            }
+            int k = keyword(sql, t, CLAUSES);
+            if (k < 0) {
+                continue;
+            }
+            int c = Math.min(k, TAIL);
+            if (c <= last) {
+                return null; // out of order or repeated
+            }
+            if ((c == GROUP || c == ORDER) && (i + 1 >= tokens.size() || !is(sql, tokens.get(i + 1), "BY"))) {
+                return null;
+            }
+            clause[c] = i;
+            last = c;
+        }
+        if (clause[FROM] < 0) {
+            return null;
+        }
+        int fromEnd = next(clause, FROM, tokens.size());
+        if (fromEnd - clause[FROM] != 2) {
+            return null; // an alias, a join list or a schema-qualified name
+        }
+        int[] tableToken = tokens.get(clause[FROM] + 1);
+        if (!isIdentifier(sql, tableToken)) {
+            return null;
+        }
+        List<Item> items = items(sql, tokens, 1, clause[FROM]);
+        List<String> groups = clause[GROUP] < 0 ? Collections.emptyList()
+                : columns(sql, tokens, clause[GROUP] + 2, next(clause, GROUP, tokens.size()));
+        if (items == null || groups == null) {
+            return null;
+        }
+        boolean aggregates = false;
+        for (Item item : items) {
+            if (item.isAggregate()) {
+                aggregates = true;
+            } else if (!groups.contains(item.column)) {
+                return null; // a row listing, or a column that is not grouped
+            }
+        }
+        if (!aggregates && groups.isEmpty()) {
+            return null;
+        }
+        return new SummaryShape(TableVersions.canonical(text(sql, tableToken)), items, groups,
+                body(sql, tokens, clause, WHERE, 1),
+                body(sql, tokens, clause, HAVING, 1),
+                body(sql, tokens, clause, ORDER, 2),
+                clause[TAIL] < 0 ? null : sql.substring(tokens.get(clause[TAIL])[1], tokens.get(tokens.size() - 1)[2]));
+    }
+
+    /**
+     * True when the statement orders or limits its result at the top level.
+     */
+    static boolean isOrdered(String sql) {
+        SqlLexer lx = new SqlLexer(sql);
+        int depth = 0;
+        for (int type = lx.next(); type != SqlLexer.EOF; type = lx.next()) {
+            if (lx.isSymbol('(')) {
+                depth++;
+            } else if (lx.isSymbol(')')) {
+                depth--;
+            } else if (depth == 0 && type == SqlLexer.WORD && lx.keywordIndex(CLAUSES) >= ORDER) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Tokens as {type, start, end, depth}, without a trailing {@code ;}; null if the text
+     * has something that rules the shape out.
+     */
+    private static List<int[]> tokens(String sql) {
+        List<int[]> out = new ArrayList<>();
+        SqlLexer lx = new SqlLexer(sql);
+        int depth = 0;
+        for (int type = lx.next(); type != SqlLexer.EOF; type = lx.next()) {
+            if (type == SqlLexer.UNTERMINATED || (type == SqlLexer.WORD && lx.keywordIndex(UNSUPPORTED) >= 0 && !out.isEmpty())) {
+                return null;
+            }
+            if (lx.isSymbol(')')) {
+                depth--;
+            }
+            out.add(new int[]{type, lx.start(), lx.end(), depth});
+            if (lx.isSymbol('(')) {
+                depth++;
+            }
+        }
+        while (!out.isEmpty() && isSymbol(sql, out.get(out.size() - 1), ';')) {
+            out.remove(out.size() - 1);
+        }
+        for (int[] t : out) {
+            if (isSymbol(sql, t, ';')) {
+                return null;
+            }
+        }
+        return out;
+    }
+
+    private static List<Item> items(String sql, List<int[]> tokens, int from, int to) {
+        List<Item> items = new ArrayList<>();
+        int start = from;
+        for (int i = from; i <= to; i++) {
+            if (i < to && !(isSymbol(sql, tokens.get(i), ',') && tokens.get(i)[3] == 0)) {
+                continue;
+            }
+            Item item = item(sql, tokens, start, i);
+            if (item == null) {
+                return null;
+            }
+            items.add(item);
+            start = i + 1;
+        }
+        return items;
+    }
+
+    private static Item item(String sql, List<int[]> tokens, int from, int to) {
+        String alias = null;
+        if (to - from >= 3 && is(sql, tokens.get(to - 2), "AS") && isIdentifier(sql, tokens.get(to - 1))) {
+            alias = text(sql, tokens.get(to - 1));
+            to -= 2;
+        }
+        int n = to - from;
+        if (n <= 0) {
+            return null;
+        }
+        String expression = sql.substring(tokens.get(from)[1], tokens.get(to - 1)[2]);
+        int[] first = tokens.get(from);
+        if (n == 1 && isIdentifier(sql, first)) {
+            return new Item(TableVersions.canonical(expression), null, null, alias, expression);
+        }
+        if (n != 4 || first[0] != SqlLexer.WORD || keyword(sql, first, AGGREGATES) < 0
+                || !isSymbol(sql, tokens.get(from + 1), '(') || !isSymbol(sql, tokens.get(from + 3), ')')) {
+            return null;
+        }
+        int[] arg = tokens.get(from + 2);
+        String argument;
+        if (isSymbol(sql, arg, '*') && is(sql, first, "COUNT")) {
+            argument = "*";
+        } else if (isIdentifier(sql, arg)) {
+            argument = TableVersions.canonical(text(sql, arg));
+        } else {
+            return null;
+        }
+        return new Item(null, AGGREGATES[keyword(sql, first, AGGREGATES)], argument, alias, expression);
+    }
+
+    private static List<String> columns(String sql, List<int[]> tokens, int from, int to) {
+        List<String> out = new ArrayList<>();
+        for (int i = from; i < to; i += 2) {
+            if (!isIdentifier(sql, tokens.get(i)) || (i + 1 < to && !isSymbol(sql, tokens.get(i + 1), ','))) {
+                return null;
+            }
+            out.add(TableVersions.canonical(text(sql, tokens.get(i))));
+        }
+        return out.isEmpty() ? null : out;
+    }
+
+    private static String body(String sql, List<int[]> tokens, int[] clause, int c, int keywords) {
+        if (clause[c] < 0) {
+            return null;
+        }
+        int first = clause[c] + keywords;
+        int end = next(clause, c, tokens.size());
+        if (first >= end) {
+            return ""; // a clause keyword with nothing after it; H2 will reject it
+        }
+        return sql.substring(tokens.get(first)[1], tokens.get(end - 1)[2]);
+    }
+
+    private static int next(int[] clause, int c, int size) {
+        for (int i = c + 1; i < clause.length; i++) {
+            if (clause[i] >= 0) {
+                return clause[i];
+            }
+        }
+        return size;
+    }
+
+    static boolean isIdentifier(String sql, int[] t) {
+        return t[0] == SqlLexer.QUOTED || (t[0] == SqlLexer.WORD && keyword(sql, t, CLAUSES) < 0 && !is(sql, t, "AS"));
+    }
+
+    static boolean is(String sql, int[] t, String word) {
+        return t[0] == SqlLexer.WORD && t[2] - t[1] == word.length() && sql.regionMatches(true, t[1], word, 0, word.length());
+    }
+
+    static boolean isSymbol(String sql, int[] t, char c) {
+        return t[0] == SqlLexer.SYMBOL && sql.charAt(t[1]) == c;
+    }
+
+    static int keyword(String sql, int[] t, String[] words) {
+        for (int i = 0; i < words.length; i++) {
+            if (is(sql, t, words[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    static String text(String sql, int[] t) {
+        return sql.substring(t[1], t[2]);
+    }
+}
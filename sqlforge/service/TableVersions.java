@@ -0,0 +1,82 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Monotonic per-table write counters. Every server-side write path (seeding,
+ * imports, ...) bumps the tables it touched; readers compare versions to decide
+ * whether derived data such as cached results is still current.
+ */
+final class TableVersions {
+    private final Map<String, AtomicLong> versions = new ConcurrentHashMap<>();
+    private final List<Consumer<String>> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Canonical table key: unquoted names are upper-cased the way H2 stores them,
+     * quoted names keep their exact spelling.
+     */
+    static String canonical(String name) {
+        if (name.length() >= 2 && name.charAt(0) == '"' && name.charAt(name.length() - 1) == '"') {
+            return name.substring(1, name.length() - 1).replace("\"\"", "\"");
+        }
+        return name.toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Current version of a table given by its canonical name.
+     */
+    long version(String canonicalName) {
+        AtomicLong v = versions.get(canonicalName);
+        return v == null ? 0L : v.get();
+    }
+
+    /**
+     * Snapshot of the current versions of the given (canonical) tables.
+     */
+    Map<String, Long> snapshot(Set<String> tables) {
+        Map<String, Long> snap = new HashMap<>();
+        for (String t : tables) {
+            snap.put(t, version(t));
+        }
+        return snap;
+    }
+
+    boolean isCurrent(Map<String, Long> snapshot) {
+        for (Map.Entry<String, Long> e : snapshot.entrySet()) {
+            if (version(e.getKey()) != e.getValue()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Records a write to the table (raw name, canonicalized here).
+     */
+    void bump(String table) {
+        String key = canonical(table);
+        versions.computeIfAbsent(key, k -> new AtomicLong()).incrementAndGet();
+        for (Consumer<String> l : listeners) {
+            l.accept(key);
+        }
+    }
+
+    /**
+     * Registers a callback invoked with the canonical table name after each bump.
+     */
+    void onChange(Consumer<String> listener) {
+        listeners.add(listener);
+    }
+}
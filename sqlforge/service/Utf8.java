@@ -0,0 +1,77 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.service;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The UTF-8 encoder behind off-heap results ({@link OffHeapRows}) and exports: it
+ * writes characters straight into a buffer, with no intermediate byte array. An
+ * unpaired surrogate is written as {@code ?}.
+ */
+public final class Utf8 {
+    /**
+     * Room needed for any one character or surrogate pair.
+     */
+    public static final int MAX_CHAR_BYTES = 4;
+
+    private Utf8() {
+    }
+
+    /**
+     * Number of bytes {@link #encode} writes for the characters.
+     */
+    public static int length(CharSequence s) {
+        int n = s.length();
+        int len = n;
+        for (int i = 0; i < n; i++) {
+            char c = s.charAt(i);
+            if (c >= 0x80) {
+                if (c < 0x800) {
+                    len += 1;
+                } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    len += 2; // four bytes for two chars
+                    i++;
+                } else if (!Character.isSurrogate(c)) {
+                    len += 2;
+                }
+            }
+        }
+        return len;
+    }
+
+    /**
+     * Encodes characters {@code from} (inclusive) to {@code to} (exclusive) into
+     * {@code dst} for as long as it has {@link #MAX_CHAR_BYTES} bytes left, so a
+     * character is never split across two buffers.
+     *
+     * @return index of the first character not written; {@code to} once all are
+     */
+    public static int encode(CharSequence s, int from, int to, ByteBuffer dst) {
+        int i = from;
+        while (i < to && dst.remaining() >= MAX_CHAR_BYTES) {
+            char c = s.charAt(i++);
+            if (c < 0x80) {
+                dst.put((byte) c);
+            } else if (c < 0x800) {
+                dst.put((byte) (0xC0 | (c >> 6)));
+                dst.put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i < to && Character.isLowSurrogate(s.charAt(i))) {
+                int cp = Character.toCodePoint(c, s.charAt(i++));
+                dst.put((byte) (0xF0 | (cp >> 18)));
+                dst.put((byte) (0x80 | ((cp >> 12) & 0x3F)));
+                dst.put((byte) (0x80 | ((cp >> 6) & 0x3F)));
+                dst.put((byte) (0x80 | (cp & 0x3F)));
+            } else if (Character.isSurrogate(c)) {
+                dst.put((byte) '?');
+            } else {
+                dst.put((byte) (0xE0 | (c >> 12)));
+                dst.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                dst.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+        return i;
+    }
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Property and example checks for {@link SqlLexer}, {@link SqlFirewall} and
+ * {@link SqlNormalizer}, over inputs from {@link SqlFuzz}. No test framework needed:
+ * <pre>
+ * java -cp &lt;application classes&gt;:&lt;tests classes&gt; com.sqlforge.service.SqlFirewallProperties [iterations] [seed]
+ * </pre>
+ * Exits with status 1 and prints the seed, iteration and input of every failure, so a
+ * failure can be replayed with the same arguments.
+ * <p>
+ * The central property compares the lexer with {@link #h2Words}, a deliberately plain
+ * scanner that follows H2's rules for literals and comments: whatever words and
+ * statement separators H2 would see as code, the firewall must see too.
+ */
+public final class SqlFirewallProperties {
+    private static final Set<String> WRITES = Set.of(
+            "DROP", "ALTER", "TRUNCATE", "DELETE", "UPDATE", "INSERT", "MERGE", "CREATE");
+    private static final String[] BASES = {
+            "SELECT 1", "SELECT * FROM employees", "SELECT name FROM employees WHERE id = 1",
+            "SELECT e.name, p.name FROM employees e JOIN projects p ON p.owner_id = e.id"};
+    private static final String[] PAYLOADS = {
+            "; DROP TABLE employees", "; CREATE ALIAS X FOR \"java.lang.System.exit\"", "; SHUTDOWN",
+            "; DELETE FROM employees", "; UPDATE employees SET salary = 0"};
+
+    private final long seed;
+    private final List<String> failures = new ArrayList<>();
+
+    private SqlFirewallProperties(long seed) {
+        this.seed = seed;
+    }
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : System.nanoTime();
+        SqlFirewallProperties p = new SqlFirewallProperties(seed);
+        p.examples();
+        SqlFuzz fuzz = new SqlFuzz(seed);
+        for (int i = 0; i < iterations && p.failures.size() < 20; i++) {
+            String sql = i % 3 == 0 ? fuzz.chars(40) : fuzz.tokens(i % 3 == 1 ? "SELECT " : "", 24);
+            p.lexerMatchesH2(i, sql);
+            p.allowedMeansReadOnly(i, sql);
+            p.normalizedAgrees(i, sql);
+            p.commentHidesNothing(i, fuzz);
+            p.literalHidesEverything(i, fuzz);
+        }
+        System.out.println(iterations + " iterations, seed " + seed + ": "
+                + (p.failures.isEmpty() ? "all properties hold" : p.failures.size() + " failure(s)"));
+        p.failures.forEach(System.out::println);
+        if (!p.failures.isEmpty()) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Hand-picked cases, including each way a second statement has hidden behind a comment.
+     */
+    private void examples() {
+        expect(true, "SELECT name FROM employees WHERE name = 'Update team'");
+        expect(true, "SELECT REPLACE(name, 'a', 'b') FROM employees");
+        expect(true, "SELECT 1 // comment");
+        expect(true, "SELECT 1 // '\nFROM employees");
+        expect(true, "SELECT 1 -- x\rFROM employees");
+        expect(true, "SELECT 1 // x\r\nFROM employees");
+        expect(true, "SELECT 10 / 2 FROM employees");
+        expect(true, "SELECT 10 / /* c */ 2 FROM employees");
+        expect(true, "SELECT name FROM employees WHERE name = '// not a comment'");
+        expect(true, "SELECT name FROM employees WHERE name = '-- x\r; DROP TABLE x'");
+        expect(true, "SELECT 1 -- c\n'; DROP TABLE employees; --'");
+        expect(false, "SELECT 1; SHUTDOWN");
+        expect(false, "DELETE FROM employees");
+        expect(false, "SELECT FILE_READ('/etc/passwd')");
+        expect(false, "SELECT 1 // '\n; DROP TABLE employees; --'");
+        expect(false, "SELECT 1 // '\n; CREATE ALIAS X FOR \"java.lang.System.exit\"; --'");
+        expect(false, "SELECT 1 -- '\n; DROP TABLE employees; --'");
+        expect(false, "SELECT 1 -- x\r; DROP TABLE employees");
+        expect(false, "SELECT 1 // x\r; DROP TABLE employees");
+        expect(false, "SELECT 1; -- x\rSHUTDOWN");
+        expect(false, "SELECT 1 /* '\n */ ; DROP TABLE employees");
+        expect(false, "SELECT 'unterminated");
+        expect(false, "SELECT 1 /* unterminated");
+    }
+
+    private void expect(boolean allowed, String sql) {
+        FirewallVerdict v = SqlFirewall.inspect(sql);
+        if (v.isAllowed() != allowed) {
+            fail("example", -1, sql, "expected " + (allowed ? "allowed" : "rejected") + ", got " + v.getReason());
+        }
+    }
+
+    /**
+     * The lexer's words and separators, up to the first unterminated token, are H2's.
+     */
+    private void lexerMatchesH2(int i, String sql) {
+        List<String> expected = h2Words(sql);
+        List<String> actual = new ArrayList<>();
+        SqlLexer lx = new SqlLexer(sql);
+        boolean unterminated = false;
+        for (int type = lx.next(); type != SqlLexer.EOF; type = lx.next()) {
+            if (type == SqlLexer.UNTERMINATED) {
+                unterminated = true;
+                break;
+            }
+            if (type == SqlLexer.WORD) {
+                actual.add(lx.text().toUpperCase(Locale.ROOT));
+            } else if (lx.isSymbol(';')) {
+                actual.add(";");
+            }
+        }
+        if (expected == null ? !unterminated : unterminated || !expected.equals(actual)) {
+            fail("lexer matches H2", i, sql, "H2 sees " + (expected == null ? "an unterminated token" : expected)
+                    + ", lexer sees " + (unterminated ? "an unterminated token after " : "") + actual);
+        }
+    }
+
+    /**
+     * An allowed statement has no write keyword and no second statement as H2 reads it.
+     */
+    private void allowedMeansReadOnly(int i, String sql) {
+        if (!SqlFirewall.inspect(sql).isAllowed()) {
+            return;
+        }
+        List<String> words = h2Words(sql);
+        if (words == null) {
+            fail("allowed means read-only", i, sql, "allowed, but H2 sees an unterminated token");
+            return;
+        }
+        boolean ended = false;
+        for (String w : words) {
+            if (WRITES.contains(w) || (ended && !w.equals(";"))) {
+                fail("allowed means read-only", i, sql, "allowed, but H2 sees " + words);
+                return;
+            }
+            ended |= w.equals(";");
+        }
+    }
+
+    /**
+     * The normalized text (what actually runs) gets the verdict and tables of the original,
+     * and normalizing it again changes nothing.
+     */
+    private void normalizedAgrees(int i, String sql) {
+        FirewallVerdict raw = SqlFirewall.inspect(sql);
+        String text = SqlNormalizer.normalize(sql, false).getText();
+        FirewallVerdict normalized = SqlFirewall.inspect(text);
+        if (raw.isAllowed() != normalized.isAllowed()
+                || raw.isAllowed() && !Objects.equals(raw.getTables(), normalized.getTables())) {
+            fail("normalized agrees", i, sql, "raw " + describe(raw) + ", normalized " + describe(normalized)
+                    + " for " + show(text));
+        }
+        String again = SqlNormalizer.normalize(text, false).getText();
+        if (!again.equals(text)) {
+            fail("normalization is idempotent", i, sql, show(text) + " -> " + show(again));
+        }
+    }
+
+    /**
+     * A write after a line comment and a line break is always caught, whatever the comment holds.
+     */
+    private void commentHidesNothing(int i, SqlFuzz fuzz) {
+        String sql = fuzz.pick(BASES) + ' ' + (fuzz.nextInt(2) == 0 ? "--" : "//") + fuzz.lineJunk()
+                + fuzz.pick(SqlFuzz.BREAKS) + fuzz.pick(PAYLOADS) + (fuzz.nextInt(2) == 0 ? "" : "; --" + fuzz.lineJunk());
+        if (SqlFirewall.inspect(sql).isAllowed()) {
+            fail("comment hides nothing", i, sql, "allowed");
+        }
+    }
+
+    /**
+     * A write inside a well-formed string literal is just data.
+     */
+    private void literalHidesEverything(int i, SqlFuzz fuzz) {
+        String payload = fuzz.pick(PAYLOADS) + fuzz.pick(SqlFuzz.BREAKS) + fuzz.comment();
+        String sql = "SELECT name FROM employees WHERE name = '" + payload.replace("'", "''") + "'";
+        FirewallVerdict v = SqlFirewall.inspect(sql);
+        if (!v.isAllowed()) {
+            fail("literal hides everything", i, sql, v.getReason());
+        }
+    }
+
+    /**
+     * Upper-cased words and {@code ;} outside literals and comments, as H2 tokenizes them,
+     * or null if a literal, quoted identifier or block comment is never closed. Line
+     * comments start at {@code --} or {@code //} and end at CR or LF.
+     */
+    static List<String> h2Words(String sql) {
+        List<String> words = new ArrayList<>();
+        int n = sql.length();
+        int i = 0;
+        while (i < n) {
+            char c = sql.charAt(i);
+            char next = i + 1 < n ? sql.charAt(i + 1) : 0;
+            if ((c == '-' && next == '-') || (c == '/' && next == '/')) {
+                while (i < n && sql.charAt(i) != '\r' && sql.charAt(i) != '\n') i++;
+            } else if (c == '/' && next == '*') {
+                int close = sql.indexOf("*/", i + 2);
+                if (close < 0) {
+                    return null;
+                }
+                i = close + 2;
+            } else if (c == '$' && next == '$') {
+                int close = sql.indexOf("$$", i + 2);
+                if (close < 0) {
+                    return null;
+                }
+                i = close + 2;
+            } else if (c == '\'' || c == '"') {
+                i++;
+                while (true) {
+                    if (i >= n) {
+                        return null;
+                    }
+                    if (sql.charAt(i) == c) {
+                        if (i + 1 < n && sql.charAt(i + 1) == c) {
+                            i += 2;
+                            continue;
+                        }
+                        i++;
+                        break;
+                    }
+                    i++;
+                }
+            } else if (Character.isLetter(c) || c == '_') {
+                int start = i;
+                while (i < n && (Character.isLetterOrDigit(sql.charAt(i)) || sql.charAt(i) == '_' || sql.charAt(i) == '$')) i++;
+                words.add(sql.substring(start, i).toUpperCase(Locale.ROOT));
+            } else if (Character.isDigit(c)) {
+                // letters glued to a number are read as a word of their own: the cautious reading
+                while (i < n && (Character.isDigit(sql.charAt(i)) || sql.charAt(i) == '.')) i++;
+            } else {
+                if (c == ';') {
+                    words.add(";");
+                }
+                i++;
+            }
+        }
+        return words;
+    }
+
+    private void fail(String property, int iteration, String sql, String detail) {
+        failures.add(property + " [seed " + seed + ", iteration " + iteration + "] " + show(sql) + ": " + detail);
+    }
+
+    private static String describe(FirewallVerdict v) {
+        return v.isAllowed() ? "allowed " + v.getTables() : "rejected (" + v.getReason() + ")";
+    }
+
+    private static String show(String sql) {
+        return '"' + sql.replace("\r", "\\r").replace("\n", "\\n").replace("\t", "\\t") + '"';
+    }
+}
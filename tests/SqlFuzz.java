@@ -0,0 +1,135 @@
+/*
+ * Copyright © 2025 Devin B. Royal.
+ * All Rights Reserved.
+ */
+package com.sqlforge.service;
+
+import java.util.Random;
+
+/**
+ * Seeded generator of SQL-ish text for the firewall properties. Two shapes:
+ * <ul>
+ *   <li>{@link #tokens}: a statement built from keywords, names, literals, operators,
+ *       comments and line breaks, with the awkward pieces (quotes inside literals,
+ *       comment markers inside strings, CR-only breaks, bare {@code /} and {@code -})
+ *       weighted up;</li>
+ *   <li>{@link #chars}: raw text over the handful of characters that start or end
+ *       literals and comments, for the cases no token list thinks of.</li>
+ * </ul>
+ * Everything is ASCII and avoids backticks, whose meaning depends on H2's mode.
+ */
+final class SqlFuzz {
+    static final String[] KEYWORDS = {
+            "SELECT", "FROM", "WHERE", "AND", "OR", "NOT", "NULL", "IS", "IN", "LIKE", "JOIN", "ON", "AS",
+            "GROUP", "BY", "ORDER", "LIMIT", "UNION", "WITH", "EXPLAIN", "REPLACE",
+            "DROP", "ALTER", "TRUNCATE", "DELETE", "UPDATE", "INSERT", "MERGE", "CREATE", "ALIAS", "TABLE",
+            "SHUTDOWN", "FILE_READ", "CSVWRITE"};
+    static final String[] NAMES = {"employees", "projects", "e", "p", "id", "name", "dept", "salary", "owner_id",
+            "PUBLIC", "x$1", "_t"};
+    static final String[] SYMBOLS = {"(", ")", ",", ".", ";", "*", "+", "-", "/", "?", "=", "<>", "<=", "!=", "%"};
+    static final String[] BREAKS = {"\n", "\r", "\r\n", "\n\r"};
+    private static final String[] TRICKY = {"'", "\"", "--", "//", "/*", "*/", "$$", ";", "\r", "\n", "''", "\"\""};
+    private static final String CHARS = "'\"-/*$;\r\n aSD(),.=1";
+
+    private final Random random;
+
+    SqlFuzz(long seed) {
+        this.random = new Random(seed);
+    }
+
+    /**
+     * A statement of up to {@code maxTokens} tokens, starting with {@code head} (may be empty).
+     */
+    String tokens(String head, int maxTokens) {
+        StringBuilder sb = new StringBuilder(head);
+        int n = 1 + random.nextInt(maxTokens);
+        for (int i = 0; i < n; i++) {
+            sb.append(separator());
+            int kind = random.nextInt(20);
+            if (kind < 5) {
+                sb.append(pick(KEYWORDS));
+            } else if (kind < 9) {
+                sb.append(pick(NAMES));
+            } else if (kind < 12) {
+                sb.append(pick(SYMBOLS));
+            } else if (kind < 13) {
+                sb.append(random.nextInt(1000));
+            } else if (kind < 15) {
+                sb.append(string());
+            } else if (kind < 16) {
+                sb.append('"').append(junk().replace("\"", "\"\"")).append('"');
+            } else if (kind < 17) {
+                sb.append("$$").append(junk().replace("$", "")).append("$$");
+            } else if (kind < 19) {
+                sb.append(comment());
+            } else {
+                sb.append(pick(TRICKY)); // may leave a literal or comment open
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Raw text of up to {@code maxChars} characters.
+     */
+    String chars(int maxChars) {
+        int n = random.nextInt(maxChars + 1);
+        StringBuilder sb = new StringBuilder(n);
+        for (int i = 0; i < n; i++) {
+            sb.append(CHARS.charAt(random.nextInt(CHARS.length())));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * A well-formed {@code '...'} literal whose content may hold quotes, comment markers and breaks.
+     */
+    String string() {
+        return "'" + junk().replace("'", "''") + "'";
+    }
+
+    /**
+     * A line or block comment. Line comments end at a random line break, or at the end
+     * of the text when none follows.
+     */
+    String comment() {
+        switch (random.nextInt(3)) {
+            case 0:
+                return "--" + lineJunk() + pick(BREAKS);
+            case 1:
+                return "//" + lineJunk() + pick(BREAKS);
+            default:
+                return "/*" + junk().replace("*", "") + "*/"; // no nesting: H2 versions differ on it
+        }
+    }
+
+    /**
+     * Comment text that stays on one line: anything but CR and LF.
+     */
+    String lineJunk() {
+        return junk().replace('\r', ' ').replace('\n', ' ');
+    }
+
+    String pick(String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    int nextInt(int bound) {
+        return random.nextInt(bound);
+    }
+
+    private String junk() {
+        StringBuilder sb = new StringBuilder();
+        int n = random.nextInt(4);
+        for (int i = 0; i < n; i++) {
+            int kind = random.nextInt(4);
+            sb.append(kind == 0 ? pick(KEYWORDS) : kind == 1 ? pick(TRICKY) : kind == 2 ? pick(NAMES) : " ");
+        }
+        return sb.toString();
+    }
+
+    private String separator() {
+        int kind = random.nextInt(10);
+        return kind < 6 ? " " : kind < 8 ? pick(BREAKS) : kind < 9 ? "\t" : "";
+    }
+}